@@ -0,0 +1,140 @@
+package com.example.demo.aplicacion;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agrupa consignaciones simultáneas a una misma cuenta (app.transacciones.agrupacion.habilitada=true),
+ * pensado para cuentas recaudadoras que reciben ráfagas de depósitos.
+ *
+ * La primera consignación que llega para una cuenta abre un grupo y lo lidera: espera la ventana
+ * configurada (o a que el grupo se llene), lo cierra y lo registra en una sola transacción con
+ * un único depósito por el total y la inserción en lote de un registro por consignación. Las
+ * demás solo esperan su propia Transaccion. Un fallo del grupo se entrega a todas sus consignaciones:
+ * un depósito solo se rechaza por el estado de la cuenta, que es el mismo para todas.
+ *
+ * Métricas: {@code transacciones.agrupacion.tamano} con las consignaciones de cada grupo registrado.
+ */
+@Slf4j
+@Component
+public class AgrupadorConsignaciones {
+
+    private final ConcurrentHashMap<String, Grupo> abiertos = new ConcurrentHashMap<>();
+    private final boolean habilitado;
+    private final long ventanaNanos;
+    private final int maximo;
+    private final DistributionSummary tamanos;
+
+    public AgrupadorConsignaciones(
+            MeterRegistry registry,
+            @Value("${app.transacciones.agrupacion.habilitada:false}") boolean habilitado,
+            @Value("${app.transacciones.agrupacion.ventana:5ms}") Duration ventana,
+            @Value("${app.transacciones.agrupacion.maximo:100}") int maximo) {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("El tamaño máximo del grupo debe ser al menos 1.");
+        }
+        this.habilitado = habilitado;
+        this.ventanaNanos = ventana.toNanos();
+        this.maximo = maximo;
+        this.tamanos = DistributionSummary.builder("transacciones.agrupacion.tamano")
+            .description("Consignaciones registradas en cada grupo")
+            .register(registry);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Suma la consignación al grupo abierto de la cuenta (o abre uno) y espera su resultado.
+     * @param registrarGrupo registra los montos de un grupo y devuelve sus transacciones en el mismo
+     *        orden; solo lo ejecuta quien lidera el grupo.
+     */
+    public Transaccion consignar(String numeroCuenta, Dinero monto, Function<List<Dinero>, List<Transaccion>> registrarGrupo) {
+        Solicitud solicitud = new Solicitud(monto);
+        Grupo[] unido = new Grupo[1];
+        boolean[] lider = new boolean[1];
+        abiertos.compute(numeroCuenta, (cuenta, abierto) -> {
+            Grupo grupo = abierto != null ? abierto : new Grupo();
+            lider[0] = abierto == null;
+            unido[0] = grupo;
+            synchronized (grupo) {
+                grupo.solicitudes.add(solicitud);
+                if (grupo.solicitudes.size() < maximo) {
+                    return grupo;
+                }
+            }
+            // Lleno: no admite más consignaciones y quien lo lidera deja de esperar la ventana
+            grupo.lleno.countDown();
+            return null;
+        });
+        if (lider[0]) {
+            liderar(numeroCuenta, unido[0], registrarGrupo);
+        }
+        try {
+            return solicitud.futuro.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    private void liderar(String numeroCuenta, Grupo grupo, Function<List<Dinero>, List<Transaccion>> registrarGrupo) {
+        try {
+            grupo.lleno.await(ventanaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Se registra lo reunido hasta ahora
+            Thread.currentThread().interrupt();
+        }
+        // 🔑 Fuera del mapa ninguna consignación nueva puede sumarse: la lista queda fija
+        abiertos.remove(numeroCuenta, grupo);
+        List<Solicitud> solicitudes;
+        synchronized (grupo) {
+            solicitudes = List.copyOf(grupo.solicitudes);
+        }
+        tamanos.record(solicitudes.size());
+        log.debug("AGRUPACIÓN: {} consignaciones a la cuenta {} en un solo registro.", solicitudes.size(), numeroCuenta);
+
+        try {
+            List<Transaccion> registradas = registrarGrupo.apply(solicitudes.stream().map(s -> s.monto).toList());
+            for (int i = 0; i < solicitudes.size(); i++) {
+                solicitudes.get(i).futuro.complete(registradas.get(i));
+            }
+        } catch (RuntimeException | Error e) {
+            // Quien lidera también recibe el error a través de su propia solicitud
+            solicitudes.forEach(s -> s.futuro.completeExceptionally(e));
+        }
+    }
+
+    private static final class Grupo {
+
+        private final List<Solicitud> solicitudes = new ArrayList<>();
+        private final CountDownLatch lleno = new CountDownLatch(1);
+    }
+
+    private static final class Solicitud {
+
+        private final Dinero monto;
+        private final CompletableFuture<Transaccion> futuro = new CompletableFuture<>();
+
+        private Solicitud(Dinero monto) {
+            this.monto = monto;
+        }
+    }
+}
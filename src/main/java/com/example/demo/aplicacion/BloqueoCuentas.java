@@ -0,0 +1,158 @@
+package com.example.demo.aplicacion;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serializa dentro de la JVM las operaciones sobre una misma cuenta antes de que tomen una conexión:
+ * los hilos que compiten por una cuenta esperan aquí y no en la base de datos con una conexión del
+ * pool retenida. El bloqueo de filas en PostgreSQL sigue garantizando la consistencia entre nodos.
+ *
+ * Las cuentas se reparten por hash en un arreglo fijo de franjas (potencia de 2); dos cuentas de la
+ * misma franja también se serializan entre sí. Las operaciones de dos cuentas (transferencias) toman
+ * las franjas en orden ascendente de índice, por lo que A→B y B→A simultáneas no se bloquean
+ * mutuamente. Los cerrojos son reentrantes: un servicio puede invocar a otro con la franja ya tomada.
+ *
+ * Las cuentas que indique {@link #eximir} (saldo fraccionado) ejecutan conCuenta sin franja; en
+ * conCuentas la siguen tomando, porque una transferencia bloquea igualmente su fila.
+ *
+ * Con app.cuentas.bloqueo.habilitado=false las acciones se ejecutan sin tomar franjas (el motor de
+ * saldos en memoria ya serializa los movimientos de cada cuenta en su partición).
+ *
+ * Métricas: {@code cuentas.bloqueo.espera} (etiqueta {@code franja}) con la espera hasta obtener la
+ * franja, y {@code cuentas.bloqueo.agotados} con las operaciones rechazadas por superar la espera máxima.
+ */
+@Slf4j
+@Component
+public class BloqueoCuentas {
+
+    private final ReentrantLock[] franjas;
+    private final Timer[] esperas;
+    private final Counter agotados;
+    private final int mascara;
+    private final long esperaMaximaNanos;
+    private final boolean habilitado;
+    private volatile Predicate<String> exentas = numeroCuenta -> false;
+
+    public BloqueoCuentas(MeterRegistry registry, int cantidadFranjas, Duration esperaMaxima) {
+        this(registry, cantidadFranjas, esperaMaxima, true);
+    }
+
+    @Autowired
+    public BloqueoCuentas(
+            MeterRegistry registry,
+            @Value("${app.cuentas.bloqueo.franjas:64}") int cantidadFranjas,
+            @Value("${app.cuentas.bloqueo.espera-maxima:5s}") Duration esperaMaxima,
+            @Value("${app.cuentas.bloqueo.habilitado:true}") boolean habilitado) {
+        if (cantidadFranjas < 1 || Integer.bitCount(cantidadFranjas) != 1) {
+            throw new IllegalArgumentException("La cantidad de franjas debe ser una potencia de 2.");
+        }
+        this.franjas = new ReentrantLock[cantidadFranjas];
+        this.esperas = new Timer[cantidadFranjas];
+        for (int i = 0; i < cantidadFranjas; i++) {
+            franjas[i] = new ReentrantLock();
+            esperas[i] = Timer.builder("cuentas.bloqueo.espera")
+                .description("Espera hasta obtener la franja de la cuenta")
+                .tag("franja", String.valueOf(i))
+                .register(registry);
+        }
+        this.agotados = Counter.builder("cuentas.bloqueo.agotados")
+            .description("Operaciones rechazadas por superar la espera máxima de la franja")
+            .register(registry);
+        this.mascara = cantidadFranjas - 1;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.habilitado = habilitado;
+    }
+
+    /** Las cuentas que cumplan el criterio ejecutan conCuenta sin tomar franja. */
+    public void eximir(Predicate<String> criterio) {
+        this.exentas = criterio;
+    }
+
+    /** Ejecuta la acción con la franja de la cuenta tomada. */
+    public <T> T conCuenta(String numeroCuenta, Supplier<T> accion) {
+        if (!habilitado || exentas.test(numeroCuenta)) {
+            return accion.get();
+        }
+        int franja = franja(numeroCuenta);
+        tomar(franja, numeroCuenta);
+        try {
+            return accion.get();
+        } finally {
+            franjas[franja].unlock();
+        }
+    }
+
+    public void conCuenta(String numeroCuenta, Runnable accion) {
+        conCuenta(numeroCuenta, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    /** Ejecuta la acción con las franjas de ambas cuentas tomadas, en orden ascendente de índice. */
+    public <T> T conCuentas(String numeroCuentaA, String numeroCuentaB, Supplier<T> accion) {
+        if (!habilitado) {
+            return accion.get();
+        }
+        int franjaA = franja(numeroCuentaA);
+        int franjaB = franja(numeroCuentaB);
+        if (franjaA == franjaB) {
+            return conCuenta(numeroCuentaA, accion);
+        }
+        int primera = Math.min(franjaA, franjaB);
+        int segunda = Math.max(franjaA, franjaB);
+        tomar(primera, primera == franjaA ? numeroCuentaA : numeroCuentaB);
+        try {
+            tomar(segunda, segunda == franjaA ? numeroCuentaA : numeroCuentaB);
+            try {
+                return accion.get();
+            } finally {
+                franjas[segunda].unlock();
+            }
+        } finally {
+            franjas[primera].unlock();
+        }
+    }
+
+    int franja(String numeroCuenta) {
+        int h = numeroCuenta.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    private void tomar(int franja, String numeroCuenta) {
+        ReentrantLock cerrojo = franjas[franja];
+        // Reentrada: la franja ya es de este hilo, no hay espera que medir
+        if (cerrojo.isHeldByCurrentThread()) {
+            cerrojo.lock();
+            return;
+        }
+        long inicio = System.nanoTime();
+        boolean obtenido;
+        try {
+            obtenido = cerrojo.tryLock(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación interrumpida mientras esperaba la cuenta " + numeroCuenta + ".");
+        }
+        esperas[franja].record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        if (!obtenido) {
+            agotados.increment();
+            log.warn("CUENTA OCUPADA: {} (franja {}) no se liberó en {} ms.", numeroCuenta, franja,
+                     TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos));
+            throw new IllegalStateException("La cuenta " + numeroCuenta + " está ocupada. Intente nuevamente.");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.aplicacion;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
+import com.example.demo.dominio.modelo.SaldosTransferencia;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.in.GestionCuentaPort;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * GestionCuentaPort sobre el motor de saldos en memoria (app.cuentas.motor.habilitado=true).
+ * Depósitos, retiros y transferencias los aplica {@link MotorSaldos}; el resto se delega en
+ * {@link CuentaService} con la cuenta suspendida en el motor.
+ *
+ * Las transferencias no son atómicas entre particiones: se debita el origen y luego se acredita el
+ * destino. Si el crédito se rechaza, el débito se compensa con un depósito en el origen. Si el débito o
+ * el crédito no responden a tiempo, se concilian cuando terminan: la transferencia queda completa o
+ * compensada, nunca con el débito aplicado y sin crédito.
+ *
+ * El motor carga el saldo de productos_financieros: las cuentas con saldo fraccionado deben
+ * consolidarse (fracciones 0) antes de habilitarlo; {@link MotorSaldos} no arranca mientras quede alguna.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.cuentas.motor.habilitado", havingValue = "true")
+public class CuentaMotorService implements GestionCuentaPort {
+
+    private final CuentaService cuentaService;
+    private final MotorSaldos motor;
+
+    public CuentaMotorService(CuentaService cuentaService, MotorSaldos motor) {
+        this.cuentaService = cuentaService;
+        this.motor = motor;
+    }
+
+    @Override
+    public ProductoFinanciero crearCuenta(Long clienteId, TipoCuenta tipoCuenta) {
+        return cuentaService.crearCuenta(clienteId, tipoCuenta);
+    }
+
+    // 🔑 Éxitos en debug: a este volumen, una línea INFO por movimiento sería el cuello de botella
+    @Override
+    public Optional<Dinero> depositar(String numeroCuenta, Dinero monto) {
+        return Optional.of(depositar(numeroCuenta, monto, null));
+    }
+
+    @Override
+    public Optional<Dinero> retirar(String numeroCuenta, Dinero monto) {
+        return Optional.of(retirar(numeroCuenta, monto, null));
+    }
+
+    @Override
+    public SaldosTransferencia transferir(String cuentaOrigen, String cuentaDestino, Dinero monto) {
+        return transferir(cuentaOrigen, cuentaDestino, monto, null, null);
+    }
+
+    // Con registro (TransaccionMotorService): la transacción se inserta en el mismo commit del diario que el asiento
+    Dinero depositar(String numeroCuenta, Dinero monto, Transaccion registro) {
+        Dinero saldoFinal = motor.esperar(motor.depositar(numeroCuenta, monto, registro));
+        log.debug("DEPÓSITO EXITOSO: Cuenta {} recibió {}. Saldo final: {}.", numeroCuenta, monto, saldoFinal);
+        return saldoFinal;
+    }
+
+    Dinero retirar(String numeroCuenta, Dinero monto, Transaccion registro) {
+        try {
+            Dinero saldoFinal = motor.esperar(motor.retirar(numeroCuenta, monto, registro));
+            log.debug("RETIRO EXITOSO: Cuenta {} retiró {}. Saldo final: {}.", numeroCuenta, monto, saldoFinal);
+            return saldoFinal;
+        } catch (IllegalStateException e) {
+            log.warn("RETIRO FALLIDO: Cuenta {}. Intento de retiro de {}. Causa: {}", numeroCuenta, monto, e.getMessage());
+            throw e;
+        }
+    }
+
+    SaldosTransferencia transferir(String cuentaOrigen, String cuentaDestino, Dinero monto,
+                                   Transaccion debito, Transaccion credito) {
+        if (cuentaOrigen.equals(cuentaDestino)) {
+            log.warn("OPERACIÓN RECHAZADA: Transferencia con origen y destino iguales ({}).", cuentaOrigen);
+            throw new IllegalArgumentException("La cuenta de origen y la de destino deben ser distintas.");
+        }
+
+        // 1. Destino validado antes de debitar: la compensación queda para cambios simultáneos de estado
+        motor.esperar(motor.verificarActiva(cuentaDestino));
+        CompletableFuture<Dinero> futuroDebito = motor.retirar(cuentaOrigen, monto, debito);
+        Dinero saldoOrigen;
+        try {
+            saldoOrigen = motor.esperar(futuroDebito);
+        } catch (RuntimeException e) {
+            // Sin respuesta a tiempo el débito pudo aplicarse después: la transferencia ya se abandonó, se devuelve
+            alTerminar(futuroDebito, (saldo, error) -> {
+                if (error == null) {
+                    compensar(cuentaOrigen, cuentaDestino, monto, debito != null);
+                }
+            });
+            log.warn("TRANSFERENCIA RECHAZADA: Cuenta {}. Intento de débito de {}. Causa: {}", cuentaOrigen, monto, e.getMessage());
+            throw e;
+        }
+
+        // 2. Crédito. Si falla se compensa el débito; sin respuesta a tiempo se concilia cuando el crédito
+        //    termine: rechazado, se compensa; aplicado, la transferencia queda completa
+        CompletableFuture<Dinero> futuroCredito = motor.depositar(cuentaDestino, monto, credito);
+        Dinero saldoDestino;
+        try {
+            saldoDestino = motor.esperar(futuroCredito);
+        } catch (RuntimeException e) {
+            if (!futuroCredito.isDone()) {
+                log.error("TRANSFERENCIA INCIERTA: {} desde {} hacia {}. El crédito no respondió a tiempo; se concilia al terminar.",
+                          monto, cuentaOrigen, cuentaDestino);
+            }
+            alTerminar(futuroCredito, (saldo, error) -> {
+                if (error != null) {
+                    compensar(cuentaOrigen, cuentaDestino, monto, credito != null);
+                } else {
+                    log.warn("TRANSFERENCIA CONCILIADA: {} desde {} hacia {}. El crédito se aplicó después de la espera.",
+                             monto, cuentaOrigen, cuentaDestino);
+                }
+            });
+            throw e;
+        }
+        log.debug("TRANSFERENCIA APLICADA: {} desde {} (saldo final {}) hacia {} (saldo final {}).",
+                  monto, cuentaOrigen, saldoOrigen, cuentaDestino, saldoDestino);
+        return new SaldosTransferencia(saldoOrigen, saldoDestino);
+    }
+
+    @Override
+    public void cancelarCuenta(String numeroCuenta) {
+        conCuentaSuspendida(numeroCuenta, () -> {
+            cuentaService.cancelarCuenta(numeroCuenta);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<ProductoFinanciero> buscarCuentaPorNumero(String numeroCuenta) {
+        // El saldo persistido no incluye los asientos sin consolidar: el vigente lo tiene el motor
+        return cuentaService.buscarCuentaPorNumero(numeroCuenta).map(cuenta -> {
+            cuenta.setSaldo(motor.esperar(motor.saldo(numeroCuenta)));
+            return cuenta;
+        });
+    }
+
+    @Override
+    public ProductoFinanciero actualizarEstadoCuenta(String numeroCuenta, String nuevoEstado) {
+        return conCuentaSuspendida(numeroCuenta, () -> cuentaService.actualizarEstadoCuenta(numeroCuenta, nuevoEstado));
+    }
+
+    // El motor ya reparte los movimientos por partición; sus saldos no incluyen fracciones
+    @Override
+    public ProductoFinanciero fraccionarSaldo(String numeroCuenta, int fracciones) {
+        throw new IllegalStateException("El fraccionamiento de saldos no está disponible con el motor de saldos en memoria.");
+    }
+
+    // 🔑 Suspendida (y consolidada), la cuenta solo cambia en productos_financieros: CuentaService ve el saldo vigente
+    private <T> T conCuentaSuspendida(String numeroCuenta, Supplier<T> accion) {
+        motor.esperar(motor.suspender(numeroCuenta));
+        try {
+            return accion.get();
+        } finally {
+            motor.esperar(motor.reanudar(numeroCuenta));
+        }
+    }
+
+    // 🔑 Si el futuro ya terminó se resuelve aquí; si no, al terminar y fuera del hilo de la partición, que
+    // no debe quedar esperando otro comando del motor (podría ser de su misma cola)
+    private static <T> void alTerminar(CompletableFuture<T> futuro, BiConsumer<T, Throwable> accion) {
+        if (futuro.isDone()) {
+            futuro.whenComplete(accion);
+        } else {
+            futuro.whenCompleteAsync(accion);
+        }
+    }
+
+    // Devuelve el débito al origen. Con registro, la devolución se empareja con el débito que cancela
+    // (mismo origen, destino y monto) en lugar del crédito que nunca se aplicó; solo mueve el origen
+    private void compensar(String cuentaOrigen, String cuentaDestino, Dinero monto, boolean conRegistro) {
+        Transaccion devolucion = conRegistro
+            ? new Transaccion(TipoTransaccion.TRANSFERENCIA_REVERSO, monto, cuentaOrigen, cuentaDestino)
+            : null;
+        try {
+            motor.esperar(motor.depositar(cuentaOrigen, monto, devolucion));
+            log.warn("TRANSFERENCIA REVERTIDA: {} devueltos a {}; el destino {} no recibió el crédito.", monto, cuentaOrigen, cuentaDestino);
+        } catch (RuntimeException e) {
+            log.error("COMPENSACIÓN FALLIDA: {} debitados de {} no se devolvieron tras el rechazo de {}. Causa: {}",
+                      monto, cuentaOrigen, cuentaDestino, e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.example.demo.aplicacion;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import com.example.demo.dominio.modelo.Cliente;
 import com.example.demo.dominio.modelo.CuentaAhorros;
 import com.example.demo.dominio.modelo.CuentaCorriente;
 import com.example.demo.dominio.modelo.ProductoFinanciero;
 import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
 import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
+import com.example.demo.dominio.modelo.SaldosTransferencia;
 import com.example.demo.dominio.modelo.VO.Dinero;
 import com.example.demo.dominio.port.in.GestionCuentaPort;
 import com.example.demo.dominio.port.out.ClienteRepositoryPort;
@@ -21,12 +23,21 @@ import lombok.extern.slf4j.Slf4j;
 	@Service
 	public class CuentaService implements GestionCuentaPort {
 	
+	    static final int MAXIMO_FRACCIONES = 256;
+	
 	    private final CuentaRepositoryPort cuentaRepository;
 	    private final ClienteRepositoryPort clienteRepository;
+	    private final ReintentoOptimista reintentoOptimista;
+	    private final BloqueoCuentas bloqueoCuentas;
 	
-	    public CuentaService(CuentaRepositoryPort cuentaRepository, ClienteRepositoryPort clienteRepository) {
+	    public CuentaService(CuentaRepositoryPort cuentaRepository, ClienteRepositoryPort clienteRepository,
+	                         ReintentoOptimista reintentoOptimista, BloqueoCuentas bloqueoCuentas) {
 	        this.cuentaRepository = cuentaRepository;
 	        this.clienteRepository = clienteRepository;
+	        this.reintentoOptimista = reintentoOptimista;
+	        this.bloqueoCuentas = bloqueoCuentas;
+	        // 🔑 Las cuentas fraccionadas no toman franja: sus movimientos concurrentes van a filas distintas
+	        bloqueoCuentas.eximir(cuentaRepository::tieneSaldoFraccionado);
 	    }
 	
 	    
@@ -34,17 +45,17 @@ import lombok.extern.slf4j.Slf4j;
 	    public ProductoFinanciero crearCuenta(Long clienteId, TipoCuenta tipoCuenta) {
 	        log.info("Iniciando creación de cuenta {} para Cliente ID {}.", tipoCuenta, clienteId);
 	
-	        Cliente cliente = clienteRepository.buscarPorId(clienteId)
-	                .orElseThrow(() -> {
-	                    log.error("CREACIÓN FALLIDA: El cliente con ID {} no existe.", clienteId); 
-	                    return new IllegalArgumentException("El cliente con ID " + clienteId + " no existe.");
-	                });
+	        // 🔑 Solo se necesita saber que el cliente existe: no se reconstruye la entidad
+	        if (!clienteRepository.existePorId(clienteId)) {
+	            log.error("CREACIÓN FALLIDA: El cliente con ID {} no existe.", clienteId); 
+	            throw new IllegalArgumentException("El cliente con ID " + clienteId + " no existe.");
+	        }
 	
 	        ProductoFinanciero nuevaCuenta;
 	        if (tipoCuenta == TipoCuenta.AHORROS) {
-	            nuevaCuenta = new CuentaAhorros(cliente.getId());
+	            nuevaCuenta = new CuentaAhorros(clienteId);
 	        } else if (tipoCuenta == TipoCuenta.CORRIENTE) {
-	            nuevaCuenta = new CuentaCorriente(cliente.getId());
+	            nuevaCuenta = new CuentaCorriente(clienteId);
 	        } else {
 	            log.error("CREACIÓN FALLIDA: Tipo de cuenta no soportado: {}", tipoCuenta);
 	            throw new IllegalArgumentException("Tipo de cuenta no soportado.");
@@ -58,39 +69,61 @@ import lombok.extern.slf4j.Slf4j;
 	
 	    
 	    @Override
-	    public void depositar(String numeroCuenta, Dinero monto) {
+	    public Optional<Dinero> depositar(String numeroCuenta, Dinero monto) {
 	        log.info("Iniciando depósito de {} a la cuenta {}.", monto, numeroCuenta); 
 	        
-	        ProductoFinanciero cuenta = buscarCuentaActivaPorNumero(numeroCuenta);
-	        Dinero saldoAnterior = cuenta.getSaldo();
-	        
-	        cuenta.depositar(monto);
+	        Dinero saldoFinal = bloqueoCuentas.conCuenta(numeroCuenta, () -> aplicarMovimiento(numeroCuenta, monto, monto));
 	        
-	        cuentaRepository.guardar(cuenta);
 	        log.info("DEPÓSITO EXITOSO: Cuenta {} recibió {}. Saldo final: {}.", 
-	                 numeroCuenta, monto, cuenta.getSaldo()); 
+	                 numeroCuenta, monto, saldoFinal); 
+	        return saldoResultante(numeroCuenta, saldoFinal);
 	    }
 	
 	    
 	    @Override
-	    public void retirar(String numeroCuenta, Dinero monto) {
+	    public Optional<Dinero> retirar(String numeroCuenta, Dinero monto) {
 	        log.info("Iniciando retiro de {} de la cuenta {}.", monto, numeroCuenta); 
 	        
-	        ProductoFinanciero cuenta = buscarCuentaActivaPorNumero(numeroCuenta);
-	        Dinero saldoAnterior = cuenta.getSaldo(); 
+	        Dinero saldoFinal = bloqueoCuentas.conCuenta(numeroCuenta, () -> aplicarMovimiento(numeroCuenta, monto.negar(), monto));
+	        
+	        log.info("RETIRO EXITOSO: Cuenta {} retiró {}. Saldo final: {}.", 
+	                 numeroCuenta, monto, saldoFinal); 
+	        return saldoResultante(numeroCuenta, saldoFinal);
+	    }
+	
+	    
+	    // Sin franjas propias: se invoca dentro de la transacción de TransaccionService, que ya las tomó
+	    @Override
+	    @Transactional
+	    public SaldosTransferencia transferir(String cuentaOrigen, String cuentaDestino, Dinero monto) {
+	        log.info("Iniciando transferencia de {} desde {} hacia {}.", monto, cuentaOrigen, cuentaDestino); 
 	        
+	        if (cuentaOrigen.equals(cuentaDestino)) {
+	            log.warn("OPERACIÓN RECHAZADA: Transferencia con origen y destino iguales ({}).", cuentaOrigen);
+	            throw new IllegalArgumentException("La cuenta de origen y la de destino deben ser distintas.");
+	        }
+	        
+	        // 1. Bloqueo de ambas filas en orden de id (una sola sentencia)
+	        List<ProductoFinanciero> bloqueadas = cuentaRepository.bloquearCuentas(List.of(cuentaOrigen, cuentaDestino));
+	        ProductoFinanciero origen = verificarCuentaActiva(buscarEn(bloqueadas, cuentaOrigen), cuentaOrigen);
+	        ProductoFinanciero destino = verificarCuentaActiva(buscarEn(bloqueadas, cuentaDestino), cuentaDestino);
+	        
+	        // 2. Reglas de dominio sobre el estado bloqueado (saldo insuficiente, etc.)
 	        try {
-	            cuenta.retirar(monto);
+	            origen.retirar(monto);
 	        } catch (IllegalStateException e) {
-	            
-	            log.warn("RETIRO FALLIDO: Cuenta {} con saldo {}. Intento de retiro de {}. Causa: {}", 
-	                     numeroCuenta, saldoAnterior, monto, e.getMessage()); 
+	            log.warn("TRANSFERENCIA RECHAZADA: Cuenta {} con saldo {}. Intento de débito de {}. Causa: {}", 
+	                     cuentaOrigen, origen.getSaldo(), monto, e.getMessage()); 
 	            throw e;
 	        }
+	        destino.depositar(monto);
 	        
-	        cuentaRepository.guardar(cuenta);
-	        log.info("RETIRO EXITOSO: Cuenta {} retiró {}. Saldo final: {}.", 
-	                 numeroCuenta, monto, cuenta.getSaldo()); 
+	        // 3. Débito y crédito en una sola sentencia
+	        cuentaRepository.aplicarTransferencia(cuentaOrigen, cuentaDestino, monto);
+	        log.info("TRANSFERENCIA APLICADA: {} desde {} (saldo final {}) hacia {} (saldo final {}).", 
+	                 monto, cuentaOrigen, origen.getSaldo(), cuentaDestino, destino.getSaldo()); 
+	        // Calculados sobre las filas bloqueadas (con sus fracciones): son los saldos exactos tras la transferencia
+	        return new SaldosTransferencia(origen.getSaldo(), destino.getSaldo());
 	    }
 	
 	   
@@ -98,16 +131,20 @@ import lombok.extern.slf4j.Slf4j;
 	    public void cancelarCuenta(String numeroCuenta) {
 	        log.warn("Iniciando cancelación de la cuenta {}.", numeroCuenta); 
 	        
-	        ProductoFinanciero cuenta = buscarCuentaActivaPorNumero(numeroCuenta);
-	        
-	        try {
-	            cuenta.cancelar(); 
-	        } catch (IllegalStateException e) {
-	            log.warn("CANCELACIÓN FALLIDA: Cuenta {} no pudo cancelarse. Causa: {}", numeroCuenta, e.getMessage()); 
-	            throw e;
-	        }
-	        
-	        cuentaRepository.guardar(cuenta);
+	        // 🔑 Lectura + regla + guardado se repiten completos si otra operación modificó la cuenta
+	        // (con la franja tomada, solo otro nodo puede provocar el conflicto)
+	        bloqueoCuentas.conCuenta(numeroCuenta, () -> reintentoOptimista.ejecutar("cancelarCuenta", () -> {
+	            ProductoFinanciero cuenta = buscarCuentaActivaPorNumero(numeroCuenta);
+	            
+	            try {
+	                cuenta.cancelar(); 
+	            } catch (IllegalStateException e) {
+	                log.warn("CANCELACIÓN FALLIDA: Cuenta {} no pudo cancelarse. Causa: {}", numeroCuenta, e.getMessage()); 
+	                throw e;
+	            }
+	            
+	            cuentaRepository.guardar(cuenta);
+	        }));
 	        log.warn("CANCELACIÓN EXITOSA: Cuenta {} ha sido CANCELADA.", numeroCuenta);
 	    }
 	
@@ -129,6 +166,11 @@ import lombok.extern.slf4j.Slf4j;
 	    public ProductoFinanciero actualizarEstadoCuenta(String numeroCuenta, String nuevoEstado) {
 	        log.info("Iniciando cambio de estado para Cuenta {} a {}.", numeroCuenta, nuevoEstado); 
 	
+	        return bloqueoCuentas.conCuenta(numeroCuenta,
+	            () -> reintentoOptimista.ejecutar("actualizarEstadoCuenta", () -> cambiarEstado(numeroCuenta, nuevoEstado)));
+	    }
+	    
+	    private ProductoFinanciero cambiarEstado(String numeroCuenta, String nuevoEstado) {
 	        ProductoFinanciero cuenta = cuentaRepository.buscarPorNumero(numeroCuenta)
 	                .orElseThrow(() -> {
 	                    log.error("ACTUALIZACIÓN ESTADO FALLIDA: Cuenta {} no encontrada.", numeroCuenta); 
@@ -152,9 +194,35 @@ import lombok.extern.slf4j.Slf4j;
 	        return cuentaActualizada;
 	    }
 	    
+	    
+	    @Override
+	    public ProductoFinanciero fraccionarSaldo(String numeroCuenta, int fracciones) {
+	        log.info("Iniciando fraccionamiento del saldo de la cuenta {} en {} fracciones.", numeroCuenta, fracciones); 
+	
+	        if (fracciones < 0 || fracciones == 1 || fracciones > MAXIMO_FRACCIONES) {
+	            log.error("FRACCIONAMIENTO FALLIDO: {} fracciones no es válido para la cuenta {}.", fracciones, numeroCuenta); 
+	            throw new IllegalArgumentException("Las fracciones deben ser 0 (sin fraccionar) o estar entre 2 y " + MAXIMO_FRACCIONES + ".");
+	        }
+	        if (fracciones > 0) {
+	            buscarCuentaActivaPorNumero(numeroCuenta);
+	        }
+	        if (!cuentaRepository.fraccionarSaldo(numeroCuenta, fracciones)) {
+	            log.error("FRACCIONAMIENTO FALLIDO: Cuenta {} no encontrada.", numeroCuenta); 
+	            throw new IllegalArgumentException("Cuenta " + numeroCuenta + " no encontrada.");
+	        }
+	
+	        log.info("FRACCIONAMIENTO EXITOSO: Cuenta {} con el saldo en {} fracciones.", numeroCuenta, fracciones); 
+	        return cuentaRepository.buscarPorNumero(numeroCuenta)
+	            .orElseThrow(() -> new IllegalArgumentException("Cuenta " + numeroCuenta + " no encontrada."));
+	    }
+	    
 	   
 	    private ProductoFinanciero buscarCuentaActivaPorNumero(String numeroCuenta) {
-	        ProductoFinanciero cuenta = cuentaRepository.buscarPorNumero(numeroCuenta)
+	        return verificarCuentaActiva(cuentaRepository.buscarPorNumero(numeroCuenta), numeroCuenta);
+	    }
+	    
+	    private ProductoFinanciero verificarCuentaActiva(Optional<ProductoFinanciero> encontrada, String numeroCuenta) {
+	        ProductoFinanciero cuenta = encontrada
 	            .orElseThrow(() -> {
 	                log.warn("OPERACIÓN RECHAZADA: Cuenta {} no encontrada para la operación.", numeroCuenta);
 	                return new IllegalArgumentException("Cuenta " + numeroCuenta + " no encontrada.");
@@ -167,4 +235,41 @@ import lombok.extern.slf4j.Slf4j;
 	        log.debug("Cuenta {} verificada como ACTIVA.", numeroCuenta); 
 	        return cuenta;
 	    }
+	    
+	    private static Optional<ProductoFinanciero> buscarEn(List<ProductoFinanciero> cuentas, String numeroCuenta) {
+	        return cuentas.stream().filter(c -> numeroCuenta.equals(c.getNumeroCuenta())).findFirst();
+	    }
+	    
+	    /**
+	     * Aplica el movimiento con una única sentencia condicional. Solo cuando no se actualiza
+	     * ninguna fila se consulta la cuenta, para devolver el error de negocio correspondiente.
+	     */
+	    private Dinero aplicarMovimiento(String numeroCuenta, Dinero delta, Dinero monto) {
+	        return cuentaRepository.aplicarMovimiento(numeroCuenta, delta)
+	            .orElseThrow(() -> rechazoDeMovimiento(numeroCuenta, delta, monto));
+	    }
+	    
+	    // 🔑 En una cuenta fraccionada el saldo devuelto es el de una fracción, no el de la cuenta.
+	    // La consulta va después del movimiento: una consolidación espera a que su transacción termine.
+	    private Optional<Dinero> saldoResultante(String numeroCuenta, Dinero saldoFinal) {
+	        return cuentaRepository.tieneSaldoFraccionado(numeroCuenta) ? Optional.empty() : Optional.of(saldoFinal);
+	    }
+	    
+	    private RuntimeException rechazoDeMovimiento(String numeroCuenta, Dinero delta, Dinero monto) {
+	        // Lanza IllegalArgumentException (no encontrada) o IllegalStateException (no ACTIVA)
+	        ProductoFinanciero cuenta = buscarCuentaActivaPorNumero(numeroCuenta);
+	        
+	        if (delta.esNegativo()) {
+	            log.warn("RETIRO FALLIDO: Cuenta {} con saldo {}. Intento de retiro de {}. Causa: saldo insuficiente.", 
+	                     numeroCuenta, cuenta.getSaldo(), monto); 
+	            try {
+	                // Reutiliza la regla del dominio para obtener el mensaje propio del tipo de cuenta
+	                cuenta.retirar(monto);
+	            } catch (IllegalStateException e) {
+	                return e;
+	            }
+	        }
+	        // La cuenta cambió entre la actualización y la consulta: se rechaza igualmente.
+	        return new IllegalStateException("Saldo insuficiente para realizar la operación en la cuenta " + numeroCuenta + ".");
+	    }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.example.demo.aplicacion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dominio.modelo.RegistroIdempotencia;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.port.in.EjecucionIdempotentePort;
+import com.example.demo.dominio.port.out.ClaveIdempotenciaRepositoryPort;
+import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Movimientos idempotentes (encabezado Idempotency-Key) en dos niveles:
+ *
+ * - Memoria: la primera petición con una clave publica un futuro; los duplicados simultáneos esperan
+ *   ese resultado en lugar de ejecutar de nuevo. Las entradas vencen con una {@link RuedaTemporal}.
+ * - Base de datos: la clave se inserta en la misma transacción que el movimiento. Si ya existe (otro
+ *   nodo, o un reintento tras reiniciar), el movimiento no se ejecuta y se devuelven las transacciones
+ *   registradas. Así cada clave mueve dinero exactamente una vez.
+ *
+ * En el camino normal (clave nueva) no se toma ningún bloqueo adicional: solo se inserta una fila.
+ * Si el movimiento falla, la clave se libera y el cliente puede reintentar.
+ *
+ * No está disponible con el motor de saldos en memoria: el motor confirma el movimiento en el diario
+ * de cada partición (una transferencia, en dos commits), fuera de la transacción que registra la clave.
+ * Si esa transacción se revirtiera, el reintento movería el dinero otra vez.
+ */
+@Slf4j
+@Service
+public class IdempotenciaService implements EjecucionIdempotentePort {
+
+    private final ClaveIdempotenciaRepositoryPort claveRepository;
+    private final TransaccionRepositoryPort transaccionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration esperaMaxima;
+    private final Map<String, Ejecucion> enMemoria = new ConcurrentHashMap<>();
+    private final RuedaTemporal<String> rueda;
+    private final boolean motorSaldosHabilitado;
+
+    public IdempotenciaService(
+            ClaveIdempotenciaRepositoryPort claveRepository,
+            TransaccionRepositoryPort transaccionRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.transacciones.idempotencia.ttl:24h}") Duration ttl,
+            @Value("${app.transacciones.idempotencia.ttl-memoria:10m}") Duration ttlMemoria,
+            @Value("${app.transacciones.idempotencia.tick-ms:1000}") long tickMs,
+            @Value("${app.transacciones.idempotencia.espera-maxima:30s}") Duration esperaMaxima,
+            @Value("${app.cuentas.motor.habilitado:false}") boolean motorSaldosHabilitado) {
+        this.claveRepository = claveRepository;
+        this.transaccionRepository = transaccionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.esperaMaxima = esperaMaxima;
+        this.rueda = new RuedaTemporal<>(ttlMemoria, Duration.ofMillis(tickMs), enMemoria::remove);
+        this.motorSaldosHabilitado = motorSaldosHabilitado;
+    }
+
+    // Ejecución (en curso o terminada) de una clave en este nodo
+    private static final class Ejecucion {
+        final String huella;
+        final CompletableFuture<List<Transaccion>> resultado = new CompletableFuture<>();
+
+        Ejecucion(String huella) {
+            this.huella = huella;
+        }
+    }
+
+    // Señal interna: la clave ya estaba registrada; revierte la transacción sin ejecutar el movimiento
+    private static final class ClaveRegistrada extends RuntimeException {
+        ClaveRegistrada() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Override
+    public List<Transaccion> ejecutar(String clave, String descripcion, Supplier<List<Transaccion>> movimiento) {
+        if (motorSaldosHabilitado) {
+            throw new IllegalStateException("Las claves de idempotencia no están disponibles con el motor de saldos en memoria.");
+        }
+        String huella = huella(descripcion);
+        Ejecucion nueva = new Ejecucion(huella);
+        Ejecucion existente = enMemoria.putIfAbsent(clave, nueva);
+
+        if (existente != null) {
+            verificarHuella(clave, existente.huella, huella);
+            log.info("IDEMPOTENCIA: clave {} repetida, se devuelve el resultado de la primera ejecución.", clave);
+            return esperar(existente);
+        }
+
+        try {
+            List<Transaccion> resultado = ejecutarUnaVez(clave, huella, movimiento);
+            nueva.resultado.complete(resultado);
+            rueda.programar(clave);
+            return resultado;
+        } catch (RuntimeException e) {
+            // El movimiento no se confirmó: la clave queda libre para un reintento
+            enMemoria.remove(clave, nueva);
+            nueva.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private List<Transaccion> ejecutarUnaVez(String clave, String huella, Supplier<List<Transaccion>> movimiento) {
+        LocalDateTime expiraEn = LocalDateTime.now().plus(ttl);
+        try {
+            return transactionTemplate.execute(estado -> {
+                if (!claveRepository.reservar(clave, huella, expiraEn)) {
+                    throw new ClaveRegistrada();
+                }
+                List<Transaccion> transacciones = movimiento.get();
+                claveRepository.completar(clave, transacciones.stream().map(Transaccion::getId).toList());
+                return transacciones;
+            });
+        } catch (ClaveRegistrada e) {
+            // Registrada por otro nodo o antes de un reinicio: se reconstruye el resultado guardado
+            RegistroIdempotencia registro = claveRepository.buscar(clave)
+                .orElseThrow(() -> new IllegalStateException("La clave de idempotencia " + clave + " está en uso."));
+            verificarHuella(clave, registro.getHuella(), huella);
+            log.info("IDEMPOTENCIA: clave {} ya registrada, se devuelven las transacciones {}.", clave, registro.getIdsTransacciones());
+            return transaccionRepository.buscarPorIds(registro.getIdsTransacciones());
+        }
+    }
+
+    private List<Transaccion> esperar(Ejecucion ejecucion) {
+        try {
+            return ejecucion.resultado.get(esperaMaxima.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // Mismo error que la ejecución original (ej. saldo insuficiente)
+            throw e.getCause() instanceof RuntimeException causa ? causa : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("La operación con esta clave de idempotencia sigue en curso. Intente nuevamente.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera interrumpida.", e);
+        }
+    }
+
+    private static void verificarHuella(String clave, String registrada, String recibida) {
+        if (!registrada.equals(recibida)) {
+            throw new IllegalArgumentException("La clave de idempotencia " + clave + " ya se usó con otra petición.");
+        }
+    }
+
+    // Avanza la rueda: las claves vencidas salen de memoria (siguen en la base de datos hasta su TTL)
+    @Scheduled(fixedRateString = "${app.transacciones.idempotencia.tick-ms:1000}")
+    public void avanzarRueda() {
+        rueda.avanzar();
+    }
+
+    @Scheduled(cron = "${app.transacciones.idempotencia.purga-cron:0 45 * * * *}")
+    public void purgarVencidas() {
+        int eliminadas = claveRepository.purgarVencidas(LocalDateTime.now());
+        if (eliminadas > 0) {
+            log.info("IDEMPOTENCIA: {} claves vencidas eliminadas.", eliminadas);
+        }
+    }
+
+    int enMemoria() {
+        return enMemoria.size();
+    }
+
+    private static String huella(String descripcion) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(descripcion.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible.", e);
+        }
+    }
+}
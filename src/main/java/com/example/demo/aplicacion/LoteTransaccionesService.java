@@ -0,0 +1,303 @@
+package com.example.demo.aplicacion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.ResultadoMovimiento;
+import com.example.demo.dominio.modelo.SolicitudMovimiento;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.in.ProcesamientoLotePort;
+import com.example.demo.dominio.port.out.CuentaRepositoryPort;
+import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Movimientos masivos (conciliación nocturna, liquidación de comercios) aplicados por bloques.
+ *
+ * Cada bloque es una transacción: se bloquean de una vez todas sus cuentas (en orden de id, como las
+ * transferencias), los movimientos se validan y aplican en memoria en el orden recibido, y al final
+ * se envían un UPDATE por cuenta con su delta neto y los INSERT de las transacciones, ambos en lotes
+ * JDBC. Un movimiento rechazado (cuenta inexistente o inactiva, saldo insuficiente, datos inválidos)
+ * no se aplica y no afecta a los demás.
+ *
+ * La memoria queda acotada por el tamaño del bloque: el siguiente bloque se lee de la entrada solo
+ * después de entregar los resultados del anterior.
+ *
+ * No está disponible con el motor de saldos en memoria: escribe los saldos directamente en
+ * productos_financieros y el motor debe ser su único escritor.
+ */
+@Slf4j
+@Service
+public class LoteTransaccionesService implements ProcesamientoLotePort {
+
+    private static final Set<String> TIPOS_MOVIMIENTO = Set.of("CONSIGNACION", "RETIRO", "TRANSFERENCIA");
+
+    private final CuentaRepositoryPort cuentaRepository;
+    private final TransaccionRepositoryPort transaccionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoBloque;
+    private final boolean motorSaldosHabilitado;
+    private final Timer tiempoBloque;
+    private final Counter aplicados;
+    private final Counter rechazados;
+
+    public LoteTransaccionesService(
+            CuentaRepositoryPort cuentaRepository,
+            TransaccionRepositoryPort transaccionRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry registry,
+            @Value("${app.transacciones.lote.tamano-bloque:500}") int tamanoBloque,
+            @Value("${app.cuentas.motor.habilitado:false}") boolean motorSaldosHabilitado) {
+        if (tamanoBloque < 1) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser al menos 1.");
+        }
+        this.cuentaRepository = cuentaRepository;
+        this.transaccionRepository = transaccionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanoBloque = tamanoBloque;
+        this.motorSaldosHabilitado = motorSaldosHabilitado;
+        this.tiempoBloque = Timer.builder("transacciones.lote.bloque")
+            .description("Duración de la transacción de cada bloque de movimientos")
+            .register(registry);
+        this.aplicados = Counter.builder("transacciones.lote.movimientos").tag("resultado", "aplicado").register(registry);
+        this.rechazados = Counter.builder("transacciones.lote.movimientos").tag("resultado", "rechazado").register(registry);
+    }
+
+    @Override
+    public long procesar(Iterator<SolicitudMovimiento> movimientos, Consumer<ResultadoMovimiento> consumidor) {
+        if (motorSaldosHabilitado) {
+            throw new IllegalStateException("El procesamiento por lotes no está disponible con el motor de saldos en memoria.");
+        }
+        List<SolicitudMovimiento> bloque = new ArrayList<>(tamanoBloque);
+        long procesados = 0;
+        while (true) {
+            try {
+                if (!movimientos.hasNext()) {
+                    break;
+                }
+                bloque.add(movimientos.next());
+            } catch (RuntimeException e) {
+                // Entrada mal formada: los movimientos ya leídos se aplican igualmente antes de informar el error
+                procesarBloque(bloque, procesados, consumidor);
+                throw e;
+            }
+            if (bloque.size() == tamanoBloque) {
+                procesados += procesarBloque(bloque, procesados, consumidor);
+                bloque.clear();
+            }
+        }
+        procesados += procesarBloque(bloque, procesados, consumidor);
+        log.info("LOTE PROCESADO: {} movimientos.", procesados);
+        return procesados;
+    }
+
+    private int procesarBloque(List<SolicitudMovimiento> bloque, long primerIndice, Consumer<ResultadoMovimiento> consumidor) {
+        if (bloque.isEmpty()) {
+            return 0;
+        }
+        List<ResultadoMovimiento> resultados;
+        try {
+            resultados = tiempoBloque.record(() -> transactionTemplate.execute(estado -> aplicarBloque(bloque, primerIndice)));
+        } catch (RuntimeException e) {
+            // Falla técnica (no de negocio): la transacción del bloque se revirtió completa
+            log.error("BLOQUE FALLIDO: movimientos {} a {} revertidos. Causa: {}",
+                      primerIndice, primerIndice + bloque.size() - 1, e.getMessage());
+            resultados = new ArrayList<>(bloque.size());
+            for (int i = 0; i < bloque.size(); i++) {
+                resultados.add(ResultadoMovimiento.rechazado(primerIndice + i, "Bloque revertido: " + e.getMessage()));
+            }
+        }
+        // 🔑 Los resultados se entregan fuera de la transacción: un cliente lento no retiene los bloqueos
+        for (ResultadoMovimiento resultado : resultados) {
+            (resultado.isAplicado() ? aplicados : rechazados).increment();
+            consumidor.accept(resultado);
+        }
+        return bloque.size();
+    }
+
+    private List<ResultadoMovimiento> aplicarBloque(List<SolicitudMovimiento> bloque, long primerIndice) {
+        // 1. Validación de datos; las cuentas de los movimientos válidos se bloquean en una sola sentencia
+        List<Movimiento> validos = new ArrayList<>(bloque.size());
+        String[] errores = new String[bloque.size()];
+        Set<String> numerosCuenta = new LinkedHashSet<>();
+        for (int i = 0; i < bloque.size(); i++) {
+            try {
+                Movimiento movimiento = validar(i, bloque.get(i));
+                validos.add(movimiento);
+                movimiento.cuentas().forEach(numerosCuenta::add);
+            } catch (IllegalArgumentException e) {
+                errores[i] = e.getMessage();
+            }
+        }
+        Map<String, ProductoFinanciero> cuentas = new HashMap<>();
+        if (!numerosCuenta.isEmpty()) {
+            cuentaRepository.bloquearCuentas(numerosCuenta).forEach(c -> cuentas.put(c.getNumeroCuenta(), c));
+        }
+
+        // 2. Reglas de dominio en el orden recibido, sobre el estado bloqueado
+        Map<String, Dinero> deltas = new LinkedHashMap<>();
+        List<Transaccion> registros = new ArrayList<>();
+        int[] primerRegistro = new int[bloque.size()];
+        int[] cantidadRegistros = new int[bloque.size()];
+        for (Movimiento movimiento : validos) {
+            try {
+                List<Transaccion> generados = aplicar(movimiento, cuentas, deltas);
+                primerRegistro[movimiento.posicion] = registros.size();
+                cantidadRegistros[movimiento.posicion] = generados.size();
+                registros.addAll(generados);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                errores[movimiento.posicion] = e.getMessage();
+            }
+        }
+
+        // 3. Escrituras agrupadas: un UPDATE por cuenta y los INSERT en lotes
+        deltas.values().removeIf(Dinero::esCero);
+        cuentaRepository.aplicarDeltas(deltas);
+        List<Transaccion> guardados = registros.isEmpty() ? Collections.emptyList() : transaccionRepository.guardarMultiples(registros);
+
+        List<ResultadoMovimiento> resultados = new ArrayList<>(bloque.size());
+        int rechazadosBloque = 0;
+        for (int i = 0; i < bloque.size(); i++) {
+            if (errores[i] != null) {
+                resultados.add(ResultadoMovimiento.rechazado(primerIndice + i, errores[i]));
+                rechazadosBloque++;
+            } else {
+                int desde = primerRegistro[i];
+                resultados.add(ResultadoMovimiento.aplicado(primerIndice + i, guardados.subList(desde, desde + cantidadRegistros[i])));
+            }
+        }
+        log.info("BLOQUE APLICADO: {} movimientos ({} rechazados) sobre {} cuentas.", bloque.size(), rechazadosBloque, deltas.size());
+        return resultados;
+    }
+
+    private static String tipo(SolicitudMovimiento solicitud) {
+        return solicitud.getTipoMovimiento() == null ? null : solicitud.getTipoMovimiento().toUpperCase();
+    }
+
+    private static Movimiento validar(int posicion, SolicitudMovimiento solicitud) {
+        String tipo = tipo(solicitud);
+        if (tipo == null || !TIPOS_MOVIMIENTO.contains(tipo)) {
+            throw new IllegalArgumentException("Tipo de movimiento inválido.");
+        }
+        if (solicitud.getMonto() == null || solicitud.getMonto().signum() <= 0) {
+            throw new IllegalArgumentException("El monto debe ser un valor positivo.");
+        }
+        Dinero monto = Dinero.of(solicitud.getMonto());
+        if (monto.esCero() || monto.esNegativo()) {
+            throw new IllegalArgumentException("El monto debe ser un valor positivo.");
+        }
+        String origen = "CONSIGNACION".equals(tipo) ? null : requerida(solicitud.getCuentaOrigen(), "cuentaOrigen", tipo);
+        String destino = "RETIRO".equals(tipo) ? null : requerida(solicitud.getCuentaDestino(), "cuentaDestino", tipo);
+        if (origen != null && origen.equals(destino)) {
+            throw new IllegalArgumentException("La cuenta de origen y la de destino deben ser distintas.");
+        }
+        return new Movimiento(posicion, tipo, origen, destino, monto);
+    }
+
+    private static String requerida(String numeroCuenta, String campo, String tipo) {
+        if (numeroCuenta == null || numeroCuenta.isBlank()) {
+            throw new IllegalArgumentException("El campo " + campo + " es obligatorio para " + tipo + ".");
+        }
+        return numeroCuenta;
+    }
+
+    private static List<Transaccion> aplicar(Movimiento movimiento, Map<String, ProductoFinanciero> cuentas, Map<String, Dinero> deltas) {
+        switch (movimiento.tipo) {
+            case "CONSIGNACION": {
+                ProductoFinanciero destino = cuentaActiva(cuentas, movimiento.destino);
+                destino.depositar(movimiento.monto);
+                deltas.merge(movimiento.destino, movimiento.monto, Dinero::sumar);
+                return List.of(conSaldo(new Transaccion(TipoTransaccion.CONSIGNACION, movimiento.monto, movimiento.destino), destino));
+            }
+            case "RETIRO": {
+                ProductoFinanciero origen = cuentaActiva(cuentas, movimiento.origen);
+                origen.retirar(movimiento.monto);
+                deltas.merge(movimiento.origen, movimiento.monto.negar(), Dinero::sumar);
+                return List.of(conSaldo(new Transaccion(TipoTransaccion.RETIRO, movimiento.monto, movimiento.origen), origen));
+            }
+            default: {
+                ProductoFinanciero origen = cuentaActiva(cuentas, movimiento.origen);
+                ProductoFinanciero destino = cuentaActiva(cuentas, movimiento.destino);
+                origen.retirar(movimiento.monto);
+                try {
+                    destino.depositar(movimiento.monto);
+                } catch (IllegalStateException e) {
+                    origen.depositar(movimiento.monto); // deshace el débito en memoria: el movimiento se rechaza completo
+                    throw e;
+                }
+                deltas.merge(movimiento.origen, movimiento.monto.negar(), Dinero::sumar);
+                deltas.merge(movimiento.destino, movimiento.monto, Dinero::sumar);
+                return List.of(
+                    conSaldo(new Transaccion(TipoTransaccion.TRANSFERENCIA_DEBITO, movimiento.monto, movimiento.origen, movimiento.destino), origen),
+                    conSaldo(new Transaccion(TipoTransaccion.TRANSFERENCIA_CREDITO, movimiento.monto, movimiento.origen, movimiento.destino), destino));
+            }
+        }
+    }
+
+    // 🔑 Las cuentas están bloqueadas (con sus fracciones) y los movimientos se aplican en orden: su saldo en
+    // memoria es el saldo exacto tras cada uno
+    private static Transaccion conSaldo(Transaccion registro, ProductoFinanciero cuenta) {
+        registro.setSaldoResultante(cuenta.getSaldo());
+        return registro;
+    }
+
+    private static ProductoFinanciero cuentaActiva(Map<String, ProductoFinanciero> cuentas, String numeroCuenta) {
+        ProductoFinanciero cuenta = cuentas.get(numeroCuenta);
+        if (cuenta == null) {
+            throw new IllegalArgumentException("Cuenta " + numeroCuenta + " no encontrada.");
+        }
+        if (cuenta.getEstado() != EstadoCuenta.ACTIVA) {
+            throw new IllegalStateException("La cuenta " + numeroCuenta + " no está activa para realizar esta operación.");
+        }
+        return cuenta;
+    }
+
+    /** Movimiento ya validado, con su posición dentro del bloque. */
+    private static final class Movimiento {
+
+        final int posicion;
+        final String tipo;
+        final String origen;
+        final String destino;
+        final Dinero monto;
+
+        Movimiento(int posicion, String tipo, String origen, String destino, Dinero monto) {
+            this.posicion = posicion;
+            this.tipo = tipo;
+            this.origen = origen;
+            this.destino = destino;
+            this.monto = monto;
+        }
+
+        List<String> cuentas() {
+            List<String> cuentas = new ArrayList<>(2);
+            if (origen != null) {
+                cuentas.add(origen);
+            }
+            if (destino != null) {
+                cuentas.add(destino);
+            }
+            return cuentas;
+        }
+    }
+}
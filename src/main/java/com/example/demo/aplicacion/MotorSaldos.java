@@ -0,0 +1,381 @@
+package com.example.demo.aplicacion;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dominio.modelo.AsientoSaldo;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.out.DiarioSaldosPort;
+import com.example.demo.dominio.port.out.DiarioSaldosPort.EscritorDiario;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Motor de saldos en memoria (app.cuentas.motor.habilitado=true). Las cuentas se reparten por hash
+ * entre particiones; cada partición es un único hilo dueño de los saldos de sus cuentas, que aplica
+ * depósitos y retiros sin cerrojos en el orden en que llegan.
+ *
+ * - Commit en grupo: el hilo toma todos los comandos en cola (hasta asientos-por-commit), los aplica en
+ *   memoria y registra sus asientos en el diario con un solo commit. Solo entonces se completan los
+ *   futuros: un movimiento confirmado ya es durable.
+ * - Los movimientos con registro ({@link TransaccionMotorService}) insertan su transacción en ese mismo
+ *   commit: no hay saldo movido sin su fila en transacciones.
+ * - Si el diario falla, los movimientos del grupo (asientos y registros) se rechazan y sus cuentas se
+ *   descartan de memoria; la siguiente operación las recarga desde la base de datos.
+ * - Recuperación: una cuenta se carga al primer uso con el saldo de productos_financieros más sus
+ *   asientos pendientes. La consolidación periódica traslada el diario a productos_financieros.
+ * - Ese saldo no incluye saldos_fraccionados: el motor no arranca si queda alguna cuenta fraccionada.
+ *
+ * El motor asume que es el único que escribe saldos: un solo nodo de la aplicación.
+ *
+ * Métricas: {@code cuentas.motor.cola} (etiqueta {@code particion}) con los comandos en espera, y
+ * {@code cuentas.motor.asientos-por-commit} con el tamaño de cada grupo registrado en el diario.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cuentas.motor.habilitado", havingValue = "true")
+public class MotorSaldos {
+
+    private final DiarioSaldosPort diario;
+    private final Particion[] particiones;
+    private final DistributionSummary asientosPorCommit;
+    private final int asientosMaximos;
+    private final int cuentasPorParticion;
+    private final long esperaMaximaNanos;
+    private volatile boolean activo = true;
+
+    public MotorSaldos(
+            DiarioSaldosPort diario,
+            MeterRegistry registry,
+            @Value("${app.cuentas.motor.particiones:4}") int cantidadParticiones,
+            @Value("${app.cuentas.motor.capacidad-cola:10000}") int capacidadCola,
+            @Value("${app.cuentas.motor.asientos-por-commit:1000}") int asientosMaximos,
+            @Value("${app.cuentas.motor.cuentas-por-particion:100000}") int cuentasPorParticion,
+            @Value("${app.cuentas.motor.espera-maxima:5s}") Duration esperaMaxima) {
+        if (cantidadParticiones < 1) {
+            throw new IllegalArgumentException("El motor de saldos necesita al menos una partición.");
+        }
+        // Con las fracciones fuera del saldo cargado, la cuenta vería menos dinero del que tiene
+        long fraccionadas = diario.cuentasFraccionadas();
+        if (fraccionadas > 0) {
+            throw new IllegalStateException("El motor de saldos no puede iniciar: " + fraccionadas
+                + " cuentas tienen el saldo fraccionado. Consolide sus fracciones antes de habilitarlo.");
+        }
+        this.diario = diario;
+        this.asientosMaximos = asientosMaximos;
+        this.cuentasPorParticion = cuentasPorParticion;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.asientosPorCommit = DistributionSummary.builder("cuentas.motor.asientos-por-commit")
+            .description("Asientos registrados en el diario por cada commit en grupo")
+            .register(registry);
+        this.particiones = new Particion[cantidadParticiones];
+        for (int i = 0; i < cantidadParticiones; i++) {
+            particiones[i] = new Particion(i, capacidadCola);
+            Gauge.builder("cuentas.motor.cola", particiones[i].cola, BlockingQueue::size)
+                .description("Comandos en espera de la partición")
+                .tag("particion", String.valueOf(i))
+                .register(registry);
+        }
+        for (Particion particion : particiones) {
+            particion.hilo.start();
+        }
+        log.info("MOTOR DE SALDOS: {} particiones iniciadas.", cantidadParticiones);
+    }
+
+    /** @return el saldo final, una vez registrado el asiento en el diario. */
+    public CompletableFuture<Dinero> depositar(String numeroCuenta, Dinero monto) {
+        return depositar(numeroCuenta, monto, null);
+    }
+
+    /**
+     * Depósito con su registro: la partición le asigna el saldo resultante y el diario lo inserta en
+     * el mismo commit que el asiento.
+     * @return el saldo final, una vez registrados el asiento y la transacción.
+     */
+    public CompletableFuture<Dinero> depositar(String numeroCuenta, Dinero monto, Transaccion registro) {
+        return enviar(numeroCuenta, (p, futuro) -> p.aplicar(numeroCuenta, monto, false, registro, futuro));
+    }
+
+    /** @return el saldo final, una vez registrado el asiento en el diario. */
+    public CompletableFuture<Dinero> retirar(String numeroCuenta, Dinero monto) {
+        return retirar(numeroCuenta, monto, null);
+    }
+
+    /** Retiro con su registro; ver {@link #depositar(String, Dinero, Transaccion)}. */
+    public CompletableFuture<Dinero> retirar(String numeroCuenta, Dinero monto, Transaccion registro) {
+        return enviar(numeroCuenta, (p, futuro) -> p.aplicar(numeroCuenta, monto, true, registro, futuro));
+    }
+
+    /** Saldo vigente de la cuenta (incluye los movimientos confirmados aún no consolidados). */
+    public CompletableFuture<Dinero> saldo(String numeroCuenta) {
+        return enviar(numeroCuenta, (p, futuro) -> p.pendientes.add(new Pendiente<>(futuro, p.cuenta(numeroCuenta).getSaldo())));
+    }
+
+    /** Falla si la cuenta no existe o no está ACTIVA. */
+    public CompletableFuture<Void> verificarActiva(String numeroCuenta) {
+        return enviar(numeroCuenta, (p, futuro) -> {
+            p.cuentaActiva(numeroCuenta);
+            p.pendientes.add(new Pendiente<>(futuro, null));
+        });
+    }
+
+    /**
+     * Consolida la cuenta y rechaza sus movimientos hasta {@link #reanudar}: mientras tanto otro
+     * servicio puede modificarla directamente en productos_financieros (cancelación, cambio de estado).
+     */
+    public CompletableFuture<Void> suspender(String numeroCuenta) {
+        return enviar(numeroCuenta, (p, futuro) -> p.suspender(numeroCuenta, futuro));
+    }
+
+    /** Vuelve a admitir movimientos; la cuenta se recarga desde la base de datos en su próximo uso. */
+    public CompletableFuture<Void> reanudar(String numeroCuenta) {
+        return enviar(numeroCuenta, (p, futuro) -> {
+            p.suspendidas.remove(numeroCuenta);
+            p.cuentas.remove(numeroCuenta);
+            futuro.complete(null);
+        });
+    }
+
+    /**
+     * Espera el resultado de un comando y propaga el error de negocio tal como lo lanzó la partición.
+     * @throws IllegalStateException si no hay respuesta dentro de la espera máxima; el movimiento
+     *         pudo aplicarse igualmente.
+     */
+    public <T> T esperar(CompletableFuture<T> futuro) {
+        try {
+            return futuro.get(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("El motor de saldos no respondió a tiempo. Consulte el saldo antes de reintentar.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación interrumpida mientras esperaba el motor de saldos.");
+        }
+    }
+
+    /**
+     * Traslada los asientos del diario a productos_financieros. Los saldos en memoria no cambian:
+     * saldo persistido + asientos pendientes es el mismo antes y después.
+     */
+    @Scheduled(fixedDelayString = "${app.cuentas.motor.consolidacion-ms:5000}")
+    public void consolidar() {
+        int cuentas = diario.consolidar();
+        if (cuentas > 0) {
+            log.debug("MOTOR DE SALDOS: diario consolidado en {} cuentas.", cuentas);
+        }
+    }
+
+    /** Detiene las particiones después de procesar los comandos que ya estaban en cola. */
+    @PreDestroy
+    public void cerrar() {
+        activo = false;
+        for (Particion particion : particiones) {
+            try {
+                particion.hilo.join(TimeUnit.NANOSECONDS.toMillis(esperaMaximaNanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("MOTOR DE SALDOS: particiones detenidas.");
+    }
+
+    int particion(String numeroCuenta) {
+        int h = numeroCuenta.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), particiones.length);
+    }
+
+    private <T> CompletableFuture<T> enviar(String numeroCuenta, BiConsumer<Particion, CompletableFuture<T>> accion) {
+        if (!activo) {
+            throw new IllegalStateException("El motor de saldos está detenido.");
+        }
+        Comando<T> comando = new Comando<>(accion);
+        int indice = particion(numeroCuenta);
+        boolean encolado;
+        try {
+            encolado = particiones[indice].cola.offer(comando, esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación interrumpida mientras esperaba el motor de saldos.");
+        }
+        if (!encolado) {
+            log.warn("MOTOR SATURADO: la partición {} no admitió la operación sobre la cuenta {}.", indice, numeroCuenta);
+            throw new IllegalStateException("El motor de saldos está saturado. Intente nuevamente.");
+        }
+        return comando.futuro;
+    }
+
+    private static final class Comando<T> {
+
+        private final BiConsumer<Particion, CompletableFuture<T>> accion;
+        private final CompletableFuture<T> futuro = new CompletableFuture<>();
+
+        private Comando(BiConsumer<Particion, CompletableFuture<T>> accion) {
+            this.accion = accion;
+        }
+
+        private void ejecutar(Particion particion) {
+            try {
+                accion.accept(particion, futuro);
+            } catch (RuntimeException e) {
+                futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    /** Resultado calculado en memoria que se entrega cuando el grupo queda registrado en el diario. */
+    private static final class Pendiente<T> {
+
+        private final CompletableFuture<T> futuro;
+        private final T valor;
+
+        private Pendiente(CompletableFuture<T> futuro, T valor) {
+            this.futuro = futuro;
+            this.valor = valor;
+        }
+
+        private void completar() {
+            futuro.complete(valor);
+        }
+    }
+
+    /** Estado de una partición: solo lo lee y modifica su propio hilo. */
+    private final class Particion implements Runnable {
+
+        private final int indice;
+        private final BlockingQueue<Comando<?>> cola;
+        private final Thread hilo;
+        private final Map<String, ProductoFinanciero> cuentas = new HashMap<>();
+        private final Set<String> suspendidas = new HashSet<>();
+        private final List<Comando<?>> recibidos = new ArrayList<>();
+        private final List<AsientoSaldo> asientos = new ArrayList<>();
+        private final List<Pendiente<?>> pendientes = new ArrayList<>();
+        private EscritorDiario escritor;
+
+        private Particion(int indice, int capacidadCola) {
+            this.indice = indice;
+            this.cola = new ArrayBlockingQueue<>(capacidadCola);
+            this.hilo = new Thread(this, "motor-saldos-" + indice);
+            this.hilo.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try (EscritorDiario abierto = diario.abrirEscritor()) {
+                escritor = abierto;
+                while (activo || !cola.isEmpty()) {
+                    Comando<?> primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                    if (primero == null) {
+                        continue;
+                    }
+                    recibidos.add(primero);
+                    cola.drainTo(recibidos, asientosMaximos - 1);
+                    recibidos.forEach(comando -> comando.ejecutar(this));
+                    recibidos.clear();
+                    confirmar();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void aplicar(String numeroCuenta, Dinero monto, boolean retiro, Transaccion registro,
+                             CompletableFuture<Dinero> futuro) {
+            ProductoFinanciero cuenta = cuentaActiva(numeroCuenta);
+            // Reglas del dominio (saldo insuficiente según el tipo de cuenta); no modifican la cuenta si fallan
+            if (retiro) {
+                cuenta.retirar(monto);
+            } else {
+                cuenta.depositar(monto);
+            }
+            if (registro != null) {
+                registro.setSaldoResultante(cuenta.getSaldo());
+            }
+            asientos.add(new AsientoSaldo(numeroCuenta, retiro ? monto.negar() : monto, registro));
+            pendientes.add(new Pendiente<>(futuro, cuenta.getSaldo()));
+        }
+
+        private void suspender(String numeroCuenta, CompletableFuture<Void> futuro) {
+            // Lo ya aplicado de la cuenta debe estar en el diario antes de consolidarla
+            confirmar();
+            escritor.consolidar(numeroCuenta);
+            cuentas.remove(numeroCuenta);
+            suspendidas.add(numeroCuenta);
+            futuro.complete(null);
+        }
+
+        private ProductoFinanciero cuenta(String numeroCuenta) {
+            if (suspendidas.contains(numeroCuenta)) {
+                throw new IllegalStateException("La cuenta " + numeroCuenta + " se está actualizando. Intente nuevamente.");
+            }
+            ProductoFinanciero cuenta = cuentas.get(numeroCuenta);
+            if (cuenta == null) {
+                cuenta = escritor.cargar(numeroCuenta)
+                    .orElseThrow(() -> new IllegalArgumentException("Cuenta " + numeroCuenta + " no encontrada."));
+                cuentas.put(numeroCuenta, cuenta);
+            }
+            return cuenta;
+        }
+
+        private ProductoFinanciero cuentaActiva(String numeroCuenta) {
+            ProductoFinanciero cuenta = cuenta(numeroCuenta);
+            if (cuenta.getEstado() != EstadoCuenta.ACTIVA) {
+                throw new IllegalStateException("La cuenta no está activa para realizar esta operación.");
+            }
+            return cuenta;
+        }
+
+        private void confirmar() {
+            if (!asientos.isEmpty()) {
+                try {
+                    escritor.registrar(asientos);
+                    asientosPorCommit.record(asientos.size());
+                } catch (RuntimeException e) {
+                    log.error("MOTOR DE SALDOS: la partición {} no pudo registrar {} asientos en el diario. Causa: {}",
+                              indice, asientos.size(), e.getMessage());
+                    // Los saldos en memoria ya incluyen estos asientos: se recargan desde la base de datos
+                    asientos.forEach(asiento -> cuentas.remove(asiento.getNumeroCuenta()));
+                    pendientes.forEach(pendiente -> pendiente.futuro.completeExceptionally(e));
+                    asientos.clear();
+                    pendientes.clear();
+                    return;
+                }
+                asientos.clear();
+            }
+            pendientes.forEach(Pendiente::completar);
+            pendientes.clear();
+            // Todo lo que está en memoria ya es durable: descartarlo solo obliga a recargar
+            if (cuentas.size() > cuentasPorParticion) {
+                cuentas.clear();
+            }
+        }
+    }
+}
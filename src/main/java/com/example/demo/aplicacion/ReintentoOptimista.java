@@ -0,0 +1,109 @@
+package com.example.demo.aplicacion;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ejecuta operaciones de lectura-modificación-escritura sobre cuentas reintentando ante
+ * conflictos de versión (bloqueo optimista), con un número acotado de intentos y espera
+ * exponencial con jitter completo entre ellos.
+ *
+ * Cada intento debe abrir su propia transacción (no invocar dentro de un método @Transactional),
+ * para que la relectura obtenga la versión vigente.
+ *
+ * Métricas publicadas (etiqueta {@code operacion}):
+ * <ul>
+ *   <li>{@code cuentas.concurrencia.intentos}: intentos por operación (count = operaciones, max = peor caso).</li>
+ *   <li>{@code cuentas.concurrencia.conflictos}: conflictos de versión detectados.</li>
+ *   <li>{@code cuentas.concurrencia.agotados}: operaciones que fallaron tras agotar los reintentos.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ReintentoOptimista {
+
+    private final MeterRegistry registry;
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+
+    public ReintentoOptimista(
+            MeterRegistry registry,
+            @Value("${app.cuentas.reintentos.max-intentos:3}") int maxIntentos,
+            @Value("${app.cuentas.reintentos.espera-base-ms:10}") long esperaBaseMs,
+            @Value("${app.cuentas.reintentos.espera-maxima-ms:200}") long esperaMaximaMs) {
+        if (maxIntentos < 1) {
+            throw new IllegalArgumentException("El número máximo de intentos debe ser al menos 1.");
+        }
+        this.registry = registry;
+        this.maxIntentos = maxIntentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    public void ejecutar(String operacion, Runnable accion) {
+        ejecutar(operacion, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    public <T> T ejecutar(String operacion, Supplier<T> accion) {
+        for (int intento = 1; ; intento++) {
+            try {
+                T resultado = accion.get();
+                intentos(operacion).record(intento);
+                return resultado;
+            } catch (OptimisticLockingFailureException e) {
+                contador("cuentas.concurrencia.conflictos", operacion).increment();
+                if (intento >= maxIntentos) {
+                    intentos(operacion).record(intento);
+                    contador("cuentas.concurrencia.agotados", operacion).increment();
+                    log.error("CONFLICTO DE CONCURRENCIA: {} falló tras {} intentos.", operacion, intento);
+                    throw e;
+                }
+                long espera = calcularEspera(intento);
+                log.warn("CONFLICTO DE CONCURRENCIA: {} (intento {}/{}). Reintentando en {} ms.",
+                         operacion, intento, maxIntentos, espera);
+                esperar(espera);
+            }
+        }
+    }
+
+    // 🔑 Jitter completo: espera aleatoria en [0, min(máximo, base * 2^(intento-1))]
+    private long calcularEspera(int intento) {
+        long tope = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intento - 1, 20));
+        return tope <= 0 ? 0 : ThreadLocalRandom.current().nextLong(tope + 1);
+    }
+
+    private static void esperar(long milisegundos) {
+        if (milisegundos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reintento interrumpido.", e);
+        }
+    }
+
+    private Counter contador(String nombre, String operacion) {
+        return Counter.builder(nombre).tag("operacion", operacion).register(registry);
+    }
+
+    private DistributionSummary intentos(String operacion) {
+        return DistributionSummary.builder("cuentas.concurrencia.intentos")
+                .tag("operacion", operacion)
+                .register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.aplicacion;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Rueda temporal (timing wheel) para vencer elementos con un mismo TTL.
+ *
+ * Cada ranura agrupa los elementos programados durante un tick. Programar es O(1) (se añade a la ranura
+ * actual) y cada tick vence la ranura siguiente completa, sin ordenar ni recorrer los demás elementos.
+ * Un elemento vence entre TTL y TTL + 1 tick después de programarse.
+ */
+public class RuedaTemporal<K> {
+
+    private final Set<K>[] ranuras;
+    private final Consumer<K> alVencer;
+    private volatile int actual;
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporal(Duration ttl, Duration tick, Consumer<K> alVencer) {
+        if (tick.isZero() || tick.isNegative() || ttl.compareTo(tick) < 0) {
+            throw new IllegalArgumentException("El tick debe ser positivo y no mayor que el TTL.");
+        }
+        // ceil(ttl / tick) + 1 ranuras: la ranura actual se vacía tras recorrer la rueda completa
+        long cantidad = (ttl.toNanos() + tick.toNanos() - 1) / tick.toNanos() + 1;
+        this.ranuras = new Set[Math.toIntExact(cantidad)];
+        for (int i = 0; i < ranuras.length; i++) {
+            ranuras[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.alVencer = alVencer;
+    }
+
+    public void programar(K elemento) {
+        ranuras[actual].add(elemento);
+    }
+
+    /** Avanza un tick y vence los elementos de la ranura a la que llega. Lo invoca un único hilo. */
+    public void avanzar() {
+        int siguiente = (actual + 1) % ranuras.length;
+        actual = siguiente;
+        Iterator<K> vencidos = ranuras[siguiente].iterator();
+        while (vencidos.hasNext()) {
+            K elemento = vencidos.next();
+            vencidos.remove();
+            alVencer.accept(elemento);
+        }
+    }
+
+    public int cantidadRanuras() {
+        return ranuras.length;
+    }
+}
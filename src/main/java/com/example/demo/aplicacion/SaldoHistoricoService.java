@@ -0,0 +1,173 @@
+package com.example.demo.aplicacion;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.PuntoSaldo;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.in.ConsultaSaldoHistoricoPort;
+import com.example.demo.dominio.port.in.GestionCuentaPort;
+import com.example.demo.dominio.port.out.PuntosControlSaldoPort;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Saldos históricos a partir de los cierres diarios por cuenta (app.cuentas.saldos-diarios.habilitado=true).
+ *
+ * Cada noche se registra el cierre de los días pendientes para las cuentas que tuvieron movimientos.
+ * El saldo en un instante parte del cierre más cercano y solo suma los movimientos entre ambos: como
+ * un día sin cierre es un día sin movimientos, el recorrido queda acotado al día consultado y a los
+ * días aún sin registrar. Una serie lee los cierres del rango y arrastra el último valor.
+ *
+ * La cuenta se lee de {@link GestionCuentaPort} y no del repositorio: con el motor de saldos el saldo
+ * persistido no incluye los asientos sin consolidar, y sin cierres es el punto de partida.
+ */
+@Slf4j
+@Service
+public class SaldoHistoricoService implements ConsultaSaldoHistoricoPort {
+
+    // Puntos por serie: un gráfico no necesita más, y el intervalo permite cubrir rangos largos
+    static final int MAXIMO_PUNTOS_SERIE = 1000;
+
+    private final PuntosControlSaldoPort puntosControl;
+    private final GestionCuentaPort cuentaService;
+    private final boolean habilitado;
+    private final Clock reloj;
+
+    @Autowired
+    public SaldoHistoricoService(
+            PuntosControlSaldoPort puntosControl,
+            GestionCuentaPort cuentaService,
+            @Value("${app.cuentas.saldos-diarios.habilitado:false}") boolean habilitado) {
+        this(puntosControl, cuentaService, habilitado, Clock.systemDefaultZone());
+    }
+
+    SaldoHistoricoService(PuntosControlSaldoPort puntosControl, GestionCuentaPort cuentaService,
+                          boolean habilitado, Clock reloj) {
+        this.puntosControl = puntosControl;
+        this.cuentaService = cuentaService;
+        this.habilitado = habilitado;
+        this.reloj = reloj;
+    }
+
+    // Con varios nodos cada uno lo ejecuta; el registro es idempotente y el segundo no encuentra días pendientes
+    @Scheduled(cron = "${app.cuentas.saldos-diarios.cron:0 30 0 * * *}")
+    public void registrarSaldosDiarios() {
+        if (!habilitado) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now(reloj);
+        try {
+            int puntos = puntosControl.registrarHasta(hoy);
+            log.info("SALDOS DIARIOS: {} cierres registrados hasta el {}.", puntos, hoy.minusDays(1));
+        } catch (RuntimeException e) {
+            // El siguiente registro retoma desde el último día completo
+            log.error("SALDOS DIARIOS FALLIDOS: registro hasta el {}. Causa: {}", hoy.minusDays(1), e.getMessage());
+        }
+    }
+
+    @Override
+    public Dinero saldoEn(String numeroCuenta, LocalDateTime instante) {
+        verificarHabilitado();
+        return saldoEn(buscarCuenta(numeroCuenta), instante);
+    }
+
+    @Override
+    public List<PuntoSaldo> serieSaldos(String numeroCuenta, LocalDate desde, LocalDate hasta, int intervaloDias) {
+        verificarHabilitado();
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La serie requiere 'desde' y 'hasta', con 'desde' anterior o igual a 'hasta'.");
+        }
+        if (intervaloDias < 1) {
+            throw new IllegalArgumentException("El intervalo debe ser de al menos un día.");
+        }
+        // La serie termina hoy: después no hay movimientos que mostrar
+        LocalDate hoy = LocalDate.now(reloj);
+        LocalDate fin = hasta.isAfter(hoy) ? hoy : hasta;
+        if (fin.isBefore(desde)) {
+            return Collections.emptyList();
+        }
+        long cantidad = ChronoUnit.DAYS.between(desde, fin) / intervaloDias + 1;
+        if (cantidad > MAXIMO_PUNTOS_SERIE) {
+            throw new IllegalArgumentException("La serie no puede superar " + MAXIMO_PUNTOS_SERIE + " puntos; amplíe el intervalo.");
+        }
+        ProductoFinanciero cuenta = buscarCuenta(numeroCuenta);
+
+        // 🔑 Solo el inicio (y los días sin registrar) se calculan con movimientos; el resto son cierres ya registrados
+        Dinero saldo = saldoEn(cuenta, desde.atStartOfDay());
+        LocalDate ultimoRegistrado = puntosControl.ultimoDiaRegistrado().orElse(desde.minusDays(1));
+        LocalDate finRegistrado = fin.isBefore(ultimoRegistrado) ? fin : ultimoRegistrado;
+        Iterator<PuntoSaldo> cierres = finRegistrado.isBefore(desde)
+            ? Collections.emptyIterator()
+            : puntosControl.entre(numeroCuenta, desde, finRegistrado).iterator();
+        PuntoSaldo siguiente = cierres.hasNext() ? cierres.next() : null;
+
+        List<PuntoSaldo> serie = new ArrayList<>((int) cantidad);
+        for (LocalDate inicio = desde; !inicio.isAfter(fin); inicio = inicio.plusDays(intervaloDias)) {
+            LocalDate ultimoDia = inicio.plusDays(intervaloDias - 1L);
+            if (ultimoDia.isAfter(fin)) {
+                ultimoDia = fin;
+            }
+            if (!ultimoDia.isAfter(ultimoRegistrado)) {
+                while (siguiente != null && !siguiente.getDia().isAfter(ultimoDia)) {
+                    saldo = siguiente.getSaldo();
+                    siguiente = cierres.hasNext() ? cierres.next() : null;
+                }
+            } else {
+                saldo = saldoEn(cuenta, ultimoDia.plusDays(1).atStartOfDay());
+            }
+            serie.add(new PuntoSaldo(ultimoDia, saldo));
+        }
+        log.debug("Serie de saldos de la cuenta {}: {} puntos entre {} y {}.", numeroCuenta, serie.size(), desde, fin);
+        return serie;
+    }
+
+    private Dinero saldoEn(ProductoFinanciero cuenta, LocalDateTime instante) {
+        String numeroCuenta = cuenta.getNumeroCuenta();
+        LocalDate dia = instante.toLocalDate();
+
+        // 1. Cierre anterior al día del instante: se suman los movimientos desde ese cierre
+        Optional<PuntoSaldo> anterior = puntosControl.anterior(numeroCuenta, dia);
+        if (anterior.isPresent()) {
+            return anterior.get().getSaldo()
+                .sumar(puntosControl.sumaMovimientos(numeroCuenta, cierre(anterior.get()), instante));
+        }
+        // 2. Sin cierre anterior: se descuentan los movimientos hasta el primer cierre posterior
+        Optional<PuntoSaldo> siguiente = puntosControl.siguiente(numeroCuenta, dia);
+        if (siguiente.isPresent()) {
+            return siguiente.get().getSaldo()
+                .restar(puntosControl.sumaMovimientos(numeroCuenta, instante, cierre(siguiente.get())));
+        }
+        // 3. Sin cierres: la cuenta solo se movió después del último registro; se parte del saldo vigente
+        return cuenta.getSaldo().restar(puntosControl.sumaMovimientos(numeroCuenta, instante, LocalDateTime.now(reloj)));
+    }
+
+    // El cierre de un día es el saldo al inicio del siguiente
+    private static LocalDateTime cierre(PuntoSaldo punto) {
+        return punto.getDia().plusDays(1).atStartOfDay();
+    }
+
+    private ProductoFinanciero buscarCuenta(String numeroCuenta) {
+        return cuentaService.buscarCuentaPorNumero(numeroCuenta)
+            .orElseThrow(() -> new IllegalArgumentException("Cuenta " + numeroCuenta + " no encontrada."));
+    }
+
+    private void verificarHabilitado() {
+        if (!habilitado) {
+            throw new IllegalStateException("Los saldos históricos no están habilitados (app.cuentas.saldos-diarios.habilitado).");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.aplicacion;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dominio.modelo.PaginaHistorial;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
+import com.example.demo.dominio.port.in.GestionTransaccionPort;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * GestionTransaccionPort sobre el motor de saldos en memoria (app.cuentas.motor.habilitado=true).
+ *
+ * Con el motor, el saldo lo confirma el diario de cada partición y no la transacción de la petición:
+ * registrar la transacción después (como {@link TransaccionService}) dejaría dinero movido sin su fila
+ * si ese registro fallara. Aquí cada registro viaja con su asiento y el diario los inserta en el mismo
+ * commit. Si el commit falla no se persiste ninguno de los dos y el movimiento se rechaza.
+ *
+ * Una transferencia son dos commits (débito y crédito, cada uno con su registro); ver
+ * {@link CuentaMotorService} para la compensación. Las consultas se delegan en {@link TransaccionService}.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.cuentas.motor.habilitado", havingValue = "true")
+public class TransaccionMotorService implements GestionTransaccionPort {
+
+    private final CuentaMotorService cuentaMotorService;
+    private final TransaccionService transaccionService;
+
+    public TransaccionMotorService(
+            CuentaMotorService cuentaMotorService,
+            TransaccionService transaccionService,
+            @Value("${app.transacciones.libro-contable.habilitado:false}") boolean libroContableHabilitado) {
+        // El diario inserta en transacciones; el libro contable registra en partidas_contables
+        if (libroContableHabilitado) {
+            throw new IllegalStateException("El motor de saldos no es compatible con el libro contable "
+                + "(app.transacciones.libro-contable.habilitado).");
+        }
+        this.cuentaMotorService = cuentaMotorService;
+        this.transaccionService = transaccionService;
+    }
+
+    @Override
+    public Transaccion consignar(String cuentaDestino, Dinero monto) {
+        Transaccion registro = new Transaccion(TipoTransaccion.CONSIGNACION, monto, cuentaDestino);
+        try {
+            cuentaMotorService.depositar(cuentaDestino, monto, registro);
+        } catch (RuntimeException e) {
+            log.error("CONSIGNACIÓN FALLIDA: Monto {} a cuenta {}. Causa: {}", monto, cuentaDestino, e.getMessage());
+            throw e;
+        }
+        log.debug("CONSIGNACIÓN EXITOSA: Cuenta {} recibió {}. ID Transacción: {}", cuentaDestino, monto, registro.getId());
+        return registro;
+    }
+
+    @Override
+    public Transaccion retirar(String cuentaOrigen, Dinero monto) {
+        Transaccion registro = new Transaccion(TipoTransaccion.RETIRO, monto, cuentaOrigen);
+        // CuentaMotorService ya registra el fallo (saldo insuficiente, cuenta inactiva)
+        cuentaMotorService.retirar(cuentaOrigen, monto, registro);
+        log.debug("RETIRO EXITOSO: Cuenta {} retiró {}. ID Transacción: {}", cuentaOrigen, monto, registro.getId());
+        return registro;
+    }
+
+    @Override
+    public List<Transaccion> transferir(String cuentaOrigen, String cuentaDestino, Dinero monto) {
+        Transaccion debito = new Transaccion(TipoTransaccion.TRANSFERENCIA_DEBITO, monto, cuentaOrigen, cuentaDestino);
+        Transaccion credito = new Transaccion(TipoTransaccion.TRANSFERENCIA_CREDITO, monto, cuentaOrigen, cuentaDestino);
+        try {
+            cuentaMotorService.transferir(cuentaOrigen, cuentaDestino, monto, debito, credito);
+        } catch (RuntimeException e) {
+            log.error("TRANSFERENCIA FALLIDA: Monto {} (Origen: {}, Destino: {}). Causa: {}",
+                      monto, cuentaOrigen, cuentaDestino, e.getMessage());
+            throw e;
+        }
+        log.debug("TRANSFERENCIA EXITOSA: {} movido de {} a {}.", monto, cuentaOrigen, cuentaDestino);
+        return List.of(debito, credito);
+    }
+
+    @Override
+    public List<Transaccion> obtenerHistorial(String numeroCuenta) {
+        return transaccionService.obtenerHistorial(numeroCuenta);
+    }
+
+    @Override
+    public List<Transaccion> obtenerHistorial(String numeroCuenta, PeriodoConsulta periodo) {
+        return transaccionService.obtenerHistorial(numeroCuenta, periodo);
+    }
+
+    @Override
+    public PaginaHistorial obtenerHistorialPaginado(String numeroCuenta, PeriodoConsulta periodo, CursorHistorial cursor, int tamano) {
+        return transaccionService.obtenerHistorialPaginado(numeroCuenta, periodo, cursor, tamano);
+    }
+
+    @Override
+    public long exportarHistorial(String numeroCuenta, PeriodoConsulta periodo, Consumer<Transaccion> consumidor) {
+        return transaccionService.exportarHistorial(numeroCuenta, periodo, consumidor);
+    }
+}
@@ -2,9 +2,13 @@ package com.example.demo.aplicacion;
 
 
 
+import com.example.demo.dominio.modelo.PaginaHistorial;
+import com.example.demo.dominio.modelo.SaldosTransferencia;
 import com.example.demo.dominio.modelo.Transaccion;
 import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
 import com.example.demo.dominio.port.in.GestionCuentaPort;
 import com.example.demo.dominio.port.in.GestionTransaccionPort;
 import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
@@ -12,33 +16,64 @@ import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class TransaccionService implements GestionTransaccionPort {
 
+    // Límite de filas por página del historial, sin importar lo que pida el cliente
+    static final int TAMANO_MAXIMO_PAGINA = 200;
+
     private final GestionCuentaPort cuentaService;
     private final TransaccionRepositoryPort transaccionRepository;
+    private final BloqueoCuentas bloqueoCuentas;
+    private final TransactionTemplate transactionTemplate;
+    private final AgrupadorConsignaciones agrupadorConsignaciones;
 
-    public TransaccionService(GestionCuentaPort cuentaService, TransaccionRepositoryPort transaccionRepository) {
+    public TransaccionService(GestionCuentaPort cuentaService, TransaccionRepositoryPort transaccionRepository,
+                              BloqueoCuentas bloqueoCuentas, TransactionTemplate transactionTemplate,
+                              AgrupadorConsignaciones agrupadorConsignaciones) {
         this.cuentaService = cuentaService;
         this.transaccionRepository = transaccionRepository;
+        this.bloqueoCuentas = bloqueoCuentas;
+        this.transactionTemplate = transactionTemplate;
+        this.agrupadorConsignaciones = agrupadorConsignaciones;
     }
 
+    // 🔑 Movimientos: la franja de la cuenta se toma ANTES de abrir la transacción (y tomar una conexión del pool)
+
     // --- 1. Consignar ---
+    // Saldo y registro de la transacción se confirman juntos: si el registro falla, el depósito se revierte.
     @Override
     public Transaccion consignar(String cuentaDestino, Dinero monto) {
+        // 🔑 Dentro de una transacción ajena (ej. idempotencia) no se agrupa: el depósito debe confirmarse con ella
+        if (agrupadorConsignaciones.isHabilitado() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return agrupadorConsignaciones.consignar(cuentaDestino, monto, montos -> bloqueoCuentas.conCuenta(cuentaDestino,
+                () -> transactionTemplate.execute(estado -> registrarConsignaciones(cuentaDestino, montos))));
+        }
+        return bloqueoCuentas.conCuenta(cuentaDestino,
+            () -> transactionTemplate.execute(estado -> registrarConsignacion(cuentaDestino, monto)));
+    }
+
+    private Transaccion registrarConsignacion(String cuentaDestino, Dinero monto) {
         log.info("Iniciando consignación de {} a la cuenta {}.", monto, cuentaDestino); // 🔑 Log de inicio
         
         try {
             // 1. Ejecutar movimiento en el servicio de cuenta
-            cuentaService.depositar(cuentaDestino, monto);
+            Optional<Dinero> saldo = cuentaService.depositar(cuentaDestino, monto);
             
-            // 2. Registrar la transacción
+            // 2. Registrar la transacción con el saldo que dejó el movimiento (misma transacción que el UPDATE)
             Transaccion registro = new Transaccion(TipoTransaccion.CONSIGNACION, monto, cuentaDestino);
+            registro.setSaldoResultante(saldo.orElse(null));
             Transaccion registroGuardado = transaccionRepository.guardar(registro);
 
             log.info("CONSIGNACIÓN EXITOSA: Cuenta {} recibió {}. ID Transacción: {}", 
@@ -52,17 +87,55 @@ public class TransaccionService implements GestionTransaccionPort {
         }
     }
 
+    // Grupo de consignaciones simultáneas: un depósito por el total y un INSERT en lote con un registro por cada una
+    private List<Transaccion> registrarConsignaciones(String cuentaDestino, List<Dinero> montos) {
+        Dinero total = montos.stream().reduce(Dinero.CERO, Dinero::sumar);
+        log.info("Iniciando consignación agrupada de {} ({} movimientos) a la cuenta {}.", total, montos.size(), cuentaDestino);
+        
+        try {
+            Optional<Dinero> saldoFinal = cuentaService.depositar(cuentaDestino, total);
+            
+            // Cada registro con el saldo tras su consignación, como si se hubieran aplicado una a una
+            Dinero saldo = saldoFinal.map(s -> s.restar(total)).orElse(null);
+            List<Transaccion> registros = new ArrayList<>(montos.size());
+            for (Dinero monto : montos) {
+                Transaccion registro = new Transaccion(TipoTransaccion.CONSIGNACION, monto, cuentaDestino);
+                if (saldo != null) {
+                    saldo = saldo.sumar(monto);
+                    registro.setSaldoResultante(saldo);
+                }
+                registros.add(registro);
+            }
+            List<Transaccion> registrosGuardados = transaccionRepository.guardarMultiples(registros);
+
+            log.info("CONSIGNACIÓN AGRUPADA EXITOSA: Cuenta {} recibió {} en {} movimientos.", 
+                     cuentaDestino, total, montos.size());
+            return registrosGuardados;
+            
+        } catch (RuntimeException e) {
+            log.error("CONSIGNACIÓN AGRUPADA FALLIDA: {} movimientos ({}) a cuenta {}. Causa: {}", 
+                      montos.size(), total, cuentaDestino, e.getMessage());
+            throw e;
+        }
+    }
+
   
     @Override
     public Transaccion retirar(String cuentaOrigen, Dinero monto) {
+        return bloqueoCuentas.conCuenta(cuentaOrigen,
+            () -> transactionTemplate.execute(estado -> registrarRetiro(cuentaOrigen, monto)));
+    }
+
+    private Transaccion registrarRetiro(String cuentaOrigen, Dinero monto) {
         log.info("Iniciando retiro de {} de la cuenta {}.", monto, cuentaOrigen); // 🔑 Log de inicio
         
         try {
             // 1. Ejecutar movimiento en el servicio de cuenta
-            cuentaService.retirar(cuentaOrigen, monto);
+            Optional<Dinero> saldo = cuentaService.retirar(cuentaOrigen, monto);
             
             // 2. Registrar la transacción
             Transaccion registro = new Transaccion(TipoTransaccion.RETIRO, monto, cuentaOrigen);
+            registro.setSaldoResultante(saldo.orElse(null));
             Transaccion registroGuardado = transaccionRepository.guardar(registro);
 
             log.info("RETIRO EXITOSO: Cuenta {} retiró {}. ID Transacción: {}", 
@@ -78,22 +151,26 @@ public class TransaccionService implements GestionTransaccionPort {
     }
 
     // --- 3. Transferir ---
+    // Una sola transacción: bloqueo ordenado de ambas cuentas, una actualización de saldos
+    // y la inserción de los dos registros. Si algo falla no queda un débito sin su crédito.
     @Override
     public List<Transaccion> transferir(String cuentaOrigen, String cuentaDestino, Dinero monto) {
+        return bloqueoCuentas.conCuentas(cuentaOrigen, cuentaDestino,
+            () -> transactionTemplate.execute(estado -> registrarTransferencia(cuentaOrigen, cuentaDestino, monto)));
+    }
+
+    private List<Transaccion> registrarTransferencia(String cuentaOrigen, String cuentaDestino, Dinero monto) {
         log.info("Iniciando transferencia de {} desde {} hacia {}.", monto, cuentaOrigen, cuentaDestino); 
         
         try {
-            // 1. Ejecutar movimientos (Retiro y luego Depósito)
-            // Si el retiro falla (ej. saldo insuficiente), la transacción se aborta (Atomicidad asumida)
-            cuentaService.retirar(cuentaOrigen, monto);
-            log.debug("Transferencia: Retiro exitoso de {} de la cuenta {}.", monto, cuentaOrigen);
-            
-            cuentaService.depositar(cuentaDestino, monto);
-            log.debug("Transferencia: Depósito exitoso de {} a la cuenta {}.", monto, cuentaDestino);
+            // 1. Ejecutar débito y crédito de forma atómica
+            SaldosTransferencia saldos = cuentaService.transferir(cuentaOrigen, cuentaDestino, monto);
             
-            // 2. Registrar las transacciones (Débito y Crédito)
+            // 2. Registrar las transacciones (Débito y Crédito), cada una con el saldo de su cuenta
             Transaccion debito = new Transaccion(TipoTransaccion.TRANSFERENCIA_DEBITO, monto, cuentaOrigen, cuentaDestino);
             Transaccion credito = new Transaccion(TipoTransaccion.TRANSFERENCIA_CREDITO, monto, cuentaOrigen, cuentaDestino);
+            debito.setSaldoResultante(saldos.getOrigen());
+            credito.setSaldoResultante(saldos.getDestino());
             
             List<Transaccion> registrosGuardados = transaccionRepository.guardarMultiples(Arrays.asList(debito, credito));
 
@@ -112,9 +189,69 @@ public class TransaccionService implements GestionTransaccionPort {
     public List<Transaccion> obtenerHistorial(String numeroCuenta) {
         log.debug("Buscando historial de transacciones para la cuenta {}.", numeroCuenta);
         
-        List<Transaccion> historial = transaccionRepository.buscarPorCuenta(numeroCuenta);
+        List<Transaccion> historial = soloSaldosDe(numeroCuenta, transaccionRepository.buscarPorCuenta(numeroCuenta));
         
         log.debug("Historial de cuenta {} encontrado. Total de {} registros.", numeroCuenta, historial.size());
         return historial;
     }
-}
\ No newline at end of file
+
+    
+    @Override
+    public List<Transaccion> obtenerHistorial(String numeroCuenta, PeriodoConsulta periodo) {
+        log.debug("Buscando historial de transacciones para la cuenta {} en el periodo {}.", numeroCuenta, periodo);
+        
+        List<Transaccion> historial = soloSaldosDe(numeroCuenta, transaccionRepository.buscarPorCuenta(numeroCuenta, periodo));
+        
+        log.debug("Historial de cuenta {} en el periodo {} encontrado. Total de {} registros.", numeroCuenta, periodo, historial.size());
+        return historial;
+    }
+
+    
+    @Override
+    public PaginaHistorial obtenerHistorialPaginado(String numeroCuenta, PeriodoConsulta periodo, CursorHistorial cursor, int tamano) {
+        if (tamano < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero.");
+        }
+        int tamanoEfectivo = Math.min(tamano, TAMANO_MAXIMO_PAGINA);
+        log.debug("Buscando página de historial para la cuenta {} (periodo: {}, cursor: {}, tamaño: {}).", 
+                  numeroCuenta, periodo, cursor, tamanoEfectivo);
+        
+        // 🔑 Se pide una fila extra solo para saber si existe una página siguiente
+        List<Transaccion> filas = soloSaldosDe(numeroCuenta,
+            transaccionRepository.buscarPorCuentaPaginado(numeroCuenta, periodo, cursor, tamanoEfectivo + 1));
+        
+        if (filas.size() <= tamanoEfectivo) {
+            return new PaginaHistorial(filas, null);
+        }
+        List<Transaccion> pagina = filas.subList(0, tamanoEfectivo);
+        return new PaginaHistorial(pagina, CursorHistorial.despuesDe(pagina.get(tamanoEfectivo - 1)));
+    }
+
+    
+    // Solo lectura: el cursor de la base de datos vive lo que dura la transacción
+    @Override
+    @Transactional(readOnly = true)
+    public long exportarHistorial(String numeroCuenta, PeriodoConsulta periodo, Consumer<Transaccion> consumidor) {
+        log.info("Iniciando exportación del historial de la cuenta {} en el periodo {}.", numeroCuenta, periodo);
+        
+        long total = transaccionRepository.recorrerPorCuenta(numeroCuenta, periodo,
+            t -> consumidor.accept(soloSaldoDe(numeroCuenta, t)));
+        
+        log.info("EXPORTACIÓN EXITOSA: Cuenta {}. Total de {} registros.", numeroCuenta, total);
+        return total;
+    }
+    
+    // 🔑 El historial de una cuenta también trae el lado de la otra cuenta en sus transferencias: ese
+    // registro lleva el saldo de la otra cuenta y no se muestra (rompería la columna de saldos)
+    private static List<Transaccion> soloSaldosDe(String numeroCuenta, List<Transaccion> historial) {
+        historial.forEach(t -> soloSaldoDe(numeroCuenta, t));
+        return historial;
+    }
+    
+    private static Transaccion soloSaldoDe(String numeroCuenta, Transaccion transaccion) {
+        if (!numeroCuenta.equals(transaccion.getCuentaMovimiento())) {
+            transaccion.setSaldoResultante(null);
+        }
+        return transaccion;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.example.demo.dominio.modelo.Cliente;
+import com.example.demo.infraestructura.cache.CacheCercana;
+import com.example.demo.infraestructura.cache.CanalInvalidacionCache;
+import com.example.demo.infraestructura.datos.ProductoJPA;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cachés locales de lectura. El canal de invalidación se elige con app.cache.canal
+ * (local: un solo nodo; postgres: LISTEN/NOTIFY entre nodos).
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public CacheCercana<ProductoJPA> cacheCuentas(
+            CanalInvalidacionCache canal,
+            MeterRegistry registry,
+            @Value("${app.cache.cuentas.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${app.cache.cuentas.ttl:5m}") Duration ttl) {
+        return new CacheCercana<>("cuentas", tamanoMaximo, ttl, canal, registry);
+    }
+
+    @Bean
+    public CacheCercana<Cliente> cacheClientes(
+            CanalInvalidacionCache canal,
+            MeterRegistry registry,
+            @Value("${app.cache.clientes.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${app.cache.clientes.ttl:10m}") Duration ttl) {
+        return new CacheCercana<>("clientes", tamanoMaximo, ttl, canal, registry);
+    }
+
+    // Índice secundario: "tipo|número de identificación" -> id del cliente
+    @Bean
+    public CacheCercana<Long> cacheIdentificacionesClientes(
+            CanalInvalidacionCache canal,
+            MeterRegistry registry,
+            @Value("${app.cache.clientes.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${app.cache.clientes.ttl:10m}") Duration ttl) {
+        return new CacheCercana<>("clientes-identificacion", tamanoMaximo, ttl, canal, registry);
+    }
+
+    // UserDetails por nombre de usuario (ServicioUsuarios); se invalida al cambiar la contraseña
+    @Bean
+    public CacheCercana<UserDetails> cacheUsuarios(
+            CanalInvalidacionCache canal,
+            MeterRegistry registry,
+            @Value("${app.cache.usuarios.tamano-maximo:10000}") long tamanoMaximo,
+            @Value("${app.cache.usuarios.ttl:5m}") Duration ttl) {
+        return new CacheCercana<>("usuarios", tamanoMaximo, ttl, canal, registry);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled) de mantenimiento de la base de datos.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
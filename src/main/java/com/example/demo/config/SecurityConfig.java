@@ -11,18 +11,22 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import com.example.demo.filters.TokenAuthenticationFilter;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.security.ListaRevocacionTokens;
+import com.example.demo.security.RegistroVersionesUsuario;
+import com.example.demo.security.ServicioUsuarios;
+
+import jakarta.servlet.DispatcherType;
+
+import java.util.Map;
 
 /**
  * Clase de configuración de Spring Security.
@@ -32,23 +36,18 @@ import com.example.demo.security.JwtUtil;
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
-	
-	
-	@Value("${app.security.test-users.admin-username}")
-	private String adminUsername;
 
-	@Value("${app.security.test-users.admin-password}")
-	private String adminPassword;
 
     /**
      * Define el TokenAuthenticationFilter como un Bean.
      */
     @Bean
     public TokenAuthenticationFilter tokenAuthenticationFilter(
-        UserDetailsService userDetailsService, 
-        JwtUtil jwtUtil
+        JwtUtil jwtUtil,
+        RegistroVersionesUsuario registroVersionesUsuario,
+        ListaRevocacionTokens listaRevocacionTokens
     ) {
-        return new TokenAuthenticationFilter(userDetailsService, jwtUtil);
+        return new TokenAuthenticationFilter(jwtUtil, registroVersionesUsuario, listaRevocacionTokens);
     }
     
     /**
@@ -75,6 +74,13 @@ public class SecurityConfig {
             
             // 4. Configurar las reglas de autorización
             .authorizeHttpRequests(authorize -> authorize
+                // Respuestas en streaming (exportación, lotes): la petición ya se autorizó en el despacho original;
+                // el despacho asíncrono que la completa no trae el token y no debe volver a evaluarse
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                // La gestión de usuarios y la revocación de tokens son administrativas (va antes de la regla pública de /api/v1/auth/**)
+                .requestMatchers("/api/v1/auth/usuarios", "/api/v1/auth/usuarios/**").hasRole("ADMIN")
+                // El logout revoca el token con el que se autentica la petición
+                .requestMatchers("/api/v1/auth/logout").authenticated()
                 // Permitir acceso a la ruta de login y Swagger sin autenticación
                 .requestMatchers("/api/v1/auth/**", "/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll() 
                 // Requerir autenticación para todas las demás peticiones
@@ -92,11 +98,14 @@ public class SecurityConfig {
     
     /**
      * Define el DaoAuthenticationProvider para vincular UserDetailsService y PasswordEncoder.
+     * Tras un login correcto, ServicioUsuarios guarda el hash recalculado si el codificador lo pide
+     * (hashes {noop} o BCrypt con menor fuerza que la configurada).
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+    public DaoAuthenticationProvider authenticationProvider(ServicioUsuarios servicioUsuarios, PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService);
+        authProvider.setUserDetailsService(servicioUsuarios);
+        authProvider.setUserDetailsPasswordService(servicioUsuarios);
         authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
@@ -111,25 +120,15 @@ public class SecurityConfig {
     
     /**
      * Bean para el cifrado de contraseñas.
-     * Se usa el codificador delegante para que el prefijo {noop} funcione correctamente.
-     */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder(); 
-    }
-
-    /**
-     * Simula la carga de usuarios en memoria (implementación de UserDetailsService).
+     * Codificador delegante: los hashes nuevos usan BCrypt con la fuerza configurada (cada +1 duplica
+     * el costo de un login). Los guardados con otro prefijo (ej. {noop}) los valida el codificador estándar
+     * de Spring Security y se actualizan a BCrypt en el siguiente login.
      */
     @Bean
-    public UserDetailsService userDetailsService() {
-        
-
-        UserDetails admin = User.withUsername(adminUsername)
-            .password("{noop}" +adminPassword)
-            .roles("ADMIN")
-            .build();
-
-        return new InMemoryUserDetailsManager( admin);
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.bcrypt-fuerza:10}") int fuerza) {
+        DelegatingPasswordEncoder codificador = new DelegatingPasswordEncoder("bcrypt",
+            Map.of("bcrypt", new BCryptPasswordEncoder(fuerza)));
+        codificador.setDefaultPasswordEncoderForMatches(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        return codificador;
     }
-}
\ No newline at end of file
+}
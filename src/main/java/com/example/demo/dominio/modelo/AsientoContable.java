@@ -0,0 +1,73 @@
+package com.example.demo.dominio.modelo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Asiento del libro contable (partida doble): una operación con sus partidas, que siempre suman cero.
+ * Cada partida es un monto firmado sobre una cuenta (positivo entra, negativo sale). El efectivo que
+ * entra o sale del banco tiene como contrapartida la cuenta {@link #CUENTA_CAJA}.
+ *
+ * Un asiento admite más de dos partidas (comisiones, GMF, pagos repartidos) y se registra completo
+ * en un solo lote.
+ */
+@Getter
+@ToString
+public class AsientoContable {
+
+    public static final String CUENTA_CAJA = "CAJA";
+
+    public enum TipoAsiento {
+        CONSIGNACION,
+        RETIRO,
+        TRANSFERENCIA,
+        // Solo desde libro_contable.sql: débito y devolución de una transferencia del motor de saldos cuyo
+        // crédito no se aplicó. Sus dos partidas son del origen
+        TRANSFERENCIA_REVERTIDA
+    }
+
+    private final Long id;
+    private final TipoAsiento tipo;
+    private final LocalDateTime fecha;
+    private final List<PartidaContable> partidas;
+
+    public AsientoContable(Long id, TipoAsiento tipo, LocalDateTime fecha, List<PartidaContable> partidas) {
+        if (partidas.size() < 2) {
+            throw new IllegalArgumentException("Un asiento contable necesita al menos dos partidas.");
+        }
+        Dinero suma = partidas.stream().map(PartidaContable::getMonto).reduce(Dinero.CERO, Dinero::sumar);
+        if (!suma.esCero()) {
+            throw new IllegalArgumentException("Las partidas del asiento no suman cero (diferencia " + suma + ").");
+        }
+        this.id = id;
+        this.tipo = tipo;
+        this.fecha = fecha;
+        this.partidas = List.copyOf(partidas);
+    }
+
+    // 🔑 La partida de la cuenta del cliente va primero; la de caja es su contrapartida. Cada partida de
+    // cliente lleva el saldo que dejó en su cuenta (null si no se conoce)
+    public static AsientoContable consignacion(String cuentaDestino, Dinero monto, LocalDateTime fecha, Dinero saldoDestino) {
+        return new AsientoContable(null, TipoAsiento.CONSIGNACION, fecha, List.of(
+            new PartidaContable(null, cuentaDestino, monto, saldoDestino),
+            new PartidaContable(null, CUENTA_CAJA, monto.negar())));
+    }
+
+    public static AsientoContable retiro(String cuentaOrigen, Dinero monto, LocalDateTime fecha, Dinero saldoOrigen) {
+        return new AsientoContable(null, TipoAsiento.RETIRO, fecha, List.of(
+            new PartidaContable(null, cuentaOrigen, monto.negar(), saldoOrigen),
+            new PartidaContable(null, CUENTA_CAJA, monto)));
+    }
+
+    public static AsientoContable transferencia(String cuentaOrigen, String cuentaDestino, Dinero monto, LocalDateTime fecha,
+                                                Dinero saldoOrigen, Dinero saldoDestino) {
+        return new AsientoContable(null, TipoAsiento.TRANSFERENCIA, fecha, List.of(
+            new PartidaContable(null, cuentaOrigen, monto.negar(), saldoOrigen),
+            new PartidaContable(null, cuentaDestino, monto, saldoDestino)));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.dominio.modelo;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Entrada del diario de saldos: un delta (positivo para depósitos, negativo para retiros) sobre una
+ * cuenta. El saldo vigente de la cuenta es el saldo persistido más la suma de sus asientos pendientes.
+ *
+ * Si lleva registro, la transacción se inserta en el mismo commit que el asiento: el saldo y su
+ * registro se confirman (o se descartan) juntos.
+ */
+@Getter
+@ToString
+public class AsientoSaldo {
+
+    private final String numeroCuenta;
+    private final Dinero delta;
+    // null para movimientos sin registro en transacciones (ej. POST /api/v1/productos/depositar)
+    private final Transaccion registro;
+
+    public AsientoSaldo(String numeroCuenta, Dinero delta) {
+        this(numeroCuenta, delta, null);
+    }
+
+    public AsientoSaldo(String numeroCuenta, Dinero delta, Transaccion registro) {
+        this.numeroCuenta = numeroCuenta;
+        this.delta = delta;
+        this.registro = registro;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.demo.dominio.modelo;
 
 import com.example.demo.dominio.modelo.VO.Dinero;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.concurrent.ThreadLocalRandom;
 import lombok.Data;
@@ -54,16 +53,16 @@ public class CuentaAhorros extends ProductoFinanciero {
     @Override
     public void retirar(Dinero monto) {
         Dinero nuevoSaldo = this.saldo.restar(monto);
-        if (nuevoSaldo.getMonto().compareTo(BigDecimal.ZERO) < 0) {
+        if (nuevoSaldo.esNegativo()) {
             throw new IllegalStateException("Saldo insuficiente. La cuenta de ahorros no puede quedar en negativo.");
         }
-        this.saldo = this.saldo.restar(monto);
+        this.saldo = nuevoSaldo;
         this.fechaModificacion = LocalDateTime.now();
     }
     
     @Override
     public void cancelar() {
-        if (this.saldo.getMonto().compareTo(BigDecimal.ZERO) != 0) {
+        if (!this.saldo.esCero()) {
              throw new IllegalStateException("Solo se pueden cancelar cuentas de ahorro con saldo en $0.");
         }
         this.estado = EstadoCuenta.CANCELADA;
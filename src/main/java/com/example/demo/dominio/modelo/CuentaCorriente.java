@@ -1,7 +1,6 @@
 package com.example.demo.dominio.modelo;
 
 import com.example.demo.dominio.modelo.VO.Dinero;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.concurrent.ThreadLocalRandom;
 import lombok.Data;
@@ -50,11 +49,12 @@ public class CuentaCorriente extends ProductoFinanciero {
     @Override
     public void retirar(Dinero monto) {
         
-    	if (this.saldo.restar(monto).getMonto().compareTo(BigDecimal.ZERO) < 0) {
+    	Dinero nuevoSaldo = this.saldo.restar(monto);
+    	if (nuevoSaldo.esNegativo()) {
             throw new IllegalStateException("Saldo insuficiente en la cuenta corriente.");
         }
         
-        this.saldo = this.saldo.restar(monto);
+        this.saldo = nuevoSaldo;
         this.marcarComoModificado();
         this.fechaModificacion = LocalDateTime.now();
     }
@@ -62,7 +62,7 @@ public class CuentaCorriente extends ProductoFinanciero {
     
     @Override
     public void cancelar() {
-        if (this.saldo.getMonto().compareTo(BigDecimal.ZERO) != 0) {
+        if (!this.saldo.esCero()) {
              throw new IllegalStateException("Solo se pueden cancelar cuentas corrientes con saldo en $0.");
         }
         this.estado = EstadoCuenta.CANCELADA;
@@ -0,0 +1,30 @@
+package com.example.demo.dominio.modelo;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Página del historial de transacciones en orden (fecha DESC, id DESC).
+ * {@code siguiente} está vacío cuando no quedan más transacciones.
+ */
+@Getter
+@ToString
+public class PaginaHistorial {
+
+    private final List<Transaccion> transacciones;
+    private final CursorHistorial siguiente;
+
+    public PaginaHistorial(List<Transaccion> transacciones, CursorHistorial siguiente) {
+        this.transacciones = List.copyOf(transacciones);
+        this.siguiente = siguiente;
+    }
+
+    public Optional<CursorHistorial> getSiguiente() {
+        return Optional.ofNullable(siguiente);
+    }
+}
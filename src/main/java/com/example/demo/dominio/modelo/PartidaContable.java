@@ -0,0 +1,35 @@
+package com.example.demo.dominio.modelo;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Línea de un {@link AsientoContable}: un monto firmado sobre una cuenta. El saldo contable de una
+ * cuenta es la suma de sus partidas.
+ */
+@Getter
+@ToString
+public class PartidaContable {
+
+    private final Long id;
+    private final String numeroCuenta;
+    private final Dinero monto;
+    // Saldo de la cuenta después de la partida; null si no se conoce (caja, cuentas fraccionadas)
+    private final Dinero saldoResultante;
+
+    public PartidaContable(Long id, String numeroCuenta, Dinero monto) {
+        this(id, numeroCuenta, monto, null);
+    }
+
+    public PartidaContable(Long id, String numeroCuenta, Dinero monto, Dinero saldoResultante) {
+        if (monto.esCero()) {
+            throw new IllegalArgumentException("Una partida contable no puede tener monto cero.");
+        }
+        this.id = id;
+        this.numeroCuenta = numeroCuenta;
+        this.monto = monto;
+        this.saldoResultante = saldoResultante;
+    }
+}
@@ -22,13 +22,14 @@ public abstract class ProductoFinanciero {
     protected LocalDateTime fechaCreacion;
     protected LocalDateTime fechaModificacion;
     protected Long clienteId; 
+    protected Long version; // Versión leída de persistencia (control de concurrencia optimista)
 
     
     public ProductoFinanciero(Long clienteId) {
         this.clienteId = clienteId;
         this.fechaCreacion = LocalDateTime.now();
         this.estado = EstadoCuenta.ACTIVA; 
-        this.saldo = new Dinero(); 
+        this.saldo = Dinero.CERO; 
         this.fechaModificacion = LocalDateTime.now();
     }
     
@@ -0,0 +1,25 @@
+package com.example.demo.dominio.modelo;
+
+import java.time.LocalDate;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Saldo de una cuenta al cierre de un día: un punto de control del historial de saldos o un punto de
+ * una serie.
+ */
+@Getter
+@ToString
+public class PuntoSaldo {
+
+    private final LocalDate dia;
+    private final Dinero saldo;
+
+    public PuntoSaldo(LocalDate dia, Dinero saldo) {
+        this.dia = dia;
+        this.saldo = saldo;
+    }
+}
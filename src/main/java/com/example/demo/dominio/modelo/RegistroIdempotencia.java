@@ -0,0 +1,25 @@
+package com.example.demo.dominio.modelo;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Resultado registrado para una clave de idempotencia: la huella de la petición original y los ids
+ * de las transacciones que generó. Un reintento con la misma clave recibe esas mismas transacciones.
+ */
+@Getter
+@ToString
+public class RegistroIdempotencia {
+
+    private final String clave;
+    private final String huella;
+    private final List<Long> idsTransacciones;
+
+    public RegistroIdempotencia(String clave, String huella, List<Long> idsTransacciones) {
+        this.clave = clave;
+        this.huella = huella;
+        this.idsTransacciones = List.copyOf(idsTransacciones);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.dominio.modelo;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Resultado de un movimiento de un lote, identificado por su posición (desde 0) en el lote.
+ * Si fue aplicado contiene las transacciones registradas; si fue rechazado, el motivo.
+ */
+@Getter
+@ToString
+public class ResultadoMovimiento {
+
+    private final long indice;
+    private final List<Transaccion> transacciones;
+    private final String error;
+
+    private ResultadoMovimiento(long indice, List<Transaccion> transacciones, String error) {
+        this.indice = indice;
+        this.transacciones = transacciones;
+        this.error = error;
+    }
+
+    public static ResultadoMovimiento aplicado(long indice, List<Transaccion> transacciones) {
+        return new ResultadoMovimiento(indice, List.copyOf(transacciones), null);
+    }
+
+    public static ResultadoMovimiento rechazado(long indice, String error) {
+        return new ResultadoMovimiento(indice, List.of(), error);
+    }
+
+    public boolean isAplicado() {
+        return error == null;
+    }
+}
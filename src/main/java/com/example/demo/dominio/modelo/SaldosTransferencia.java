@@ -0,0 +1,22 @@
+package com.example.demo.dominio.modelo;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Saldos de las dos cuentas de una transferencia inmediatamente después de aplicarla.
+ */
+@Getter
+@ToString
+public class SaldosTransferencia {
+
+    private final Dinero origen;
+    private final Dinero destino;
+
+    public SaldosTransferencia(Dinero origen, Dinero destino) {
+        this.origen = origen;
+        this.destino = destino;
+    }
+}
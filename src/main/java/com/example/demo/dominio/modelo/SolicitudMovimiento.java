@@ -0,0 +1,27 @@
+package com.example.demo.dominio.modelo;
+
+import java.math.BigDecimal;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Movimiento recibido en un lote, tal como llegó: la validación (tipo, cuentas requeridas y monto)
+ * ocurre al procesarlo, y un movimiento inválido solo rechaza ese elemento del lote.
+ */
+@Getter
+@ToString
+public class SolicitudMovimiento {
+
+    private final String tipoMovimiento;
+    private final String cuentaOrigen;
+    private final String cuentaDestino;
+    private final BigDecimal monto;
+
+    public SolicitudMovimiento(String tipoMovimiento, String cuentaOrigen, String cuentaDestino, BigDecimal monto) {
+        this.tipoMovimiento = tipoMovimiento;
+        this.cuentaOrigen = cuentaOrigen;
+        this.cuentaDestino = cuentaDestino;
+        this.monto = monto;
+    }
+}
@@ -22,7 +22,10 @@ public class Transaccion {
         CONSIGNACION,
         RETIRO,
         TRANSFERENCIA_DEBITO,  
-        TRANSFERENCIA_CREDITO   
+        TRANSFERENCIA_CREDITO,
+        // Devolución de un débito cuyo crédito no se aplicó (motor de saldos): mismo origen, destino y monto
+        // que el débito que cancela, pero solo mueve el saldo del origen
+        TRANSFERENCIA_REVERSO
     }
 
     protected Long id; 
@@ -31,6 +34,8 @@ public class Transaccion {
     protected LocalDateTime fecha;
     protected String numeroCuentaOrigen;
     protected String numeroCuentaDestino;
+    // Saldo de la cuenta del movimiento (ver getCuentaMovimiento) después de aplicarlo; null si no se conoce
+    protected Dinero saldoResultante;
     
     public Transaccion(
             Long id, 
@@ -73,7 +78,7 @@ public class Transaccion {
 
        
         /**
-         * Constructor para crear una transacción de transferencia (débito o crédito).
+         * Constructor para crear una transacción de transferencia (débito, crédito o devolución).
          */
         public Transaccion(TipoTransaccion tipo, Dinero monto, String cuentaOrigen, String cuentaDestino) {
             
@@ -89,7 +94,14 @@ public class Transaccion {
             this.numeroCuentaOrigen = cuentaOrigen;
             this.numeroCuentaDestino = cuentaDestino;
        }
-    
-
 
-}
\ No newline at end of file
+        /**
+         * Cuenta cuyo saldo cambia con este registro: el destino en consignaciones y créditos, el origen
+         * en retiros, débitos y devoluciones. Es la cuenta de {@code saldoResultante}.
+         */
+        public String getCuentaMovimiento() {
+            return (tipo == TipoTransaccion.CONSIGNACION || tipo == TipoTransaccion.TRANSFERENCIA_CREDITO)
+                ? numeroCuentaDestino
+                : numeroCuentaOrigen;
+        }
+}
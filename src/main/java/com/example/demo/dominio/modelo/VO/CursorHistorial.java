@@ -0,0 +1,80 @@
+package com.example.demo.dominio.modelo.VO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+import com.example.demo.dominio.modelo.Transaccion;
+
+/**
+ * Posición dentro del historial de una cuenta: la clave (fecha, id) de la última transacción
+ * entregada. La siguiente página empieza estrictamente después de esa clave en orden
+ * (fecha DESC, id DESC), por lo que su costo no depende de cuántas páginas se hayan leído.
+ *
+ * Hacia afuera se expone como un texto opaco (Base64 URL-safe) que el cliente solo debe reenviar.
+ */
+public final class CursorHistorial {
+
+    private static final String SEPARADOR = "|";
+
+    private final LocalDateTime fecha;
+    private final Long id;
+
+    public CursorHistorial(LocalDateTime fecha, Long id) {
+        if (fecha == null || id == null) {
+            throw new IllegalArgumentException("El cursor de paginación requiere fecha e id.");
+        }
+        this.fecha = fecha;
+        this.id = id;
+    }
+
+    public static CursorHistorial despuesDe(Transaccion transaccion) {
+        return new CursorHistorial(transaccion.getFecha(), transaccion.getId());
+    }
+
+    public static CursorHistorial decodificar(String cursor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = texto.lastIndexOf(SEPARADOR);
+            return new CursorHistorial(
+                LocalDateTime.parse(texto.substring(0, separador)),
+                Long.valueOf(texto.substring(separador + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("El cursor de paginación es inválido.");
+        }
+    }
+
+    public String codificar() {
+        String texto = fecha + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CursorHistorial otro = (CursorHistorial) o;
+        return fecha.equals(otro.fecha) && id.equals(otro.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fecha, id);
+    }
+
+    @Override
+    public String toString() {
+        return codificar();
+    }
+}
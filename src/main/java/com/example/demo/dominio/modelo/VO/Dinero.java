@@ -5,57 +5,125 @@ package com.example.demo.dominio.modelo.VO;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
- 
 
-public final class Dinero {
+/**
+ * Value Object de dinero representado internamente como un {@code long} de centavos.
+ * Las operaciones aritméticas no crean BigDecimal; el BigDecimal solo aparece en los
+ * bordes (JPA y JSON) a través de {@link #of(BigDecimal)} y {@link #getMonto()}.
+ */
+public final class Dinero implements Comparable<Dinero> {
 
-    private final BigDecimal monto;
-    private static final int DECIMAL_PLACES = 2; 
+    private static final int DECIMAL_PLACES = 2;
 
-   
-    private Dinero(BigDecimal monto) {
-        
-        this.monto = monto.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP);
+    public static final Dinero CERO = new Dinero(0L);
+
+    private final long centavos;
+
+
+    private Dinero(long centavos) {
+        this.centavos = centavos;
     }
-    
-    
+
+
     public boolean esCero() {
-        return this.monto.compareTo(BigDecimal.ZERO) == 0;
+        return this.centavos == 0L;
     }
-    
+
+    public boolean esNegativo() {
+        return this.centavos < 0L;
+    }
+
     public static Dinero of(BigDecimal monto) {
     	if (monto == null) {
             // Lanza la excepción si es null. Esto es la primera línea de defensa
             // si la validación del DTO (@NotNull) falla por alguna razón.
-            throw new IllegalArgumentException("El monto base para Dinero no puede ser nulo."); 
+            throw new IllegalArgumentException("El monto base para Dinero no puede ser nulo.");
+        }
+        try {
+            return ofCentavos(monto.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("El monto " + monto + " excede el rango soportado.");
         }
-        return new Dinero(monto); // Llama al constructor privado
     }
-    
+
     public static Dinero of(double monto) {
-        return new Dinero(BigDecimal.valueOf(monto));
+        return of(BigDecimal.valueOf(monto));
+    }
+
+    public static Dinero ofCentavos(long centavos) {
+        return centavos == 0L ? CERO : new Dinero(centavos);
     }
-    
-    
-    
-   
+
+
+
+
     public Dinero() {
-        this(BigDecimal.ZERO);
+        this(0L);
     }
 
-    
+
     public Dinero sumar(Dinero otro) {
-        return new Dinero(this.monto.add(otro.monto));
+        try {
+            return ofCentavos(Math.addExact(this.centavos, otro.centavos));
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Desbordamiento al sumar montos.");
+        }
     }
 
     public Dinero restar(Dinero otro) {
-        
-        return new Dinero(this.monto.subtract(otro.monto));
+        try {
+            return ofCentavos(Math.subtractExact(this.centavos, otro.centavos));
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Desbordamiento al restar montos.");
+        }
+    }
+
+    public Dinero multiplicar(long factor) {
+        try {
+            return ofCentavos(Math.multiplyExact(this.centavos, factor));
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Desbordamiento al multiplicar el monto.");
+        }
+    }
+
+    public Dinero negar() {
+        try {
+            return ofCentavos(Math.negateExact(this.centavos));
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Desbordamiento al negar el monto.");
+        }
+    }
+
+    public long getCentavos() {
+        return centavos;
     }
 
+    /**
+     * Conversión a BigDecimal con escala 2. Solo debe usarse en los bordes (persistencia y DTOs).
+     */
     public BigDecimal getMonto() {
-        return monto;
+        return BigDecimal.valueOf(centavos, DECIMAL_PLACES);
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(this.centavos, otro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return centavos == ((Dinero) o).centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return getMonto().toPlainString();
     }
-    
-   
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.demo.dominio.modelo.VO;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Rango de fechas opcional para consultar el historial: {@code desde} inclusivo y {@code hasta} exclusivo.
+ * Un extremo nulo significa "sin límite". Acotar el rango permite a la base de datos descartar
+ * las particiones mensuales que quedan fuera de él.
+ */
+public final class PeriodoConsulta {
+
+    public static final PeriodoConsulta COMPLETO = new PeriodoConsulta(null, null);
+
+    private final LocalDateTime desde;
+    private final LocalDateTime hasta;
+
+    private PeriodoConsulta(LocalDateTime desde, LocalDateTime hasta) {
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    public static PeriodoConsulta entre(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde != null && hasta != null && !desde.isBefore(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial del periodo debe ser anterior a la fecha final.");
+        }
+        return (desde == null && hasta == null) ? COMPLETO : new PeriodoConsulta(desde, hasta);
+    }
+
+    public Optional<LocalDateTime> getDesde() {
+        return Optional.ofNullable(desde);
+    }
+
+    public Optional<LocalDateTime> getHasta() {
+        return Optional.ofNullable(hasta);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PeriodoConsulta otro = (PeriodoConsulta) o;
+        return Objects.equals(desde, otro.desde) && Objects.equals(hasta, otro.hasta);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(desde, hasta);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + (desde == null ? "-∞" : desde) + ", " + (hasta == null ? "∞" : hasta) + ")";
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dominio.port.in;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.demo.dominio.modelo.PuntoSaldo;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+public interface ConsultaSaldoHistoricoPort {
+
+    // Saldo de la cuenta en un instante: el cierre diario más cercano más los movimientos entre ambos
+    Dinero saldoEn(String numeroCuenta, LocalDateTime instante);
+
+    // Saldo al cierre del último día de cada intervalo de intervaloDias días entre desde y hasta (inclusive)
+    List<PuntoSaldo> serieSaldos(String numeroCuenta, LocalDate desde, LocalDate hasta, int intervaloDias);
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dominio.port.in;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.example.demo.dominio.modelo.Transaccion;
+
+public interface EjecucionIdempotentePort {
+
+    /**
+     * Ejecuta el movimiento una sola vez por clave. Los reintentos con la misma clave (simultáneos o
+     * posteriores, en cualquier nodo) reciben las transacciones de la primera ejecución.
+     * @param clave clave de idempotencia del cliente, ya acotada a su usuario.
+     * @param descripcion datos de la petición; reutilizar la clave con otros datos es un error.
+     * @throws IllegalArgumentException si la clave ya se usó con una petición distinta.
+     */
+    List<Transaccion> ejecutar(String clave, String descripcion, Supplier<List<Transaccion>> movimiento);
+}
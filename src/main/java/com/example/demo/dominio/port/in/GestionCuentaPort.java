@@ -4,15 +4,20 @@ import java.util.Optional;
 
 import com.example.demo.dominio.modelo.ProductoFinanciero;
 import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
+import com.example.demo.dominio.modelo.SaldosTransferencia;
 import com.example.demo.dominio.modelo.VO.Dinero;
 
 public interface GestionCuentaPort {
     
     ProductoFinanciero crearCuenta(Long clienteId, TipoCuenta tipoCuenta);
     
-    void depositar(String numeroCuenta, Dinero monto);
+    // Saldo resultante del movimiento; vacío si no se conoce (con el saldo fraccionado el movimiento solo ve su fracción)
+    Optional<Dinero> depositar(String numeroCuenta, Dinero monto);
     
-    void retirar(String numeroCuenta, Dinero monto);
+    Optional<Dinero> retirar(String numeroCuenta, Dinero monto);
+    
+    // Débito y crédito atómicos entre dos cuentas, dentro de una única transacción
+    SaldosTransferencia transferir(String cuentaOrigen, String cuentaDestino, Dinero monto);
     
     void cancelarCuenta(String numeroCuenta);
     
@@ -20,4 +25,7 @@ public interface GestionCuentaPort {
 
     Optional<ProductoFinanciero> buscarCuentaPorNumero(String numeroCuenta);
     ProductoFinanciero actualizarEstadoCuenta(String numeroCuenta, String nuevoEstado);
+    
+    // Reparte el saldo de una cuenta muy concurrida en varias filas (0 lo vuelve a una sola)
+    ProductoFinanciero fraccionarSaldo(String numeroCuenta, int fracciones);
 }	
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.example.demo.dominio.port.in;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.example.demo.dominio.modelo.PaginaHistorial;
 import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
 
 public interface GestionTransaccionPort {
     
@@ -15,4 +19,12 @@ public interface GestionTransaccionPort {
     List<Transaccion> transferir(String cuentaOrigen, String cuentaDestino, Dinero monto);
     
     List<Transaccion> obtenerHistorial(String numeroCuenta);
+    
+    List<Transaccion> obtenerHistorial(String numeroCuenta, PeriodoConsulta periodo);
+    
+    // Paginación por cursor (keyset): cursor nulo = primera página; el tamaño se limita a un máximo
+    PaginaHistorial obtenerHistorialPaginado(String numeroCuenta, PeriodoConsulta periodo, CursorHistorial cursor, int tamano);
+    
+    // Historial del periodo entregado fila a fila (exportación); devuelve la cantidad de transacciones
+    long exportarHistorial(String numeroCuenta, PeriodoConsulta periodo, Consumer<Transaccion> consumidor);
 }
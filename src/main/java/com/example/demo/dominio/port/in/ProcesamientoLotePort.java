@@ -0,0 +1,19 @@
+package com.example.demo.dominio.port.in;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+import com.example.demo.dominio.modelo.ResultadoMovimiento;
+import com.example.demo.dominio.modelo.SolicitudMovimiento;
+
+public interface ProcesamientoLotePort {
+
+    /**
+     * Aplica los movimientos por bloques, cada bloque en su propia transacción, entregando el resultado
+     * de cada movimiento en el orden de entrada. El siguiente bloque no se lee hasta que el consumidor
+     * recibió los resultados del anterior. Un movimiento rechazado no afecta a los demás.
+     * Si la lectura de movimientos falla, se aplican los ya leídos y se propaga el error.
+     * @return la cantidad de movimientos procesados (aplicados o rechazados).
+     */
+    long procesar(Iterator<SolicitudMovimiento> movimientos, Consumer<ResultadoMovimiento> consumidor);
+}
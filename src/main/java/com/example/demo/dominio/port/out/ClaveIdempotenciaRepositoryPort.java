@@ -0,0 +1,25 @@
+package com.example.demo.dominio.port.out;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.example.demo.dominio.modelo.RegistroIdempotencia;
+
+public interface ClaveIdempotenciaRepositoryPort {
+
+    /**
+     * Reserva la clave dentro de la transacción del movimiento. Si otra transacción la reservó y aún no
+     * termina, espera a que lo haga. Una clave vencida se puede volver a reservar.
+     * @return false si la clave ya está registrada y vigente.
+     */
+    boolean reservar(String clave, String huella, LocalDateTime expiraEn);
+
+    // Guarda los ids generados; debe ejecutarse en la misma transacción que reservar()
+    void completar(String clave, List<Long> idsTransacciones);
+
+    Optional<RegistroIdempotencia> buscar(String clave);
+
+    // Elimina las claves vencidas; devuelve cuántas se eliminaron
+    int purgarVencidas(LocalDateTime ahora);
+}
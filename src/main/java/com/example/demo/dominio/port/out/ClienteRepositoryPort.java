@@ -12,6 +12,11 @@ public interface ClienteRepositoryPort {
     
     Optional<Cliente> buscarPorId(Long id);
     
+    /**
+     * Verifica que el cliente exista sin reconstruir la entidad (para quien solo necesita el id).
+     */
+    boolean existePorId(Long id);
+    
     
     void eliminar(Long id);
     
@@ -1,8 +1,12 @@
 package com.example.demo.dominio.port.out;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.VO.Dinero;
 
 public interface CuentaRepositoryPort {
     
@@ -14,4 +18,42 @@ public interface CuentaRepositoryPort {
     
    
     boolean existeNumeroCuenta(String numeroCuenta);
+    
+    /**
+     * Aplica un delta (positivo para depósitos, negativo para retiros) al saldo en una sola
+     * sentencia atómica, solo si la cuenta está ACTIVA y el saldo resultante no es negativo.
+     * @return el saldo resultante (en una cuenta con saldo fraccionado, el de la fracción que recibió
+     *         el movimiento), o vacío si la cuenta no existe o no cumple las condiciones.
+     */
+    Optional<Dinero> aplicarMovimiento(String numeroCuenta, Dinero delta);
+    
+    /**
+     * Bloquea para escritura (SELECT ... FOR UPDATE) las cuentas indicadas, siempre en orden
+     * ascendente de id, de modo que transferencias concurrentes A→B y B→A no generen deadlocks.
+     * Debe invocarse dentro de una transacción.
+     */
+    List<ProductoFinanciero> bloquearCuentas(Collection<String> numerosCuenta);
+    
+    /**
+     * Debita el origen y acredita el destino en una sola sentencia. Se asume que ambas cuentas
+     * ya fueron bloqueadas y validadas en la transacción actual.
+     */
+    void aplicarTransferencia(String numeroCuentaOrigen, String numeroCuentaDestino, Dinero monto);
+    
+    /**
+     * Suma a cada cuenta su delta (neto de varios movimientos) con sentencias UPDATE enviadas en
+     * lotes JDBC. Se asume que las cuentas ya fueron bloqueadas y validadas en la transacción actual.
+     */
+    void aplicarDeltas(Map<String, Dinero> deltasPorCuenta);
+    
+    /**
+     * Reparte el saldo de la cuenta en {@code fracciones} filas independientes; con 0 lo vuelve a
+     * concentrar en una sola. Los movimientos de una cuenta fraccionada actualizan una fracción al
+     * azar y no compiten por la misma fila; las lecturas devuelven el saldo total.
+     * @return false si la cuenta no existe.
+     */
+    boolean fraccionarSaldo(String numeroCuenta, int fracciones);
+    
+    /** Si los movimientos de la cuenta se reparten entre fracciones de su saldo. */
+    boolean tieneSaldoFraccionado(String numeroCuenta);
 }
\ No newline at end of file
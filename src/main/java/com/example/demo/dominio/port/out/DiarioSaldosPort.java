@@ -0,0 +1,54 @@
+package com.example.demo.dominio.port.out;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.example.demo.dominio.modelo.AsientoSaldo;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+
+/**
+ * Diario de saldos del motor en memoria: los movimientos se registran como asientos (solo inserciones)
+ * y se consolidan después en productos_financieros.
+ */
+public interface DiarioSaldosPort {
+
+    /**
+     * Abre un escritor con conexión propia. Cada partición del motor usa el suyo, de modo que el
+     * registro de asientos no compite por el pool con las peticiones que esperan su confirmación.
+     */
+    EscritorDiario abrirEscritor();
+
+    /**
+     * Suma los asientos pendientes al saldo de sus cuentas y los elimina, en una sola sentencia.
+     * @return la cantidad de cuentas actualizadas.
+     */
+    int consolidar();
+
+    /**
+     * Cuentas con saldo fraccionado. El motor carga solo el saldo de productos_financieros, sin sus
+     * fracciones, y no arranca mientras quede alguna.
+     */
+    long cuentasFraccionadas();
+
+    interface EscritorDiario extends AutoCloseable {
+
+        /**
+         * Carga la cuenta con su saldo vigente: el persistido más sus asientos pendientes.
+         */
+        Optional<ProductoFinanciero> cargar(String numeroCuenta);
+
+        /**
+         * Registra los asientos en una sola transacción (commit en grupo), junto con las transacciones
+         * que lleven (ver {@link AsientoSaldo#getRegistro()}), a las que asigna su id.
+         */
+        void registrar(List<AsientoSaldo> asientos);
+
+        /**
+         * Consolida los asientos pendientes de una sola cuenta.
+         */
+        void consolidar(String numeroCuenta);
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.dominio.port.out;
+
+import java.util.List;
+
+import com.example.demo.dominio.modelo.AsientoContable;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+/**
+ * Libro contable de partida doble (app.transacciones.libro-contable.habilitado=true). Con él habilitado,
+ * {@link TransaccionRepositoryPort} es una vista de compatibilidad sobre las partidas.
+ */
+public interface LibroContablePort {
+
+    /**
+     * Registra los asientos y sus partidas en una sola transacción, con una inserción en lote por tabla.
+     * @return los asientos con sus ids y los de sus partidas, en el mismo orden.
+     */
+    List<AsientoContable> registrar(List<AsientoContable> asientos);
+
+    /**
+     * Saldo de la cuenta según sus partidas; para conciliarlo con el saldo de productos_financieros.
+     */
+    Dinero saldoContable(String numeroCuenta);
+}
@@ -0,0 +1,37 @@
+package com.example.demo.dominio.port.out;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.example.demo.dominio.modelo.PuntoSaldo;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+/**
+ * Saldos diarios por cuenta: el saldo al cierre de cada día en que la cuenta tuvo movimientos. Dentro de
+ * los días ya registrados, un día sin punto significa que la cuenta no se movió.
+ */
+public interface PuntosControlSaldoPort {
+
+    /**
+     * Registra los cierres de los días posteriores al último registrado y anteriores a {@code hoy}.
+     * Solo lee los movimientos desde el primer día pendiente.
+     * @return la cantidad de puntos escritos.
+     */
+    int registrarHasta(LocalDate hoy);
+
+    Optional<LocalDate> ultimoDiaRegistrado();
+
+    /** Último punto de la cuenta anterior a {@code dia}. */
+    Optional<PuntoSaldo> anterior(String numeroCuenta, LocalDate dia);
+
+    /** Primer punto de la cuenta en {@code dia} o después. */
+    Optional<PuntoSaldo> siguiente(String numeroCuenta, LocalDate dia);
+
+    /** Puntos de la cuenta entre ambos días (inclusive), en orden. */
+    List<PuntoSaldo> entre(String numeroCuenta, LocalDate desde, LocalDate hasta);
+
+    /** Suma de los movimientos de la cuenta (positivos los que entran) en [desde, hasta). */
+    Dinero sumaMovimientos(String numeroCuenta, LocalDateTime desde, LocalDateTime hasta);
+}
@@ -1,8 +1,11 @@
 package com.example.demo.dominio.port.out;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
 
 
 public interface TransaccionRepositoryPort {
@@ -13,4 +16,24 @@ public interface TransaccionRepositoryPort {
  List<Transaccion> guardarMultiples(List<Transaccion> transacciones); 
  
  List<Transaccion> buscarPorCuenta(String numeroCuenta);
+ 
+ // Transacciones con esos ids, en el mismo orden (las inexistentes se omiten)
+ List<Transaccion> buscarPorIds(List<Long> ids);
+ 
+ // Historial restringido a un periodo: solo se leen las particiones mensuales que lo intersecan
+ List<Transaccion> buscarPorCuenta(String numeroCuenta, PeriodoConsulta periodo);
+ 
+ /**
+  * Hasta {@code limite} transacciones de la cuenta dentro del periodo, en orden (fecha DESC, id DESC),
+  * estrictamente posteriores a {@code despuesDe} en ese orden. Con {@code despuesDe} nulo se lee desde el inicio.
+  */
+ List<Transaccion> buscarPorCuentaPaginado(String numeroCuenta, PeriodoConsulta periodo, CursorHistorial despuesDe, int limite);
+ 
+ /**
+  * Recorre las transacciones de la cuenta dentro del periodo en orden (fecha DESC, id DESC) entregándolas
+  * una a una, sin materializar la lista completa; como en buscarPorCuenta, solo se leen las particiones
+  * del periodo. Debe invocarse dentro de una transacción (el cursor de la base de datos permanece abierto
+  * mientras dura el recorrido). Devuelve la cantidad de transacciones entregadas.
+  */
+ long recorrerPorCuenta(String numeroCuenta, PeriodoConsulta periodo, Consumer<Transaccion> consumidor);
 }
\ No newline at end of file
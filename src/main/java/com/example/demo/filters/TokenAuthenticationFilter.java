@@ -7,15 +7,20 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.example.demo.security.ClaimsVerificados;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.security.ListaRevocacionTokens;
+import com.example.demo.security.RegistroVersionesUsuario;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Filtro personalizado para procesar tokens JWT de autenticación Bearer.
@@ -23,14 +28,16 @@ import java.io.IOException;
  */
 public class TokenAuthenticationFilter extends OncePerRequestFilter {
 
-    private final UserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
+    private final RegistroVersionesUsuario versiones;
+    private final ListaRevocacionTokens revocados;
     
     private static final String BEARER_PREFIX = "Bearer ";
 
-    public TokenAuthenticationFilter(UserDetailsService userDetailsService, JwtUtil jwtUtil) {
-        this.userDetailsService = userDetailsService;
+    public TokenAuthenticationFilter(JwtUtil jwtUtil, RegistroVersionesUsuario versiones, ListaRevocacionTokens revocados) {
         this.jwtUtil = jwtUtil;
+        this.versiones = versiones;
+        this.revocados = revocados;
     }
 
     @Override
@@ -48,34 +55,46 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt = header.substring(BEARER_PREFIX.length());
-        String username = null;
+        ClaimsVerificados claims;
 
         try {
-            // 2. Extraer el nombre de usuario del token
-            username = jwtUtil.extractUsername(jwt);
+            // 2. Verificar firma y expiración una sola vez (los tokens ya verificados salen de la caché de JwtUtil)
+            claims = jwtUtil.verificar(jwt);
         } catch (Exception e) {
             // Un error aquí (ej. token expirado o firma inválida) 
             logger.warn("JWT inválido o expirado: " + e.getMessage());
+            filterChain.doFilter(request, response);
+            return;
         }
 
-        // 3. Si se encuentra un nombre de usuario y el usuario aún no está autenticado
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        // 3. Revocación: el token debe haberse emitido con la versión vigente del usuario y no haber cerrado sesión
+        if (!versiones.vigente(claims.getUsuario(), claims.getVersionUsuario())) {
+            logger.warn("JWT revocado para el usuario " + claims.getUsuario() + " (versión " + claims.getVersionUsuario() + ").");
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (revocados.revocado(claims.getJti(), claims.getExpiraEn())) {
+            logger.warn("JWT " + claims.getJti() + " revocado por logout.");
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // 4. Si el usuario aún no está autenticado, la autenticación se construye desde los claims (sin cargar el usuario)
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
             
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-
-            // 4. Validar el token contra los detalles del usuario y la expiración
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                
-                // Si es válido, se crea el objeto de autenticación
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                    userDetails, null, userDetails.getAuthorities()
-                );
-                
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                // 5. Establecer la autenticación en el contexto de seguridad
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            }
+            List<SimpleGrantedAuthority> authorities = claims.getRoles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .toList();
+            UserDetails principal = new User(claims.getUsuario(), "", authorities);
+
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                principal, null, authorities
+            );
+            
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+            // 5. Establecer la autenticación en el contexto de seguridad
+            SecurityContextHolder.getContext().setAuthentication(authentication);
         }
 
         // 6. Continuar con la cadena de filtros de Spring Security
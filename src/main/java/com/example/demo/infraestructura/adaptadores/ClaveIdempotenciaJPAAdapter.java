@@ -0,0 +1,53 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dominio.modelo.RegistroIdempotencia;
+import com.example.demo.dominio.port.out.ClaveIdempotenciaRepositoryPort;
+import com.example.demo.infraestructura.datos.ClaveIdempotenciaJPARepository;
+
+@Component
+public class ClaveIdempotenciaJPAAdapter implements ClaveIdempotenciaRepositoryPort {
+
+    private static final String SEPARADOR = ",";
+
+    private final ClaveIdempotenciaJPARepository jpaRepository;
+
+    public ClaveIdempotenciaJPAAdapter(ClaveIdempotenciaJPARepository jpaRepository) {
+        this.jpaRepository = jpaRepository;
+    }
+
+    @Override
+    public boolean reservar(String clave, String huella, LocalDateTime expiraEn) {
+        return jpaRepository.reservar(clave, huella, expiraEn) == 1;
+    }
+
+    @Override
+    public void completar(String clave, List<Long> idsTransacciones) {
+        jpaRepository.completar(clave, idsTransacciones.stream().map(String::valueOf).collect(Collectors.joining(SEPARADOR)));
+    }
+
+    @Override
+    public Optional<RegistroIdempotencia> buscar(String clave) {
+        // Solo claves completas: una reserva sin ids pertenece a una transacción aún no confirmada
+        return jpaRepository.findById(clave)
+            .filter(c -> c.getIdsTransacciones() != null)
+            .map(c -> new RegistroIdempotencia(c.getClave(), c.getHuella(), Arrays.stream(c.getIdsTransacciones().split(SEPARADOR))
+                .filter(id -> !id.isEmpty())
+                .map(Long::valueOf)
+                .toList()));
+    }
+
+    @Override
+    @Transactional
+    public int purgarVencidas(LocalDateTime ahora) {
+        return jpaRepository.purgarVencidas(ahora);
+    }
+}
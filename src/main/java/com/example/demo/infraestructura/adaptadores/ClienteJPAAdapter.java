@@ -8,6 +8,7 @@ import com.example.demo.dominio.modelo.Cliente;
 import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
 import com.example.demo.dominio.modelo.VO.Email;
 import com.example.demo.dominio.port.out.ClienteRepositoryPort;
+import com.example.demo.infraestructura.cache.CacheCercana;
 import com.example.demo.infraestructura.datos.ClienteJPA;
 import com.example.demo.infraestructura.datos.ClienteJPARepository;
 import com.example.demo.infraestructura.datos.ProductoJPARepository;
@@ -18,11 +19,18 @@ public class ClienteJPAAdapter implements ClienteRepositoryPort {
     private final ClienteJPARepository jpaRepository;
     
     private final ProductoJPARepository productoRepository; 
+    
+    // 🔑 Caché por id y un índice por identificación (tipo|número -> id) que la reutiliza
+    private final CacheCercana<Cliente> cacheClientes;
+    private final CacheCercana<Long> cacheIdentificaciones;
 
     
-    public ClienteJPAAdapter(ClienteJPARepository jpaRepository, ProductoJPARepository productoRepository) {
+    public ClienteJPAAdapter(ClienteJPARepository jpaRepository, ProductoJPARepository productoRepository,
+                             CacheCercana<Cliente> cacheClientes, CacheCercana<Long> cacheIdentificaciones) {
         this.jpaRepository = jpaRepository;
         this.productoRepository = productoRepository;
+        this.cacheClientes = cacheClientes;
+        this.cacheIdentificaciones = cacheIdentificaciones;
     }
 
     
@@ -56,18 +64,49 @@ public class ClienteJPAAdapter implements ClienteRepositoryPort {
             jpa.getFechaModificacion()
         );
     }
+    
+    // 🔑 Cliente es mutable: cada consulta recibe su propia copia. El Email (VO inmutable, ya validado) se comparte.
+    private Cliente copia(Cliente cliente) {
+        return new Cliente(
+            cliente.getId(),
+            cliente.getTipoIdentificacion(),
+            cliente.getNumeroIdentificacion(),
+            cliente.getNombres(),
+            cliente.getApellido(),
+            cliente.getCorreoElectronico(),
+            cliente.getFechaNacimiento(),
+            cliente.getFechaCreacion(),
+            cliente.getFechaModificacion()
+        );
+    }
+    
+    private static String claveIdentificacion(String tipoId, String numeroId) {
+        return tipoId + "|" + numeroId;
+    }
+    
+    private void invalidar(Long id, String tipoId, String numeroId) {
+        cacheClientes.invalidar(String.valueOf(id));
+        cacheIdentificaciones.invalidar(claveIdentificacion(tipoId, numeroId));
+    }
 
 
     @Override
     public Cliente guardar(Cliente cliente) {
         ClienteJPA entity = toJPA(cliente);
         ClienteJPA savedEntity = jpaRepository.save(entity);
+        invalidar(savedEntity.getId(), savedEntity.getTipoIdentificacion(), savedEntity.getNumeroIdentificacion());
         return toDominio(savedEntity);
     }
 
     @Override
     public Optional<Cliente> buscarPorId(Long id) {
-        return jpaRepository.findById(id).map(this::toDominio);
+        return cacheClientes.obtener(String.valueOf(id), k -> jpaRepository.findById(id).map(this::toDominio))
+                .map(this::copia);
+    }
+
+    @Override
+    public boolean existePorId(Long id) {
+        return cacheClientes.siPresente(String.valueOf(id)).isPresent() || jpaRepository.existsById(id);
     }
 
     @Override
@@ -77,6 +116,7 @@ public class ClienteJPAAdapter implements ClienteRepositoryPort {
         jpaRepository.findById(id).ifPresent(entity -> {
             entity.setEliminado(true);
             jpaRepository.save(entity);
+            invalidar(entity.getId(), entity.getTipoIdentificacion(), entity.getNumeroIdentificacion());
         });
     }
 
@@ -90,8 +130,13 @@ public class ClienteJPAAdapter implements ClienteRepositoryPort {
 
     @Override
     public Optional<Cliente> buscarPorIdentificacion(String tipoId, String numeroId) {
-        return jpaRepository
-                .findByTipoIdentificacionAndNumeroIdentificacion(tipoId, numeroId)
-                .map(this::toDominio);
+        // La identificación no cambia tras la creación, por lo que el índice tipo|número -> id es estable
+        return cacheIdentificaciones.obtener(claveIdentificacion(tipoId, numeroId), k -> jpaRepository
+                    .findByTipoIdentificacionAndNumeroIdentificacion(tipoId, numeroId)
+                    .map(jpa -> {
+                        cacheClientes.poner(String.valueOf(jpa.getId()), toDominio(jpa));
+                        return jpa.getId();
+                    }))
+                .flatMap(this::buscarPorId);
     }
 }
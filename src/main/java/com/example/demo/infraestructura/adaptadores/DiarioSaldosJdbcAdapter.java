@@ -0,0 +1,223 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dominio.modelo.AsientoSaldo;
+import com.example.demo.dominio.modelo.CuentaAhorros;
+import com.example.demo.dominio.modelo.CuentaCorriente;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.out.DiarioSaldosPort;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Diario de saldos en la tabla diario_saldos (requiere db/migracion/diario_saldos.sql). Los registros de
+ * los asientos se insertan en transacciones con su saldo_resultante (db/migracion/saldo_resultante.sql).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cuentas.motor.habilitado", havingValue = "true")
+public class DiarioSaldosJdbcAdapter implements DiarioSaldosPort {
+
+    // 🔑 Una sola sentencia: una lectura concurrente a la consolidación ve el diario antes o después, nunca a medias
+    private static final String CARGAR = """
+        SELECT p.id, p.cliente_id, p.numero_cuenta, p.tipo_cuenta, p.estado, p.exentagmf, p.fecha_creacion,
+               p.fecha_modificacion, p.version,
+               p.saldo + COALESCE((SELECT sum(d.delta) FROM diario_saldos d WHERE d.numero_cuenta = p.numero_cuenta), 0) AS saldo
+        FROM productos_financieros p WHERE p.numero_cuenta = ?
+        """;
+
+    private static final String REGISTRAR = "INSERT INTO diario_saldos (numero_cuenta, delta) VALUES (?, ?)";
+
+    // El id lo asigna el DEFAULT de la columna (un bloque completo de la secuencia, ver secuencias_ids.sql)
+    private static final String REGISTRAR_TRANSACCION = """
+        INSERT INTO transacciones (tipo, monto, fecha, numero_cuenta_origen, numero_cuenta_destino, saldo_resultante)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    // 🔑 Borrado y suma en la misma sentencia; la versión sube para que un guardar() con una lectura anterior falle
+    private static final String CONSOLIDAR = """
+        WITH consolidados AS (DELETE FROM diario_saldos %s RETURNING numero_cuenta, delta)
+        UPDATE productos_financieros p
+        SET saldo = p.saldo + c.total, fecha_modificacion = now(), version = p.version + 1
+        FROM (SELECT numero_cuenta, sum(delta) AS total FROM consolidados GROUP BY numero_cuenta) c
+        WHERE p.numero_cuenta = c.numero_cuenta
+        """;
+
+    private static final String CUENTAS_FRACCIONADAS =
+            "SELECT count(*) FROM productos_financieros WHERE fracciones_saldo IS NOT NULL";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DiarioSaldosJdbcAdapter(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public EscritorDiario abrirEscritor() {
+        return new EscritorJdbc();
+    }
+
+    @Override
+    public int consolidar() {
+        return jdbcTemplate.update(CONSOLIDAR.formatted(""));
+    }
+
+    @Override
+    public long cuentasFraccionadas() {
+        return jdbcTemplate.queryForObject(CUENTAS_FRACCIONADAS, Long.class);
+    }
+
+    @FunctionalInterface
+    private interface Sentencia<T> {
+        T ejecutar(Connection conexion) throws SQLException;
+    }
+
+    /**
+     * Conserva su conexión entre llamadas (autocommit desactivado, un commit por operación). Ante un
+     * error la descarta y la siguiente operación abre otra.
+     */
+    private final class EscritorJdbc implements EscritorDiario {
+
+        private Connection conexion;
+
+        @Override
+        public Optional<ProductoFinanciero> cargar(String numeroCuenta) {
+            return ejecutar("cargar", CARGAR, c -> {
+                try (PreparedStatement ps = c.prepareStatement(CARGAR)) {
+                    ps.setString(1, numeroCuenta);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? Optional.of(toDominio(rs)) : Optional.<ProductoFinanciero>empty();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void registrar(List<AsientoSaldo> asientos) {
+            ejecutar("registrar", REGISTRAR, c -> {
+                try (PreparedStatement ps = c.prepareStatement(REGISTRAR)) {
+                    for (AsientoSaldo asiento : asientos) {
+                        ps.setString(1, asiento.getNumeroCuenta());
+                        ps.setBigDecimal(2, asiento.getDelta().getMonto());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                // 🔑 Misma conexión y mismo commit: el saldo no se mueve sin su registro
+                List<Transaccion> registros = asientos.stream().map(AsientoSaldo::getRegistro).filter(Objects::nonNull).toList();
+                if (!registros.isEmpty()) {
+                    insertarRegistros(c, registros);
+                }
+                return null;
+            });
+        }
+
+        private void insertarRegistros(Connection c, List<Transaccion> registros) throws SQLException {
+            try (PreparedStatement ps = c.prepareStatement(REGISTRAR_TRANSACCION, new String[] {"id"})) {
+                for (Transaccion registro : registros) {
+                    ps.setString(1, registro.getTipo().name());
+                    ps.setBigDecimal(2, registro.getMonto().getMonto());
+                    ps.setTimestamp(3, Timestamp.valueOf(registro.getFecha()));
+                    ps.setString(4, registro.getNumeroCuentaOrigen());
+                    ps.setString(5, registro.getNumeroCuentaDestino());
+                    ps.setBigDecimal(6, registro.getSaldoResultante() == null ? null : registro.getSaldoResultante().getMonto());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet ids = ps.getGeneratedKeys()) {
+                    for (Transaccion registro : registros) {
+                        if (!ids.next()) {
+                            throw new SQLException("El INSERT en lote no devolvió el id de todas las transacciones.");
+                        }
+                        registro.setId(ids.getLong(1));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void consolidar(String numeroCuenta) {
+            String sql = CONSOLIDAR.formatted("WHERE numero_cuenta = ?");
+            ejecutar("consolidar", sql, c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    ps.setString(1, numeroCuenta);
+                    return ps.executeUpdate();
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            descartar();
+        }
+
+        private <T> T ejecutar(String tarea, String sql, Sentencia<T> sentencia) {
+            try {
+                if (conexion == null) {
+                    conexion = dataSource.getConnection();
+                    conexion.setAutoCommit(false);
+                }
+                T resultado = sentencia.ejecutar(conexion);
+                conexion.commit();
+                return resultado;
+            } catch (SQLException e) {
+                descartar();
+                throw jdbcTemplate.getExceptionTranslator().translate("Diario de saldos: " + tarea, sql, e);
+            }
+        }
+
+        private void descartar() {
+            if (conexion == null) {
+                return;
+            }
+            try {
+                conexion.rollback();
+                conexion.close();
+            } catch (SQLException e) {
+                log.warn("DIARIO DE SALDOS: no se pudo cerrar la conexión del escritor. Causa: {}", e.getMessage());
+            }
+            conexion = null;
+        }
+    }
+
+    private static ProductoFinanciero toDominio(ResultSet rs) throws SQLException {
+        ProductoFinanciero cuenta;
+        Dinero saldo = Dinero.of(rs.getBigDecimal("saldo"));
+        EstadoCuenta estado = EstadoCuenta.valueOf(rs.getString("estado"));
+        if (TipoCuenta.valueOf(rs.getString("tipo_cuenta")) == TipoCuenta.AHORROS) {
+            cuenta = new CuentaAhorros(rs.getLong("cliente_id"), rs.getLong("id"), rs.getString("numero_cuenta"), saldo,
+                estado, fecha(rs, "fecha_creacion"), fecha(rs, "fecha_modificacion"), rs.getBoolean("exentagmf"));
+        } else {
+            cuenta = new CuentaCorriente(rs.getLong("cliente_id"), rs.getLong("id"), rs.getString("numero_cuenta"), saldo,
+                estado, fecha(rs, "fecha_creacion"), fecha(rs, "fecha_modificacion"), rs.getBoolean("exentagmf"));
+        }
+        cuenta.setVersion(rs.getLong("version"));
+        return cuenta;
+    }
+
+    private static LocalDateTime fecha(ResultSet rs, String columna) throws SQLException {
+        Timestamp valor = rs.getTimestamp(columna);
+        return valor == null ? null : valor.toLocalDateTime();
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dominio.modelo.AsientoContable;
+import com.example.demo.dominio.modelo.AsientoContable.TipoAsiento;
+import com.example.demo.dominio.modelo.PartidaContable;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
+import com.example.demo.dominio.port.out.LibroContablePort;
+import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
+
+/**
+ * Libro contable en asientos_contables y partidas_contables (requiere db/migracion/libro_contable.sql).
+ *
+ * Mientras está habilitado también es el TransaccionRepositoryPort de la aplicación. Cada partida de una
+ * cuenta se presenta como una Transaccion con el id de la partida. Una transferencia es un solo asiento:
+ * su débito es la partida del origen y su crédito la del destino, así que el historial de cada cuenta
+ * solo muestra su propio lado. Las partidas de {@link AsientoContable#CUENTA_CAJA} no se presentan.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transacciones.libro-contable.habilitado", havingValue = "true")
+public class LibroContableJdbcAdapter implements LibroContablePort, TransaccionRepositoryPort {
+
+    // Extremos usados cuando el periodo no tiene límite (dentro del rango de timestamp de PostgreSQL)
+    private static final LocalDateTime FECHA_MINIMA = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime FECHA_MAXIMA = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Un solo viaje por todos los ids del lote: asientos y partidas comparten la secuencia
+    private static final String RESERVAR_IDS = "SELECT nextval('libro_contable_seq') FROM generate_series(1, ?)";
+    private static final String INSERTAR_ASIENTO = "INSERT INTO asientos_contables (id, tipo, fecha) VALUES (?, ?, ?)";
+    private static final String INSERTAR_PARTIDA =
+            "INSERT INTO partidas_contables (id, asiento_id, numero_cuenta, monto, fecha, saldo_resultante) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // 🔑 Cada partida con el tipo de su asiento y la cuenta de la partida opuesta de mayor monto (en una
+    // transferencia, la otra cuenta). El historial es un solo rango del índice (numero_cuenta, fecha DESC, id DESC),
+    // sin combinar las ramas de origen y destino como en transacciones.
+    private static final String VISTA = """
+        SELECT p.id, a.tipo, p.monto, p.fecha, p.numero_cuenta, p.saldo_resultante,
+               (SELECT o.numero_cuenta FROM partidas_contables o
+                WHERE o.asiento_id = p.asiento_id AND sign(o.monto) <> sign(p.monto)
+                ORDER BY abs(o.monto) DESC, o.id LIMIT 1) AS contrapartida
+        FROM partidas_contables p JOIN asientos_contables a ON a.id = p.asiento_id
+        """;
+    private static final String EN_RANGO = "WHERE p.numero_cuenta = ? AND p.fecha >= ? AND p.fecha < ? ";
+    private static final String DESPUES_DEL_CURSOR = "AND (p.fecha, p.id) < (?, ?) ";
+    private static final String ORDEN = "ORDER BY p.fecha DESC, p.id DESC";
+
+    private static final String SALDO_CONTABLE = "SELECT COALESCE(sum(monto), 0) FROM partidas_contables WHERE numero_cuenta = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Exportación: cursor del servidor con fetch size acotado (requiere una transacción abierta)
+    private final JdbcTemplate jdbcTemplateRecorrido;
+
+    public LibroContableJdbcAdapter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcTemplateRecorrido = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplateRecorrido.setFetchSize(500);
+    }
+
+    // --- Libro contable ---
+
+    @Override
+    @Transactional
+    public List<AsientoContable> registrar(List<AsientoContable> asientos) {
+        if (asientos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int cantidadIds = asientos.size() + asientos.stream().mapToInt(a -> a.getPartidas().size()).sum();
+        Iterator<Long> ids = jdbcTemplate.queryForList(RESERVAR_IDS, Long.class, cantidadIds).iterator();
+
+        List<Object[]> filasAsientos = new ArrayList<>(asientos.size());
+        List<Object[]> filasPartidas = new ArrayList<>(cantidadIds - asientos.size());
+        List<AsientoContable> registrados = new ArrayList<>(asientos.size());
+        for (AsientoContable asiento : asientos) {
+            Long idAsiento = ids.next();
+            // 🔑 Las partidas copian la fecha del asiento: el historial por cuenta no necesita leer asientos_contables
+            Timestamp fecha = Timestamp.valueOf(asiento.getFecha());
+            filasAsientos.add(new Object[] { idAsiento, asiento.getTipo().name(), fecha });
+            List<PartidaContable> partidas = new ArrayList<>(asiento.getPartidas().size());
+            for (PartidaContable partida : asiento.getPartidas()) {
+                Long idPartida = ids.next();
+                Dinero saldo = partida.getSaldoResultante();
+                filasPartidas.add(new Object[] { idPartida, idAsiento, partida.getNumeroCuenta(), partida.getMonto().getMonto(), fecha,
+                                                 saldo == null ? null : saldo.getMonto() });
+                partidas.add(new PartidaContable(idPartida, partida.getNumeroCuenta(), partida.getMonto(), saldo));
+            }
+            registrados.add(new AsientoContable(idAsiento, asiento.getTipo(), asiento.getFecha(), partidas));
+        }
+        jdbcTemplate.batchUpdate(INSERTAR_ASIENTO, filasAsientos);
+        jdbcTemplate.batchUpdate(INSERTAR_PARTIDA, filasPartidas);
+        return registrados;
+    }
+
+    @Override
+    public Dinero saldoContable(String numeroCuenta) {
+        return Dinero.of(jdbcTemplate.queryForObject(SALDO_CONTABLE, BigDecimal.class, numeroCuenta));
+    }
+
+    // --- Vista de compatibilidad (TransaccionRepositoryPort) ---
+
+    @Override
+    @Transactional
+    public Transaccion guardar(Transaccion transaccion) {
+        return guardarMultiples(List.of(transaccion)).get(0);
+    }
+
+    @Override
+    @Transactional
+    public List<Transaccion> guardarMultiples(List<Transaccion> transacciones) {
+        List<AsientoContable> asientos = new ArrayList<>(transacciones.size());
+        for (int i = 0; i < transacciones.size(); i++) {
+            Transaccion transaccion = transacciones.get(i);
+            if (transaccion.getTipo() == TipoTransaccion.CONSIGNACION) {
+                asientos.add(AsientoContable.consignacion(transaccion.getNumeroCuentaDestino(), transaccion.getMonto(), transaccion.getFecha(),
+                    transaccion.getSaldoResultante()));
+            } else if (transaccion.getTipo() == TipoTransaccion.RETIRO) {
+                asientos.add(AsientoContable.retiro(transaccion.getNumeroCuentaOrigen(), transaccion.getMonto(), transaccion.getFecha(),
+                    transaccion.getSaldoResultante()));
+            } else {
+                // 🔑 El débito y su crédito (consecutivos, como los escriben los servicios) son un solo asiento
+                Transaccion credito = i + 1 < transacciones.size() ? transacciones.get(i + 1) : null;
+                if (transaccion.getTipo() != TipoTransaccion.TRANSFERENCIA_DEBITO || !esCreditoDe(credito, transaccion)) {
+                    throw new IllegalArgumentException("Una transferencia se registra con su débito seguido de su crédito.");
+                }
+                asientos.add(AsientoContable.transferencia(transaccion.getNumeroCuentaOrigen(),
+                    transaccion.getNumeroCuentaDestino(), transaccion.getMonto(), transaccion.getFecha(),
+                    transaccion.getSaldoResultante(), credito.getSaldoResultante()));
+                i++;
+            }
+        }
+
+        List<Transaccion> registradas = new ArrayList<>(transacciones.size());
+        for (AsientoContable asiento : registrar(asientos)) {
+            List<PartidaContable> partidas = asiento.getPartidas();
+            // La partida de caja no se presenta; una transferencia presenta sus dos lados
+            int presentadas = asiento.getTipo() == TipoAsiento.TRANSFERENCIA ? 2 : 1;
+            for (int k = 0; k < presentadas; k++) {
+                PartidaContable partida = partidas.get(k);
+                registradas.add(vista(partida.getId(), asiento.getTipo(), partida.getMonto(), asiento.getFecha(),
+                                      partida.getNumeroCuenta(), partidas.get(1 - k).getNumeroCuenta(), partida.getSaldoResultante()));
+            }
+        }
+        return registradas;
+    }
+
+    @Override
+    public List<Transaccion> buscarPorCuenta(String numeroCuenta) {
+        return buscarPorCuenta(numeroCuenta, PeriodoConsulta.COMPLETO);
+    }
+
+    @Override
+    public List<Transaccion> buscarPorIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Transaccion> porId = jdbcTemplate.query(VISTA + "WHERE p.id IN (" + marcadores + ")",
+                LibroContableJdbcAdapter::toTransaccion, ids.toArray()).stream()
+            .collect(Collectors.toMap(Transaccion::getId, Function.identity()));
+        return ids.stream()
+            .map(porId::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Transaccion> buscarPorCuenta(String numeroCuenta, PeriodoConsulta periodo) {
+        return jdbcTemplate.query(VISTA + EN_RANGO + ORDEN, LibroContableJdbcAdapter::toTransaccion,
+                numeroCuenta, desde(periodo), hasta(periodo));
+    }
+
+    @Override
+    public List<Transaccion> buscarPorCuentaPaginado(String numeroCuenta, PeriodoConsulta periodo, CursorHistorial despuesDe, int limite) {
+        if (despuesDe == null) {
+            return jdbcTemplate.query(VISTA + EN_RANGO + ORDEN + " LIMIT ?", LibroContableJdbcAdapter::toTransaccion,
+                    numeroCuenta, desde(periodo), hasta(periodo), limite);
+        }
+        return jdbcTemplate.query(VISTA + EN_RANGO + DESPUES_DEL_CURSOR + ORDEN + " LIMIT ?", LibroContableJdbcAdapter::toTransaccion,
+                numeroCuenta, desde(periodo), hasta(periodo), despuesDe.getFecha(), despuesDe.getId(), limite);
+    }
+
+    @Override
+    public long recorrerPorCuenta(String numeroCuenta, PeriodoConsulta periodo, Consumer<Transaccion> consumidor) {
+        long[] total = new long[1];
+        jdbcTemplateRecorrido.query(VISTA + EN_RANGO + ORDEN, (RowCallbackHandler) rs -> {
+            consumidor.accept(toTransaccion(rs, 0));
+            total[0]++;
+        }, numeroCuenta, desde(periodo), hasta(periodo));
+        return total[0];
+    }
+
+    private static boolean esCreditoDe(Transaccion credito, Transaccion debito) {
+        return credito != null
+            && credito.getTipo() == TipoTransaccion.TRANSFERENCIA_CREDITO
+            && Objects.equals(credito.getNumeroCuentaOrigen(), debito.getNumeroCuentaOrigen())
+            && Objects.equals(credito.getNumeroCuentaDestino(), debito.getNumeroCuentaDestino())
+            && credito.getMonto().equals(debito.getMonto());
+    }
+
+    private static Transaccion toTransaccion(ResultSet rs, int fila) throws SQLException {
+        BigDecimal saldo = rs.getBigDecimal("saldo_resultante");
+        return vista(rs.getLong("id"), TipoAsiento.valueOf(rs.getString("tipo")), Dinero.of(rs.getBigDecimal("monto")),
+                     rs.getTimestamp("fecha").toLocalDateTime(), rs.getString("numero_cuenta"), rs.getString("contrapartida"),
+                     saldo == null ? null : Dinero.of(saldo));
+    }
+
+    // Una partida como el registro que escribía TransaccionJPAAdapter: monto positivo y cuentas de origen y destino
+    private static Transaccion vista(Long id, TipoAsiento tipo, Dinero monto, LocalDateTime fecha, String cuenta, String contrapartida,
+                                     Dinero saldoResultante) {
+        Transaccion transaccion;
+        switch (tipo) {
+            case CONSIGNACION:
+                transaccion = new Transaccion(id, TipoTransaccion.CONSIGNACION, monto, fecha, null, cuenta);
+                break;
+            case RETIRO:
+                transaccion = new Transaccion(id, TipoTransaccion.RETIRO, monto.negar(), fecha, cuenta, null);
+                break;
+            case TRANSFERENCIA_REVERTIDA:
+                // Ambas partidas son del origen: el destino no queda en el libro
+                transaccion = monto.esNegativo()
+                    ? new Transaccion(id, TipoTransaccion.TRANSFERENCIA_DEBITO, monto.negar(), fecha, cuenta, null)
+                    : new Transaccion(id, TipoTransaccion.TRANSFERENCIA_REVERSO, monto, fecha, cuenta, null);
+                break;
+            default:
+                transaccion = monto.esNegativo()
+                    ? new Transaccion(id, TipoTransaccion.TRANSFERENCIA_DEBITO, monto.negar(), fecha, cuenta, contrapartida)
+                    : new Transaccion(id, TipoTransaccion.TRANSFERENCIA_CREDITO, monto, fecha, contrapartida, cuenta);
+        }
+        transaccion.setSaldoResultante(saldoResultante);
+        return transaccion;
+    }
+
+    private static LocalDateTime desde(PeriodoConsulta periodo) {
+        return periodo.getDesde().orElse(FECHA_MINIMA);
+    }
+
+    private static LocalDateTime hasta(PeriodoConsulta periodo) {
+        return periodo.getHasta().orElse(FECHA_MAXIMA);
+    }
+}
@@ -1,6 +1,13 @@
 package com.example.demo.infraestructura.adaptadores;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.demo.dominio.modelo.CuentaAhorros;
 import com.example.demo.dominio.modelo.CuentaCorriente;
@@ -8,19 +15,96 @@ import com.example.demo.dominio.modelo.ProductoFinanciero;
 import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
 import com.example.demo.dominio.modelo.VO.Dinero;
 import com.example.demo.dominio.port.out.CuentaRepositoryPort;
+import com.example.demo.infraestructura.cache.CacheCercana;
 import com.example.demo.infraestructura.datos.AhorrosJPA;
 import com.example.demo.infraestructura.datos.CorrienteJPA;
 import com.example.demo.infraestructura.datos.ProductoJPA;
 import com.example.demo.infraestructura.datos.ProductoJPARepository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Component
 public class ProductoJPAAdapter implements CuentaRepositoryPort {
 
+    private static final String APLICAR_DELTA = "UPDATE productos_financieros "
+            + "SET saldo = saldo + ?, fecha_modificacion = ?, version = version + 1 WHERE numero_cuenta = ?";
+
+    // 🔑 Movimiento sobre una sola fracción: solo bloquea esa fila (la de la cuenta se lee sin bloqueo). Ni la
+    // fila ni las fracciones quedan negativas, así que una fracción que cubre el retiro basta para el saldo total.
+    // Devuelve el saldo de la fracción: sumar las demás en cada movimiento cuesta la mitad del rendimiento.
+    // No actualiza fecha_modificacion de la cuenta: escribir su fila volvería a serializar en ella todos los
+    // movimientos que el fraccionamiento reparte. La fila toma la fecha al fraccionar y al consolidar.
+    private static final String MOVER_FRACCION = """
+        UPDATE saldos_fraccionados f SET saldo = f.saldo + ?
+        FROM productos_financieros p
+        WHERE f.numero_cuenta = ? AND f.fraccion = ? AND f.saldo + ? >= 0
+          AND p.numero_cuenta = f.numero_cuenta AND p.estado = 'ACTIVA'
+        RETURNING f.saldo
+        """;
+
+    // 🔑 Primero la fila y luego las fracciones, el orden de ProductoJPARepository.consolidarFracciones (sin deadlocks)
+    private static final String BLOQUEAR_ACTIVA = "SELECT saldo, fracciones_saldo FROM productos_financieros "
+            + "WHERE numero_cuenta = ? AND estado = 'ACTIVA' FOR UPDATE";
+
+    private static final String LEER_FRACCIONES = "SELECT fraccion, saldo FROM saldos_fraccionados "
+            + "WHERE numero_cuenta = ? ORDER BY saldo DESC FOR UPDATE";
+
+    private static final String TOMAR_DE_FRACCION = "UPDATE saldos_fraccionados SET saldo = saldo + ? "
+            + "WHERE numero_cuenta = ? AND fraccion = ?";
+
+    private static final String SUMAR_FRACCIONES = "SELECT COALESCE(sum(saldo), 0) FROM saldos_fraccionados WHERE numero_cuenta = ?";
+
+    // Con la cuenta bloqueada, también sus fracciones: ningún movimiento cambia el saldo ya validado
+    private static final String BLOQUEAR_FRACCIONES = "SELECT COALESCE(sum(f.saldo), 0) FROM "
+            + "(SELECT saldo FROM saldos_fraccionados WHERE numero_cuenta = ? FOR UPDATE) f";
+
+    // Sin bloqueo: solo decide si vale la pena el camino con la fila bloqueada
+    private static final String LEER_FRACCIONES_SALDO = "SELECT fracciones_saldo FROM productos_financieros WHERE numero_cuenta = ?";
+
+    private static final String LEER_FRACCIONADAS = "SELECT numero_cuenta, fracciones_saldo FROM productos_financieros "
+            + "WHERE fracciones_saldo IS NOT NULL";
+
     private final ProductoJPARepository jpaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // 🔑 Caché por número de cuenta: toda escritura sobre una cuenta la invalida (ver CacheCercana)
+    private final CacheCercana<ProductoJPA> cacheCuentas;
+    private final int cuentasAPrecargar;
+    private final int diasPrecarga;
+    private final boolean libroContable;
+    // Cuentas fraccionadas y su cantidad de fracciones: decide la ruta de cada movimiento sin consultar la base
+    private final Map<String, Integer> fraccionadas = new ConcurrentHashMap<>();
 
-    public ProductoJPAAdapter(ProductoJPARepository jpaRepository) {
+    public ProductoJPAAdapter(
+            ProductoJPARepository jpaRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            CacheCercana<ProductoJPA> cacheCuentas,
+            @Value("${app.cache.cuentas.precarga:0}") int cuentasAPrecargar,
+            @Value("${app.cache.cuentas.precarga-dias:30}") int diasPrecarga,
+            @Value("${app.transacciones.libro-contable.habilitado:false}") boolean libroContable) {
         this.jpaRepository = jpaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheCuentas = cacheCuentas;
+        this.cuentasAPrecargar = cuentasAPrecargar;
+        this.diasPrecarga = diasPrecarga;
+        this.libroContable = libroContable;
     }
 
     // 🔑 Mapeo de Dominio a JPA
@@ -44,43 +128,308 @@ public class ProductoJPAAdapter implements CuentaRepositoryPort {
         jpa.setExentaGMF(dominio.isExentaGMF());
         jpa.setFechaCreacion(dominio.getFechaCreacion());
         jpa.setFechaModificacion(dominio.getFechaModificacion());
+        jpa.setVersion(dominio.getVersion()); // 🔑 null = nueva cuenta (INSERT)
         return jpa;
     }
 
     // 🔑 Mapeo de JPA a Dominio (Reconstruye la Entidad y el VO Dinero)
     private ProductoFinanciero toDominio(ProductoJPA jpa) {
         // Usa el constructor de copia para reconstruir la entidad de Dominio.
+        ProductoFinanciero dominio;
         if (jpa.getTipoCuenta() == TipoCuenta.AHORROS) {
-            return new CuentaAhorros(jpa.getClienteId(), jpa.getId(), jpa.getNumeroCuenta(), 
+            dominio = new CuentaAhorros(jpa.getClienteId(), jpa.getId(), jpa.getNumeroCuenta(), 
                                      Dinero.of(jpa.getSaldo()), jpa.getEstado(), jpa.getFechaCreacion(), 
                                      jpa.getFechaModificacion(), jpa.isExentaGMF());
         } else if (jpa.getTipoCuenta() == TipoCuenta.CORRIENTE) {
-             return new CuentaCorriente(jpa.getClienteId(), jpa.getId(), jpa.getNumeroCuenta(), 
+             dominio = new CuentaCorriente(jpa.getClienteId(), jpa.getId(), jpa.getNumeroCuenta(), 
                                         Dinero.of(jpa.getSaldo()), jpa.getEstado(), jpa.getFechaCreacion(), 
                                         jpa.getFechaModificacion(), jpa.isExentaGMF());
+        } else {
+            throw new IllegalArgumentException("Tipo de producto no mapeable.");
+        }
+        dominio.setVersion(jpa.getVersion());
+        return dominio;
+    }
+
+    // 🔑 Copia no administrada por Hibernate: un merge() posterior en la misma sesión no puede modificar lo que está en caché
+    private ProductoJPA copiaDesacoplada(ProductoJPA jpa) {
+        ProductoJPA copia = toJPA(toDominio(jpa));
+        copia.setFraccionesSaldo(jpa.getFraccionesSaldo());
+        return copia;
+    }
+
+    // 🔑 Lo que ven los llamadores: en una cuenta fraccionada, la fila más la suma de sus fracciones
+    private ProductoFinanciero toDominioConFracciones(ProductoJPA jpa) {
+        return conFracciones(jpa, SUMAR_FRACCIONES);
+    }
+
+    private ProductoFinanciero conFracciones(ProductoJPA jpa, String sumaFracciones) {
+        ProductoFinanciero dominio = toDominio(jpa);
+        if (jpa.getFraccionesSaldo() != null) {
+            BigDecimal fracciones = jdbcTemplate.queryForObject(sumaFracciones, BigDecimal.class, jpa.getNumeroCuenta());
+            dominio.setSaldo(dominio.getSaldo().sumar(Dinero.of(fracciones)));
         }
-        throw new IllegalArgumentException("Tipo de producto no mapeable.");
+        return dominio;
+    }
+
+    /**
+     * Precarga las cuentas con más movimientos recientes (app.cache.cuentas.precarga > 0).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargarCache() {
+        if (cuentasAPrecargar <= 0) {
+            return;
+        }
+        LocalDateTime desde = LocalDateTime.now().minusDays(diasPrecarga);
+        List<ProductoJPA> masActivas = libroContable
+            ? jpaRepository.buscarMasActivasSegunPartidas(desde, cuentasAPrecargar)
+            : jpaRepository.buscarMasActivas(desde, cuentasAPrecargar);
+        masActivas.forEach(jpa -> cacheCuentas.poner(jpa.getNumeroCuenta(), copiaDesacoplada(jpa)));
+        log.info("CACHÉ CUENTAS: {} cuentas precargadas (movimientos de los últimos {} días).", masActivas.size(), diasPrecarga);
+    }
+
+    /**
+     * Relee las cuentas fraccionadas: recoge las que fraccionó o consolidó otro nodo.
+     */
+    @Scheduled(fixedDelayString = "${app.cuentas.fracciones.refresco-ms:30000}")
+    public void refrescarFraccionadas() {
+        Map<String, Integer> vigentes = new HashMap<>();
+        jdbcTemplate.query(LEER_FRACCIONADAS, rs -> {
+            vigentes.put(rs.getString(1), rs.getInt(2));
+        });
+        fraccionadas.keySet().retainAll(vigentes.keySet());
+        fraccionadas.putAll(vigentes);
     }
 
     @Override
     public ProductoFinanciero guardar(ProductoFinanciero producto) {
+        if (producto.getVersion() != null && fraccionesGuardadas(producto.getNumeroCuenta()) != null) {
+            // 🔑 La entidad solo conoce el saldo total: se devuelve a una sola fila y quien guarda relee la cuenta
+            consolidarFracciones(producto.getNumeroCuenta());
+            throw new OptimisticLockingFailureException(
+                "La cuenta " + producto.getNumeroCuenta() + " tenía el saldo fraccionado; se consolidó y debe releerse.");
+        }
         ProductoJPA entity = toJPA(producto);
-        ProductoJPA savedEntity = jpaRepository.save(entity);
-        return toDominio(savedEntity);
+        try {
+            ProductoJPA savedEntity = jpaRepository.save(entity);
+            return toDominio(savedEntity);
+        } finally {
+            // También ante un conflicto de versión: la copia en caché pudo estar vencida y el reintento debe releer
+            cacheCuentas.invalidar(producto.getNumeroCuenta());
+        }
     }
 
     @Override
     public Optional<ProductoFinanciero> buscarPorNumero(String numeroCuenta) {
-        return jpaRepository.findByNumeroCuenta(numeroCuenta).map(this::toDominio);
+        return cacheCuentas.obtener(numeroCuenta, n -> jpaRepository.findByNumeroCuenta(n).map(this::copiaDesacoplada))
+                .map(this::toDominioConFracciones);
     }
 
     @Override
     public Optional<ProductoFinanciero> buscarPorId(Long id) {
-        return jpaRepository.findById(id).map(this::toDominio);
+        return jpaRepository.findById(id).map(this::toDominioConFracciones);
     }
 
     @Override
     public boolean existeNumeroCuenta(String numeroCuenta) {
-        return jpaRepository.findByNumeroCuenta(numeroCuenta).isPresent();
+        return buscarPorNumero(numeroCuenta).isPresent();
+    }
+
+    @Override
+    public Optional<Dinero> aplicarMovimiento(String numeroCuenta, Dinero delta) {
+        Integer fracciones = fraccionadas.get(numeroCuenta);
+        Optional<Dinero> saldo = fracciones != null
+                ? moverFraccion(numeroCuenta, delta, fracciones)
+                : jpaRepository.aplicarDelta(numeroCuenta, delta.getMonto(), LocalDateTime.now())
+                    .map(Dinero::of); // 🔑 BigDecimal (RETURNING saldo) a VO
+        if (saldo.isPresent()) {
+            if (fracciones == null) {
+                cacheCuentas.invalidar(numeroCuenta);
+            }
+            return saldo;
+        }
+        // Sin fila actualizada en una cuenta sin fracciones conocidas: rechazo real (saldo insuficiente, cuenta
+        // inactiva o inexistente) salvo que otro nodo la haya fraccionado. Solo eso paga el camino con bloqueo
+        if (fracciones == null && !fraccionadaEnBaseDeDatos(numeroCuenta)) {
+            return Optional.empty();
+        }
+        // Con la cuenta bloqueada se decide contra el saldo completo (fracción corta, cuenta fraccionada o
+        // consolidada desde otro nodo, o un rechazo real)
+        return moverConPrestamo(numeroCuenta, delta);
+    }
+
+    private boolean fraccionadaEnBaseDeDatos(String numeroCuenta) {
+        return jdbcTemplate.queryForList(LEER_FRACCIONES_SALDO, Integer.class, numeroCuenta).stream()
+                .anyMatch(Objects::nonNull);
+    }
+
+    @Override
+    public boolean tieneSaldoFraccionado(String numeroCuenta) {
+        return fraccionadas.containsKey(numeroCuenta);
+    }
+
+    @Override
+    public boolean fraccionarSaldo(String numeroCuenta, int fracciones) {
+        LocalDateTime ahora = LocalDateTime.now();
+        // Cambiar la cantidad de fracciones es consolidar y volver a repartir, en una sola transacción
+        boolean encontrada = Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            if (jpaRepository.consolidarFracciones(numeroCuenta, ahora) == 0) {
+                return false;
+            }
+            if (fracciones > 0) {
+                jpaRepository.fraccionarSaldo(numeroCuenta, fracciones, ahora);
+            }
+            return true;
+        }));
+        if (encontrada) {
+            registrarFracciones(numeroCuenta, fracciones > 0 ? fracciones : null);
+            cacheCuentas.invalidar(numeroCuenta);
+        }
+        return encontrada;
+    }
+
+    @Override
+    public List<ProductoFinanciero> bloquearCuentas(Collection<String> numerosCuenta) {
+        return jpaRepository.bloquearPorNumerosOrdenadoPorId(numerosCuenta).stream()
+                .map(jpa -> {
+                    // Leído con la fila bloqueada: aplicarTransferencia y aplicarDeltas deciden con este dato
+                    registrarFracciones(jpa.getNumeroCuenta(), jpa.getFraccionesSaldo());
+                    return conFracciones(jpa, BLOQUEAR_FRACCIONES);
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void aplicarTransferencia(String numeroCuentaOrigen, String numeroCuentaDestino, Dinero monto) {
+        if (fraccionadas.containsKey(numeroCuentaOrigen)) {
+            // El débito de una cuenta fraccionada sale de sus fracciones
+            Map<String, Dinero> deltas = new HashMap<>();
+            deltas.put(numeroCuentaOrigen, monto.negar());
+            deltas.put(numeroCuentaDestino, monto);
+            aplicarDeltas(deltas);
+            return;
+        }
+        int filas = jpaRepository.aplicarTransferencia(numeroCuentaOrigen, numeroCuentaDestino, monto.getMonto(), LocalDateTime.now());
+        if (filas != 2) {
+            // Nunca debería ocurrir con las filas bloqueadas; se aborta para que la transacción haga rollback.
+            throw new IllegalStateException("La transferencia afectó " + filas + " cuentas en lugar de 2.");
+        }
+        cacheCuentas.invalidar(numeroCuentaOrigen);
+        cacheCuentas.invalidar(numeroCuentaDestino);
+    }
+
+    @Override
+    public void aplicarDeltas(Map<String, Dinero> deltasPorCuenta) {
+        if (deltasPorCuenta.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>(deltasPorCuenta.size());
+        deltasPorCuenta.forEach((numeroCuenta, delta) -> {
+            BigDecimal enFila = delta.esNegativo() && fraccionadas.containsKey(numeroCuenta)
+                    ? tomarDeFracciones(numeroCuenta, delta.getMonto())
+                    : delta.getMonto();
+            if (enFila.signum() != 0) {
+                filas.add(new Object[] { enFila, ahora, numeroCuenta });
+            }
+        });
+        // 🔑 Las cuentas ya están bloqueadas en esta transacción: los UPDATE viajan juntos sin reconsultar saldos
+        jdbcTemplate.batchUpdate(APLICAR_DELTA, filas);
+        deltasPorCuenta.keySet().forEach(cacheCuentas::invalidar);
+    }
+
+    private Optional<Dinero> moverFraccion(String numeroCuenta, Dinero delta, int fracciones) {
+        int fraccion = ThreadLocalRandom.current().nextInt(fracciones);
+        BigDecimal monto = delta.getMonto();
+        return jdbcTemplate.queryForList(MOVER_FRACCION, BigDecimal.class, monto, numeroCuenta, fraccion, monto)
+                .stream().findFirst().map(Dinero::of);
+    }
+
+    /**
+     * Aplica el movimiento con la fila de la cuenta bloqueada: un retiro toma primero de las fracciones
+     * y el resto de la fila; un depósito va a la fila.
+     */
+    private Optional<Dinero> moverConPrestamo(String numeroCuenta, Dinero delta) {
+        return transactionTemplate.execute(tx -> {
+            List<Map<String, Object>> cuenta = jdbcTemplate.queryForList(BLOQUEAR_ACTIVA, numeroCuenta);
+            if (cuenta.isEmpty()) {
+                return Optional.<Dinero>empty();
+            }
+            BigDecimal saldoFila = (BigDecimal) cuenta.get(0).get("saldo");
+            Integer fracciones = (Integer) cuenta.get(0).get("fracciones_saldo");
+            registrarFracciones(numeroCuenta, fracciones);
+            BigDecimal fraccionado = fracciones == null ? BigDecimal.ZERO
+                    : jdbcTemplate.queryForObject(BLOQUEAR_FRACCIONES, BigDecimal.class, numeroCuenta);
+
+            BigDecimal resultante = saldoFila.add(fraccionado).add(delta.getMonto());
+            if (resultante.signum() < 0) {
+                return Optional.<Dinero>empty();
+            }
+            BigDecimal enFila = delta.esNegativo() && fracciones != null
+                    ? tomarDeFracciones(numeroCuenta, delta.getMonto())
+                    : delta.getMonto();
+            if (enFila.signum() != 0) {
+                jdbcTemplate.update(APLICAR_DELTA, enFila, Timestamp.valueOf(LocalDateTime.now()), numeroCuenta);
+                cacheCuentas.invalidar(numeroCuenta);
+            }
+            return Optional.of(Dinero.of(resultante));
+        });
+    }
+
+    /**
+     * Descuenta el retiro de las fracciones con más saldo (la cuenta ya está bloqueada) y devuelve la
+     * parte que no cubrieron, a descontar de la fila.
+     */
+    private BigDecimal tomarDeFracciones(String numeroCuenta, BigDecimal retiro) {
+        BigDecimal pendiente = retiro;
+        List<Object[]> tomas = new ArrayList<>();
+        for (Fraccion fraccion : jdbcTemplate.query(LEER_FRACCIONES,
+                (rs, i) -> new Fraccion(rs.getInt(1), rs.getBigDecimal(2)), numeroCuenta)) {
+            if (pendiente.signum() >= 0 || fraccion.saldo.signum() <= 0) {
+                break;
+            }
+            BigDecimal toma = fraccion.saldo.min(pendiente.negate());
+            tomas.add(new Object[] { toma.negate(), numeroCuenta, fraccion.numero });
+            pendiente = pendiente.add(toma);
+        }
+        if (!tomas.isEmpty()) {
+            jdbcTemplate.batchUpdate(TOMAR_DE_FRACCION, tomas);
+        }
+        return pendiente;
+    }
+
+    private void consolidarFracciones(String numeroCuenta) {
+        try {
+            jpaRepository.consolidarFracciones(numeroCuenta, LocalDateTime.now());
+            registrarFracciones(numeroCuenta, null);
+            log.info("SALDO CONSOLIDADO: La cuenta {} volvió a una sola fila antes de guardarse.", numeroCuenta);
+        } finally {
+            cacheCuentas.invalidar(numeroCuenta);
+        }
+    }
+
+    private Integer fraccionesGuardadas(String numeroCuenta) {
+        return cacheCuentas.obtener(numeroCuenta, n -> jpaRepository.findByNumeroCuenta(n).map(this::copiaDesacoplada))
+                .map(ProductoJPA::getFraccionesSaldo)
+                .orElse(null);
+    }
+
+    private void registrarFracciones(String numeroCuenta, Integer fracciones) {
+        if (fracciones == null) {
+            fraccionadas.remove(numeroCuenta);
+        } else {
+            fraccionadas.put(numeroCuenta, fracciones);
+        }
+    }
+
+    private static final class Fraccion {
+
+        private final int numero;
+        private final BigDecimal saldo;
+
+        private Fraccion(int numero, BigDecimal saldo) {
+            this.numero = numero;
+            this.saldo = saldo;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dominio.modelo.PuntoSaldo;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.out.PuntosControlSaldoPort;
+
+/**
+ * Cierres diarios en la tabla saldos_diarios (requiere db/migracion/saldos_diarios.sql). Los movimientos
+ * se leen de transacciones o, con el libro contable habilitado, de partidas_contables. Con el motor de saldos
+ * habilitado el saldo actual incluye los asientos de diario_saldos aún sin consolidar.
+ */
+@Component
+public class PuntosControlSaldoJdbcAdapter implements PuntosControlSaldoPort {
+
+    // Sin cierres registrados el primer registro recorre todo el historial (una sola vez)
+    private static final LocalDateTime FECHA_MINIMA = LocalDateTime.of(1, 1, 1, 0, 0);
+
+    // Movimientos como deltas firmados por cuenta, desde :desde (el mismo valor en cada marcador). Una
+    // devolución (TRANSFERENCIA_REVERSO) solo mueve su origen, en sentido contrario al débito
+    private static final String MOVIMIENTOS_TRANSACCIONES = """
+        SELECT numero_cuenta_destino AS numero_cuenta, fecha, monto AS delta FROM transacciones
+        WHERE tipo IN ('CONSIGNACION', 'TRANSFERENCIA_CREDITO') AND fecha >= ?
+        UNION ALL
+        SELECT numero_cuenta_origen, fecha, CASE WHEN tipo = 'TRANSFERENCIA_REVERSO' THEN monto ELSE -monto END FROM transacciones
+        WHERE tipo IN ('RETIRO', 'TRANSFERENCIA_DEBITO', 'TRANSFERENCIA_REVERSO') AND fecha >= ?
+        """;
+    private static final String MOVIMIENTOS_PARTIDAS =
+            "SELECT numero_cuenta, fecha, monto AS delta FROM partidas_contables WHERE fecha >= ?";
+
+    // 🔑 El cierre de cada día es el saldo actual menos lo movido después de ese día, todo en una sola
+    // sentencia (una sola foto de saldos y movimientos). Solo se leen los movimientos desde el primer día
+    // pendiente; el saldo actual incluye las fracciones de las cuentas fraccionadas y, con el motor, el diario.
+    private static final String REGISTRAR = """
+        WITH movimientos AS (%1$s),
+        netos AS (
+            SELECT numero_cuenta, fecha::date AS dia, sum(delta) AS neto
+            FROM movimientos GROUP BY numero_cuenta, fecha::date
+        ),
+        cierres AS (
+            SELECT numero_cuenta, dia, sum(neto) OVER (PARTITION BY numero_cuenta ORDER BY dia DESC) - neto AS posterior
+            FROM netos
+        )
+        INSERT INTO saldos_diarios (numero_cuenta, dia, saldo)
+        SELECT c.numero_cuenta, c.dia,
+               p.saldo + COALESCE((SELECT sum(f.saldo) FROM saldos_fraccionados f WHERE f.numero_cuenta = c.numero_cuenta), 0)
+               %2$s - c.posterior
+        FROM cierres c JOIN productos_financieros p ON p.numero_cuenta = c.numero_cuenta
+        WHERE c.dia < ?
+        ON CONFLICT (numero_cuenta, dia) DO UPDATE SET saldo = EXCLUDED.saldo
+        """;
+
+    // Los movimientos del motor ya están en transacciones (mismo commit que su asiento), pero su delta sigue en
+    // diario_saldos hasta la consolidación. Igual que DiarioSaldosJdbcAdapter al cargar las cuentas
+    private static final String DIARIO_PENDIENTE =
+            "+ COALESCE((SELECT sum(d.delta) FROM diario_saldos d WHERE d.numero_cuenta = c.numero_cuenta), 0)";
+
+    private static final String ULTIMO_DIA = "SELECT max(dia) FROM saldos_diarios";
+    private static final String ANTERIOR =
+            "SELECT dia, saldo FROM saldos_diarios WHERE numero_cuenta = ? AND dia < ? ORDER BY dia DESC LIMIT 1";
+    private static final String SIGUIENTE =
+            "SELECT dia, saldo FROM saldos_diarios WHERE numero_cuenta = ? AND dia >= ? ORDER BY dia LIMIT 1";
+    private static final String ENTRE =
+            "SELECT dia, saldo FROM saldos_diarios WHERE numero_cuenta = ? AND dia >= ? AND dia <= ? ORDER BY dia";
+
+    // Cada rama es un rango de los índices (cuenta, fecha) de transacciones
+    private static final String SUMA_TRANSACCIONES = """
+        SELECT COALESCE(sum(delta), 0) FROM (
+            SELECT monto AS delta FROM transacciones
+            WHERE numero_cuenta_destino = ? AND fecha >= ? AND fecha < ? AND tipo IN ('CONSIGNACION', 'TRANSFERENCIA_CREDITO')
+            UNION ALL
+            SELECT CASE WHEN tipo = 'TRANSFERENCIA_REVERSO' THEN monto ELSE -monto END FROM transacciones
+            WHERE numero_cuenta_origen = ? AND fecha >= ? AND fecha < ?
+              AND tipo IN ('RETIRO', 'TRANSFERENCIA_DEBITO', 'TRANSFERENCIA_REVERSO')) m
+        """;
+    private static final String SUMA_PARTIDAS =
+            "SELECT COALESCE(sum(monto), 0) FROM partidas_contables WHERE numero_cuenta = ? AND fecha >= ? AND fecha < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean libroContable;
+    private final boolean motorSaldos;
+
+    public PuntosControlSaldoJdbcAdapter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.transacciones.libro-contable.habilitado:false}") boolean libroContable,
+            @Value("${app.cuentas.motor.habilitado:false}") boolean motorSaldos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.libroContable = libroContable;
+        this.motorSaldos = motorSaldos;
+    }
+
+    @Override
+    public int registrarHasta(LocalDate hoy) {
+        LocalDateTime desde = ultimoDiaRegistrado().map(dia -> dia.plusDays(1).atStartOfDay()).orElse(FECHA_MINIMA);
+        if (!desde.toLocalDate().isBefore(hoy)) {
+            return 0;
+        }
+        String diario = motorSaldos ? DIARIO_PENDIENTE : "";
+        if (libroContable) {
+            return jdbcTemplate.update(REGISTRAR.formatted(MOVIMIENTOS_PARTIDAS, diario), desde, Date.valueOf(hoy));
+        }
+        return jdbcTemplate.update(REGISTRAR.formatted(MOVIMIENTOS_TRANSACCIONES, diario), desde, desde, Date.valueOf(hoy));
+    }
+
+    @Override
+    public Optional<LocalDate> ultimoDiaRegistrado() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(ULTIMO_DIA, Date.class)).map(Date::toLocalDate);
+    }
+
+    @Override
+    public Optional<PuntoSaldo> anterior(String numeroCuenta, LocalDate dia) {
+        return jdbcTemplate.query(ANTERIOR, PuntosControlSaldoJdbcAdapter::toPunto, numeroCuenta, Date.valueOf(dia))
+            .stream().findFirst();
+    }
+
+    @Override
+    public Optional<PuntoSaldo> siguiente(String numeroCuenta, LocalDate dia) {
+        return jdbcTemplate.query(SIGUIENTE, PuntosControlSaldoJdbcAdapter::toPunto, numeroCuenta, Date.valueOf(dia))
+            .stream().findFirst();
+    }
+
+    @Override
+    public List<PuntoSaldo> entre(String numeroCuenta, LocalDate desde, LocalDate hasta) {
+        return jdbcTemplate.query(ENTRE, PuntosControlSaldoJdbcAdapter::toPunto,
+                numeroCuenta, Date.valueOf(desde), Date.valueOf(hasta));
+    }
+
+    @Override
+    public Dinero sumaMovimientos(String numeroCuenta, LocalDateTime desde, LocalDateTime hasta) {
+        BigDecimal suma = libroContable
+            ? jdbcTemplate.queryForObject(SUMA_PARTIDAS, BigDecimal.class, numeroCuenta, desde, hasta)
+            : jdbcTemplate.queryForObject(SUMA_TRANSACCIONES, BigDecimal.class,
+                    numeroCuenta, desde, hasta, numeroCuenta, desde, hasta);
+        return Dinero.of(suma);
+    }
+
+    private static PuntoSaldo toPunto(ResultSet rs, int fila) throws SQLException {
+        return new PuntoSaldo(rs.getDate("dia").toLocalDate(), Dinero.of(rs.getBigDecimal("saldo")));
+    }
+}
@@ -1,23 +1,42 @@
 package com.example.demo.infraestructura.adaptadores;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
 import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
 import com.example.demo.infraestructura.datos.TransaccionJPA;
 import com.example.demo.infraestructura.datos.TransaccionJPARepository;
 
+import jakarta.persistence.EntityManager;
+
+// Con el libro contable habilitado, LibroContableJdbcAdapter ocupa su lugar
 @Component
+@ConditionalOnProperty(name = "app.transacciones.libro-contable.habilitado", havingValue = "false", matchIfMissing = true)
 public class TransaccionJPAAdapter implements TransaccionRepositoryPort {
 
+    // Extremos usados cuando el periodo no tiene límite (dentro del rango de timestamp de PostgreSQL)
+    private static final LocalDateTime FECHA_MINIMA = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime FECHA_MAXIMA = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private final TransaccionJPARepository jpaRepository;
+    private final EntityManager entityManager;
 
-    public TransaccionJPAAdapter(TransaccionJPARepository jpaRepository) {
+    public TransaccionJPAAdapter(TransaccionJPARepository jpaRepository, EntityManager entityManager) {
         this.jpaRepository = jpaRepository;
+        this.entityManager = entityManager;
     }
 
     // Mapeo de Dominio a JPA
@@ -28,14 +47,15 @@ public class TransaccionJPAAdapter implements TransaccionRepositoryPort {
             dominio.getMonto().getMonto(), // VO Dinero a BigDecimal
             dominio.getFecha(),
             dominio.getNumeroCuentaOrigen(),
-            dominio.getNumeroCuentaDestino()
+            dominio.getNumeroCuentaDestino(),
+            dominio.getSaldoResultante() == null ? null : dominio.getSaldoResultante().getMonto()
         );
     }
     
     // Mapeo de JPA a Dominio
     private Transaccion toDominio(TransaccionJPA jpa) {
         // Asumiendo que Transaccion tiene un constructor de reconstrucción
-        return new Transaccion(
+        Transaccion dominio = new Transaccion(
             jpa.getId(),
             jpa.getTipo(),
             Dinero.of(jpa.getMonto()), // BigDecimal a VO Dinero
@@ -43,6 +63,10 @@ public class TransaccionJPAAdapter implements TransaccionRepositoryPort {
             jpa.getNumeroCuentaOrigen(),
             jpa.getNumeroCuentaDestino()
         );
+        if (jpa.getSaldoResultante() != null) {
+            dominio.setSaldoResultante(Dinero.of(jpa.getSaldoResultante()));
+        }
+        return dominio;
     }
 
     @Override
@@ -67,11 +91,61 @@ public class TransaccionJPAAdapter implements TransaccionRepositoryPort {
 
     @Override
     public List<Transaccion> buscarPorCuenta(String numeroCuenta) {
+        return buscarPorCuenta(numeroCuenta, PeriodoConsulta.COMPLETO);
+    }
+
+    @Override
+    public List<Transaccion> buscarPorIds(List<Long> ids) {
+        Map<Long, TransaccionJPA> porId = jpaRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(TransaccionJPA::getId, Function.identity()));
+        return ids.stream()
+            .map(porId::get)
+            .filter(Objects::nonNull)
+            .map(this::toDominio)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Transaccion> buscarPorCuenta(String numeroCuenta, PeriodoConsulta periodo) {
         List<TransaccionJPA> jpaList = jpaRepository
-            .findByNumeroCuentaOrigenOrNumeroCuentaDestinoOrderByFechaDesc(numeroCuenta, numeroCuenta);
+            .buscarHistorialPorCuenta(numeroCuenta, desde(periodo), hasta(periodo));
+            
+        return jpaList.stream()
+            .map(this::toDominio)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Transaccion> buscarPorCuentaPaginado(String numeroCuenta, PeriodoConsulta periodo, CursorHistorial despuesDe, int limite) {
+        List<TransaccionJPA> jpaList = (despuesDe == null)
+            ? jpaRepository.buscarPrimeraPagina(numeroCuenta, desde(periodo), hasta(periodo), limite)
+            : jpaRepository.buscarPaginaDespuesDe(numeroCuenta, desde(periodo), hasta(periodo),
+                                                  despuesDe.getFecha(), despuesDe.getId(), limite);
             
         return jpaList.stream()
             .map(this::toDominio)
             .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public long recorrerPorCuenta(String numeroCuenta, PeriodoConsulta periodo, Consumer<Transaccion> consumidor) {
+        long total = 0;
+        try (Stream<TransaccionJPA> filas = jpaRepository.streamPorCuenta(numeroCuenta, desde(periodo), hasta(periodo))) {
+            for (TransaccionJPA jpa : (Iterable<TransaccionJPA>) filas::iterator) {
+                consumidor.accept(toDominio(jpa));
+                // 🔑 Se desvincula cada fila para que el contexto de persistencia no crezca con el recorrido
+                entityManager.detach(jpa);
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private static LocalDateTime desde(PeriodoConsulta periodo) {
+        return periodo.getDesde().orElse(FECHA_MINIMA);
+    }
+
+    private static LocalDateTime hasta(PeriodoConsulta periodo) {
+        return periodo.getHasta().orElse(FECHA_MAXIMA);
+    }
+}
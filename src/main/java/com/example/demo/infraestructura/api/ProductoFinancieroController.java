@@ -1,17 +1,22 @@
 package com.example.demo.infraestructura.api;
 
 
+import com.example.demo.dominio.port.in.ConsultaSaldoHistoricoPort;
 import com.example.demo.dominio.port.in.GestionCuentaPort; // ⬅️ ¡IMPORTANTE! Importar el Puerto
 import com.example.demo.infraestructura.api.dto.CuentaCreacionDTO;
 import com.example.demo.infraestructura.api.dto.CuentaRespuestaDTO;
 import com.example.demo.infraestructura.api.dto.DepositoDTO;
 import com.example.demo.infraestructura.api.dto.EstadoCuentaDTO;
+import com.example.demo.infraestructura.api.dto.FraccionesSaldoDTO;
+import com.example.demo.infraestructura.api.dto.PuntoSaldoDTO;
+import com.example.demo.infraestructura.api.dto.SaldoHistoricoDTO;
 import com.example.demo.dominio.modelo.ProductoFinanciero;
 import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
 import com.example.demo.dominio.modelo.VO.Dinero;
 import com.example.demo.infraestructura.mappers.CuentaMapper;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
@@ -19,8 +24,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.media.Content;
 
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -32,11 +42,14 @@ public class ProductoFinancieroController {
 
     // 1. 🔑 Depender de la Interfaz/Puerto, no de la implementación concreta (CuentaService)
     private final GestionCuentaPort gestionCuentaPort; 
+    private final ConsultaSaldoHistoricoPort consultaSaldoHistoricoPort;
     private final CuentaMapper mapper;
 
     // 2. 🔑 Constructor: Inyectar el Puerto
-    public ProductoFinancieroController(GestionCuentaPort gestionCuentaPort, CuentaMapper mapper) {
+    public ProductoFinancieroController(GestionCuentaPort gestionCuentaPort,
+                                        ConsultaSaldoHistoricoPort consultaSaldoHistoricoPort, CuentaMapper mapper) {
         this.gestionCuentaPort = gestionCuentaPort;
+        this.consultaSaldoHistoricoPort = consultaSaldoHistoricoPort;
         this.mapper = mapper;
     }
 
@@ -96,6 +109,62 @@ public class ProductoFinancieroController {
         return ResponseEntity.ok(respuesta);
     }
     
+    // ----------------------------------------------------------------------
+    // GET /api/v1/productos/{numeroCuenta}/saldo-historico - Saldo en una fecha
+    // ----------------------------------------------------------------------
+    @Operation(
+    	    summary = "Consulta el saldo que tenía una cuenta en un instante dado.",
+    	    description = "Parte del cierre diario más cercano a la fecha y solo suma o descuenta los movimientos entre ambos, sin recorrer todo el historial de la cuenta."
+    	)
+    @ApiResponses(value = {
+     @ApiResponse(
+         responseCode = "200",
+         description = "Consulta exitosa, devuelve el saldo en la fecha indicada.",
+         content = @Content(schema = @Schema(implementation = SaldoHistoricoDTO.class))
+     ),
+     @ApiResponse(responseCode = "400", description = "Cuenta no encontrada o saldos históricos no habilitados.")
+    })
+    @GetMapping("/{numeroCuenta}/saldo-historico")
+    public ResponseEntity<SaldoHistoricoDTO> consultarSaldoHistorico(
+            @PathVariable String numeroCuenta,
+            @Parameter(description = "Instante de la consulta, formato yyyy-MM-ddTHH:mm:ss.")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+
+        Dinero saldo = consultaSaldoHistoricoPort.saldoEn(numeroCuenta, fecha);
+        return ResponseEntity.ok(new SaldoHistoricoDTO(numeroCuenta, fecha, saldo.getMonto()));
+    }
+
+    // ----------------------------------------------------------------------
+    // GET /api/v1/productos/{numeroCuenta}/saldo-historico/serie - Serie de saldos
+    // ----------------------------------------------------------------------
+    @Operation(
+    	    summary = "Consulta la evolución del saldo de una cuenta entre dos fechas.",
+    	    description = "Devuelve el saldo al cierre del último día de cada intervalo de 'intervalo' días entre 'desde' y 'hasta' (inclusive, hasta hoy como máximo). Una serie admite hasta 1000 puntos."
+    	)
+    @ApiResponses(value = {
+     @ApiResponse(
+         responseCode = "200",
+         description = "Consulta exitosa, devuelve un punto por intervalo.",
+         content = @Content(schema = @Schema(implementation = PuntoSaldoDTO.class))
+     ),
+     @ApiResponse(responseCode = "400", description = "Rango o intervalo inválido, cuenta no encontrada o saldos históricos no habilitados.")
+    })
+    @GetMapping("/{numeroCuenta}/saldo-historico/serie")
+    public ResponseEntity<List<PuntoSaldoDTO>> consultarSerieSaldos(
+            @PathVariable String numeroCuenta,
+            @Parameter(description = "Fecha inicial (inclusive), formato yyyy-MM-dd.")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @Parameter(description = "Fecha final (inclusive), formato yyyy-MM-dd.")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @Parameter(description = "Días por punto (1 = un punto por día).")
+            @RequestParam(defaultValue = "1") int intervalo) {
+
+        List<PuntoSaldoDTO> serie = consultaSaldoHistoricoPort.serieSaldos(numeroCuenta, desde, hasta, intervalo).stream()
+            .map(punto -> new PuntoSaldoDTO(punto.getDia(), punto.getSaldo().getMonto()))
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(serie);
+    }
+    
     // ----------------------------------------------------------------------
     // PATCH /api/v1/productos/{numeroCuenta}/estado - Actualizar estado
     // ----------------------------------------------------------------------
@@ -129,6 +198,33 @@ public class ProductoFinancieroController {
         return ResponseEntity.ok(respuestaDTO);
     }
     
+    // ----------------------------------------------------------------------
+    // PATCH /api/v1/productos/{numeroCuenta}/fracciones - Fraccionar el saldo
+    // ----------------------------------------------------------------------
+    @Operation(
+    	    summary = "Reparte el saldo de una cuenta muy concurrida entre varias filas.",
+    	    description = "Con fracciones entre 2 y 256, cada depósito o retiro actualiza una sola fracción elegida al azar y los movimientos simultáneos no esperan el bloqueo de la misma fila. Con 0 el saldo vuelve a una sola fila. La consulta de la cuenta siempre devuelve el saldo total."
+    	)
+    	@ApiResponses(value = {
+    	    @ApiResponse(
+    	        responseCode = "200", 
+    	        description = "Saldo repartido. Retorna la cuenta con su saldo total.",
+    	        content = @Content(schema = @Schema(implementation = CuentaRespuestaDTO.class))
+    	    ),
+    	    @ApiResponse(responseCode = "400", description = "Solicitud inválida (ej. cantidad de fracciones fuera de rango o cuenta no ACTIVA)."),
+    	    @ApiResponse(responseCode = "404", description = "Cuenta no encontrada.")
+    	})
+    @PatchMapping("/{numeroCuenta}/fracciones")
+    public ResponseEntity<CuentaRespuestaDTO> fraccionarSaldo(
+            @PathVariable String numeroCuenta,
+            @RequestBody FraccionesSaldoDTO dto) {
+        
+        int fracciones = dto.getFracciones() == null ? 0 : dto.getFracciones();
+        ProductoFinanciero cuenta = gestionCuentaPort.fraccionarSaldo(numeroCuenta, fracciones);
+        
+        return ResponseEntity.ok(mapper.toRespuestaDTO(cuenta));
+    }
+    
     @Operation(
     	    summary = "Cancela un producto financiero.",
     	    description = "Pone el estado de la cuenta a CANCELADA. Esta acción solo es posible si el **saldo actual de la cuenta es igual a $0**. Si la cancelación es exitosa, se devuelve 204 No Content."
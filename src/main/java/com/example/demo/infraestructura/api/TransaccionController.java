@@ -2,17 +2,35 @@ package com.example.demo.infraestructura.api;
 
 
 
+import com.example.demo.dominio.modelo.PaginaHistorial;
+import com.example.demo.dominio.modelo.ResultadoMovimiento;
+import com.example.demo.dominio.modelo.SolicitudMovimiento;
 import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
+import com.example.demo.dominio.port.in.EjecucionIdempotentePort;
 import com.example.demo.dominio.port.in.GestionTransaccionPort;
+import com.example.demo.dominio.port.in.ProcesamientoLotePort;
+import com.example.demo.infraestructura.api.dto.HistorialPaginadoDTO;
+import com.example.demo.infraestructura.api.dto.ResultadoLoteDTO;
 import com.example.demo.infraestructura.api.dto.TransaccionRespuestaDTO;
 import com.example.demo.infraestructura.mappers.TransaccionMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.example.demo.infraestructura.api.dto.TransaccionCreacionDTO;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -21,20 +39,40 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/v1/transacciones")
 public class TransaccionController {
 
     
+    public static final String HEADER_IDEMPOTENCIA = "Idempotency-Key";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int LONGITUD_MAXIMA_CLAVE = 100;
+    private static final Set<String> TIPOS_MOVIMIENTO = Set.of("CONSIGNACION", "RETIRO", "TRANSFERENCIA");
+    
     private final GestionTransaccionPort gestionTransaccionPort;
+    private final EjecucionIdempotentePort ejecucionIdempotentePort;
+    private final ProcesamientoLotePort procesamientoLotePort;
     private final TransaccionMapper mapper;
+    private final ObjectMapper objectMapper;
 
     
-    public TransaccionController(GestionTransaccionPort gestionTransaccionPort, TransaccionMapper mapper) {
+    public TransaccionController(GestionTransaccionPort gestionTransaccionPort, EjecucionIdempotentePort ejecucionIdempotentePort,
+                                 ProcesamientoLotePort procesamientoLotePort, TransaccionMapper mapper, ObjectMapper objectMapper) {
         this.gestionTransaccionPort = gestionTransaccionPort;
+        this.ejecucionIdempotentePort = ejecucionIdempotentePort;
+        this.procesamientoLotePort = procesamientoLotePort;
         this.mapper = mapper;
+        this.objectMapper = objectMapper;
     }
 
     // ----------------------------------------------------------------------
@@ -42,7 +80,8 @@ public class TransaccionController {
     // ----------------------------------------------------------------------
     @Operation(
         summary = "Realiza una transacción financiera (Consignación, Retiro o Transferencia).",
-        description = "Procesa el tipo de movimiento indicado en el DTO. Requiere cuentaOrigen y cuentaDestino solo para TRANSFERENCIA."
+        description = "Procesa el tipo de movimiento indicado en el DTO. Requiere cuentaOrigen y cuentaDestino solo para TRANSFERENCIA. "
+                    + "Con el encabezado Idempotency-Key el movimiento se ejecuta una sola vez aunque el cliente reintente."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -50,44 +89,140 @@ public class TransaccionController {
             description = "Transacción(es) registrada(s) con éxito.",
             content = @Content(schema = @Schema(oneOf = {TransaccionRespuestaDTO.class, List.class})) // Usa oneOf para List o Simple DTO
         ),
-        @ApiResponse(responseCode = "400", description = "Tipo de movimiento o datos inválidos."),
+        @ApiResponse(responseCode = "400", description = "Tipo de movimiento o datos inválidos, o Idempotency-Key reutilizada con otros datos."),
         @ApiResponse(responseCode = "404", description = "Cuenta de origen o destino no encontrada."),
         @ApiResponse(responseCode = "409", description = "Conflicto (ej. saldo insuficiente para retiro o cuenta inactiva).")
     })
     @PostMapping
     public ResponseEntity<?> realizarTransaccion(
+        @Parameter(description = "Clave única de la operación (opcional). Los reintentos con la misma clave "
+                               + "no repiten el movimiento y reciben las transacciones de la primera ejecución.")
+        @RequestHeader(value = HEADER_IDEMPOTENCIA, required = false) String claveIdempotencia,
+        Principal usuario,
         @Validated 
         @RequestBody 
         TransaccionCreacionDTO dto) {
         
         Dinero monto = Dinero.of(dto.getMonto());
+        String tipo = dto.getTipoMovimiento().toUpperCase();
+        
+        if (!TIPOS_MOVIMIENTO.contains(tipo)) {
+            return new ResponseEntity<>("Tipo de movimiento inválido.", HttpStatus.BAD_REQUEST);
+        }
+        
+        List<Transaccion> transacciones = (claveIdempotencia == null)
+            ? mover(tipo, dto, monto)
+            : ejecucionIdempotentePort.ejecutar(
+                claveDeUsuario(usuario, claveIdempotencia),
+                String.join("|", tipo, String.valueOf(dto.getCuentaOrigen()), String.valueOf(dto.getCuentaDestino()),
+                            dto.getMonto().stripTrailingZeros().toPlainString()),
+                () -> mover(tipo, dto, monto));
         
-        switch (dto.getTipoMovimiento().toUpperCase()) {
+        if (!"TRANSFERENCIA".equals(tipo)) {
+            return new ResponseEntity<>(mapper.toRespuestaDTO(transacciones.get(0)), HttpStatus.CREATED);
+        }
+        
+        List<TransaccionRespuestaDTO> respuesta = transacciones.stream()
+            .map(mapper::toRespuestaDTO)
+            .collect(Collectors.toList());
+        return new ResponseEntity<>(respuesta, HttpStatus.CREATED);
+    }
+    
+    // Ejecuta el movimiento; consignaciones y retiros generan un solo registro, las transferencias dos
+    private List<Transaccion> mover(String tipo, TransaccionCreacionDTO dto, Dinero monto) {
+        switch (tipo) {
             case "CONSIGNACION":
-              
-                Transaccion consig = gestionTransaccionPort.consignar(dto.getCuentaDestino(), monto);
-                return new ResponseEntity<>(mapper.toRespuestaDTO(consig), HttpStatus.CREATED);
+                return List.of(gestionTransaccionPort.consignar(dto.getCuentaDestino(), monto));
 
             case "RETIRO":
-     
-                Transaccion retiro = gestionTransaccionPort.retirar(dto.getCuentaOrigen(), monto);
-                return new ResponseEntity<>(mapper.toRespuestaDTO(retiro), HttpStatus.CREATED);
-
-            case "TRANSFERENCIA":
-            
-                List<Transaccion> transferencias = gestionTransaccionPort.transferir(
-                    dto.getCuentaOrigen(), 
-                    dto.getCuentaDestino(), 
-                    monto
-                );
-                
-                List<TransaccionRespuestaDTO> respuesta = transferencias.stream()
-                    .map(mapper::toRespuestaDTO)
-                    .collect(Collectors.toList());
-                return new ResponseEntity<>(respuesta, HttpStatus.CREATED);
+                return List.of(gestionTransaccionPort.retirar(dto.getCuentaOrigen(), monto));
 
             default:
-                return new ResponseEntity<>("Tipo de movimiento inválido.", HttpStatus.BAD_REQUEST);
+                return gestionTransaccionPort.transferir(dto.getCuentaOrigen(), dto.getCuentaDestino(), monto);
+        }
+    }
+    
+    // Las claves son por usuario: dos clientes pueden elegir la misma sin interferir
+    private static String claveDeUsuario(Principal usuario, String clave) {
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new IllegalArgumentException("El encabezado " + HEADER_IDEMPOTENCIA + " debe tener entre 1 y "
+                + LONGITUD_MAXIMA_CLAVE + " caracteres.");
+        }
+        return (usuario == null ? "anonimo" : usuario.getName()) + ":" + clave;
+    }
+    
+    // ----------------------------------------------------------------------
+    // 3b. POST /api/v1/transacciones/lote - Movimientos masivos (JSON o NDJSON)
+    // ----------------------------------------------------------------------
+    @Operation(
+        summary = "Aplica un lote de movimientos y devuelve el resultado de cada uno en formato NDJSON.",
+        description = "Recibe un arreglo JSON o un flujo NDJSON de TransaccionCreacionDTO. Los movimientos se aplican por bloques "
+                    + "(una transacción por bloque) a medida que se leen, y por cada uno se escribe una línea con su índice, "
+                    + "estado (APLICADO o RECHAZADO) y las transacciones registradas o el motivo del rechazo. "
+                    + "Un movimiento rechazado no afecta a los demás. Si un elemento no es JSON válido, el lote se detiene "
+                    + "en ese punto (los anteriores quedan aplicados) y la última línea lo informa."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Flujo NDJSON con un ResultadoLoteDTO por movimiento, en el orden recibido.",
+            content = @Content(mediaType = NDJSON, schema = @Schema(implementation = ResultadoLoteDTO.class))
+        )
+    })
+    @PostMapping(value = "/lote", consumes = { MediaType.APPLICATION_JSON_VALUE, NDJSON }, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> procesarLote(InputStream entrada) {
+        
+        // 🔑 La entrada se lee al ritmo en que se aplican los bloques: la memoria no depende del tamaño del lote
+        StreamingResponseBody cuerpo = salida -> {
+            long[] entregados = { 0 };
+            try (MappingIterator<TransaccionCreacionDTO> dtos = objectMapper.readerFor(TransaccionCreacionDTO.class).readValues(entrada)) {
+                procesamientoLotePort.procesar(solicitudes(dtos), resultado -> {
+                    escribir(salida, aDTO(resultado));
+                    entregados[0]++;
+                });
+            } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+                escribir(salida, new ResultadoLoteDTO(entregados[0], "RECHAZADO", null,
+                    "JSON inválido; el lote se detuvo en este movimiento."));
+            }
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(cuerpo);
+    }
+    
+    private static Iterator<SolicitudMovimiento> solicitudes(Iterator<TransaccionCreacionDTO> dtos) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return dtos.hasNext();
+            }
+            
+            @Override
+            public SolicitudMovimiento next() {
+                TransaccionCreacionDTO dto = dtos.next();
+                return new SolicitudMovimiento(dto.getTipoMovimiento(), dto.getCuentaOrigen(), dto.getCuentaDestino(), dto.getMonto());
+            }
+        };
+    }
+    
+    private ResultadoLoteDTO aDTO(ResultadoMovimiento resultado) {
+        if (!resultado.isAplicado()) {
+            return new ResultadoLoteDTO(resultado.getIndice(), "RECHAZADO", null, resultado.getError());
+        }
+        List<TransaccionRespuestaDTO> transacciones = resultado.getTransacciones().stream()
+            .map(mapper::toRespuestaDTO)
+            .collect(Collectors.toList());
+        return new ResultadoLoteDTO(resultado.getIndice(), "APLICADO", transacciones, null);
+    }
+    
+    private void escribir(OutputStream salida, Object linea) {
+        try {
+            salida.write(objectMapper.writeValueAsBytes(linea));
+            salida.write('\n');
+        } catch (IOException e) {
+            // El cliente cerró la conexión: se dejan de leer movimientos (los bloques ya confirmados se conservan)
+            throw new UncheckedIOException(e);
         }
     }
     
@@ -96,7 +231,8 @@ public class TransaccionController {
     // ----------------------------------------------------------------------
     @Operation(
         summary = "Consulta el historial de transacciones de una cuenta.",
-        description = "Devuelve la lista completa de movimientos (débitos y créditos) asociados a un número de cuenta."
+        description = "Devuelve la lista completa de movimientos (débitos y créditos) asociados a un número de cuenta. "
+                    + "Con 'desde'/'hasta' (inclusive) solo se consultan las particiones mensuales de ese rango."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -109,10 +245,16 @@ public class TransaccionController {
     @GetMapping("/historial/{numeroCuenta}")
     public ResponseEntity<List<TransaccionRespuestaDTO>> obtenerHistorial(
         @Parameter(description = "Número de cuenta para consultar su historial.")
-        @PathVariable String numeroCuenta) {
+        @PathVariable String numeroCuenta,
+        @Parameter(description = "Fecha inicial (inclusive), formato yyyy-MM-dd. Opcional.")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final (inclusive), formato yyyy-MM-dd. Opcional.")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
         
-        
-        List<Transaccion> historial = gestionTransaccionPort.obtenerHistorial(numeroCuenta);
+        PeriodoConsulta periodo = periodo(desde, hasta);
+        List<Transaccion> historial = (periodo == PeriodoConsulta.COMPLETO)
+            ? gestionTransaccionPort.obtenerHistorial(numeroCuenta)
+            : gestionTransaccionPort.obtenerHistorial(numeroCuenta, periodo);
         
         List<TransaccionRespuestaDTO> respuesta = historial.stream()
             .map(mapper::toRespuestaDTO)
@@ -120,4 +262,97 @@ public class TransaccionController {
             
         return ResponseEntity.ok(respuesta);
     }
-}
\ No newline at end of file
+    
+    // ----------------------------------------------------------------------
+    // 5. GET /api/v1/transacciones/historial/{numeroCuenta}/paginado - Historial por páginas
+    // ----------------------------------------------------------------------
+    @Operation(
+        summary = "Consulta el historial de transacciones de una cuenta por páginas.",
+        description = "Devuelve hasta 'tamano' movimientos (máximo 200) del más reciente al más antiguo. "
+                    + "Para la siguiente página se reenvía el valor 'next' de la respuesta en el parámetro 'cursor' "
+                    + "junto con el mismo rango 'desde'/'hasta'."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200", 
+            description = "Consulta exitosa, devuelve una página de transacciones y el cursor siguiente.",
+            content = @Content(schema = @Schema(implementation = HistorialPaginadoDTO.class))
+        ),
+        @ApiResponse(responseCode = "400", description = "Cursor o tamaño de página inválido.")
+    })
+    @GetMapping("/historial/{numeroCuenta}/paginado")
+    public ResponseEntity<HistorialPaginadoDTO> obtenerHistorialPaginado(
+        @Parameter(description = "Número de cuenta para consultar su historial.")
+        @PathVariable String numeroCuenta,
+        @Parameter(description = "Cursor 'next' recibido en la página anterior. Omitir para la primera página.")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Cantidad de transacciones por página (máximo 200).")
+        @RequestParam(defaultValue = "50") int tamano,
+        @Parameter(description = "Fecha inicial (inclusive), formato yyyy-MM-dd. Opcional.")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final (inclusive), formato yyyy-MM-dd. Opcional.")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        
+        CursorHistorial posicion = (cursor == null || cursor.isBlank()) ? null : CursorHistorial.decodificar(cursor);
+        PaginaHistorial pagina = gestionTransaccionPort.obtenerHistorialPaginado(numeroCuenta, periodo(desde, hasta), posicion, tamano);
+        
+        List<TransaccionRespuestaDTO> transacciones = pagina.getTransacciones().stream()
+            .map(mapper::toRespuestaDTO)
+            .collect(Collectors.toList());
+        String next = pagina.getSiguiente().map(CursorHistorial::codificar).orElse(null);
+            
+        return ResponseEntity.ok(new HistorialPaginadoDTO(transacciones, next));
+    }
+    
+    // ----------------------------------------------------------------------
+    // 6. GET /api/v1/transacciones/historial/{numeroCuenta}/exportar - Exportación NDJSON
+    // ----------------------------------------------------------------------
+    @Operation(
+        summary = "Exporta el historial de una cuenta en formato NDJSON.",
+        description = "Escribe una transacción JSON por línea a medida que se leen de la base de datos, "
+                    + "sin construir la lista completa en memoria. Pensado para auditorías y extractos. "
+                    + "Sin 'desde'/'hasta' exporta el historial completo."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200", 
+            description = "Flujo NDJSON con una TransaccionRespuestaDTO por línea.",
+            content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = TransaccionRespuestaDTO.class))
+        )
+    })
+    @GetMapping(value = "/historial/{numeroCuenta}/exportar", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarHistorial(
+        @Parameter(description = "Número de cuenta cuyo historial se exporta.")
+        @PathVariable String numeroCuenta,
+        @Parameter(description = "Fecha inicial (inclusive), formato yyyy-MM-dd. Opcional.")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+        @Parameter(description = "Fecha final (inclusive), formato yyyy-MM-dd. Opcional.")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        
+        // El periodo se valida antes de responder: un rango inválido es un 400 y no un flujo interrumpido
+        PeriodoConsulta periodo = periodo(desde, hasta);
+        // 🔑 Se ejecuta en el hilo asíncrono: la transacción de solo lectura se abre y cierra dentro de writeTo
+        StreamingResponseBody cuerpo = salida -> gestionTransaccionPort.exportarHistorial(numeroCuenta, periodo, transaccion -> {
+            try {
+                salida.write(objectMapper.writeValueAsBytes(mapper.toRespuestaDTO(transaccion)));
+                salida.write('\n');
+            } catch (IOException e) {
+                // El cliente cerró la conexión: se aborta el recorrido y se libera el cursor
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"historial-" + numeroCuenta + ".ndjson\"")
+            .body(cuerpo);
+    }
+    
+    // Las fechas del API son días completos: 'hasta' inclusive equivale al inicio del día siguiente (exclusivo)
+    private static PeriodoConsulta periodo(LocalDate desde, LocalDate hasta) {
+        return PeriodoConsulta.entre(
+            desde == null ? null : desde.atStartOfDay(),
+            hasta == null ? null : hasta.plusDays(1).atStartOfDay()
+        );
+    }
+}
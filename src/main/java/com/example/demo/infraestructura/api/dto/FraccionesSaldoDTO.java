@@ -0,0 +1,8 @@
+package com.example.demo.infraestructura.api.dto;
+
+import lombok.Data;
+
+@Data
+public class FraccionesSaldoDTO {
+	private Integer fracciones; // 0 = saldo en una sola fila; 2 a 256 = filas entre las que se reparte
+}
@@ -0,0 +1,16 @@
+package com.example.demo.infraestructura.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class HistorialPaginadoDTO {
+    private List<TransaccionRespuestaDTO> transacciones;
+    // Cursor opaco para pedir la siguiente página; null cuando no hay más resultados
+    private String next;
+}
@@ -0,0 +1,16 @@
+package com.example.demo.infraestructura.api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class PuntoSaldoDTO {
+    private LocalDate dia; // Saldo al cierre de este día
+    private BigDecimal saldo;
+}
@@ -0,0 +1,24 @@
+package com.example.demo.infraestructura.api.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoLoteDTO {
+    // Posición del movimiento en el lote (desde 0)
+    private long indice;
+    // APLICADO o RECHAZADO
+    private String estado;
+    // Transacciones registradas (solo si fue aplicado)
+    private List<TransaccionRespuestaDTO> transacciones;
+    // Motivo del rechazo (solo si fue rechazado)
+    private String error;
+}
@@ -0,0 +1,17 @@
+package com.example.demo.infraestructura.api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SaldoHistoricoDTO {
+    private String numeroCuenta;
+    private LocalDateTime fecha;
+    private BigDecimal saldo;
+}
@@ -19,4 +19,11 @@ public class TransaccionRespuestaDTO {
     private LocalDateTime fecha;
     private String numeroCuentaOrigen;
     private String numeroCuentaDestino;
-} 
\ No newline at end of file
+    // Saldo de la cuenta del historial después de este movimiento; null si no se conoce
+    private BigDecimal saldoResultante;
+
+    public TransaccionRespuestaDTO(Long id, String tipo, BigDecimal monto, LocalDateTime fecha,
+                                   String numeroCuentaOrigen, String numeroCuentaDestino) {
+        this(id, tipo, monto, fecha, numeroCuentaOrigen, numeroCuentaDestino, null);
+    }
+}
\ No newline at end of file
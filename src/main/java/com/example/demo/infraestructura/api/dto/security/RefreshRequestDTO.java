@@ -0,0 +1,14 @@
+package com.example.demo.infraestructura.api.dto.security;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshRequestDTO {
+	@NotBlank
+    private String refreshToken;
+}
@@ -0,0 +1,30 @@
+package com.example.demo.infraestructura.api.dto.security;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsuarioCreacionDTO {
+	@NotBlank
+	@Size(max = 100)
+    private String username;
+
+	@NotBlank
+	@Size(min = 8, max = 72) // BCrypt solo considera los primeros 72 bytes
+    private String password;
+
+	// ADMIN, OPERADOR o CLIENTE
+	@NotEmpty
+    private List<String> roles;
+
+	// Obligatorio para el rol CLIENTE
+    private Long clienteId;
+}
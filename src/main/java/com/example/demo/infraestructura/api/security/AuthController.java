@@ -3,20 +3,34 @@ package com.example.demo.infraestructura.api.security;
 
 
 import com.example.demo.infraestructura.api.dto.security.AuthRequestDTO;
+import com.example.demo.infraestructura.api.dto.security.RefreshRequestDTO;
+import com.example.demo.infraestructura.api.dto.security.UsuarioCreacionDTO;
+import com.example.demo.security.ClaimsVerificados;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.security.ListaRevocacionTokens;
+import com.example.demo.security.ServicioRefreshTokens;
+import com.example.demo.security.ServicioUsuarios;
+import com.example.demo.security.TokensEmitidos;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -24,7 +38,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
 /**
  * Controlador para la gestión de autenticación (login y generación de JWT).
- * La ruta /api/v1/auth/login está configurada como pública en SecurityConfig.java.
+ * La ruta /api/v1/auth/login está configurada como pública en SecurityConfig.java;
+ * la gestión de usuarios (/api/v1/auth/usuarios) requiere rol ADMIN.
  */
 	@RestController
 	@RequestMapping("/api/v1/auth")
@@ -32,23 +47,47 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 	public class AuthController {
 	
 	    private final AuthenticationManager authenticationManager;
-	    private final UserDetailsService userDetailsService;
+	    private final ServicioUsuarios servicioUsuarios;
+	    private final ServicioRefreshTokens servicioRefreshTokens;
 	    private final JwtUtil jwtUtil;
+	    private final ListaRevocacionTokens listaRevocacionTokens;
+	    private final Timer loginExitoso;
+	    private final Timer loginFallido;
+	
+	    // El cuerpo sigue siendo el JWT en texto plano; el refresh token viaja en este encabezado
+	    public static final String HEADER_REFRESH_TOKEN = "X-Refresh-Token";
 	
 	    public AuthController(
 	        AuthenticationManager authenticationManager, 
-	        UserDetailsService userDetailsService, 
-	        JwtUtil jwtUtil) {
+	        ServicioUsuarios servicioUsuarios, 
+	        ServicioRefreshTokens servicioRefreshTokens,
+	        JwtUtil jwtUtil,
+	        ListaRevocacionTokens listaRevocacionTokens,
+	        MeterRegistry registry) {
 	        this.authenticationManager = authenticationManager;
-	        this.userDetailsService = userDetailsService;
+	        this.servicioUsuarios = servicioUsuarios;
+	        this.servicioRefreshTokens = servicioRefreshTokens;
 	        this.jwtUtil = jwtUtil;
+	        this.listaRevocacionTokens = listaRevocacionTokens;
+	        this.loginExitoso = timerLogin(registry, "exito");
+	        this.loginFallido = timerLogin(registry, "fallo");
+	    }
+	
+	    // Percentiles del login en /actuator/metrics/seguridad.login (el costo lo domina el hash de la contraseña)
+	    private static Timer timerLogin(MeterRegistry registry, String resultado) {
+	        return Timer.builder("seguridad.login")
+	            .description("Duración del login: verificación de la contraseña y emisión de tokens")
+	            .tag("resultado", resultado)
+	            .publishPercentiles(0.5, 0.95, 0.99)
+	            .publishPercentileHistogram()
+	            .register(registry);
 	    }
 	
 	    /**
 	     * Endpoint público para que el cliente genere un JWT.
 	     * 1. Autentica las credenciales con el AuthenticationManager.
 	     * 2. Genera el JWT usando el JwtUtil (con expiración de 10 minutos).
-	     * 3. Devuelve el JWT.
+	     * 3. Devuelve el JWT, y en el encabezado X-Refresh-Token el refresh token para renovarlo.
 	     * @param request Contiene el usuario y la contraseña.
 	     * @return ResponseEntity con el JWT en el cuerpo si la autenticación es exitosa (HTTP 200).
 	     */
@@ -59,6 +98,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 	                @ApiResponse(
 	                    responseCode = "200", 
 	                    description = "Autenticación exitosa. Retorna el JWT en el cuerpo de la respuesta.",
+	                    headers = @Header(name = HEADER_REFRESH_TOKEN, description = "Refresh token para POST /api/v1/auth/refresh."),
 	                    content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))
 	                ),
 	                @ApiResponse(
@@ -71,18 +111,117 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 	    @PostMapping("/login")
 	    public ResponseEntity<String> createAuthenticationToken(@RequestBody AuthRequestDTO request) {
 	        
-	        // El AuthenticationManager utiliza el UserDetailsService y el PasswordEncoder 
-	        // para validar las credenciales. Si falla, lanza una excepción de autenticación.
-	        authenticationManager.authenticate(
-	            new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-	        );
+	        Timer.Sample muestra = Timer.start();
+	        boolean exitoso = false;
+	        try {
+	            // El AuthenticationManager utiliza el UserDetailsService y el PasswordEncoder 
+	            // para validar las credenciales. Si falla, lanza una excepción de autenticación.
+	            Authentication autenticacion = authenticationManager.authenticate(
+	                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
+	            );
 	
-	        final UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-	        
-	        // Generar el JWT
-	        final String jwt = jwtUtil.generateToken(userDetails);
+	            // El usuario autenticado ya viene cargado: no se consulta de nuevo
+	            final UserDetails userDetails = (UserDetails) autenticacion.getPrincipal();
+	            
+	            // Generar el JWT y el refresh token
+	            final TokensEmitidos tokens = servicioRefreshTokens.emitir(userDetails);
+	            exitoso = true;
+	
+	            // Devolver el token (el cliente debe enviarlo como "Authorization: Bearer <token>")
+	            return respuesta(tokens);
+	        } finally {
+	            muestra.stop(exitoso ? loginExitoso : loginFallido);
+	        }
+	    }
+	
+	    /**
+	     * Endpoint público para renovar el JWT sin enviar la contraseña.
+	     * El refresh token es de un solo uso: la respuesta trae el siguiente en X-Refresh-Token.
+	     * Reutilizar uno ya canjeado revoca todos los refresh tokens obtenidos desde ese login.
+	     */
+	    @Operation(
+	            summary = "Renovar JWT con un refresh token",
+	            description = "Canjea el refresh token por un JWT nuevo y el siguiente refresh token (rotación).",
+	            responses = {
+	                @ApiResponse(
+	                    responseCode = "200",
+	                    description = "Retorna el JWT en el cuerpo y el nuevo refresh token en X-Refresh-Token.",
+	                    headers = @Header(name = HEADER_REFRESH_TOKEN, description = "Siguiente refresh token."),
+	                    content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))
+	                ),
+	                @ApiResponse(responseCode = "401", description = "Refresh token inválido, vencido, ya utilizado o revocado.")
+	            }
+	        )
+	    @PostMapping("/refresh")
+	    public ResponseEntity<String> renovarToken(@RequestBody RefreshRequestDTO request) {
+	        return respuesta(servicioRefreshTokens.renovar(request.getRefreshToken()));
+	    }
 	
-	        // Devolver el token (el cliente debe enviarlo como "Authorization: Bearer <token>")
-	        return ResponseEntity.ok(jwt);
+	    /**
+	     * Cierra la sesión: el JWT con el que se autentica la petición deja de aceptarse de inmediato
+	     * (hasta su expiración). Si se envía el refresh token, se revoca también junto con su familia.
+	     */
+	    @Operation(
+	            summary = "Logout (revocar el JWT actual)",
+	            description = "Revoca el JWT enviado en Authorization y, opcionalmente, el refresh token del cuerpo.",
+	            responses = {
+	                @ApiResponse(responseCode = "204", description = "Sesión cerrada."),
+	                @ApiResponse(responseCode = "403", description = "JWT ausente, inválido o ya revocado.")
+	            }
+	        )
+	    @PostMapping("/logout")
+	    public ResponseEntity<Void> logout(
+	            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+	            @RequestBody(required = false) RefreshRequestDTO request) {
+	        // El filtro ya verificó el token: esta lectura sale de la caché de JwtUtil
+	        ClaimsVerificados claims = jwtUtil.verificar(authorization.substring("Bearer ".length()));
+	        listaRevocacionTokens.revocar(claims.getJti(), claims.getExpiraEn());
+	        if (request != null && request.getRefreshToken() != null) {
+	            servicioRefreshTokens.revocar(request.getRefreshToken());
+	        }
+	        return ResponseEntity.noContent().build();
+	    }
+	
+	    private static ResponseEntity<String> respuesta(TokensEmitidos tokens) {
+	        return ResponseEntity.ok()
+	            .header(HEADER_REFRESH_TOKEN, tokens.getRefreshToken())
+	            .body(tokens.getAccessToken());
+	    }
+	
+	    /**
+	     * Invalida todos los JWT emitidos hasta ahora para el usuario (requiere rol ADMIN).
+	     * Los tokens nuevos que obtenga el usuario con /login serán válidos.
+	     */
+	    @Operation(
+	            summary = "Revocar los tokens de un usuario",
+	            description = "Incrementa la versión del usuario: todo JWT emitido antes deja de ser aceptado.",
+	            responses = {
+	                @ApiResponse(responseCode = "204", description = "Tokens revocados."),
+	                @ApiResponse(responseCode = "403", description = "Requiere rol ADMIN.")
+	            }
+	        )
+	    @PostMapping("/usuarios/{username}/revocar")
+	    public ResponseEntity<Void> revocarTokens(@PathVariable String username) {
+	        servicioUsuarios.revocarTokens(username);
+	        return ResponseEntity.noContent().build();
+	    }
+	
+	    /**
+	     * Registra un operador o un usuario cliente (requiere rol ADMIN).
+	     * La contraseña se guarda cifrada con BCrypt (fuerza en app.security.password.bcrypt-fuerza).
+	     */
+	    @Operation(
+	            summary = "Crear usuario",
+	            description = "Crea un usuario con roles ADMIN, OPERADOR o CLIENTE (este último asociado a un cliente).",
+	            responses = {
+	                @ApiResponse(responseCode = "201", description = "Usuario creado."),
+	                @ApiResponse(responseCode = "400", description = "Usuario existente o roles inválidos."),
+	                @ApiResponse(responseCode = "403", description = "Requiere rol ADMIN.")
+	            }
+	        )
+	    @PostMapping("/usuarios")
+	    public ResponseEntity<String> crearUsuario(@Validated @RequestBody UsuarioCreacionDTO dto) {
+	        UserDetails usuario = servicioUsuarios.crear(dto.getUsername(), dto.getPassword(), dto.getRoles(), dto.getClienteId());
+	        return new ResponseEntity<>(usuario.getUsername(), HttpStatus.CREATED);
 	    }
-}
\ No newline at end of file
+}
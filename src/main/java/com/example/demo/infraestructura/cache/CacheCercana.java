@@ -0,0 +1,91 @@
+package com.example.demo.infraestructura.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché local (Caffeine) acotada por tamaño y con expiración tras escritura, coherente entre nodos
+ * mediante un {@link CanalInvalidacionCache}.
+ *
+ * Invalidación: la entrada se elimina de inmediato, otra vez al confirmar la transacción en curso
+ * (una lectura concurrente previa al commit pudo volver a cargar el valor anterior) y se anuncia
+ * en el canal para los demás nodos. La carga es atómica por clave, de modo que una invalidación
+ * que llega durante una carga espera a que esta termine y la descarta.
+ *
+ * Los valores deben ser inmutables o copias que nadie más modifique.
+ *
+ * Métricas (etiqueta {@code cache}): cache.gets{result=hit|miss}, cache.evictions, cache.size, cache.puts.
+ */
+@Slf4j
+public class CacheCercana<V> {
+
+    private final String nombre;
+    private final Cache<String, V> cache;
+    private final CanalInvalidacionCache canal;
+
+    public CacheCercana(String nombre, long tamanoMaximo, Duration ttl, CanalInvalidacionCache canal, MeterRegistry registry) {
+        this.nombre = nombre;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.canal = canal;
+        CaffeineCacheMetrics.monitor(registry, cache, nombre);
+        canal.suscribir(nombre, this::descartar);
+    }
+
+    /**
+     * Devuelve el valor en caché o lo carga con {@code cargador}. Las ausencias no se guardan.
+     */
+    public Optional<V> obtener(String clave, Function<String, Optional<V>> cargador) {
+        return Optional.ofNullable(cache.get(clave, k -> cargador.apply(k).orElse(null)));
+    }
+
+    /** Valor en caché, sin cargarlo si no está. */
+    public Optional<V> siPresente(String clave) {
+        return Optional.ofNullable(cache.getIfPresent(clave));
+    }
+
+    public void poner(String clave, V valor) {
+        cache.put(clave, valor);
+    }
+
+    /** Invalida la clave en este nodo (ahora y tras el commit) y en los demás nodos. */
+    public void invalidar(String clave) {
+        cache.invalidate(clave);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    cache.invalidate(clave);
+                }
+            });
+        }
+        canal.publicar(nombre, clave);
+    }
+
+    public long tamano() {
+        return cache.estimatedSize();
+    }
+
+    private void descartar(String clave) {
+        if (CanalInvalidacionCache.TODAS.equals(clave)) {
+            log.warn("CACHÉ {}: invalidación completa solicitada por el canal.", nombre);
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(clave);
+        }
+    }
+}
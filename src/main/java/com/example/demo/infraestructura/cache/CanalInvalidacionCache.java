@@ -0,0 +1,19 @@
+package com.example.demo.infraestructura.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Difunde invalidaciones de caché entre los nodos de la aplicación.
+ * Cada nodo publica la clave que modificó y todos (incluido el emisor) la eliminan de su caché local.
+ */
+public interface CanalInvalidacionCache {
+
+    /** Clave especial: el nodo pudo perder mensajes y debe vaciar la caché completa. */
+    String TODAS = "*";
+
+    /** Anuncia que la entrada {@code clave} de la caché {@code cache} dejó de ser válida. */
+    void publicar(String cache, String clave);
+
+    /** Registra el oyente que recibe las claves invalidadas de la caché {@code cache}. */
+    void suscribir(String cache, Consumer<String> oyente);
+}
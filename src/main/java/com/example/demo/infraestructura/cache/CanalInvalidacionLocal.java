@@ -0,0 +1,31 @@
+package com.example.demo.infraestructura.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Canal en memoria para un único nodo (y para pruebas): entrega la invalidación a los oyentes
+ * del mismo proceso de forma síncrona.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.canal", havingValue = "local", matchIfMissing = true)
+public class CanalInvalidacionLocal implements CanalInvalidacionCache {
+
+    private final Map<String, List<Consumer<String>>> oyentes = new ConcurrentHashMap<>();
+
+    @Override
+    public void publicar(String cache, String clave) {
+        oyentes.getOrDefault(cache, List.of()).forEach(oyente -> oyente.accept(clave));
+    }
+
+    @Override
+    public void suscribir(String cache, Consumer<String> oyente) {
+        oyentes.computeIfAbsent(cache, c -> new CopyOnWriteArrayList<>()).add(oyente);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.demo.infraestructura.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Canal entre nodos sobre LISTEN/NOTIFY de PostgreSQL (sin infraestructura adicional).
+ *
+ * NOTIFY es transaccional: publicado dentro de una transacción, PostgreSQL lo entrega solo si se
+ * confirma, y después del commit. Cada nodo mantiene una conexión dedicada escuchando el canal;
+ * si se pierde, al reconectar vacía sus cachés porque pudo perder invalidaciones.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cache.canal", havingValue = "postgres")
+public class CanalInvalidacionPostgres implements CanalInvalidacionCache, SmartLifecycle {
+
+    static final String CANAL = "cache_invalidacion";
+    private static final String SEPARADOR = "|";
+    private static final int ESPERA_MS = 1000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, List<Consumer<String>>> oyentes = new ConcurrentHashMap<>();
+
+    private volatile boolean activo;
+    private Thread escucha;
+
+    public CanalInvalidacionPostgres(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void publicar(String cache, String clave) {
+        // Participa en la transacción en curso (misma conexión); sin transacción se confirma al instante
+        jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) ps -> {
+            ps.setString(1, CANAL);
+            ps.setString(2, cache + SEPARADOR + clave);
+            return ps.execute();
+        });
+    }
+
+    @Override
+    public void suscribir(String cache, Consumer<String> oyente) {
+        oyentes.computeIfAbsent(cache, c -> new CopyOnWriteArrayList<>()).add(oyente);
+    }
+
+    @Override
+    public void start() {
+        activo = true;
+        escucha = new Thread(this::escuchar, "cache-invalidacion");
+        escucha.setDaemon(true);
+        escucha.start();
+    }
+
+    @Override
+    public void stop() {
+        activo = false;
+        if (escucha != null) {
+            escucha.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+
+    private void escuchar() {
+        boolean primeraConexion = true;
+        while (activo) {
+            try (Connection conexion = dataSource.getConnection()) {
+                conexion.setAutoCommit(true);
+                try (Statement st = conexion.createStatement()) {
+                    st.execute("LISTEN " + CANAL);
+                }
+                if (!primeraConexion) {
+                    entregarATodas(TODAS);
+                }
+                primeraConexion = false;
+                log.info("CACHÉ: escuchando invalidaciones en el canal {}.", CANAL);
+
+                PGConnection pg = conexion.unwrap(PGConnection.class);
+                while (activo) {
+                    PGNotification[] notificaciones = pg.getNotifications(ESPERA_MS);
+                    if (notificaciones != null) {
+                        for (PGNotification n : notificaciones) {
+                            entregar(n.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!activo) {
+                    return;
+                }
+                log.error("CACHÉ: se perdió la conexión del canal {}. Reintentando. Causa: {}", CANAL, e.getMessage());
+                dormir();
+            }
+        }
+    }
+
+    private void entregar(String mensaje) {
+        int i = mensaje.indexOf(SEPARADOR);
+        if (i < 0) {
+            return;
+        }
+        String cache = mensaje.substring(0, i);
+        String clave = mensaje.substring(i + 1);
+        oyentes.getOrDefault(cache, List.of()).forEach(oyente -> oyente.accept(clave));
+    }
+
+    private void entregarATodas(String clave) {
+        oyentes.values().forEach(lista -> lista.forEach(oyente -> oyente.accept(clave)));
+    }
+
+    private void dormir() {
+        try {
+            Thread.sleep(ESPERA_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.infraestructura.datos;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clave de idempotencia de POST /api/v1/transacciones. La fila se inserta en la misma transacción que
+ * el movimiento: si la transacción se revierte, la clave queda libre para reintentar.
+ */
+@Entity
+@Table(name = "claves_idempotencia", indexes = @Index(name = "idx_claves_idempotencia_expira_en", columnList = "expiraEn"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaveIdempotenciaJPA {
+
+    // "usuario:Idempotency-Key"
+    @Id
+    @Column(length = 200)
+    private String clave;
+
+    // SHA-256 (hex) de los datos de la petición original
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    // Ids de las transacciones generadas, separados por coma
+    @Column(length = 200)
+    private String idsTransacciones;
+
+    @Column(nullable = false)
+    private LocalDateTime creadaEn;
+
+    @Column(nullable = false)
+    private LocalDateTime expiraEn;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.infraestructura.datos;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ClaveIdempotenciaJPARepository extends JpaRepository<ClaveIdempotenciaJPA, String> {
+
+    // 🔑 ON CONFLICT: si otra transacción insertó la misma clave y no ha terminado, PostgreSQL espera su
+    // resultado (0 filas si confirmó, 1 si se revirtió). Una clave vencida se reemplaza.
+    @Modifying
+    @Query(value = "INSERT INTO claves_idempotencia (clave, huella, ids_transacciones, creada_en, expira_en) "
+            + "VALUES (:clave, :huella, NULL, now(), :expiraEn) "
+            + "ON CONFLICT (clave) DO UPDATE SET huella = EXCLUDED.huella, ids_transacciones = NULL, "
+            + "creada_en = EXCLUDED.creada_en, expira_en = EXCLUDED.expira_en "
+            + "WHERE claves_idempotencia.expira_en <= now()", nativeQuery = true)
+    int reservar(@Param("clave") String clave, @Param("huella") String huella, @Param("expiraEn") LocalDateTime expiraEn);
+
+    @Modifying
+    @Query("UPDATE ClaveIdempotenciaJPA c SET c.idsTransacciones = :ids WHERE c.clave = :clave")
+    int completar(@Param("clave") String clave, @Param("ids") String ids);
+
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotenciaJPA c WHERE c.expiraEn <= :ahora")
+    int purgarVencidas(@Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,148 @@
+package com.example.demo.infraestructura.datos;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantenimiento de las particiones mensuales de {@code transacciones} (PARTITION BY RANGE (fecha)).
+ *
+ * - Crea por adelantado la partición del mes actual y de los siguientes N meses, para que las
+ *   inserciones nunca caigan en la partición por defecto.
+ * - Retención: desacopla (DETACH) las particiones anteriores al periodo de retención. La tabla
+ *   desacoplada se conserva con su nombre para archivarla (pg_dump) y eliminarla manualmente.
+ *
+ * Requiere haber ejecutado una vez db/migracion/transacciones_particionada.sql.
+ * Se activa con app.transacciones.particionado.habilitado=true.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.transacciones.particionado.habilitado", havingValue = "true")
+public class GestorParticionesTransacciones {
+
+    private static final String TABLA = "transacciones";
+    private static final String PREFIJO = TABLA + "_p";
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern NOMBRE_PARTICION = Pattern.compile(PREFIJO + "(\\d{6})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelanto;
+    private final int mesesRetencion;
+    private final Clock reloj;
+
+    @Autowired
+    public GestorParticionesTransacciones(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.transacciones.particionado.meses-adelanto:3}") int mesesAdelanto,
+            @Value("${app.transacciones.particionado.meses-retencion:0}") int mesesRetencion) {
+        this(jdbcTemplate, mesesAdelanto, mesesRetencion, Clock.systemDefaultZone());
+    }
+
+    GestorParticionesTransacciones(JdbcTemplate jdbcTemplate, int mesesAdelanto, int mesesRetencion, Clock reloj) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelanto = mesesAdelanto;
+        this.mesesRetencion = mesesRetencion;
+        this.reloj = reloj;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        mantenimiento();
+    }
+
+    // Diario por defecto; la creación es idempotente (IF NOT EXISTS)
+    @Scheduled(cron = "${app.transacciones.particionado.cron:0 15 2 * * *}")
+    public void mantenimiento() {
+        if (!tablaParticionada()) {
+            log.warn("PARTICIONADO: la tabla {} no está particionada. Ejecute db/migracion/transacciones_particionada.sql.", TABLA);
+            return;
+        }
+        crearParticionesFuturas();
+        if (mesesRetencion > 0) {
+            desacoplarParticionesAnteriores(mesesRetencion);
+        }
+    }
+
+    /**
+     * Crea (si no existen) las particiones desde el mes actual hasta {@code mesesAdelanto} meses después.
+     * Devuelve los nombres de las particiones creadas.
+     */
+    public List<String> crearParticionesFuturas() {
+        List<String> creadas = new ArrayList<>();
+        YearMonth actual = YearMonth.now(reloj);
+        for (int i = 0; i <= mesesAdelanto; i++) {
+            YearMonth mes = actual.plusMonths(i);
+            String nombre = nombreParticion(mes);
+            if (existeTabla(nombre)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + nombre + " PARTITION OF " + TABLA
+                        + " FOR VALUES FROM ('" + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')");
+                creadas.add(nombre);
+                log.info("PARTICIONADO: partición {} creada.", nombre);
+            } catch (DataAccessException e) {
+                // Ocurre si la partición por defecto ya tiene filas de ese mes; se reintenta en la siguiente ejecución
+                log.error("PARTICIONADO: no se pudo crear la partición {}. Causa: {}", nombre, e.getMostSpecificCause().getMessage());
+            }
+        }
+        return creadas;
+    }
+
+    /**
+     * Desacopla las particiones cuyo mes es anterior a (mes actual - mesesRetencion).
+     * Devuelve los nombres de las particiones desacopladas.
+     */
+    public List<String> desacoplarParticionesAnteriores(int mesesRetencion) {
+        if (mesesRetencion < 1) {
+            throw new IllegalArgumentException("La retención debe ser de al menos un mes.");
+        }
+        YearMonth limite = YearMonth.now(reloj).minusMonths(mesesRetencion);
+        List<String> desacopladas = new ArrayList<>();
+        for (String nombre : particionesActuales()) {
+            Matcher m = NOMBRE_PARTICION.matcher(nombre);
+            if (m.matches() && YearMonth.parse(m.group(1), SUFIJO).isBefore(limite)) {
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " DETACH PARTITION " + nombre);
+                desacopladas.add(nombre);
+                log.warn("RETENCIÓN: partición {} desacoplada de {}. Archivar y eliminar manualmente.", nombre, TABLA);
+            }
+        }
+        return desacopladas;
+    }
+
+    static String nombreParticion(YearMonth mes) {
+        return PREFIJO + mes.format(SUFIJO);
+    }
+
+    private boolean tablaParticionada() {
+        Integer total = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass(?)", Integer.class, TABLA);
+        return total != null && total > 0;
+    }
+
+    private boolean existeTabla(String nombre) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, nombre));
+    }
+
+    private List<String> particionesActuales() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname", String.class, TABLA);
+    }
+}
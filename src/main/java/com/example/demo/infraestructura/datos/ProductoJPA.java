@@ -17,7 +17,9 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Data;
 
 @Entity
@@ -29,7 +31,9 @@ import lombok.Data;
 public abstract class ProductoJPA { 
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 🔑 SECUENCIA con bloques de 50: ver TransaccionJPA
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_financieros_seq")
+    @SequenceGenerator(name = "productos_financieros_seq", sequenceName = "productos_financieros_seq", allocationSize = 50)
     private Long id;
     
     private Long clienteId;
@@ -48,6 +52,14 @@ public abstract class ProductoJPA {
     
     private boolean exentaGMF;
     
+    // 🔑 SALDO FRACCIONADO: filas en saldos_fraccionados que completan el saldo (null = todo está en esta fila)
+    private Integer fraccionesSaldo;
+    
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaModificacion;
+    
+    // 🔑 BLOQUEO OPTIMISTA: Hibernate agrega "AND version = ?" a cada UPDATE generado por save()
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
\ No newline at end of file
@@ -1,10 +1,21 @@
 package com.example.demo.infraestructura.datos;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
 
+import jakarta.persistence.LockModeType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +26,92 @@ public interface ProductoJPARepository extends JpaRepository<ProductoJPA, Long>
     
     // Método auxiliar usado en ClienteJPAAdapter para validar la regla de eliminación del cliente
     long countByClienteIdAndEstadoNot(Long clienteId, EstadoCuenta estado);
+    
+    // Actualización condicional en un solo round trip: sin SELECT previo ni merge de Hibernate.
+    // Incrementa la versión para que un guardar() concurrente basado en una lectura anterior falle.
+    // Si la cuenta no existe, no está ACTIVA o el saldo quedaría negativo, no se devuelve ninguna fila.
+    @Transactional
+    @Query(value = "UPDATE productos_financieros "
+            + "SET saldo = saldo + :delta, fecha_modificacion = :ahora, version = version + 1 "
+            + "WHERE numero_cuenta = :numeroCuenta AND estado = 'ACTIVA' AND saldo + :delta >= 0 "
+            + "RETURNING saldo", nativeQuery = true)
+    Optional<BigDecimal> aplicarDelta(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("delta") BigDecimal delta,
+            @Param("ahora") LocalDateTime ahora);
+    
+    // Bloqueo pesimista en orden de id: el orden determinista evita deadlocks entre transferencias cruzadas.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM ProductoJPA p WHERE p.numeroCuenta IN :numeros ORDER BY p.id")
+    List<ProductoJPA> bloquearPorNumerosOrdenadoPorId(@Param("numeros") Collection<String> numeros);
+    
+    // Débito y crédito de una transferencia en una sola sentencia (las filas ya están bloqueadas).
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE productos_financieros "
+            + "SET saldo = CASE WHEN numero_cuenta = :origen THEN saldo - :monto ELSE saldo + :monto END, "
+            + "fecha_modificacion = :ahora, version = version + 1 "
+            + "WHERE numero_cuenta IN (:origen, :destino)", nativeQuery = true)
+    int aplicarTransferencia(
+            @Param("origen") String origen,
+            @Param("destino") String destino,
+            @Param("monto") BigDecimal monto,
+            @Param("ahora") LocalDateTime ahora);
+    
+    // Cuentas con más movimientos (como origen o destino) desde la fecha indicada, para precargar la caché.
+    @Query(value = "SELECT p.* FROM productos_financieros p "
+            + "JOIN (SELECT m.numero_cuenta, count(*) AS movimientos FROM ("
+            + "        SELECT t.numero_cuenta_origen AS numero_cuenta FROM transacciones t "
+            + "        WHERE t.fecha >= :desde AND t.numero_cuenta_origen IS NOT NULL "
+            + "        UNION ALL "
+            + "        SELECT t.numero_cuenta_destino FROM transacciones t "
+            + "        WHERE t.fecha >= :desde AND t.numero_cuenta_destino IS NOT NULL) m "
+            + "      GROUP BY m.numero_cuenta) a ON a.numero_cuenta = p.numero_cuenta "
+            + "ORDER BY a.movimientos DESC LIMIT :limite", nativeQuery = true)
+    List<ProductoJPA> buscarMasActivas(@Param("desde") LocalDateTime desde, @Param("limite") int limite);
+    
+    // Igual que buscarMasActivas, sobre las partidas del libro contable (app.transacciones.libro-contable.habilitado=true).
+    @Query(value = "SELECT p.* FROM productos_financieros p "
+            + "JOIN (SELECT numero_cuenta, count(*) AS movimientos FROM partidas_contables "
+            + "      WHERE fecha >= :desde GROUP BY numero_cuenta) a ON a.numero_cuenta = p.numero_cuenta "
+            + "ORDER BY a.movimientos DESC LIMIT :limite", nativeQuery = true)
+    List<ProductoJPA> buscarMasActivasSegunPartidas(@Param("desde") LocalDateTime desde, @Param("limite") int limite);
+    
+    // Reparte el saldo de la fila entre :fracciones filas de saldos_fraccionados (partes iguales; los centavos
+    // sobrantes quedan en la fracción 0). Sin efecto si la cuenta no está ACTIVA o ya está fraccionada.
+    // Limpia el contexto de persistencia: una entidad ya cargada en la petición conservaría el saldo anterior.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "WITH cuenta AS ("
+            + "    SELECT numero_cuenta, saldo FROM productos_financieros "
+            + "    WHERE numero_cuenta = :numeroCuenta AND estado = 'ACTIVA' AND fracciones_saldo IS NULL FOR UPDATE), "
+            + "nuevas AS ("
+            + "    INSERT INTO saldos_fraccionados (numero_cuenta, fraccion, saldo) "
+            + "    SELECT c.numero_cuenta, g.fraccion, trunc(c.saldo / :fracciones, 2) "
+            + "         + CASE WHEN g.fraccion = 0 THEN c.saldo - trunc(c.saldo / :fracciones, 2) * :fracciones ELSE 0 END "
+            + "    FROM cuenta c CROSS JOIN generate_series(0, :fracciones - 1) AS g(fraccion)) "
+            + "UPDATE productos_financieros p "
+            + "SET saldo = 0, fracciones_saldo = :fracciones, fecha_modificacion = :ahora, version = p.version + 1 "
+            + "FROM cuenta c WHERE p.numero_cuenta = c.numero_cuenta", nativeQuery = true)
+    int fraccionarSaldo(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("fracciones") int fracciones,
+            @Param("ahora") LocalDateTime ahora);
+    
+    // Devuelve las fracciones a la fila y las elimina. La fila se bloquea antes que las fracciones, el mismo
+    // orden que siguen los demás movimientos (sin deadlocks). Sube la versión: un guardar() con una lectura
+    // anterior falla. Devuelve 0 si la cuenta no existe.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "WITH cuenta AS ("
+            + "    SELECT numero_cuenta FROM productos_financieros WHERE numero_cuenta = :numeroCuenta FOR UPDATE), "
+            + "borradas AS ("
+            + "    DELETE FROM saldos_fraccionados f USING cuenta c WHERE f.numero_cuenta = c.numero_cuenta "
+            + "    RETURNING f.saldo) "
+            + "UPDATE productos_financieros p "
+            + "SET saldo = p.saldo + (SELECT COALESCE(sum(b.saldo), 0) FROM borradas b), fracciones_saldo = NULL, "
+            + "    fecha_modificacion = :ahora, version = p.version + 1 "
+            + "FROM cuenta c WHERE p.numero_cuenta = c.numero_cuenta", nativeQuery = true)
+    int consolidarFracciones(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("ahora") LocalDateTime ahora);
 }
@@ -0,0 +1,282 @@
+package com.example.demo.infraestructura.datos;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Completa saldo_resultante en las filas que no lo tienen: las anteriores a db/migracion/saldo_resultante.sql
+ * y las de cuentas con saldo fraccionado, cuyo movimiento solo conoce el saldo de su fracción.
+ *
+ * Recorre las cuentas de una en una y cada cuenta de la fila más reciente a la más antigua, en bloques
+ * de tamanoBloque filas, cada bloque en una transacción corta: solo toma bloqueos de fila y nunca de la
+ * tabla. El saldo de partida de un bloque es el de la fila propia inmediatamente posterior (ya completa);
+ * si no la hay, el saldo actual de la cuenta, leído con la cuenta y sus fracciones bloqueadas para que
+ * ningún movimiento se confirme entre la lectura y el bloque. Las filas con saldo lo conservan.
+ *
+ * Con el libro contable habilitado completa las partidas de las cuentas (no las de caja). No arranca con
+ * el motor de saldos: el saldo de productos_financieros puede ir detrás del saldo en memoria.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.transacciones.saldo-resultante.relleno.habilitado", havingValue = "true")
+public class RellenoSaldoResultante implements SmartLifecycle {
+
+    // El bloque terminó la cuenta (o alguien más la completó)
+    static final int CUENTA_COMPLETA = -1;
+
+    private static final int CUENTAS_POR_LECTURA = 500;
+    private static final String CUENTAS =
+            "SELECT numero_cuenta FROM productos_financieros WHERE numero_cuenta > ? ORDER BY numero_cuenta LIMIT ?";
+
+    // 🔑 Filas propias de una cuenta con su efecto sobre el saldo (delta). Cada rama es un rango de los índices
+    // (cuenta, fecha DESC, id DESC); con 'saldo_resultante IS NULL', de los índices parciales de la migración.
+    // %1$s: condición adicional; %2$s: ASC o DESC
+    private static final String PROPIAS_TRANSACCIONES = """
+        (SELECT id, fecha, saldo_resultante, monto AS delta FROM transacciones
+         WHERE numero_cuenta_destino = ? AND tipo IN ('CONSIGNACION', 'TRANSFERENCIA_CREDITO') AND %1$s
+         ORDER BY fecha %2$s, id %2$s LIMIT ?)
+        UNION ALL
+        (SELECT id, fecha, saldo_resultante, CASE WHEN tipo = 'TRANSFERENCIA_REVERSO' THEN monto ELSE -monto END
+         FROM transacciones
+         WHERE numero_cuenta_origen = ? AND tipo IN ('RETIRO', 'TRANSFERENCIA_DEBITO', 'TRANSFERENCIA_REVERSO') AND %1$s
+         ORDER BY fecha %2$s, id %2$s LIMIT ?)
+        """;
+    private static final String PROPIAS_PARTIDAS = """
+        SELECT id, fecha, saldo_resultante, monto AS delta FROM partidas_contables
+        WHERE numero_cuenta = ? AND numero_cuenta <> 'CAJA' AND %1$s
+        ORDER BY fecha %2$s, id %2$s LIMIT ?
+        """;
+    private static final String FILAS = "SELECT id, fecha, saldo_resultante, delta FROM (%s) m ORDER BY fecha %s, id %s LIMIT ?";
+
+    private static final String PENDIENTE = "saldo_resultante IS NULL";
+    private static final String POSTERIOR = "(fecha, id) > (?, ?)";
+    private static final String HASTA = "(fecha, id) <= (?, ?)";
+
+    private static final String SALDO_BLOQUEADO = "SELECT saldo FROM productos_financieros WHERE numero_cuenta = ? FOR UPDATE";
+    private static final String FRACCIONES_BLOQUEADAS =
+            "SELECT COALESCE(sum(f.saldo), 0) FROM (SELECT saldo FROM saldos_fraccionados WHERE numero_cuenta = ? FOR UPDATE) f";
+
+    private static final String COMPLETAR_TRANSACCION =
+            "UPDATE transacciones SET saldo_resultante = ? WHERE id = ? AND fecha = ? AND saldo_resultante IS NULL";
+    private static final String COMPLETAR_PARTIDA =
+            "UPDATE partidas_contables SET saldo_resultante = ? WHERE id = ? AND saldo_resultante IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean libroContable;
+    private final boolean motorSaldos;
+    private final int tamanoBloque;
+    private final long pausaMs;
+    private final Duration intervalo;
+
+    private volatile boolean activo;
+    private Thread relleno;
+
+    public RellenoSaldoResultante(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.transacciones.libro-contable.habilitado:false}") boolean libroContable,
+            @Value("${app.cuentas.motor.habilitado:false}") boolean motorSaldos,
+            @Value("${app.transacciones.saldo-resultante.relleno.tamano-bloque:1000}") int tamanoBloque,
+            @Value("${app.transacciones.saldo-resultante.relleno.pausa-ms:50}") long pausaMs,
+            @Value("${app.transacciones.saldo-resultante.relleno.intervalo:10m}") Duration intervalo) {
+        if (tamanoBloque < 1) {
+            throw new IllegalArgumentException("El tamaño de bloque del relleno debe ser al menos 1.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.libroContable = libroContable;
+        this.motorSaldos = motorSaldos;
+        this.tamanoBloque = tamanoBloque;
+        this.pausaMs = pausaMs;
+        this.intervalo = intervalo;
+    }
+
+    @Override
+    public void start() {
+        if (motorSaldos) {
+            log.warn("SALDO RESULTANTE: el relleno no se ejecuta con el motor de saldos habilitado (app.cuentas.motor.habilitado).");
+            return;
+        }
+        activo = true;
+        relleno = new Thread(this::rellenar, "relleno-saldos");
+        relleno.setDaemon(true);
+        relleno.start();
+    }
+
+    @Override
+    public void stop() {
+        activo = false;
+        if (relleno != null) {
+            relleno.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+
+    private void rellenar() {
+        while (activo) {
+            try {
+                long inicio = System.nanoTime();
+                long[] totales = pasada();
+                if (totales[0] > 0) {
+                    log.info("SALDO RESULTANTE: {} filas completadas en {} cuentas ({} ms).",
+                            totales[0], totales[1], (System.nanoTime() - inicio) / 1_000_000);
+                }
+            } catch (DataAccessException e) {
+                // La siguiente pasada retoma: lo completado ya está confirmado
+                log.error("SALDO RESULTANTE: relleno interrumpido. Causa: {}", e.getMostSpecificCause().getMessage());
+            }
+            dormir(intervalo.toMillis());
+        }
+    }
+
+    // Una pasada por todas las cuentas; devuelve {filas completadas, cuentas con filas completadas}
+    long[] pasada() {
+        long filas = 0;
+        long cuentas = 0;
+        String ultima = "";
+        while (activo) {
+            List<String> lectura = jdbcTemplate.queryForList(CUENTAS, String.class, ultima, CUENTAS_POR_LECTURA);
+            for (String numeroCuenta : lectura) {
+                long completadas = rellenarCuenta(numeroCuenta);
+                if (completadas > 0) {
+                    filas += completadas;
+                    cuentas++;
+                }
+                if (!activo) {
+                    break;
+                }
+            }
+            if (lectura.size() < CUENTAS_POR_LECTURA) {
+                break;
+            }
+            ultima = lectura.get(lectura.size() - 1);
+        }
+        return new long[] { filas, cuentas };
+    }
+
+    long rellenarCuenta(String numeroCuenta) {
+        long total = 0;
+        int completadas;
+        while (activo && (completadas = transactionTemplate.execute(estado -> completarBloque(numeroCuenta))) != CUENTA_COMPLETA) {
+            total += completadas;
+            dormir(pausaMs);
+        }
+        if (total > 0) {
+            log.debug("SALDO RESULTANTE: cuenta {} con {} filas completadas.", numeroCuenta, total);
+        }
+        return total;
+    }
+
+    // Un bloque de la cuenta, del pendiente más reciente hacia atrás. Devuelve las filas completadas
+    int completarBloque(String numeroCuenta) {
+        Fila pendiente = primera(numeroCuenta, PENDIENTE, "DESC");
+        if (pendiente == null) {
+            return CUENTA_COMPLETA;
+        }
+        Fila posterior = primera(numeroCuenta, POSTERIOR, "ASC", pendiente.fecha, pendiente.id);
+        if (posterior == null) {
+            // 🔑 Sin fila posterior el punto de partida es el saldo actual: con la cuenta bloqueada ningún
+            // movimiento se confirma hasta terminar el bloque, y se vuelve a leer lo pendiente bajo el bloqueo
+            BigDecimal saldoActual = saldoActualBloqueado(numeroCuenta);
+            pendiente = primera(numeroCuenta, PENDIENTE, "DESC");
+            if (pendiente == null) {
+                return CUENTA_COMPLETA;
+            }
+            posterior = primera(numeroCuenta, POSTERIOR, "ASC", pendiente.fecha, pendiente.id);
+            if (posterior == null) {
+                return completar(numeroCuenta, pendiente, saldoActual);
+            }
+        }
+        if (posterior.saldo == null) {
+            // Entró un movimiento de una cuenta fraccionada después de la primera lectura: el siguiente bloque parte de él
+            return 0;
+        }
+        return completar(numeroCuenta, pendiente, posterior.saldo.subtract(posterior.delta));
+    }
+
+    // saldo: el de la cuenta después de 'pendiente'. Hacia atrás, el saldo antes de cada fila es el de después menos su delta
+    private int completar(String numeroCuenta, Fila pendiente, BigDecimal saldo) {
+        List<Object[]> completadas = new ArrayList<>();
+        for (Fila fila : filas(numeroCuenta, HASTA, "DESC", tamanoBloque, pendiente.fecha, pendiente.id)) {
+            if (fila.saldo != null) {
+                saldo = fila.saldo;
+            } else if (libroContable) {
+                completadas.add(new Object[] { saldo, fila.id });
+            } else {
+                completadas.add(new Object[] { saldo, fila.id, fila.fecha });
+            }
+            saldo = saldo.subtract(fila.delta);
+        }
+        jdbcTemplate.batchUpdate(libroContable ? COMPLETAR_PARTIDA : COMPLETAR_TRANSACCION, completadas);
+        return completadas.size();
+    }
+
+    private BigDecimal saldoActualBloqueado(String numeroCuenta) {
+        BigDecimal saldo = jdbcTemplate.queryForObject(SALDO_BLOQUEADO, BigDecimal.class, numeroCuenta);
+        return saldo.add(jdbcTemplate.queryForObject(FRACCIONES_BLOQUEADAS, BigDecimal.class, numeroCuenta));
+    }
+
+    private Fila primera(String numeroCuenta, String condicion, String orden, Object... parametros) {
+        List<Fila> filas = filas(numeroCuenta, condicion, orden, 1, parametros);
+        return filas.isEmpty() ? null : filas.get(0);
+    }
+
+    private List<Fila> filas(String numeroCuenta, String condicion, String orden, int limite, Object... parametros) {
+        List<Object> argumentos = new ArrayList<>();
+        int ramas = libroContable ? 1 : 2;
+        for (int i = 0; i < ramas; i++) {
+            argumentos.add(numeroCuenta);
+            argumentos.addAll(List.of(parametros));
+            argumentos.add(limite);
+        }
+        argumentos.add(limite);
+        String propias = (libroContable ? PROPIAS_PARTIDAS : PROPIAS_TRANSACCIONES).formatted(condicion, orden);
+        return jdbcTemplate.query(FILAS.formatted(propias, orden, orden), RellenoSaldoResultante::toFila, argumentos.toArray());
+    }
+
+    private static Fila toFila(ResultSet rs, int fila) throws SQLException {
+        return new Fila(rs.getLong("id"), rs.getTimestamp("fecha"), rs.getBigDecimal("saldo_resultante"), rs.getBigDecimal("delta"));
+    }
+
+    private void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Fila {
+        private final long id;
+        private final Timestamp fecha;
+        private final BigDecimal saldo;
+        private final BigDecimal delta;
+
+        private Fila(long id, Timestamp fecha, BigDecimal saldo, BigDecimal delta) {
+            this.id = id;
+            this.fecha = fecha;
+            this.saldo = saldo;
+            this.delta = delta;
+        }
+    }
+}
@@ -11,14 +11,20 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
-@Table(name = "transacciones")
+// 🔑 Un índice por cada lado del movimiento: el historial se resuelve con dos rangos ya ordenados por fecha
+@Table(name = "transacciones", indexes = {
+    @Index(name = "idx_transacciones_origen_fecha", columnList = "numero_cuenta_origen, fecha DESC, id DESC"),
+    @Index(name = "idx_transacciones_destino_fecha", columnList = "numero_cuenta_destino, fecha DESC, id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class TransaccionJPA {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // 🔑 SECUENCIA (no IDENTITY): el id se conoce antes del INSERT, lo que permite a Hibernate agruparlos en lotes JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transacciones_seq")
+    @SequenceGenerator(name = "transacciones_seq", sequenceName = "transacciones_seq", allocationSize = 50)
     private Long id;
     
     @Enumerated(EnumType.STRING)
@@ -28,4 +34,7 @@ public class TransaccionJPA {
     private LocalDateTime fecha;
     private String numeroCuentaOrigen;
     private String numeroCuentaDestino;
+    // Saldo de la cuenta del movimiento después de aplicarlo, escrito en la misma transacción que el saldo.
+    // NULL mientras no se conoce (filas anteriores o cuentas fraccionadas): lo completa RellenoSaldoResultante
+    private BigDecimal saldoResultante;
 }
\ No newline at end of file
@@ -1,13 +1,75 @@
 package com.example.demo.infraestructura.datos;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface TransaccionJPARepository extends JpaRepository<TransaccionJPA, Long> {
 
+    // 🔑 HISTORIAL SIN OR: cada rama es un rango de índice (cuenta, fecha DESC, id DESC) ya ordenado,
+    // y PostgreSQL las combina con un Merge Append en lugar de recorrer y ordenar toda la tabla.
+    // La rama de destino excluye las filas que ya aparecen en la de origen.
+    // El rango [desde, hasta) sobre fecha permite descartar particiones mensuales (partition pruning).
+    String EN_RANGO = "AND t.fecha >= :desde AND t.fecha < :hasta ";
+    String RAMA_ORIGEN = "SELECT t.* FROM transacciones t WHERE t.numero_cuenta_origen = :numeroCuenta " + EN_RANGO;
+    String RAMA_DESTINO = "SELECT t.* FROM transacciones t WHERE t.numero_cuenta_destino = :numeroCuenta "
+            + "AND t.numero_cuenta_origen IS DISTINCT FROM :numeroCuenta " + EN_RANGO;
+    String DESPUES_DEL_CURSOR = "AND (t.fecha, t.id) < (:fecha, :id) ";
+    String ORDEN = "ORDER BY fecha DESC, id DESC";
+
+    String HISTORIAL_POR_CUENTA =
+            "(" + RAMA_ORIGEN + ORDEN + ") UNION ALL (" + RAMA_DESTINO + ORDEN + ") " + ORDEN;
+    String PRIMERA_PAGINA =
+            "(" + RAMA_ORIGEN + ORDEN + " LIMIT :limite) UNION ALL ("
+            + RAMA_DESTINO + ORDEN + " LIMIT :limite) " + ORDEN + " LIMIT :limite";
+    String PAGINA_DESPUES_DE =
+            "(" + RAMA_ORIGEN + DESPUES_DEL_CURSOR + ORDEN + " LIMIT :limite) UNION ALL ("
+            + RAMA_DESTINO + DESPUES_DEL_CURSOR + ORDEN + " LIMIT :limite) " + ORDEN + " LIMIT :limite";
+
+    @Query(value = HISTORIAL_POR_CUENTA, nativeQuery = true)
+    List<TransaccionJPA> buscarHistorialPorCuenta(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+    
+    // Primera página del historial: orden total por (fecha, id) para que el cursor sea estable.
+    @Query(value = PRIMERA_PAGINA, nativeQuery = true)
+    List<TransaccionJPA> buscarPrimeraPagina(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            @Param("limite") int limite);
+    
+    // Páginas siguientes (keyset): se continúa después de la última clave (fecha, id) entregada, sin OFFSET.
+    @Query(value = PAGINA_DESPUES_DE, nativeQuery = true)
+    List<TransaccionJPA> buscarPaginaDespuesDe(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta,
+            @Param("fecha") LocalDateTime fecha,
+            @Param("id") Long id,
+            @Param("limite") int limite);
     
-    List<TransaccionJPA> findByNumeroCuentaOrigenOrNumeroCuentaDestinoOrderByFechaDesc(String cuentaOrigen, String cuentaDestino);
-}
\ No newline at end of file
+    // Exportación: cursor del servidor con fetch size acotado (el driver no carga todo el resultado en memoria).
+    // Requiere una transacción abierta mientras se consume el Stream.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = HISTORIAL_POR_CUENTA, nativeQuery = true)
+    Stream<TransaccionJPA> streamPorCuenta(
+            @Param("numeroCuenta") String numeroCuenta,
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
+}
@@ -0,0 +1,65 @@
+package com.example.demo.infraestructura.datos;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Usuario de la API (operadores y clientes). La contraseña se guarda como hash con el prefijo
+ * del codificador ({bcrypt}...), de modo que los hashes antiguos se reconocen y se actualizan al iniciar sesión.
+ */
+@Entity
+@Table(name = "usuarios")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsuarioJPA {
+
+    @Id
+    // 🔑 SECUENCIA con bloques de 50: ver TransaccionJPA
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuarios_seq")
+    @SequenceGenerator(name = "usuarios_seq", sequenceName = "usuarios_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 100)
+    private String username;
+
+    @Column(nullable = false)
+    private String passwordHash;
+
+    // Roles separados por coma, sin el prefijo ROLE_ (ej. "ADMIN" u "OPERADOR,CLIENTE")
+    @Column(nullable = false)
+    private String roles;
+
+    // Solo para usuarios con rol CLIENTE: el cliente al que representan
+    private Long clienteId;
+
+    private boolean activo;
+
+    // Versión de los tokens emitidos al usuario: incrementarla los revoca (ver RegistroVersionesUsuario)
+    private long versionTokens;
+
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaModificacion;
+
+    @PrePersist
+    protected void onCreate() {
+        this.fechaCreacion = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.fechaModificacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.infraestructura.datos;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio de Spring Data JPA para los usuarios de la API.
+ */
+@Repository
+public interface UsuarioJPARepository extends JpaRepository<UsuarioJPA, Long> {
+
+    Optional<UsuarioJPA> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    // Usuarios con tokens revocados alguna vez: se cargan en memoria al iniciar
+    List<UsuarioJPA> findByVersionTokensGreaterThan(long version);
+
+    @Modifying
+    @Query("UPDATE UsuarioJPA u SET u.passwordHash = :passwordHash, u.fechaModificacion = CURRENT_TIMESTAMP WHERE u.username = :username")
+    int actualizarPassword(@Param("username") String username, @Param("passwordHash") String passwordHash);
+
+    // Incremento atómico en la base de datos: dos revocaciones simultáneas producen versiones distintas
+    @Modifying
+    @Query("UPDATE UsuarioJPA u SET u.versionTokens = u.versionTokens + 1 WHERE u.username = :username")
+    int incrementarVersionTokens(@Param("username") String username);
+
+    @Query("SELECT u.versionTokens FROM UsuarioJPA u WHERE u.username = :username")
+    Optional<Long> buscarVersionTokens(@Param("username") String username);
+}
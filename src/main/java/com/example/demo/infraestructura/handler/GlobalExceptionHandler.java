@@ -1,8 +1,10 @@
 package com.example.demo.infraestructura.handler;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
@@ -35,6 +37,37 @@ public class GlobalExceptionHandler {
         );
     }
 
+    /**
+     * Maneja los conflictos de versión que persisten tras agotar los reintentos de la capa de aplicación.
+     * Se responde 409 Conflict para que el cliente pueda repetir la operación.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(
+        OptimisticLockingFailureException ex, 
+        WebRequest request
+    ) {
+        log.warn("Conflicto de concurrencia no resuelto. Mensaje: {}", ex.getMessage());
+
+        return new ResponseEntity<>(
+            "La cuenta fue modificada por otra operación concurrente. Intente nuevamente.", 
+            HttpStatus.CONFLICT
+        );
+    }
+
+    /**
+     * Maneja los fallos de autenticación de los endpoints de /api/v1/auth (credenciales o refresh token inválidos).
+     * Se responde 401 Unauthorized para que el cliente vuelva a hacer login.
+     */
+    @ExceptionHandler(AuthenticationException.class)
+    public ResponseEntity<String> handleAuthenticationException(
+        AuthenticationException ex, 
+        WebRequest request
+    ) {
+        log.warn("Autenticación rechazada. Mensaje: {}", ex.getMessage());
+
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNAUTHORIZED);
+    }
+
     /**
      * Maneja excepciones genéricas no previstas (generalmente 500 Internal Server Error).
      * Descomentar si deseas un manejo explícito del 500, aunque Spring lo hace por defecto.
@@ -19,6 +19,9 @@ public class TransaccionMapper {
         dto.setFecha(dominio.getFecha());
         dto.setNumeroCuentaOrigen(dominio.getNumeroCuentaOrigen());
         dto.setNumeroCuentaDestino(dominio.getNumeroCuentaDestino());
+        if (dominio.getSaldoResultante() != null) {
+            dto.setSaldoResultante(dominio.getSaldoResultante().getMonto());
+        }
         return dto;
     }
     
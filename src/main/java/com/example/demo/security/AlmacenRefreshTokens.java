@@ -0,0 +1,22 @@
+package com.example.demo.security;
+
+import java.util.Optional;
+
+/**
+ * Almacén de refresh tokens emitidos, indexados por la huella (SHA-256) del token.
+ * Implementaciones: en memoria ({@link AlmacenRefreshTokensMemoria}, por defecto) o en PostgreSQL
+ * ({@link AlmacenRefreshTokensJdbc}) para que sobrevivan a reinicios y se compartan entre nodos.
+ */
+public interface AlmacenRefreshTokens {
+
+    void guardar(String huella, RefreshTokenEmitido token);
+
+    /**
+     * Marca el token como usado de forma atómica: de dos canjes simultáneos solo uno lo ve sin usar.
+     * @return el token tal como estaba antes de marcarlo, o vacío si no existe o ya venció.
+     */
+    Optional<RefreshTokenEmitido> marcarUsado(String huella);
+
+    /** Elimina todos los tokens de la familia (reuso detectado o usuario revocado). */
+    void revocarFamilia(String familia);
+}
@@ -0,0 +1,82 @@
+package com.example.demo.security;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Refresh tokens en la tabla refresh_tokens (requiere db/migracion/refresh_tokens.sql).
+ * Sobreviven a reinicios y los comparten todos los nodos. Los vencidos se purgan periódicamente.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.security.refresh.almacen", havingValue = "jdbc")
+public class AlmacenRefreshTokensJdbc implements AlmacenRefreshTokens {
+
+    private static final String SEPARADOR_ROLES = ",";
+
+    // 🔑 El subquery bloquea la fila y conserva el valor anterior de "usado": canjes simultáneos se serializan
+    private static final String MARCAR_USADO = """
+        UPDATE refresh_tokens t SET usado = true
+        FROM (SELECT huella, usado FROM refresh_tokens WHERE huella = ? FOR UPDATE) anterior
+        WHERE t.huella = anterior.huella AND t.expira_en > now()
+        RETURNING t.usuario, t.roles, t.familia, t.version_usuario, t.expira_en, anterior.usado
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AlmacenRefreshTokensJdbc(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void guardar(String huella, RefreshTokenEmitido token) {
+        jdbcTemplate.update(
+            "INSERT INTO refresh_tokens (huella, usuario, roles, familia, version_usuario, expira_en, usado) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+            huella,
+            token.getUsuario(),
+            String.join(SEPARADOR_ROLES, token.getRoles()),
+            token.getFamilia(),
+            token.getVersionUsuario(),
+            Timestamp.from(token.getExpiraEn()),
+            token.isUsado());
+    }
+
+    @Override
+    public Optional<RefreshTokenEmitido> marcarUsado(String huella) {
+        List<RefreshTokenEmitido> filas = jdbcTemplate.query(MARCAR_USADO, (rs, i) -> new RefreshTokenEmitido(
+            rs.getString("usuario"),
+            roles(rs.getString("roles")),
+            rs.getString("familia"),
+            rs.getLong("version_usuario"),
+            rs.getTimestamp("expira_en").toInstant(),
+            rs.getBoolean("usado")), huella);
+        return filas.stream().findFirst();
+    }
+
+    @Override
+    public void revocarFamilia(String familia) {
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE familia = ?", familia);
+    }
+
+    @Scheduled(cron = "${app.security.refresh.purga-cron:0 30 * * * *}")
+    public void purgarVencidos() {
+        int eliminados = jdbcTemplate.update("DELETE FROM refresh_tokens WHERE expira_en <= now()");
+        if (eliminados > 0) {
+            log.info("REFRESH TOKENS: {} vencidos eliminados.", eliminados);
+        }
+    }
+
+    private static List<String> roles(String columna) {
+        return columna.isEmpty() ? List.of() : Arrays.asList(columna.split(SEPARADOR_ROLES));
+    }
+}
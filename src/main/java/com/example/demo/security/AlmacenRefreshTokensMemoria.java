@@ -0,0 +1,76 @@
+package com.example.demo.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Refresh tokens en memoria (un solo nodo; se pierden al reiniciar y los clientes vuelven a hacer login).
+ * Cada entrada vence con su token; el tamaño máximo acota la memoria ante logins masivos.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.refresh.almacen", havingValue = "memoria", matchIfMissing = true)
+public class AlmacenRefreshTokensMemoria implements AlmacenRefreshTokens {
+
+    private final Cache<String, RefreshTokenEmitido> tokens;
+
+    public AlmacenRefreshTokensMemoria(
+            MeterRegistry registry,
+            @Value("${app.security.refresh.tamano-maximo:100000}") long tamanoMaximo) {
+        this.tokens = Caffeine.newBuilder()
+            .maximumSize(tamanoMaximo)
+            .expireAfter(new Expiry<String, RefreshTokenEmitido>() {
+                @Override
+                public long expireAfterCreate(String huella, RefreshTokenEmitido token, long ahora) {
+                    return Math.max(0, Duration.between(Instant.now(), token.getExpiraEn()).toNanos());
+                }
+
+                @Override
+                public long expireAfterUpdate(String huella, RefreshTokenEmitido token, long ahora, long restante) {
+                    return restante;
+                }
+
+                @Override
+                public long expireAfterRead(String huella, RefreshTokenEmitido token, long ahora, long restante) {
+                    return restante;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(registry, tokens, "refresh-tokens");
+    }
+
+    @Override
+    public void guardar(String huella, RefreshTokenEmitido token) {
+        tokens.put(huella, token);
+    }
+
+    @Override
+    public Optional<RefreshTokenEmitido> marcarUsado(String huella) {
+        AtomicReference<RefreshTokenEmitido> anterior = new AtomicReference<>();
+        // 🔑 computeIfPresent es atómico por clave: solo un canje encuentra el token sin usar
+        tokens.asMap().computeIfPresent(huella, (h, token) -> {
+            anterior.set(token);
+            return token.withUsado(true);
+        });
+        return Optional.ofNullable(anterior.get()).filter(token -> token.vigenteEn(Instant.now()));
+    }
+
+    @Override
+    public void revocarFamilia(String familia) {
+        // Recorre el almacén completo: solo ocurre ante un reuso o una revocación
+        tokens.asMap().values().removeIf(token -> token.getFamilia().equals(familia));
+    }
+}
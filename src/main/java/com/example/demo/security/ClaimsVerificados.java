@@ -0,0 +1,29 @@
+package com.example.demo.security;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Datos de un JWT cuya firma y expiración ya fueron verificadas. Inmutable: se comparte desde
+ * la caché de tokens verificados de {@link JwtUtil}. Contiene lo necesario para autenticar la
+ * petición sin cargar el usuario.
+ */
+@Value
+public class ClaimsVerificados {
+
+    // Identificador único del token (claim jti); null en tokens emitidos antes de incluirlo
+    String jti;
+    String usuario;
+    // Autoridades del usuario al emitir el token (ej. ROLE_ADMIN)
+    List<String> roles;
+    // Versión del usuario al emitir el token (ver RegistroVersionesUsuario)
+    long versionUsuario;
+    Instant emitidoEn;
+    Instant expiraEn;
+
+    public boolean vigenteEn(Instant instante) {
+        return expiraEn.isAfter(instante);
+    }
+}
@@ -2,21 +2,45 @@ package com.example.demo.security;
 
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Utilidad para generar, validar y extraer información de los JSON Web Tokens (JWT).
+ *
+ * La clave y el parser se construyen una sola vez. Los tokens ya verificados se guardan en una
+ * caché acotada (clave: SHA-256 del token) hasta su expiración, de modo que las peticiones
+ * siguientes con el mismo token no repiten la verificación HMAC ni el parseo.
  */
 @Component
 public class JwtUtil {
@@ -27,58 +51,131 @@ public class JwtUtil {
     // Tiempo de expiración: 10 minutos (en milisegundos)
     private static final long EXPIRATION_TIME = TimeUnit.MINUTES.toMillis(10); 
 
+    /** Vigencia máxima de un token emitido (acota cuánto tiempo debe recordarse una revocación). */
+    public static final Duration VIGENCIA = Duration.ofMillis(EXPIRATION_TIME);
+
+    static final String CLAIM_ROLES = "roles";
+    static final String CLAIM_VERSION = "ver";
+
+    private final Key signKey;
+    private final JwtParser parser;
+    private final Cache<String, ClaimsVerificados> verificados;
+    private final RegistroVersionesUsuario versiones;
+
+    public JwtUtil(
+            MeterRegistry registry,
+            RegistroVersionesUsuario versiones,
+            @Value("${app.security.jwt.cache-verificados.tamano-maximo:10000}") long tamanoMaximo) {
+        this.versiones = versiones;
+        this.signKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        this.parser = Jwts.parserBuilder().setSigningKey(signKey).build();
+        // 🔑 Cada entrada vence exactamente cuando vence su token
+        this.verificados = Caffeine.newBuilder()
+            .maximumSize(tamanoMaximo)
+            .expireAfter(new Expiry<String, ClaimsVerificados>() {
+                @Override
+                public long expireAfterCreate(String huella, ClaimsVerificados claims, long ahora) {
+                    return Math.max(0, Duration.between(Instant.now(), claims.getExpiraEn()).toNanos());
+                }
+
+                @Override
+                public long expireAfterUpdate(String huella, ClaimsVerificados claims, long ahora, long restante) {
+                    return restante;
+                }
+
+                @Override
+                public long expireAfterRead(String huella, ClaimsVerificados claims, long ahora, long restante) {
+                    return restante;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(registry, verificados, "jwt-verificados");
+    }
+
     /**
-     * Genera el token JWT para un usuario.
+     * Genera el token JWT para un usuario, con sus roles y su versión vigente.
      * @param userDetails Detalles del usuario.
      * @return El token JWT generado.
      */
     public String generateToken(UserDetails userDetails) {
+        return generateToken(
+            userDetails.getUsername(),
+            userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    /**
+     * Genera el token JWT a partir del usuario y sus autoridades (ej. al renovar con un refresh token,
+     * sin volver a cargar el usuario).
+     */
+    public String generateToken(String usuario, List<String> roles) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername());
+        claims.put(CLAIM_ROLES, roles);
+        claims.put(CLAIM_VERSION, versiones.versionActual(usuario));
+        return createToken(claims, usuario);
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
             .setClaims(claims)
             .setSubject(subject) // Nombre de usuario (o cuenta)
+            .setId(UUID.randomUUID().toString()) // jti: identifica el token para revocarlo (logout)
             .setIssuedAt(new Date(System.currentTimeMillis())) // Fecha de emisión
             .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME)) // Fecha de expiración (10 minutos)
-            .signWith(getSignKey(), SignatureAlgorithm.HS256)
+            .signWith(signKey, SignatureAlgorithm.HS256)
             .compact();
     }
 
+    /**
+     * Verifica firma y expiración del token (una sola vez mientras siga en la caché).
+     * @return los datos del token verificado.
+     * @throws io.jsonwebtoken.JwtException si la firma no es válida, el token expiró o está mal formado.
+     */
+    public ClaimsVerificados verificar(String token) {
+        String huella = huella(token);
+        ClaimsVerificados claims = verificados.get(huella, h -> parsear(token));
+        // La caché ya descarta las entradas vencidas; se comprueba también por si el token vence justo ahora
+        if (!claims.vigenteEn(Instant.now())) {
+            verificados.invalidate(huella);
+            throw new ExpiredJwtException(null, null, "El token expiró en " + claims.getExpiraEn() + ".");
+        }
+        return claims;
+    }
+
     /**
      * Valida si el token es válido (no expirado y coincide con el usuario).
      */
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return verificar(token).getUsuario().equals(userDetails.getUsername());
     }
 
-    // Métodos de extracción de Claims (extraerUsername, isTokenExpired, etc.)
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
-    }
-    
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractAllClaims(token).getExpiration();
+        return verificar(token).getUsuario();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-            .parserBuilder()
-            .setSigningKey(getSignKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+    private ClaimsVerificados parsear(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("El token no tiene fecha de expiración.");
+        }
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        Number version = claims.get(CLAIM_VERSION, Number.class);
+        return new ClaimsVerificados(
+            claims.getId(),
+            claims.getSubject(),
+            roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+            version == null ? 0L : version.longValue(),
+            claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant(),
+            claims.getExpiration().toInstant());
     }
 
-    private Key getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // SHA-256 del token: la caché no guarda tokens utilizables
+    static String huella(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible.", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package com.example.demo.security;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionCache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lista de JWT revocados antes de su expiración (logout), por jti.
+ *
+ * Los tokens se agrupan en cubetas según el instante en que expiran. Cada cubeta tiene un filtro de
+ * Bloom y el conjunto exacto de jti: la comprobación de un token no revocado (el caso normal) calcula
+ * unas pocas posiciones del filtro sin reservar memoria, y solo ante un positivo se consulta el conjunto.
+ * Las cubetas forman un anillo que cubre la vigencia máxima de un token: una cubeta cuyos tokens ya
+ * expiraron se descarta (purga periódica) o se reemplaza al reutilizar su posición.
+ *
+ * Las revocaciones se difunden a los demás nodos por el {@link CanalInvalidacionCache}.
+ */
+@Slf4j
+@Component
+public class ListaRevocacionTokens {
+
+    static final String CANAL = "tokens-revocados";
+    private static final char SEPARADOR = ':';
+    private static final int FUNCIONES_HASH = 4;
+
+    private final long anchoSegundos;
+    private final int bitsPorCubeta;
+    private final AtomicReferenceArray<Cubeta> cubetas;
+    private final CanalInvalidacionCache canal;
+    private final Clock reloj;
+
+    @Autowired
+    public ListaRevocacionTokens(
+            CanalInvalidacionCache canal,
+            MeterRegistry registry,
+            @Value("${app.security.jwt.revocacion.ancho-cubeta:1m}") Duration anchoCubeta,
+            @Value("${app.security.jwt.revocacion.bits-por-cubeta:65536}") int bitsPorCubeta) {
+        this(canal, anchoCubeta, bitsPorCubeta, Clock.systemUTC());
+        Gauge.builder("seguridad.jwt.revocados", this, ListaRevocacionTokens::tamano)
+            .description("JWT revocados que aún no han expirado")
+            .register(registry);
+    }
+
+    ListaRevocacionTokens(CanalInvalidacionCache canal, Duration anchoCubeta, int bitsPorCubeta, Clock reloj) {
+        if (anchoCubeta.getSeconds() < 1 || bitsPorCubeta < 64) {
+            throw new IllegalArgumentException("La cubeta debe abarcar al menos 1 segundo y 64 bits.");
+        }
+        this.canal = canal;
+        this.reloj = reloj;
+        this.anchoSegundos = anchoCubeta.getSeconds();
+        // Potencia de 2 para calcular la posición con una máscara
+        this.bitsPorCubeta = Integer.highestOneBit(bitsPorCubeta - 1) << 1;
+        // Vigencia máxima + la cubeta en curso + una de margen: nunca se pisa una cubeta con tokens vigentes
+        this.cubetas = new AtomicReferenceArray<>((int) (JwtUtil.VIGENCIA.getSeconds() / anchoSegundos) + 2);
+        canal.suscribir(CANAL, this::aplicar);
+    }
+
+    /** Revoca el token hasta su expiración. Un token ya expirado no necesita registrarse. */
+    public void revocar(String jti, Instant expiraEn) {
+        if (jti == null || !expiraEn.isAfter(reloj.instant())) {
+            return;
+        }
+        registrar(jti, expiraEn.getEpochSecond());
+        canal.publicar(CANAL, jti + SEPARADOR + expiraEn.getEpochSecond());
+        log.info("LOGOUT: token {} revocado hasta {}.", jti, expiraEn);
+    }
+
+    /** Camino de cada petición: sin reservas de memoria mientras el filtro de Bloom sea negativo. */
+    public boolean revocado(String jti, Instant expiraEn) {
+        if (jti == null) {
+            return false;
+        }
+        long numero = Math.floorDiv(expiraEn.getEpochSecond(), anchoSegundos);
+        Cubeta cubeta = cubetas.get(posicion(numero));
+        return cubeta != null && cubeta.numero == numero && cubeta.contiene(jti);
+    }
+
+    /** Descarta las cubetas cuyos tokens ya expiraron todos. */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgar() {
+        long ahora = reloj.instant().getEpochSecond();
+        for (int i = 0; i < cubetas.length(); i++) {
+            Cubeta cubeta = cubetas.get(i);
+            if (cubeta != null && (cubeta.numero + 1) * anchoSegundos <= ahora) {
+                cubetas.compareAndSet(i, cubeta, null);
+            }
+        }
+    }
+
+    /** Cantidad de jti registrados en las cubetas vigentes. */
+    public int tamano() {
+        int total = 0;
+        for (int i = 0; i < cubetas.length(); i++) {
+            Cubeta cubeta = cubetas.get(i);
+            total += cubeta == null ? 0 : cubeta.exactos.size();
+        }
+        return total;
+    }
+
+    private void registrar(String jti, long expiraEnSegundos) {
+        long numero = Math.floorDiv(expiraEnSegundos, anchoSegundos);
+        Cubeta cubeta = cubetas.updateAndGet(posicion(numero), actual ->
+            actual == null || actual.numero < numero ? new Cubeta(numero, bitsPorCubeta) : actual);
+        // La posición la ocupa una cubeta más reciente: el token ya expiró
+        if (cubeta.numero == numero) {
+            cubeta.agregar(jti);
+        }
+    }
+
+    private int posicion(long numero) {
+        return (int) Math.floorMod(numero, (long) cubetas.length());
+    }
+
+    private void aplicar(String mensaje) {
+        int i = mensaje.lastIndexOf(SEPARADOR);
+        if (i < 0) {
+            return; // p. ej. CanalInvalidacionCache.TODAS: no hay nada que descartar
+        }
+        registrar(mensaje.substring(0, i), Long.parseLong(mensaje.substring(i + 1)));
+    }
+
+    /** Tokens que expiran dentro de la misma ventana: filtro de Bloom + conjunto exacto. */
+    static final class Cubeta {
+
+        final long numero;
+        private final int mascara;
+        private final AtomicLongArray bits;
+        private final Set<String> exactos = ConcurrentHashMap.newKeySet();
+
+        Cubeta(long numero, int bitsPorCubeta) {
+            this.numero = numero;
+            this.mascara = bitsPorCubeta - 1;
+            this.bits = new AtomicLongArray(bitsPorCubeta / Long.SIZE);
+        }
+
+        void agregar(String jti) {
+            // 🔑 Primero el conjunto: quien encuentre los bits encendidos también encontrará el jti
+            exactos.add(jti);
+            long hash = hash64(jti);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < FUNCIONES_HASH; i++) {
+                int indice = (h1 + i * h2) & mascara;
+                bits.getAndAccumulate(indice >>> 6, 1L << indice, (a, b) -> a | b);
+            }
+        }
+
+        boolean contiene(String jti) {
+            long hash = hash64(jti);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < FUNCIONES_HASH; i++) {
+                int indice = (h1 + i * h2) & mascara;
+                if ((bits.get(indice >>> 6) & (1L << indice)) == 0) {
+                    return false;
+                }
+            }
+            return exactos.contains(jti);
+        }
+
+        // FNV-1a sobre los caracteres + mezcla final de MurmurHash3 (sin copiar el String a bytes)
+        static long hash64(String texto) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < texto.length(); i++) {
+                h ^= texto.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb93fe53ba6b3L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.security;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Value;
+import lombok.With;
+
+/**
+ * Datos de un refresh token emitido. El token en sí no se guarda: los almacenes lo indexan por su
+ * SHA-256. Todos los tokens obtenidos por rotación desde un mismo login comparten la familia.
+ */
+@Value
+public class RefreshTokenEmitido {
+
+    String usuario;
+    // Autoridades del usuario en el login; se copian en cada access token renovado
+    List<String> roles;
+    String familia;
+    // Versión del usuario al hacer login (ver RegistroVersionesUsuario)
+    long versionUsuario;
+    Instant expiraEn;
+    // Ya se canjeó una vez: presentarlo de nuevo indica que fue robado
+    @With
+    boolean usado;
+
+    public boolean vigenteEn(Instant instante) {
+        return expiraEn.isAfter(instante);
+    }
+}
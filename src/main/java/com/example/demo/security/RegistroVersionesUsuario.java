@@ -0,0 +1,67 @@
+package com.example.demo.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionCache;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Versión vigente de cada usuario. Cada JWT lleva la versión con la que se emitió; revocar a un
+ * usuario incrementa su versión e invalida todos sus tokens anteriores sin consultar ningún almacén
+ * en cada petición (la comprobación es una lectura de mapa).
+ *
+ * La versión se persiste en la tabla usuarios ({@link ServicioUsuarios}) y se carga al iniciar.
+ * Las revocaciones se difunden a los demás nodos por el {@link CanalInvalidacionCache}. El mensaje
+ * lleva la versión nueva y se aplica como máximo, por lo que recibirlo más de una vez no tiene efecto.
+ */
+@Slf4j
+@Component
+public class RegistroVersionesUsuario {
+
+    static final String CANAL = "usuarios-version";
+    private static final char SEPARADOR = ':';
+
+    private final Map<String, Long> versiones = new ConcurrentHashMap<>();
+    private final CanalInvalidacionCache canal;
+
+    public RegistroVersionesUsuario(CanalInvalidacionCache canal) {
+        this.canal = canal;
+        canal.suscribir(CANAL, this::aplicar);
+    }
+
+    public long versionActual(String usuario) {
+        return versiones.getOrDefault(usuario, 0L);
+    }
+
+    /** Un token es vigente si se emitió con la versión actual del usuario (o una posterior). */
+    public boolean vigente(String usuario, long versionToken) {
+        return versionToken >= versionActual(usuario);
+    }
+
+    /**
+     * Aplica la versión nueva del usuario (ya persistida) y la difunde a los demás nodos: todos los
+     * tokens emitidos con una versión anterior dejan de ser válidos.
+     */
+    public void establecer(String usuario, long version) {
+        versiones.merge(usuario, version, Math::max);
+        canal.publicar(CANAL, usuario + SEPARADOR + version);
+        log.warn("REVOCACIÓN: tokens del usuario {} invalidados (versión {}).", usuario, version);
+    }
+
+    /** Carga inicial desde el almacén de usuarios (sin difundir). */
+    public void cargar(String usuario, long version) {
+        versiones.merge(usuario, version, Math::max);
+    }
+
+    private void aplicar(String mensaje) {
+        int i = mensaje.lastIndexOf(SEPARADOR);
+        if (i < 0) {
+            return; // p. ej. CanalInvalidacionCache.TODAS: no hay nada que descartar
+        }
+        versiones.merge(mensaje.substring(0, i), Long.parseLong(mensaje.substring(i + 1)), Math::max);
+    }
+}
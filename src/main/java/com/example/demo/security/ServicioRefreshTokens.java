@@ -0,0 +1,122 @@
+package com.example.demo.security;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emisión y rotación de refresh tokens. Renovar el access token no vuelve a comprobar la contraseña
+ * (ni a calcular su hash): basta con canjear un refresh token vigente.
+ *
+ * - El refresh token es un valor aleatorio opaco; el almacén solo guarda su SHA-256.
+ * - Rotación: cada canje invalida el token presentado y entrega uno nuevo de la misma familia.
+ * - Reuso: presentar un token ya canjeado revoca toda la familia (el token o su sucesor fue robado).
+ * - Revocar al usuario (RegistroVersionesUsuario) invalida también sus refresh tokens.
+ * - Cada canje vuelve a cargar al usuario (ServicioUsuarios, desde su caché): un usuario eliminado o
+ *   inactivo no renueva, y el access token lleva sus roles vigentes, no los del login.
+ */
+@Slf4j
+@Component
+public class ServicioRefreshTokens {
+
+    private static final int BYTES_TOKEN = 32;
+
+    private final AlmacenRefreshTokens almacen;
+    private final JwtUtil jwtUtil;
+    private final RegistroVersionesUsuario versiones;
+    private final UserDetailsService usuarios;
+    private final Duration duracion;
+    private final SecureRandom aleatorio = new SecureRandom();
+
+    public ServicioRefreshTokens(
+            AlmacenRefreshTokens almacen,
+            JwtUtil jwtUtil,
+            RegistroVersionesUsuario versiones,
+            UserDetailsService usuarios,
+            @Value("${app.security.refresh.duracion:7d}") Duration duracion) {
+        this.almacen = almacen;
+        this.jwtUtil = jwtUtil;
+        this.versiones = versiones;
+        this.usuarios = usuarios;
+        this.duracion = duracion;
+    }
+
+    /** Login: emite el access token y el primer refresh token de una familia nueva. */
+    public TokensEmitidos emitir(UserDetails usuario) {
+        List<String> roles = roles(usuario);
+        String refreshToken = registrar(usuario.getUsername(), roles, UUID.randomUUID().toString());
+        return new TokensEmitidos(jwtUtil.generateToken(usuario.getUsername(), roles), refreshToken);
+    }
+
+    /**
+     * Canjea un refresh token por un access token nuevo y el siguiente refresh token de la familia.
+     * @throws BadCredentialsException si el token no existe, venció o ya fue usado, o si el usuario fue
+     *         revocado, eliminado o desactivado.
+     */
+    public TokensEmitidos renovar(String refreshToken) {
+        RefreshTokenEmitido token = almacen.marcarUsado(JwtUtil.huella(refreshToken))
+            .orElseThrow(() -> new BadCredentialsException("Refresh token inválido o expirado."));
+
+        if (token.isUsado()) {
+            almacen.revocarFamilia(token.getFamilia());
+            log.warn("REFRESH TOKEN REUTILIZADO: familia {} del usuario {} revocada.", token.getFamilia(), token.getUsuario());
+            throw new BadCredentialsException("Refresh token ya utilizado.");
+        }
+        if (!versiones.vigente(token.getUsuario(), token.getVersionUsuario())) {
+            almacen.revocarFamilia(token.getFamilia());
+            throw new BadCredentialsException("Los tokens del usuario fueron revocados.");
+        }
+        UserDetails usuario = usuarioVigente(token.getUsuario());
+        if (usuario == null) {
+            almacen.revocarFamilia(token.getFamilia());
+            log.warn("REFRESH TOKEN RECHAZADO: el usuario {} no existe o está inactivo.", token.getUsuario());
+            throw new BadCredentialsException("El usuario no existe o está inactivo.");
+        }
+
+        List<String> roles = roles(usuario);
+        String siguiente = registrar(token.getUsuario(), roles, token.getFamilia());
+        return new TokensEmitidos(jwtUtil.generateToken(token.getUsuario(), roles), siguiente);
+    }
+
+    /** Logout: invalida el refresh token y todos los de su familia. */
+    public void revocar(String refreshToken) {
+        almacen.marcarUsado(JwtUtil.huella(refreshToken))
+            .ifPresent(token -> almacen.revocarFamilia(token.getFamilia()));
+    }
+
+    // ServicioUsuarios no carga los usuarios inactivos; isEnabled cubre otros UserDetailsService
+    private UserDetails usuarioVigente(String username) {
+        try {
+            UserDetails usuario = usuarios.loadUserByUsername(username);
+            return usuario.isEnabled() ? usuario : null;
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static List<String> roles(UserDetails usuario) {
+        return usuario.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+    }
+
+    private String registrar(String usuario, List<String> roles, String familia) {
+        byte[] bytes = new byte[BYTES_TOKEN];
+        aleatorio.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        almacen.guardar(JwtUtil.huella(refreshToken), new RefreshTokenEmitido(
+            usuario, roles, familia, versiones.versionActual(usuario), Instant.now().plus(duracion), false));
+        return refreshToken;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.security;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.infraestructura.cache.CacheCercana;
+import com.example.demo.infraestructura.datos.UsuarioJPA;
+import com.example.demo.infraestructura.datos.UsuarioJPARepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Usuarios de la API persistidos en la tabla usuarios.
+ *
+ * - loadUserByUsername se sirve desde una caché acotada con TTL: una ráfaga de logins no consulta
+ *   la base de datos por cada intento. Cada llamada recibe su propia copia, porque Spring Security
+ *   borra la contraseña del UserDetails autenticado.
+ * - updatePassword (UserDetailsPasswordService) recibe el hash nuevo cuando el codificador pide
+ *   actualizarlo: hashes {noop} o BCrypt con menor fuerza que la configurada se re-calculan en el login.
+ */
+@Slf4j
+@Service
+public class ServicioUsuarios implements UserDetailsService, UserDetailsPasswordService {
+
+    public static final Set<String> ROLES_VALIDOS = Set.of("ADMIN", "OPERADOR", "CLIENTE");
+    private static final String PREFIJO_ROL = "ROLE_";
+
+    private final UsuarioJPARepository repository;
+    private final CacheCercana<UserDetails> cache;
+    private final PasswordEncoder passwordEncoder;
+    private final RegistroVersionesUsuario registroVersiones;
+
+    @Value("${app.security.test-users.admin-username}")
+    private String adminUsername;
+
+    @Value("${app.security.test-users.admin-password}")
+    private String adminPassword;
+
+    public ServicioUsuarios(
+            UsuarioJPARepository repository,
+            CacheCercana<UserDetails> cacheUsuarios,
+            PasswordEncoder passwordEncoder,
+            RegistroVersionesUsuario registroVersiones) {
+        this.repository = repository;
+        this.cache = cacheUsuarios;
+        this.passwordEncoder = passwordEncoder;
+        this.registroVersiones = registroVersiones;
+    }
+
+    /**
+     * Crea el administrador inicial si no existe y carga las versiones de tokens revocados.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        if (!repository.existsByUsername(adminUsername)) {
+            crear(adminUsername, adminPassword, List.of("ADMIN"), null);
+            log.info("USUARIO INICIAL: administrador {} creado.", adminUsername);
+        }
+        repository.findByVersionTokensGreaterThan(0L)
+            .forEach(u -> registroVersiones.cargar(u.getUsername(), u.getVersionTokens()));
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        UserDetails usuario = cache.obtener(username, this::cargar)
+            .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
+        return User.withUserDetails(usuario).build();
+    }
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        repository.actualizarPassword(user.getUsername(), newPassword);
+        cache.invalidar(user.getUsername());
+        log.info("CONTRASEÑA ACTUALIZADA: hash del usuario {} recalculado con el codificador vigente.", user.getUsername());
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+
+    /**
+     * Registra un usuario nuevo con la contraseña cifrada por el codificador vigente.
+     * @throws IllegalArgumentException si el usuario ya existe, algún rol no es válido o
+     *         un usuario CLIENTE no indica su cliente.
+     */
+    @Transactional
+    public UserDetails crear(String username, String password, List<String> roles, Long clienteId) {
+        if (roles == null || roles.isEmpty() || !ROLES_VALIDOS.containsAll(roles)) {
+            throw new IllegalArgumentException("Roles inválidos. Valores permitidos: " + ROLES_VALIDOS);
+        }
+        if (roles.contains("CLIENTE") && clienteId == null) {
+            throw new IllegalArgumentException("Un usuario con rol CLIENTE debe indicar el cliente asociado.");
+        }
+        if (repository.existsByUsername(username)) {
+            throw new IllegalArgumentException("El usuario " + username + " ya existe.");
+        }
+
+        UsuarioJPA usuario = new UsuarioJPA(null, username, passwordEncoder.encode(password),
+            String.join(",", roles), clienteId, true, 0L, null, null);
+        return aUserDetails(repository.save(usuario));
+    }
+
+    /**
+     * Invalida todos los tokens (JWT y refresh) emitidos hasta ahora para el usuario.
+     * @throws IllegalArgumentException si el usuario no existe.
+     */
+    @Transactional
+    public long revocarTokens(String username) {
+        if (repository.incrementarVersionTokens(username) == 0) {
+            throw new IllegalArgumentException("El usuario " + username + " no existe.");
+        }
+        long version = repository.buscarVersionTokens(username).orElseThrow();
+        registroVersiones.establecer(username, version);
+        return version;
+    }
+
+    private Optional<UserDetails> cargar(String username) {
+        return repository.findByUsername(username)
+            .filter(UsuarioJPA::isActivo)
+            .map(ServicioUsuarios::aUserDetails);
+    }
+
+    private static UserDetails aUserDetails(UsuarioJPA usuario) {
+        return User.withUsername(usuario.getUsername())
+            .password(usuario.getPasswordHash())
+            .authorities(Arrays.stream(usuario.getRoles().split(","))
+                .map(rol -> PREFIJO_ROL + rol.trim())
+                .toArray(String[]::new))
+            .build();
+    }
+}
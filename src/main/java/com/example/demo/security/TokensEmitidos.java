@@ -0,0 +1,14 @@
+package com.example.demo.security;
+
+import lombok.Value;
+
+/**
+ * Tokens entregados al cliente en el login o al renovar: el JWT de acceso y el refresh token
+ * con el que obtendrá el siguiente.
+ */
+@Value
+public class TokensEmitidos {
+
+    String accessToken;
+    String refreshToken;
+}
@@ -0,0 +1,44 @@
+-- =====================================================================================
+-- Diario del motor de saldos en memoria (app.cuentas.motor.habilitado=true, MotorSaldos).
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f diario_saldos.sql
+--
+-- Cada movimiento confirmado por el motor es una fila con su delta. El saldo vigente de una cuenta
+-- es productos_financieros.saldo más la suma de sus filas aquí; la aplicación las consolida
+-- periódicamente (app.cuentas.motor.consolidacion-ms) y las elimina en la misma sentencia.
+-- =====================================================================================
+
+CREATE TABLE IF NOT EXISTS diario_saldos (
+    secuencia     BIGSERIAL      PRIMARY KEY,
+    numero_cuenta VARCHAR(255)   NOT NULL,
+    delta         NUMERIC(38, 2) NOT NULL,
+    fecha         TIMESTAMP(6)   NOT NULL DEFAULT now()
+);
+
+-- Recuperación del saldo vigente y consolidación por cuenta
+CREATE INDEX IF NOT EXISTS idx_diario_saldos_cuenta ON diario_saldos (numero_cuenta);
+
+-- Devoluciones de transferencias cuyo crédito no se aplicó (TRANSFERENCIA_REVERSO, ver CuentaMotorService).
+-- La restricción de tipo que crearon Hibernate o transacciones_particionada.sql solo admite los cuatro tipos
+-- originales: se reemplaza (en la tabla particionada, también en sus particiones). Validarla recorre la
+-- tabla; ejecutar antes de habilitar el motor. Se puede repetir sin efecto.
+DO $$
+DECLARE
+    restriccion record;
+BEGIN
+    FOR restriccion IN
+        SELECT conname FROM pg_constraint
+        WHERE conrelid = 'transacciones'::regclass AND contype = 'c'
+          AND pg_get_constraintdef(oid) LIKE '%TRANSFERENCIA_CREDITO%'
+          AND pg_get_constraintdef(oid) NOT LIKE '%TRANSFERENCIA_REVERSO%'
+    LOOP
+        EXECUTE format('ALTER TABLE transacciones DROP CONSTRAINT %I', restriccion.conname);
+    END LOOP;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = 'transacciones'::regclass AND conname = 'transacciones_tipo_check') THEN
+        ALTER TABLE transacciones ADD CONSTRAINT transacciones_tipo_check CHECK (tipo IN
+            ('CONSIGNACION', 'RETIRO', 'TRANSFERENCIA_DEBITO', 'TRANSFERENCIA_CREDITO', 'TRANSFERENCIA_REVERSO'));
+    END IF;
+END
+$$;
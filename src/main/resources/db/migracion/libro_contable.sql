@@ -0,0 +1,114 @@
+-- =====================================================================================
+-- Migración única: libro contable de partida doble (app.transacciones.libro-contable.habilitado=true).
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f libro_contable.sql
+--
+-- Ejecutar con la aplicación detenida y habilitar la propiedad después. Cada operación es un asiento
+-- con partidas que suman cero; el efectivo de consignaciones y retiros tiene como contrapartida la
+-- cuenta 'CAJA'. Una transferencia es un solo asiento en lugar de dos filas TRANSFERENCIA_DEBITO y
+-- TRANSFERENCIA_CREDITO.
+--
+-- El historial de transacciones se copia conservando sus ids en las partidas de las cuentas, de modo
+-- que los ids guardados por las claves de idempotencia siguen siendo válidos. La tabla transacciones
+-- no se modifica y deja de recibir filas.
+-- =====================================================================================
+
+BEGIN;
+
+-- 1. Tablas. Asientos y partidas comparten la secuencia, que empieza después de los ids copiados.
+--    Las partidas repiten la fecha del asiento para resolver el historial por cuenta con un solo índice.
+CREATE SEQUENCE libro_contable_seq;
+SELECT setval('libro_contable_seq', COALESCE((SELECT max(id) FROM transacciones), 0) + 1, false);
+
+CREATE TABLE asientos_contables (
+    id    BIGINT       PRIMARY KEY,
+    tipo  VARCHAR(32)  NOT NULL CHECK (tipo IN ('CONSIGNACION', 'RETIRO', 'TRANSFERENCIA', 'TRANSFERENCIA_REVERTIDA')),
+    fecha TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE partidas_contables (
+    id            BIGINT         PRIMARY KEY,
+    asiento_id    BIGINT         NOT NULL REFERENCES asientos_contables (id),
+    numero_cuenta VARCHAR(255)   NOT NULL,
+    monto         NUMERIC(38, 2) NOT NULL CHECK (monto <> 0),
+    fecha         TIMESTAMP(6)   NOT NULL
+);
+
+CREATE INDEX idx_partidas_cuenta_fecha ON partidas_contables (numero_cuenta, fecha DESC, id DESC);
+CREATE INDEX idx_partidas_asiento ON partidas_contables (asiento_id);
+
+-- 2. Consignaciones y retiros: la partida de la cuenta conserva el id de la transacción
+INSERT INTO asientos_contables (id, tipo, fecha)
+SELECT id, tipo, fecha FROM transacciones WHERE tipo IN ('CONSIGNACION', 'RETIRO');
+
+INSERT INTO partidas_contables (id, asiento_id, numero_cuenta, monto, fecha)
+SELECT id, id, COALESCE(numero_cuenta_destino, numero_cuenta_origen),
+       CASE WHEN tipo = 'CONSIGNACION' THEN monto ELSE -monto END, fecha
+FROM transacciones WHERE tipo IN ('CONSIGNACION', 'RETIRO')
+UNION ALL
+SELECT nextval('libro_contable_seq'), id, 'CAJA',
+       CASE WHEN tipo = 'CONSIGNACION' THEN -monto ELSE monto END, fecha
+FROM transacciones WHERE tipo IN ('CONSIGNACION', 'RETIRO');
+
+-- 3. Transferencias: nada une el débito con su crédito, así que se emparejan en orden de id dentro de
+--    cada (origen, destino, monto). Dos pares con la misma clave son intercambiables.
+--    Con el motor de saldos, un débito cuyo crédito no se aplicó tiene en su lugar una devolución
+--    (TRANSFERENCIA_REVERSO, misma clave): el par es un asiento TRANSFERENCIA_REVERTIDA con sus dos
+--    partidas en el origen, y el destino no recibe ninguna.
+--    Débitos y créditos se materializan con sus estadísticas para que el emparejamiento sea un hash join
+--    sobre las cuatro columnas (con claves muy repetidas, un merge join compara cada par de la clave).
+CREATE TEMPORARY TABLE debitos_transferencia ON COMMIT DROP AS
+SELECT id, fecha, monto, numero_cuenta_origen, numero_cuenta_destino,
+       row_number() OVER (PARTITION BY numero_cuenta_origen, numero_cuenta_destino, monto ORDER BY id) AS orden
+FROM transacciones WHERE tipo = 'TRANSFERENCIA_DEBITO';
+
+CREATE TEMPORARY TABLE creditos_transferencia ON COMMIT DROP AS
+SELECT id, tipo, monto, numero_cuenta_origen, numero_cuenta_destino,
+       row_number() OVER (PARTITION BY numero_cuenta_origen, numero_cuenta_destino, monto ORDER BY id) AS orden
+FROM transacciones WHERE tipo IN ('TRANSFERENCIA_CREDITO', 'TRANSFERENCIA_REVERSO');
+
+ANALYZE debitos_transferencia;
+ANALYZE creditos_transferencia;
+
+CREATE TEMPORARY TABLE pares_transferencia ON COMMIT DROP AS
+SELECT d.id AS debito, c.id AS credito, c.tipo = 'TRANSFERENCIA_REVERSO' AS revertida, d.fecha, d.monto,
+       d.numero_cuenta_origen AS origen, d.numero_cuenta_destino AS destino
+FROM debitos_transferencia d
+JOIN creditos_transferencia c ON c.numero_cuenta_origen = d.numero_cuenta_origen
+                             AND c.numero_cuenta_destino = d.numero_cuenta_destino
+                             AND c.monto = d.monto
+                             AND c.orden = d.orden;
+
+DO $$
+BEGIN
+    IF (SELECT count(*) FROM transacciones
+        WHERE tipo IN ('TRANSFERENCIA_DEBITO', 'TRANSFERENCIA_CREDITO', 'TRANSFERENCIA_REVERSO'))
+       <> 2 * (SELECT count(*) FROM pares_transferencia) THEN
+        RAISE EXCEPTION 'Hay transferencias sin su débito o su crédito en transacciones; revíselas antes de migrar.';
+    END IF;
+END
+$$;
+
+INSERT INTO asientos_contables (id, tipo, fecha)
+SELECT debito, CASE WHEN revertida THEN 'TRANSFERENCIA_REVERTIDA' ELSE 'TRANSFERENCIA' END, fecha FROM pares_transferencia;
+
+INSERT INTO partidas_contables (id, asiento_id, numero_cuenta, monto, fecha)
+SELECT debito, debito, origen, -monto, fecha FROM pares_transferencia
+UNION ALL
+SELECT credito, debito, CASE WHEN revertida THEN origen ELSE destino END, monto, fecha FROM pares_transferencia;
+
+ANALYZE asientos_contables;
+ANALYZE partidas_contables;
+
+COMMIT;
+
+-- Conciliación (ninguna fila esperada):
+--   asientos descuadrados:
+--     SELECT asiento_id, sum(monto) FROM partidas_contables GROUP BY asiento_id HAVING sum(monto) <> 0;
+--   cuentas cuyo saldo (con sus fracciones) difiere de sus partidas, p. ej. por movimientos sin transacción:
+--     SELECT * FROM (
+--         SELECT p.numero_cuenta,
+--                p.saldo + COALESCE((SELECT sum(f.saldo) FROM saldos_fraccionados f WHERE f.numero_cuenta = p.numero_cuenta), 0) AS saldo,
+--                COALESCE((SELECT sum(c.monto) FROM partidas_contables c WHERE c.numero_cuenta = p.numero_cuenta), 0) AS contable
+--         FROM productos_financieros p) x
+--     WHERE saldo <> contable;
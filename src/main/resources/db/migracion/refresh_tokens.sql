@@ -0,0 +1,23 @@
+-- =====================================================================================
+-- Tabla de refresh tokens para app.security.refresh.almacen=jdbc (AlmacenRefreshTokensJdbc).
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f refresh_tokens.sql
+--
+-- Solo se guarda el SHA-256 (Base64) de cada token. Los tokens vencidos los purga la aplicación
+-- (app.security.refresh.purga-cron).
+-- =====================================================================================
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    huella          CHAR(44)     PRIMARY KEY,
+    usuario         VARCHAR(100) NOT NULL,
+    roles           VARCHAR(500) NOT NULL,
+    familia         VARCHAR(36)  NOT NULL,
+    version_usuario BIGINT       NOT NULL,
+    expira_en       TIMESTAMPTZ  NOT NULL,
+    usado           BOOLEAN      NOT NULL DEFAULT false
+);
+
+-- Revocación de una familia completa (reuso detectado o usuario revocado)
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_familia ON refresh_tokens (familia);
+-- Purga de vencidos
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expira_en ON refresh_tokens (expira_en);
@@ -0,0 +1,64 @@
+-- =====================================================================================
+-- Saldo resultante por movimiento: columna saldo_resultante en transacciones (y en partidas_contables
+-- si existe el libro contable).
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f saldo_resultante.sql
+--
+-- Se puede ejecutar con la aplicación en marcha: agregar una columna sin valor por defecto no reescribe
+-- la tabla, y los índices se crean CONCURRENTLY (sin bloquear escrituras). Por eso el script no usa
+-- BEGIN/COMMIT; cada sentencia generada con \gexec se ejecuta por separado.
+--
+-- Las filas nuevas llevan el saldo desde que se despliega la aplicación. Las anteriores quedan en NULL
+-- hasta que las completa el relleno (app.transacciones.saldo-resultante.relleno.habilitado=true).
+-- =====================================================================================
+
+ALTER TABLE transacciones ADD COLUMN IF NOT EXISTS saldo_resultante NUMERIC(38, 2);
+
+DO $$
+BEGIN
+    IF to_regclass('partidas_contables') IS NOT NULL THEN
+        ALTER TABLE partidas_contables ADD COLUMN IF NOT EXISTS saldo_resultante NUMERIC(38, 2);
+    END IF;
+END
+$$;
+
+-- 🔑 Índices parciales: solo contienen las filas pendientes, así que el relleno encuentra lo que falta
+-- de cada cuenta sin recorrer lo ya completado, y se vacían a medida que avanza.
+
+-- Tabla sin particionar
+SELECT format('CREATE INDEX CONCURRENTLY IF NOT EXISTS %I ON transacciones (%I, fecha DESC, id DESC) WHERE saldo_resultante IS NULL',
+              'idx_transacciones_' || lado || '_sin_saldo', 'numero_cuenta_' || lado)
+FROM (VALUES ('origen'), ('destino')) AS l (lado)
+WHERE (SELECT relkind FROM pg_class WHERE oid = 'transacciones'::regclass) = 'r'
+\gexec
+
+-- Tabla particionada (transacciones_particionada.sql): PostgreSQL no crea CONCURRENTLY un índice sobre la
+-- tabla padre. Se crea el índice padre sin recorrer las particiones, uno CONCURRENTLY por partición y se
+-- adjuntan; las particiones que se creen después lo heredan.
+SELECT format('CREATE INDEX IF NOT EXISTS %I ON ONLY transacciones (%I, fecha DESC, id DESC) WHERE saldo_resultante IS NULL',
+              'idx_transacciones_' || lado || '_sin_saldo', 'numero_cuenta_' || lado)
+FROM (VALUES ('origen'), ('destino')) AS l (lado)
+WHERE (SELECT relkind FROM pg_class WHERE oid = 'transacciones'::regclass) = 'p'
+\gexec
+
+SELECT format('CREATE INDEX CONCURRENTLY IF NOT EXISTS %I ON %I (%I, fecha DESC, id DESC) WHERE saldo_resultante IS NULL',
+              c.relname || '_' || lado || '_sin_saldo', c.relname, 'numero_cuenta_' || lado)
+FROM pg_inherits i
+JOIN pg_class c ON c.oid = i.inhrelid
+CROSS JOIN (VALUES ('origen'), ('destino')) AS l (lado)
+WHERE i.inhparent = 'transacciones'::regclass
+\gexec
+
+SELECT format('ALTER INDEX %I ATTACH PARTITION %I', 'idx_transacciones_' || lado || '_sin_saldo', c.relname || '_' || lado || '_sin_saldo')
+FROM pg_inherits i
+JOIN pg_class c ON c.oid = i.inhrelid
+CROSS JOIN (VALUES ('origen'), ('destino')) AS l (lado)
+WHERE i.inhparent = 'transacciones'::regclass
+  AND NOT EXISTS (SELECT 1 FROM pg_inherits a WHERE a.inhrelid = to_regclass(c.relname || '_' || lado || '_sin_saldo'))
+\gexec
+
+-- Libro contable. Las partidas de caja no llevan saldo y quedan fuera del índice
+SELECT 'CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_partidas_sin_saldo ON partidas_contables (numero_cuenta, fecha DESC, id DESC) '
+       || 'WHERE saldo_resultante IS NULL AND numero_cuenta <> ''CAJA'''
+WHERE to_regclass('partidas_contables') IS NOT NULL
+\gexec
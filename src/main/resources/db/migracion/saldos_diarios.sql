@@ -0,0 +1,33 @@
+-- =====================================================================================
+-- Saldos diarios por cuenta (app.cuentas.saldos-diarios.habilitado=true, SaldoHistoricoService).
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f saldos_diarios.sql
+--
+-- Requiere saldos_fraccionados.sql. Cada noche (app.cuentas.saldos-diarios.cron) se registra el saldo al
+-- cierre de los días pendientes, solo para las cuentas con movimientos ese día. El primer registro
+-- recorre todo el historial; los siguientes, solo los movimientos desde el último día registrado.
+-- =====================================================================================
+
+CREATE TABLE IF NOT EXISTS saldos_diarios (
+    numero_cuenta VARCHAR(255)   NOT NULL,
+    dia           DATE           NOT NULL,
+    saldo         NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (numero_cuenta, dia)
+);
+
+-- Último día registrado: punto de partida del siguiente registro
+CREATE INDEX IF NOT EXISTS idx_saldos_diarios_dia ON saldos_diarios (dia);
+
+-- El registro nocturno lee los movimientos por fecha, sin cuenta. Las filas llegan en orden de fecha,
+-- así que un índice BRIN basta para leer solo los bloques recientes y casi no encarece las inserciones.
+-- Con transacciones particionada por mes (transacciones_particionada.sql) la poda descarta los meses
+-- anteriores y el BRIN acota la lectura dentro de la partición en curso.
+CREATE INDEX IF NOT EXISTS idx_transacciones_fecha_brin ON transacciones USING brin (fecha);
+
+DO $$
+BEGIN
+    IF to_regclass('partidas_contables') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_partidas_fecha_brin ON partidas_contables USING brin (fecha);
+    END IF;
+END
+$$;
@@ -0,0 +1,24 @@
+-- =====================================================================================
+-- Saldos fraccionados para cuentas muy concurridas (PATCH /api/v1/productos/{numero}/fracciones).
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f saldos_fraccionados.sql
+--
+-- El saldo de una cuenta fraccionada es productos_financieros.saldo más la suma de sus K filas
+-- aquí. Cada depósito o retiro actualiza una sola fila elegida al azar, de modo que los movimientos
+-- simultáneos no esperan el bloqueo de la misma fila; un retiro que no cabe en su fracción toma de
+-- las demás con la cuenta bloqueada.
+-- =====================================================================================
+
+-- ddl-auto=update también la crea al arrancar; aquí para poder aplicar el script antes
+ALTER TABLE productos_financieros ADD COLUMN IF NOT EXISTS fracciones_saldo INTEGER;
+
+CREATE TABLE IF NOT EXISTS saldos_fraccionados (
+    numero_cuenta VARCHAR(255)   NOT NULL,
+    fraccion      INTEGER        NOT NULL,
+    saldo         NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (numero_cuenta, fraccion)
+);
+
+-- Cada nodo relee periódicamente las cuentas fraccionadas (app.cuentas.fracciones.refresco-ms)
+CREATE INDEX IF NOT EXISTS idx_productos_fraccionados ON productos_financieros (numero_cuenta)
+    WHERE fracciones_saldo IS NOT NULL;
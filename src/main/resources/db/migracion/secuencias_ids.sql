@@ -0,0 +1,50 @@
+-- =====================================================================================
+-- Migración única: reemplaza las columnas IDENTITY por secuencias con incremento 50.
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f secuencias_ids.sql
+--
+-- Ejecutar con la aplicación detenida (los bloques de ids reservados en memoria se descartan).
+--
+-- Con IDENTITY Hibernate necesita el id que devuelve cada INSERT y no puede agruparlos en lotes.
+-- Con secuencias (optimizador pooled-lo) cada nextval reserva 50 ids: el valor devuelto es el
+-- primero del bloque. Los INSERT nativos que usan el DEFAULT consumen un bloque completo, por lo
+-- que nunca coinciden con los ids que asigna la aplicación.
+--
+-- Compatible con la tabla transacciones original y con la particionada
+-- (db/migracion/transacciones_particionada.sql).
+-- =====================================================================================
+
+BEGIN;
+
+DO $$
+DECLARE
+    t record;
+    siguiente bigint;
+BEGIN
+    FOR t IN
+        SELECT * FROM (VALUES
+            ('transacciones',         'transacciones_seq'),
+            ('productos_financieros', 'productos_financieros_seq'),
+            ('clientes',              'clientes_seq')) AS v(tabla, secuencia)
+    LOOP
+        EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', t.tabla);
+
+        -- ddl-auto=update pudo haberla creado ya (START 1): se corrige el incremento y el valor
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', t.secuencia);
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', t.secuencia);
+        EXECUTE format('SELECT COALESCE(max(id), 0) + 1 FROM %I', t.tabla) INTO siguiente;
+        PERFORM setval(t.secuencia, siguiente, false);
+
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t.tabla);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t.tabla, t.secuencia);
+        EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', t.secuencia, t.tabla);
+
+        RAISE NOTICE '% usa % desde %', t.tabla, t.secuencia, siguiente;
+    END LOOP;
+END
+$$;
+
+-- Secuencia creada por la migración de particionado, reemplazada por transacciones_seq
+DROP SEQUENCE IF EXISTS transacciones_particionada_id_seq;
+
+COMMIT;
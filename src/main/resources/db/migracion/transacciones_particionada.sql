@@ -0,0 +1,73 @@
+-- =====================================================================================
+-- Migración única: convierte "transacciones" en una tabla particionada por mes sobre "fecha".
+--
+--   psql -h localhost -U appuser -d banco_db -v ON_ERROR_STOP=1 -f transacciones_particionada.sql
+--
+-- Ejecutar con la aplicación detenida. Después, habilitar en application.properties:
+--   app.transacciones.particionado.habilitado=true
+-- para que GestorParticionesTransacciones cree las particiones futuras y aplique la retención.
+--
+-- La tabla original queda como "transacciones_sin_particion" hasta verificar la migración:
+--   DROP TABLE transacciones_sin_particion;
+-- =====================================================================================
+
+BEGIN;
+
+LOCK TABLE transacciones IN ACCESS EXCLUSIVE MODE;
+
+-- 1. Se aparta la tabla actual (los nombres de índice son únicos por esquema)
+ALTER TABLE transacciones RENAME TO transacciones_sin_particion;
+ALTER INDEX transacciones_pkey RENAME TO transacciones_sin_particion_pkey;
+ALTER INDEX IF EXISTS idx_transacciones_origen_fecha RENAME TO transacciones_sin_particion_origen_fecha;
+ALTER INDEX IF EXISTS idx_transacciones_destino_fecha RENAME TO transacciones_sin_particion_destino_fecha;
+
+-- 2. Secuencia propia: PostgreSQL < 17 no admite columnas IDENTITY en tablas particionadas.
+--    Hibernate (GenerationType.IDENTITY) solo necesita que la columna tenga un DEFAULT.
+CREATE SEQUENCE transacciones_particionada_id_seq;
+SELECT setval('transacciones_particionada_id_seq', COALESCE((SELECT max(id) FROM transacciones_sin_particion), 0) + 1, false);
+
+-- 3. Tabla particionada. La clave primaria debe incluir la columna de partición.
+CREATE TABLE transacciones (
+    id                    bigint       NOT NULL DEFAULT nextval('transacciones_particionada_id_seq'),
+    fecha                 timestamp(6) NOT NULL,
+    monto                 numeric(38,2),
+    numero_cuenta_destino varchar(255),
+    numero_cuenta_origen  varchar(255),
+    tipo                  varchar(255) CHECK (tipo IN ('CONSIGNACION', 'RETIRO', 'TRANSFERENCIA_DEBITO', 'TRANSFERENCIA_CREDITO')),
+    PRIMARY KEY (id, fecha)
+) PARTITION BY RANGE (fecha);
+
+ALTER SEQUENCE transacciones_particionada_id_seq OWNED BY transacciones.id;
+
+-- Los índices declarados sobre la tabla padre se crean en cada partición
+CREATE INDEX idx_transacciones_origen_fecha ON transacciones (numero_cuenta_origen, fecha DESC, id DESC);
+CREATE INDEX idx_transacciones_destino_fecha ON transacciones (numero_cuenta_destino, fecha DESC, id DESC);
+
+-- 4. Una partición por mes con datos, más los próximos 3 meses; la partición por defecto
+--    solo recibe filas fuera de los rangos creados (debe permanecer vacía)
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    FOR mes IN
+        SELECT generate_series(
+            date_trunc('month', COALESCE((SELECT min(fecha) FROM transacciones_sin_particion), now())),
+            date_trunc('month', now()) + interval '3 months',
+            interval '1 month')::date
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transacciones FOR VALUES FROM (%L) TO (%L)',
+                       'transacciones_p' || to_char(mes, 'YYYYMM'), mes, (mes + interval '1 month')::date);
+    END LOOP;
+END
+$$;
+
+CREATE TABLE transacciones_default PARTITION OF transacciones DEFAULT;
+
+-- 5. Copia de los datos existentes
+INSERT INTO transacciones (id, fecha, monto, numero_cuenta_destino, numero_cuenta_origen, tipo)
+SELECT id, fecha, monto, numero_cuenta_destino, numero_cuenta_origen, tipo
+FROM transacciones_sin_particion;
+
+ANALYZE transacciones;
+
+COMMIT;
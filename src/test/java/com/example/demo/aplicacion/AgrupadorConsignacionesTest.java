@@ -0,0 +1,114 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AgrupadorConsignacionesTest {
+
+    private static final String CUENTA = "5300000001";
+
+    private final List<List<Dinero>> grupos = new CopyOnWriteArrayList<>();
+
+    private List<Transaccion> registrar(String cuenta, List<Dinero> montos) {
+        grupos.add(montos);
+        List<Transaccion> registradas = new ArrayList<>();
+        montos.forEach(monto -> registradas.add(new Transaccion(TipoTransaccion.CONSIGNACION, monto, cuenta)));
+        return registradas;
+    }
+
+    private CompletableFuture<Transaccion> consignarEnOtroHilo(AgrupadorConsignaciones agrupador, String cuenta,
+                                                               int monto, CountDownLatch salida) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                salida.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return agrupador.consignar(cuenta, Dinero.of(BigDecimal.valueOf(monto)), montos -> registrar(cuenta, montos));
+        });
+    }
+
+    @Test
+    void testConsignar_simultaneas_debenRegistrarseEnUnGrupoYRecibirSuPropiaTransaccion() {
+        AgrupadorConsignaciones agrupador = new AgrupadorConsignaciones(new SimpleMeterRegistry(), true, Duration.ofMillis(300), 100);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<CompletableFuture<Transaccion>> consignaciones = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            consignaciones.add(consignarEnOtroHilo(agrupador, CUENTA, i, salida));
+        }
+        salida.countDown();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Dinero.of(BigDecimal.valueOf(i + 1)), consignaciones.get(i).join().getMonto());
+        }
+        assertEquals(1, grupos.size());
+        assertEquals(5, grupos.get(0).size());
+    }
+
+    @Test
+    void testConsignar_grupoLleno_noDebeEsperarLaVentana() {
+        AgrupadorConsignaciones agrupador = new AgrupadorConsignaciones(new SimpleMeterRegistry(), true, Duration.ofSeconds(30), 2);
+        CountDownLatch salida = new CountDownLatch(1);
+        CompletableFuture<Transaccion> primera = consignarEnOtroHilo(agrupador, CUENTA, 1, salida);
+        CompletableFuture<Transaccion> segunda = consignarEnOtroHilo(agrupador, CUENTA, 2, salida);
+        salida.countDown();
+
+        assertNotNull(primera.orTimeout(5, TimeUnit.SECONDS).join());
+        assertNotNull(segunda.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(1, grupos.size());
+    }
+
+    @Test
+    void testConsignar_cuentasDistintas_noDebenAgruparse() {
+        AgrupadorConsignaciones agrupador = new AgrupadorConsignaciones(new SimpleMeterRegistry(), true, Duration.ofMillis(100), 100);
+        CountDownLatch salida = new CountDownLatch(1);
+        CompletableFuture<Transaccion> a = consignarEnOtroHilo(agrupador, CUENTA, 1, salida);
+        CompletableFuture<Transaccion> b = consignarEnOtroHilo(agrupador, "5300000002", 1, salida);
+        salida.countDown();
+
+        assertEquals(CUENTA, a.join().getNumeroCuentaDestino());
+        assertEquals("5300000002", b.join().getNumeroCuentaDestino());
+        assertEquals(2, grupos.size());
+    }
+
+    @Test
+    void testConsignar_falloDelGrupo_debeEntregarseATodas() {
+        AgrupadorConsignaciones agrupador = new AgrupadorConsignaciones(new SimpleMeterRegistry(), true, Duration.ofMillis(300), 100);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<CompletableFuture<Transaccion>> consignaciones = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            consignaciones.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return agrupador.consignar(CUENTA, Dinero.of(BigDecimal.ONE), montos -> {
+                    throw new IllegalStateException("La cuenta no está activa para realizar esta operación.");
+                });
+            }));
+        }
+        salida.countDown();
+
+        for (CompletableFuture<Transaccion> consignacion : consignaciones) {
+            Throwable causa = assertThrows(Exception.class, consignacion::join).getCause();
+            assertInstanceOf(IllegalStateException.class, causa);
+        }
+    }
+}
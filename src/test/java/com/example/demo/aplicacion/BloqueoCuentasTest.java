@@ -0,0 +1,139 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BloqueoCuentasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testConCuenta_mismaCuenta_debeSerializarLasOperaciones() throws Exception {
+        BloqueoCuentas bloqueo = new BloqueoCuentas(registry, 16, Duration.ofSeconds(5));
+        long[] saldo = { 0 };
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tareas.add(hilos.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        // Lectura-modificación-escritura sin sincronización propia: solo la franja la protege
+                        bloqueo.conCuenta("5300000001", () -> saldo[0] = saldo[0] + 1);
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        assertEquals(80_000, saldo[0]);
+        assertEquals(80_000, registry.get("cuentas.bloqueo.espera")
+            .tag("franja", String.valueOf(bloqueo.franja("5300000001"))).timer().count());
+    }
+
+    @Test
+    void testConCuentas_transferenciasCruzadas_noDebenBloquearseMutuamente() throws Exception {
+        BloqueoCuentas bloqueo = new BloqueoCuentas(registry, 64, Duration.ofSeconds(5));
+        String a = "5300000001";
+        String b = "5300000002";
+        assertNotEquals(bloqueo.franja(a), bloqueo.franja(b));
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> ab = hilos.submit(() -> { for (int i = 0; i < 20_000; i++) bloqueo.conCuentas(a, b, () -> null); });
+            Future<?> ba = hilos.submit(() -> { for (int i = 0; i < 20_000; i++) bloqueo.conCuentas(b, a, () -> null); });
+            ab.get(10, TimeUnit.SECONDS);
+            ba.get(10, TimeUnit.SECONDS);
+        } finally {
+            hilos.shutdownNow();
+        }
+        assertEquals(0, registry.get("cuentas.bloqueo.agotados").counter().count());
+    }
+
+    @Test
+    void testConCuenta_reentrante_debePermitirQueOtroServicioTomeLaMismaFranja() {
+        BloqueoCuentas bloqueo = new BloqueoCuentas(registry, 16, Duration.ofMillis(100));
+
+        String resultado = bloqueo.conCuentas("5300000001", "5300000002",
+            () -> bloqueo.conCuenta("5300000002", () -> "ok"));
+
+        assertEquals("ok", resultado);
+    }
+
+    @Test
+    void testConCuenta_franjaOcupada_debeRechazarTrasLaEsperaMaxima() throws Exception {
+        BloqueoCuentas bloqueo = new BloqueoCuentas(registry, 16, Duration.ofMillis(50));
+        CountDownLatch tomada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread duenio = new Thread(() -> bloqueo.conCuenta("5300000001", () -> {
+            tomada.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        duenio.start();
+        try {
+            assertTrue(tomada.await(5, TimeUnit.SECONDS));
+            assertThrows(IllegalStateException.class, () -> bloqueo.conCuenta("5300000001", () -> "nunca"));
+            assertEquals(1, registry.get("cuentas.bloqueo.agotados").counter().count());
+        } finally {
+            liberar.countDown();
+            duenio.join();
+        }
+    }
+
+    @Test
+    void testConCuenta_cuentaExenta_noDebeEsperarLaFranjaOcupada() throws Exception {
+        BloqueoCuentas bloqueo = new BloqueoCuentas(registry, 16, Duration.ofMillis(50));
+        bloqueo.eximir("5300000001"::equals);
+        CountDownLatch tomada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        // Otra cuenta de la misma franja la mantiene tomada
+        String vecina = otraCuentaDeLaFranja(bloqueo, "5300000001");
+        Thread duenio = new Thread(() -> bloqueo.conCuenta(vecina, () -> {
+            tomada.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        duenio.start();
+        try {
+            assertTrue(tomada.await(5, TimeUnit.SECONDS));
+            assertEquals("sin franja", bloqueo.conCuenta("5300000001", () -> "sin franja"));
+            assertThrows(IllegalStateException.class, () -> bloqueo.conCuenta(vecina, () -> "nunca"));
+        } finally {
+            liberar.countDown();
+            duenio.join();
+        }
+    }
+
+    private static String otraCuentaDeLaFranja(BloqueoCuentas bloqueo, String numeroCuenta) {
+        for (long n = 5300000002L; ; n++) {
+            if (bloqueo.franja(String.valueOf(n)) == bloqueo.franja(numeroCuenta)) {
+                return String.valueOf(n);
+            }
+        }
+    }
+
+    @Test
+    void testConstructor_franjasQueNoSonPotenciaDeDos_debeLanzarIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> new BloqueoCuentas(registry, 48, Duration.ofSeconds(1)));
+    }
+}
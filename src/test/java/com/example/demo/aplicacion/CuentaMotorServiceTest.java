@@ -0,0 +1,151 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dominio.modelo.CuentaAhorros;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CuentaMotorServiceTest {
+
+    private static final String ORIGEN = "5300000001";
+    private static final String DESTINO = "5300000002";
+    private static final String INACTIVA = "5300000003";
+
+    private DiarioSaldosEnMemoria diario;
+    private MotorSaldos motor;
+    private CuentaService cuentaService;
+    private CuentaMotorService servicio;
+
+    @BeforeEach
+    void setUp() {
+        diario = new DiarioSaldosEnMemoria();
+        diario.crearCuenta(ORIGEN, "100.00", EstadoCuenta.ACTIVA);
+        diario.crearCuenta(DESTINO, "0.00", EstadoCuenta.ACTIVA);
+        diario.crearCuenta(INACTIVA, "0.00", EstadoCuenta.INACTIVA);
+        motor = new MotorSaldos(diario, new SimpleMeterRegistry(), 2, 100, 100, 100, Duration.ofSeconds(5));
+        cuentaService = mock(CuentaService.class);
+        servicio = new CuentaMotorService(cuentaService, motor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        motor.cerrar();
+    }
+
+    private static Dinero dinero(String monto) {
+        return Dinero.of(new BigDecimal(monto));
+    }
+
+    @Test
+    void testTransferir_debeDebitarYAcreditarEnElMotor() {
+        servicio.transferir(ORIGEN, DESTINO, dinero("40"));
+
+        assertEquals(dinero("60"), motor.esperar(motor.saldo(ORIGEN)));
+        assertEquals(dinero("40"), motor.esperar(motor.saldo(DESTINO)));
+        verifyNoInteractions(cuentaService);
+    }
+
+    @Test
+    void testTransferir_destinoInactivo_debeRechazarSinDebitar() {
+        assertThrows(IllegalStateException.class, () -> servicio.transferir(ORIGEN, INACTIVA, dinero("40")));
+
+        assertEquals(dinero("100"), motor.esperar(motor.saldo(ORIGEN)));
+        assertTrue(diario.asientos().isEmpty());
+    }
+
+    @Test
+    void testTransferir_saldoInsuficiente_noDebeAcreditar() {
+        assertThrows(IllegalStateException.class, () -> servicio.transferir(ORIGEN, DESTINO, dinero("100.01")));
+
+        assertEquals(dinero("0"), motor.esperar(motor.saldo(DESTINO)));
+    }
+
+    @Test
+    void testTransferir_creditoSinRespuestaYRechazadoDespues_debeCompensarElDebito() throws Exception {
+        MotorSaldos conEsperaCorta = new MotorSaldos(diario, new SimpleMeterRegistry(), 2, 100, 100, 100, Duration.ofMillis(200));
+        CuentaMotorService servicioConEspera = new CuentaMotorService(cuentaService, conEsperaCorta);
+        diario.cuentaRetenida = DESTINO;
+        diario.fallarRetenida = true;
+        try {
+            assertThrows(IllegalStateException.class, () -> servicioConEspera.transferir(ORIGEN, DESTINO, dinero("40")));
+            diario.liberar.countDown();
+
+            // El crédito se rechaza al terminar: el débito se devuelve
+            assertEquals(dinero("100"), saldoEsperado(conEsperaCorta, ORIGEN, dinero("100")));
+            assertEquals(dinero("0"), conEsperaCorta.esperar(conEsperaCorta.saldo(DESTINO)));
+        } finally {
+            diario.liberar.countDown();
+            conEsperaCorta.cerrar();
+        }
+    }
+
+    @Test
+    void testTransferir_creditoSinRespuestaYAplicadoDespues_noDebeCompensar() throws Exception {
+        MotorSaldos conEsperaCorta = new MotorSaldos(diario, new SimpleMeterRegistry(), 2, 100, 100, 100, Duration.ofMillis(200));
+        CuentaMotorService servicioConEspera = new CuentaMotorService(cuentaService, conEsperaCorta);
+        diario.cuentaRetenida = DESTINO;
+        try {
+            assertThrows(IllegalStateException.class, () -> servicioConEspera.transferir(ORIGEN, DESTINO, dinero("40")));
+            diario.liberar.countDown();
+
+            assertEquals(dinero("40"), saldoEsperado(conEsperaCorta, DESTINO, dinero("40")));
+            assertEquals(dinero("60"), conEsperaCorta.esperar(conEsperaCorta.saldo(ORIGEN)));
+            assertEquals(2, diario.asientos().size());
+        } finally {
+            diario.liberar.countDown();
+            conEsperaCorta.cerrar();
+        }
+    }
+
+    // La conciliación es asíncrona: consulta el saldo hasta que llega al esperado (o vence el plazo)
+    private static Dinero saldoEsperado(MotorSaldos motor, String numeroCuenta, Dinero esperado) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Dinero saldo = motor.esperar(motor.saldo(numeroCuenta));
+        while (!saldo.equals(esperado) && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            saldo = motor.esperar(motor.saldo(numeroCuenta));
+        }
+        return saldo;
+    }
+
+    @Test
+    void testBuscarCuenta_debeDevolverElSaldoVigenteDelMotor() {
+        servicio.depositar(ORIGEN, dinero("5"));
+        ProductoFinanciero persistida = new CuentaAhorros(1L, 1L, ORIGEN, dinero("100"), EstadoCuenta.ACTIVA,
+                                                          LocalDateTime.now(), LocalDateTime.now(), false);
+        when(cuentaService.buscarCuentaPorNumero(ORIGEN)).thenReturn(Optional.of(persistida));
+
+        assertEquals(dinero("105"), servicio.buscarCuentaPorNumero(ORIGEN).orElseThrow().getSaldo());
+    }
+
+    @Test
+    void testCancelarCuenta_debeDelegarConLaCuentaConsolidadaYReanudarla() {
+        servicio.depositar(ORIGEN, dinero("5"));
+        doAnswer(inv -> {
+            // CuentaService ve el saldo vigente en productos_financieros
+            assertEquals(dinero("105"), diario.saldoPersistido(ORIGEN));
+            throw new IllegalStateException("Solo se pueden cancelar cuentas de ahorro con saldo en $0.");
+        }).when(cuentaService).cancelarCuenta(ORIGEN);
+
+        assertThrows(IllegalStateException.class, () -> servicio.cancelarCuenta(ORIGEN));
+
+        // Reanudada aunque la cancelación fallara
+        servicio.retirar(ORIGEN, dinero("105"));
+        assertEquals(dinero("0"), motor.esperar(motor.saldo(ORIGEN)));
+    }
+}
@@ -3,8 +3,8 @@ package com.example.demo.aplicacion;
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
 
-import com.example.demo.dominio.modelo.Cliente;
 import com.example.demo.dominio.modelo.CuentaAhorros;
 import com.example.demo.dominio.modelo.CuentaCorriente;
 import com.example.demo.dominio.modelo.ProductoFinanciero;
@@ -19,12 +19,17 @@ import org.mockito.ArgumentCaptor;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.Mockito.*;
@@ -38,6 +43,15 @@ class CuentaServiceTest {
     @Mock
     private ClienteRepositoryPort clienteRepository;
 
+    // Reintentos reales (sin espera) para verificar el comportamiento ante conflictos de versión
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ReintentoOptimista reintentoOptimista = new ReintentoOptimista(meterRegistry, 3, 0, 0);
+
+    @Spy
+    private BloqueoCuentas bloqueoCuentas = new BloqueoCuentas(meterRegistry, 16, Duration.ofSeconds(1));
+
     // Clase a probar (Inyección de Mocks)
     @InjectMocks
     private CuentaService cuentaService; // Asumiendo que el import es correcto
@@ -84,11 +98,8 @@ class CuentaServiceTest {
         // Arrange
         final TipoCuenta tipoAhorros = TipoCuenta.AHORROS;
         
-        // 1. Simular la búsqueda del Cliente
-        Cliente clienteMock = mock(Cliente.class);
-        when(clienteMock.getId()).thenReturn(CLIENTE_ID);
-        when(clienteRepository.buscarPorId(CLIENTE_ID))
-                .thenReturn(Optional.of(clienteMock));
+        // 1. Simular la verificación de existencia del Cliente
+        when(clienteRepository.existePorId(CLIENTE_ID)).thenReturn(true);
 
         // 2. Definir el captor para la Cuenta
         ArgumentCaptor<ProductoFinanciero> captor =
@@ -102,7 +113,8 @@ class CuentaServiceTest {
 
         // Assert
         // 1. Verificar la llamada a los repositorios
-        verify(clienteRepository, times(1)).buscarPorId(CLIENTE_ID);
+        verify(clienteRepository, times(1)).existePorId(CLIENTE_ID);
+        verify(clienteRepository, never()).buscarPorId(any());
         // 2. Verificar la llamada a guardar y CAPTURAR el objeto que se intentó guardar
         verify(cuentaRepository, times(1)).guardar(captor.capture());
 
@@ -112,6 +124,7 @@ class CuentaServiceTest {
         assertNotNull(guardada, "El objeto guardado no debe ser nulo.");
         assertTrue(guardada instanceof CuentaAhorros, "Debe ser una instancia de CuentaAhorros.");
         assertEquals(TipoCuenta.AHORROS, guardada.getTipoCuenta(), "El tipo de cuenta debe ser AHORROS.");
+        assertEquals(CLIENTE_ID, guardada.getClienteId(), "La cuenta debe quedar vinculada al cliente.");
         
         // 🔑 CORRECCIÓN CLAVE: Verificar que el objeto retornado por el servicio (result) 
         // es la MISMA INSTANCIA que fue capturada por el repositorio (guardada).
@@ -121,7 +134,7 @@ class CuentaServiceTest {
     @Test
     void testCrearCuenta_cuandoClienteNoExiste_debeLanzarExcepcion() {
         // Arrange
-        when(clienteRepository.buscarPorId(CLIENTE_ID)).thenReturn(Optional.empty());
+        when(clienteRepository.existePorId(CLIENTE_ID)).thenReturn(false);
 
         // Act & Assert
         // Si falla, el servicio lanza otra excepción que no es IllegalArgumentException
@@ -137,25 +150,50 @@ class CuentaServiceTest {
     // ----------------------------------------------------------------------------------
 
     @Test
-    void testDepositar_debeLlamarAlMetodoDepositarYGuardar() {
+    void testDepositar_debeAplicarMovimientoAtomicoSinCargarNiGuardar() {
         // Arrange
-        // 🔑 AÑADIR LA SIMULACIÓN DE BÚSQUEDA AQUÍ:
-        // Le decimos a Mockito que al buscar por NUMERO_CUENTA, devuelva nuestra instancia mutable.
-        when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA))
-                .thenReturn(Optional.of(cuentaConSaldo));
-        
+        // 🔑 El depósito es una única actualización condicional: el repositorio devuelve el saldo resultante.
         Dinero montoDeposito = Dinero.of(BigDecimal.valueOf(200.00));
+        when(cuentaRepository.aplicarMovimiento(NUMERO_CUENTA, montoDeposito))
+                .thenReturn(Optional.of(Dinero.of(BigDecimal.valueOf(1200.00))));
 
         // Act
         cuentaService.depositar(NUMERO_CUENTA, montoDeposito);
 
         // Assert
-        // Se verifica que se llamó a guardar (después de modificar el saldo de cuentaConSaldo)
-        verify(cuentaRepository, times(1)).guardar(cuentaConSaldo);
+        verify(cuentaRepository, times(1)).aplicarMovimiento(NUMERO_CUENTA, montoDeposito);
         
-        // Se verifica el nuevo saldo: 1000 + 200 = 1200
-        assertEquals(BigDecimal.valueOf(1200.00).setScale(2),
-                cuentaConSaldo.getSaldo().getMonto().setScale(2));
+        // Ya no se carga la cuenta ni se guarda la entidad completa
+        verify(cuentaRepository, never()).buscarPorNumero(anyString());
+        verify(cuentaRepository, never()).guardar(any());
+    }
+
+    @Test
+    void testDepositar_cuandoCuentaNoExiste_debeLanzarIllegalArgumentException() {
+        // Arrange: la actualización no afecta filas y la cuenta no existe
+        when(cuentaRepository.aplicarMovimiento(eq(NUMERO_CUENTA), any(Dinero.class)))
+                .thenReturn(Optional.empty());
+        when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> 
+            cuentaService.depositar(NUMERO_CUENTA, Dinero.of(BigDecimal.TEN))
+        );
+    }
+
+    @Test
+    void testDepositar_cuandoCuentaInactiva_debeLanzarIllegalStateException() {
+        // Arrange: la actualización no afecta filas porque la cuenta no está ACTIVA
+        cuentaConSaldo.inactivar();
+        when(cuentaRepository.aplicarMovimiento(eq(NUMERO_CUENTA), any(Dinero.class)))
+                .thenReturn(Optional.empty());
+        when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA)).thenReturn(Optional.of(cuentaConSaldo));
+
+        // Act & Assert
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> 
+            cuentaService.depositar(NUMERO_CUENTA, Dinero.of(BigDecimal.TEN))
+        );
+        assertEquals("La cuenta no está activa para realizar esta operación.", ex.getMessage());
     }
 
     // ----------------------------------------------------------------------------------
@@ -163,48 +201,97 @@ class CuentaServiceTest {
     // ----------------------------------------------------------------------------------
 
     @Test
-    void testRetirar_cuandoSaldoSuficiente_debeDisminuirSaldoYGuardar() {
+    void testRetirar_cuandoSaldoSuficiente_debeAplicarDeltaNegativo() {
         // Arrange
-        // 🔑 AÑADIR LA SIMULACIÓN DE BÚSQUEDA AQUÍ:
-        // Indicamos que al buscar por NUMERO_CUENTA, devuelva nuestra instancia mutable.
-        when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA))
-                .thenReturn(Optional.of(cuentaConSaldo));
-                
-        // cuentaConSaldo tiene 1000.00 al inicio de esta prueba, gracias al @BeforeEach
+        // 🔑 El retiro se envía como delta negativo; el repositorio devuelve 1000 - 500 = 500
+        when(cuentaRepository.aplicarMovimiento(NUMERO_CUENTA, MONTO_RETIRO.negar()))
+                .thenReturn(Optional.of(Dinero.of(BigDecimal.valueOf(500.00))));
         
         // Act
         cuentaService.retirar(NUMERO_CUENTA, MONTO_RETIRO);
 
         // Assert
-        // 1. Verificar la interacción con el repositorio
-        verify(cuentaRepository, times(1)).guardar(cuentaConSaldo);
-        
-        // 2. Verificar el nuevo saldo: 1000 - 500 = 500
-        assertEquals(BigDecimal.valueOf(500.00).setScale(2),
-                cuentaConSaldo.getSaldo().getMonto().setScale(2), 
-                "El saldo final debe ser 500.00 después del retiro.");
+        verify(cuentaRepository, times(1)).aplicarMovimiento(NUMERO_CUENTA, MONTO_RETIRO.negar());
+        verify(cuentaRepository, never()).buscarPorNumero(anyString());
+        verify(cuentaRepository, never()).guardar(any());
     }
 
     @Test
     void testRetirar_cuandoSaldoInsuficiente_debeLanzarIllegalStateException() {
-        // Arrange: cuentaConSaldo con 1000.00
+        // Arrange: cuentaConSaldo con 1000.00; la actualización condicional no afecta filas
+        Dinero montoExceso = Dinero.of(BigDecimal.valueOf(1001.00));
+        when(cuentaRepository.aplicarMovimiento(NUMERO_CUENTA, montoExceso.negar()))
+                .thenReturn(Optional.empty());
         
-        // 🔑 CLAVE: Añadir la simulación de la búsqueda
+        // 🔑 CLAVE: la cuenta solo se consulta para explicar el rechazo
         when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA))
                 .thenReturn(Optional.of(cuentaConSaldo));
-                
-        Dinero montoExceso = Dinero.of(BigDecimal.valueOf(1001.00));
 
         // Act & Assert
-        // Se espera que la lógica de dominio (CuentaAhorros.retirar) lance la excepción.
-        assertThrows(IllegalStateException.class, () -> {
+        // Se espera el mensaje de la lógica de dominio (CuentaAhorros.retirar).
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> {
             cuentaService.retirar(NUMERO_CUENTA, montoExceso);
         }, "La operación debe lanzar IllegalStateException por saldo insuficiente.");
+        assertTrue(ex.getMessage().startsWith("Saldo insuficiente"));
 
         // Verificar que NO se guardó (porque falló)
         verify(cuentaRepository, never()).guardar(any());
     }
 
+    // ----------------------------------------------------------------------------------
+    // PRUEBAS DE TRANSFERENCIA
+    // ----------------------------------------------------------------------------------
+
+    @Test
+    void testTransferir_debeBloquearAmbasCuentasYAplicarEnUnaSentencia() {
+        // Arrange: el repositorio devuelve las dos cuentas bloqueadas (orden por id)
+        when(cuentaRepository.bloquearCuentas(anyCollection()))
+                .thenReturn(List.of(cuentaConSaldo, cuentaVacia));
+
+        // Act
+        cuentaService.transferir(NUMERO_CUENTA, cuentaVacia.getNumeroCuenta(), MONTO_RETIRO);
+
+        // Assert
+        verify(cuentaRepository, times(1)).bloquearCuentas(anyCollection());
+        verify(cuentaRepository, times(1))
+                .aplicarTransferencia(NUMERO_CUENTA, cuentaVacia.getNumeroCuenta(), MONTO_RETIRO);
+        verify(cuentaRepository, never()).guardar(any());
+    }
+
+    @Test
+    void testTransferir_conSaldoInsuficiente_noDebeAplicarCambios() {
+        // Arrange: cuentaVacia (saldo 0) intenta transferir a cuentaConSaldo
+        when(cuentaRepository.bloquearCuentas(anyCollection()))
+                .thenReturn(List.of(cuentaConSaldo, cuentaVacia));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> 
+            cuentaService.transferir(cuentaVacia.getNumeroCuenta(), NUMERO_CUENTA, MONTO_RETIRO)
+        );
+        verify(cuentaRepository, never()).aplicarTransferencia(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testTransferir_cuandoDestinoNoExiste_debeLanzarIllegalArgumentException() {
+        // Arrange: solo se encuentra (y bloquea) la cuenta origen
+        when(cuentaRepository.bloquearCuentas(anyCollection()))
+                .thenReturn(List.of(cuentaConSaldo));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> 
+            cuentaService.transferir(NUMERO_CUENTA, "5399999999", MONTO_RETIRO)
+        );
+        verify(cuentaRepository, never()).aplicarTransferencia(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testTransferir_aLaMismaCuenta_debeLanzarIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> 
+            cuentaService.transferir(NUMERO_CUENTA, NUMERO_CUENTA, MONTO_RETIRO)
+        );
+        verify(cuentaRepository, never()).bloquearCuentas(anyCollection());
+    }
+
     // ----------------------------------------------------------------------------------
     // PRUEBAS DE CANCELACIÓN
     // ----------------------------------------------------------------------------------
@@ -223,6 +310,46 @@ class CuentaServiceTest {
         assertEquals(EstadoCuenta.CANCELADA, cuentaVacia.getEstado());
     }
 
+    @Test
+    void testCancelarCuenta_conConflictoDeVersion_debeReintentarConLecturaNueva() {
+        // Arrange: el primer guardado pierde la carrera; el segundo (con la cuenta releída) tiene éxito
+        when(cuentaRepository.buscarPorNumero(cuentaVacia.getNumeroCuenta()))
+                .thenAnswer(invocation -> Optional.of(new CuentaAhorros(
+                        CLIENTE_ID, 2L, "5300000002", SALDO_CERO, EstadoCuenta.ACTIVA,
+                        LocalDateTime.now(), LocalDateTime.now(), false)));
+        when(cuentaRepository.guardar(any(ProductoFinanciero.class)))
+                .thenThrow(new OptimisticLockingFailureException("versión desactualizada"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        cuentaService.cancelarCuenta(cuentaVacia.getNumeroCuenta());
+
+        // Assert
+        verify(cuentaRepository, times(2)).buscarPorNumero(cuentaVacia.getNumeroCuenta());
+        verify(cuentaRepository, times(2)).guardar(any(ProductoFinanciero.class));
+        assertEquals(1.0, meterRegistry.get("cuentas.concurrencia.conflictos")
+                .tag("operacion", "cancelarCuenta").counter().count());
+    }
+
+    @Test
+    void testActualizarEstadoCuenta_conConflictosPersistentes_debePropagarTrasAgotarIntentos() {
+        // Arrange
+        when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA))
+                .thenAnswer(invocation -> Optional.of(new CuentaAhorros(
+                        CLIENTE_ID, 1L, NUMERO_CUENTA, SALDO_INICIAL, EstadoCuenta.ACTIVA,
+                        LocalDateTime.now(), LocalDateTime.now(), false)));
+        when(cuentaRepository.guardar(any(ProductoFinanciero.class)))
+                .thenThrow(new OptimisticLockingFailureException("versión desactualizada"));
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () ->
+            cuentaService.actualizarEstadoCuenta(NUMERO_CUENTA, "INACTIVA")
+        );
+        verify(cuentaRepository, times(3)).guardar(any(ProductoFinanciero.class));
+        assertEquals(1.0, meterRegistry.get("cuentas.concurrencia.agotados")
+                .tag("operacion", "actualizarEstadoCuenta").counter().count());
+    }
+
     @Test
     void testCancelarCuentaAhorro_conSaldoNoCero_debeLanzarIllegalStateException() {
         // Arrange: Usamos cuentaConSaldo (1000.00)
@@ -286,6 +413,49 @@ class CuentaServiceTest {
         verify(cuentaRepository, times(1)).buscarPorNumero(NUMERO_CUENTA);
     }
 
+    // ----------------------------------------------------------------------------------
+    // PRUEBAS DE SALDO FRACCIONADO
+    // ----------------------------------------------------------------------------------
+
+    @Test
+    void testFraccionarSaldo_cuentaActiva_debeRepartirYDevolverLaCuenta() {
+        // Arrange
+        when(cuentaRepository.buscarPorNumero(NUMERO_CUENTA)).thenReturn(Optional.of(cuentaConSaldo));
+        when(cuentaRepository.fraccionarSaldo(NUMERO_CUENTA, 8)).thenReturn(true);
+
+        // Act
+        ProductoFinanciero resultado = cuentaService.fraccionarSaldo(NUMERO_CUENTA, 8);
+
+        // Assert: el saldo que ven los llamadores es el total
+        assertEquals(SALDO_INICIAL, resultado.getSaldo());
+        verify(cuentaRepository, times(1)).fraccionarSaldo(NUMERO_CUENTA, 8);
+    }
+
+    @Test
+    void testFraccionarSaldo_unaSolaFraccion_debeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> cuentaService.fraccionarSaldo(NUMERO_CUENTA, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> cuentaService.fraccionarSaldo(NUMERO_CUENTA, CuentaService.MAXIMO_FRACCIONES + 1));
+
+        verify(cuentaRepository, never()).fraccionarSaldo(anyString(), anyInt());
+    }
+
+    @Test
+    void testDepositar_cuentaFraccionada_noDebeTomarFranja() {
+        // Arrange
+        Dinero montoDeposito = Dinero.of(BigDecimal.valueOf(200.00));
+        when(cuentaRepository.tieneSaldoFraccionado(NUMERO_CUENTA)).thenReturn(true);
+        when(cuentaRepository.aplicarMovimiento(NUMERO_CUENTA, montoDeposito))
+                .thenReturn(Optional.of(Dinero.of(BigDecimal.valueOf(1200.00))));
+
+        // Act
+        cuentaService.depositar(NUMERO_CUENTA, montoDeposito);
+
+        // Assert: sin espera registrada en ninguna franja
+        verify(cuentaRepository, times(1)).aplicarMovimiento(NUMERO_CUENTA, montoDeposito);
+        assertEquals(0, meterRegistry.get("cuentas.bloqueo.espera").timers().stream().mapToLong(t -> t.count()).sum());
+    }
+
     // ----------------------------------------------------------------------------------
     // PRUEBAS DE ACTUALIZACIÓN DE ESTADO
     // ----------------------------------------------------------------------------------
@@ -0,0 +1,140 @@
+package com.example.demo.aplicacion;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.demo.dominio.modelo.AsientoSaldo;
+import com.example.demo.dominio.modelo.CuentaAhorros;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.out.DiarioSaldosPort;
+
+/**
+ * Diario de saldos para pruebas: productos_financieros y diario_saldos como mapas en memoria.
+ */
+class DiarioSaldosEnMemoria implements DiarioSaldosPort {
+
+    private final Map<String, ProductoFinanciero> cuentas = new ConcurrentHashMap<>();
+    private final List<AsientoSaldo> asientos = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    final AtomicInteger commits = new AtomicInteger();
+    volatile boolean fallar;
+    // Commits con asientos de esta cuenta: esperan 'liberar' y, si fallarRetenida, fallan
+    volatile String cuentaRetenida;
+    volatile boolean fallarRetenida;
+    final CountDownLatch liberar = new CountDownLatch(1);
+    volatile long cuentasFraccionadas;
+
+    void crearCuenta(String numeroCuenta, String saldo, EstadoCuenta estado) {
+        cuentas.put(numeroCuenta, new CuentaAhorros(1L, 1L, numeroCuenta, Dinero.of(new BigDecimal(saldo)), estado,
+                                                    LocalDateTime.now(), LocalDateTime.now(), false));
+    }
+
+    /** Saldo en "productos_financieros", sin asientos pendientes. */
+    Dinero saldoPersistido(String numeroCuenta) {
+        return cuentas.get(numeroCuenta).getSaldo();
+    }
+
+    synchronized List<AsientoSaldo> asientos() {
+        return List.copyOf(asientos);
+    }
+
+    /** Filas de "transacciones": los registros de los asientos confirmados. */
+    synchronized List<Transaccion> registros() {
+        return asientos.stream().map(AsientoSaldo::getRegistro).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public EscritorDiario abrirEscritor() {
+        return new EscritorDiario() {
+            @Override
+            public Optional<ProductoFinanciero> cargar(String numeroCuenta) {
+                ProductoFinanciero persistida = cuentas.get(numeroCuenta);
+                if (persistida == null) {
+                    return Optional.empty();
+                }
+                Dinero saldo = persistida.getSaldo();
+                for (AsientoSaldo asiento : asientos()) {
+                    if (asiento.getNumeroCuenta().equals(numeroCuenta)) {
+                        saldo = saldo.sumar(asiento.getDelta());
+                    }
+                }
+                return Optional.of(new CuentaAhorros(1L, 1L, numeroCuenta, saldo, persistida.getEstado(),
+                                                     LocalDateTime.now(), LocalDateTime.now(), false));
+            }
+
+            @Override
+            public void registrar(List<AsientoSaldo> nuevos) {
+                if (nuevos.stream().anyMatch(asiento -> asiento.getNumeroCuenta().equals(cuentaRetenida))) {
+                    try {
+                        liberar.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (fallarRetenida) {
+                        throw new IllegalStateException("conexión perdida");
+                    }
+                }
+                if (fallar) {
+                    throw new IllegalStateException("conexión perdida");
+                }
+                synchronized (DiarioSaldosEnMemoria.this) {
+                    nuevos.stream().map(AsientoSaldo::getRegistro).filter(Objects::nonNull)
+                        .forEach(registro -> registro.setId(ids.incrementAndGet()));
+                    asientos.addAll(nuevos);
+                }
+                commits.incrementAndGet();
+            }
+
+            @Override
+            public void consolidar(String numeroCuenta) {
+                consolidarSi(numeroCuenta);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public int consolidar() {
+        return consolidarSi(null);
+    }
+
+    @Override
+    public long cuentasFraccionadas() {
+        return cuentasFraccionadas;
+    }
+
+    private synchronized int consolidarSi(String soloCuenta) {
+        List<AsientoSaldo> restantes = new ArrayList<>();
+        List<String> actualizadas = new ArrayList<>();
+        for (AsientoSaldo asiento : asientos) {
+            String numero = asiento.getNumeroCuenta();
+            if (soloCuenta != null && !soloCuenta.equals(numero)) {
+                restantes.add(asiento);
+                continue;
+            }
+            ProductoFinanciero cuenta = cuentas.get(numero);
+            cuenta.setSaldo(cuenta.getSaldo().sumar(asiento.getDelta()));
+            if (!actualizadas.contains(numero)) {
+                actualizadas.add(numero);
+            }
+        }
+        asientos.clear();
+        asientos.addAll(restantes);
+        return actualizadas.size();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dominio.modelo.RegistroIdempotencia;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.out.ClaveIdempotenciaRepositoryPort;
+import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaServiceTest {
+
+    private static final String CLAVE = "cajero1:op-1";
+    private static final String DESCRIPCION = "CONSIGNACION|null|540000005|100";
+
+    @Mock
+    private ClaveIdempotenciaRepositoryPort claveRepository;
+
+    @Mock
+    private TransaccionRepositoryPort transaccionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotenciaService service;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotenciaService(claveRepository, transaccionRepository, new TransactionTemplate(transactionManager),
+            Duration.ofHours(24), Duration.ofSeconds(3), 1000, Duration.ofSeconds(5), false);
+        ejecuciones = new AtomicInteger();
+    }
+
+    private Transaccion consignacion(long id) {
+        Transaccion t = new Transaccion(TipoTransaccion.CONSIGNACION, Dinero.of(BigDecimal.valueOf(100)), "540000005");
+        t.setId(id);
+        return t;
+    }
+
+    private Supplier<List<Transaccion>> movimiento() {
+        return () -> {
+            ejecuciones.incrementAndGet();
+            return List.of(consignacion(10L));
+        };
+    }
+
+    @Test
+    void testEjecutar_primeraVez_debeReservarEjecutarYRegistrarLosIds() {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(true);
+
+        List<Transaccion> resultado = service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+
+        assertEquals(10L, resultado.get(0).getId());
+        assertEquals(1, ejecuciones.get());
+        verify(claveRepository).completar(CLAVE, List.of(10L));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testEjecutar_reintento_debeDevolverElMismoResultadoSinEjecutar() {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(true);
+
+        List<Transaccion> primera = service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+        List<Transaccion> segunda = service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+
+        assertSame(primera, segunda);
+        assertEquals(1, ejecuciones.get());
+        verify(claveRepository, times(1)).reservar(any(), any(), any());
+    }
+
+    @Test
+    void testEjecutar_mismaClaveConOtrosDatos_debeLanzarIllegalArgument() {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(true);
+        service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> service.ejecutar(CLAVE, "CONSIGNACION|null|540000005|999", movimiento()));
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    void testEjecutar_duplicadosSimultaneos_debenEsperarLaPrimeraEjecucion() throws Exception {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(true);
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Supplier<List<Transaccion>> lento = () -> {
+            ejecuciones.incrementAndGet();
+            enCurso.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(consignacion(10L));
+        };
+
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<Transaccion>> primera = hilos.submit(() -> service.ejecutar(CLAVE, DESCRIPCION, lento));
+            assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+            List<Future<List<Transaccion>>> duplicados = List.of(
+                hilos.submit(() -> service.ejecutar(CLAVE, DESCRIPCION, lento)),
+                hilos.submit(() -> service.ejecutar(CLAVE, DESCRIPCION, lento)),
+                hilos.submit(() -> service.ejecutar(CLAVE, DESCRIPCION, lento)));
+            liberar.countDown();
+
+            Long id = primera.get(5, TimeUnit.SECONDS).get(0).getId();
+            for (Future<List<Transaccion>> duplicado : duplicados) {
+                assertEquals(id, duplicado.get(5, TimeUnit.SECONDS).get(0).getId());
+            }
+            assertEquals(1, ejecuciones.get());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void testEjecutar_claveRegistradaEnBaseDeDatos_debeReconstruirElResultadoSinEjecutar() {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(false);
+        // Huella = SHA-256 de la descripción: se obtiene de una primera reserva con otra clave
+        String[] huella = new String[1];
+        when(claveRepository.reservar(eq("otra"), anyString(), any())).thenAnswer(inv -> {
+            huella[0] = inv.getArgument(1);
+            return true;
+        });
+        service.ejecutar("otra", DESCRIPCION, movimiento());
+        when(claveRepository.buscar(CLAVE)).thenReturn(Optional.of(new RegistroIdempotencia(CLAVE, huella[0], List.of(10L))));
+        when(transaccionRepository.buscarPorIds(List.of(10L))).thenReturn(List.of(consignacion(10L)));
+
+        List<Transaccion> resultado = service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+
+        assertEquals(10L, resultado.get(0).getId());
+        assertEquals(1, ejecuciones.get()); // solo la de "otra"
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testEjecutar_movimientoFallido_debeLiberarLaClave() {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(true);
+        Supplier<List<Transaccion>> fallido = () -> {
+            throw new IllegalStateException("Saldo insuficiente.");
+        };
+
+        assertThrows(IllegalStateException.class, () -> service.ejecutar(CLAVE, DESCRIPCION, fallido));
+        service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+
+        assertEquals(1, ejecuciones.get());
+        verify(claveRepository, times(2)).reservar(any(), any(), any());
+    }
+
+    @Test
+    void testEjecutar_conMotorDeSaldos_debeRechazarSinReservarNiEjecutar() {
+        IdempotenciaService conMotor = new IdempotenciaService(claveRepository, transaccionRepository,
+            new TransactionTemplate(transactionManager), Duration.ofHours(24), Duration.ofSeconds(3), 1000,
+            Duration.ofSeconds(5), true);
+
+        assertThrows(IllegalStateException.class, () -> conMotor.ejecutar(CLAVE, DESCRIPCION, movimiento()));
+
+        assertEquals(0, ejecuciones.get());
+        verifyNoInteractions(claveRepository, transactionManager);
+    }
+
+    @Test
+    void testAvanzarRueda_debeSacarDeMemoriaLasClavesVencidas() {
+        when(claveRepository.reservar(eq(CLAVE), anyString(), any())).thenReturn(true);
+        service.ejecutar(CLAVE, DESCRIPCION, movimiento());
+        assertEquals(1, service.enMemoria());
+
+        for (int i = 0; i < 4; i++) {
+            service.avanzarRueda();
+        }
+
+        assertEquals(0, service.enMemoria());
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dominio.modelo.CuentaAhorros;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.ResultadoMovimiento;
+import com.example.demo.dominio.modelo.SolicitudMovimiento;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.out.CuentaRepositoryPort;
+import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LoteTransaccionesServiceTest {
+
+    private static final String CUENTA_A = "5300000001";
+    private static final String CUENTA_B = "5300000002";
+    private static final String CUENTA_INACTIVA = "5300000003";
+
+    @Mock
+    private CuentaRepositoryPort cuentaRepository;
+
+    @Mock
+    private TransaccionRepositoryPort transaccionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong siguienteId = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() {
+        // Cada bloqueo devuelve el estado "persistido": A con 100 y B con 0
+        when(cuentaRepository.bloquearCuentas(any())).thenAnswer(inv -> {
+            Collection<String> numeros = inv.getArgument(0);
+            List<ProductoFinanciero> cuentas = new ArrayList<>();
+            for (String numero : numeros) {
+                if (CUENTA_A.equals(numero)) {
+                    cuentas.add(cuenta(CUENTA_A, "100.00", EstadoCuenta.ACTIVA));
+                } else if (CUENTA_B.equals(numero)) {
+                    cuentas.add(cuenta(CUENTA_B, "0.00", EstadoCuenta.ACTIVA));
+                } else if (CUENTA_INACTIVA.equals(numero)) {
+                    cuentas.add(cuenta(CUENTA_INACTIVA, "50.00", EstadoCuenta.INACTIVA));
+                }
+            }
+            return cuentas;
+        });
+        when(transaccionRepository.guardarMultiples(anyList())).thenAnswer(inv -> {
+            List<Transaccion> registros = inv.getArgument(0);
+            registros.forEach(t -> t.setId(siguienteId.getAndIncrement()));
+            return registros;
+        });
+    }
+
+    private LoteTransaccionesService servicio(int tamanoBloque) {
+        return new LoteTransaccionesService(cuentaRepository, transaccionRepository,
+            new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), tamanoBloque, false);
+    }
+
+    private static ProductoFinanciero cuenta(String numero, String saldo, EstadoCuenta estado) {
+        return new CuentaAhorros(1L, 1L, numero, Dinero.of(new BigDecimal(saldo)), estado,
+                                 LocalDateTime.now(), LocalDateTime.now(), false);
+    }
+
+    private static SolicitudMovimiento movimiento(String tipo, String origen, String destino, String monto) {
+        return new SolicitudMovimiento(tipo, origen, destino, monto == null ? null : new BigDecimal(monto));
+    }
+
+    private static List<ResultadoMovimiento> procesar(LoteTransaccionesService servicio, SolicitudMovimiento... movimientos) {
+        List<ResultadoMovimiento> resultados = new ArrayList<>();
+        servicio.procesar(List.of(movimientos).iterator(), resultados::add);
+        return resultados;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Dinero> deltasAplicados() {
+        ArgumentCaptor<Map<String, Dinero>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(cuentaRepository).aplicarDeltas(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void testProcesar_debeAplicarEnOrdenYAgruparUnDeltaPorCuenta() {
+        List<ResultadoMovimiento> resultados = procesar(servicio(500),
+            movimiento("RETIRO", CUENTA_A, null, "30"),
+            movimiento("transferencia", CUENTA_A, CUENTA_B, "50"),
+            movimiento("CONSIGNACION", null, CUENTA_B, "5"));
+
+        assertTrue(resultados.stream().allMatch(ResultadoMovimiento::isAplicado));
+        assertEquals(List.of(0L, 1L, 2L), resultados.stream().map(ResultadoMovimiento::getIndice).collect(Collectors.toList()));
+        assertEquals(2, resultados.get(1).getTransacciones().size());
+        assertEquals(TipoTransaccion.TRANSFERENCIA_CREDITO, resultados.get(1).getTransacciones().get(1).getTipo());
+        // Cada registro lleva el saldo de su cuenta después de su movimiento, en el orden del lote
+        assertEquals(Dinero.of(new BigDecimal("70")), resultados.get(0).getTransacciones().get(0).getSaldoResultante());
+        assertEquals(Dinero.of(new BigDecimal("20")), resultados.get(1).getTransacciones().get(0).getSaldoResultante());
+        assertEquals(Dinero.of(new BigDecimal("50")), resultados.get(1).getTransacciones().get(1).getSaldoResultante());
+        assertEquals(Dinero.of(new BigDecimal("55")), resultados.get(2).getTransacciones().get(0).getSaldoResultante());
+
+        // Un solo bloqueo y una sola escritura por cuenta con el neto de sus movimientos
+        verify(cuentaRepository, times(1)).bloquearCuentas(any());
+        Map<String, Dinero> deltas = deltasAplicados();
+        assertEquals(Dinero.of(new BigDecimal("-80")), deltas.get(CUENTA_A));
+        assertEquals(Dinero.of(new BigDecimal("55")), deltas.get(CUENTA_B));
+        verify(transaccionRepository, times(1)).guardarMultiples(anyList());
+    }
+
+    @Test
+    void testProcesar_movimientosRechazados_noDebenAfectarALosDemas() {
+        List<ResultadoMovimiento> resultados = procesar(servicio(500),
+            movimiento("RETIRO", CUENTA_A, null, "80"),
+            movimiento("RETIRO", CUENTA_A, null, "30"),           // saldo insuficiente tras el anterior
+            movimiento("CONSIGNACION", null, "9999999999", "10"), // cuenta inexistente
+            movimiento("CONSIGNACION", null, CUENTA_INACTIVA, "10"),
+            movimiento("PRESTAMO", CUENTA_A, null, "10"),
+            movimiento("RETIRO", CUENTA_A, null, null),
+            movimiento("TRANSFERENCIA", CUENTA_A, CUENTA_A, "1"),
+            movimiento("RETIRO", CUENTA_A, null, "20"));
+
+        assertEquals(List.of(true, false, false, false, false, false, false, true),
+            resultados.stream().map(ResultadoMovimiento::isAplicado).collect(Collectors.toList()));
+        assertTrue(resultados.get(1).getError().contains("Saldo insuficiente"));
+        assertTrue(resultados.get(2).getError().contains("no encontrada"));
+        assertTrue(resultados.get(3).getError().contains("no está activa"));
+        assertEquals(Map.of(CUENTA_A, Dinero.of(new BigDecimal("-100"))), deltasAplicados());
+    }
+
+    @Test
+    void testProcesar_debeDividirEnBloquesConSuPropiaTransaccion() {
+        List<ResultadoMovimiento> resultados = procesar(servicio(2),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"));
+
+        assertEquals(5, resultados.size());
+        assertEquals(4L, resultados.get(4).getIndice());
+        verify(cuentaRepository, times(3)).bloquearCuentas(any());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void testProcesar_falloTecnico_debeRechazarSoloElBloqueRevertido() {
+        doThrow(new IllegalStateException("conexión perdida"))
+            .doReturn(List.of(cuenta(CUENTA_B, "0.00", EstadoCuenta.ACTIVA)))
+            .when(cuentaRepository).bloquearCuentas(any());
+
+        List<ResultadoMovimiento> resultados = procesar(servicio(1),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"),
+            movimiento("CONSIGNACION", null, CUENTA_B, "1"));
+
+        assertFalse(resultados.get(0).isAplicado());
+        assertTrue(resultados.get(0).getError().startsWith("Bloque revertido"));
+        assertTrue(resultados.get(1).isAplicado());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testProcesar_errorDeLectura_debeAplicarLoLeidoYPropagarElError() {
+        Iterator<SolicitudMovimiento> entrada = new Iterator<>() {
+            private int leidos;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SolicitudMovimiento next() {
+                if (leidos++ == 2) {
+                    throw new IllegalStateException("JSON mal formado");
+                }
+                return movimiento("CONSIGNACION", null, CUENTA_B, "1");
+            }
+        };
+        List<ResultadoMovimiento> resultados = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> servicio(500).procesar(entrada, resultados::add));
+
+        assertEquals(2, resultados.size());
+        assertEquals(Map.of(CUENTA_B, Dinero.of(new BigDecimal("2"))), deltasAplicados());
+    }
+
+    @Test
+    void testProcesar_conMotorDeSaldos_debeRechazarSinTocarCuentas() {
+        LoteTransaccionesService servicio = new LoteTransaccionesService(cuentaRepository, transaccionRepository,
+            new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 500, true);
+
+        assertThrows(IllegalStateException.class,
+            () -> procesar(servicio, movimiento("CONSIGNACION", null, CUENTA_B, "1")));
+        verifyNoInteractions(cuentaRepository, transaccionRepository);
+    }
+}
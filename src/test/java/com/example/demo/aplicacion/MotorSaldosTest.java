@@ -0,0 +1,141 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MotorSaldosTest {
+
+    private static final String CUENTA = "5300000001";
+    private static final String CUENTA_INACTIVA = "5300000002";
+
+    private DiarioSaldosEnMemoria diario;
+    private MotorSaldos motor;
+
+    @BeforeEach
+    void setUp() {
+        diario = new DiarioSaldosEnMemoria();
+        diario.crearCuenta(CUENTA, "100.00", EstadoCuenta.ACTIVA);
+        diario.crearCuenta(CUENTA_INACTIVA, "50.00", EstadoCuenta.INACTIVA);
+        motor = nuevoMotor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        motor.cerrar();
+    }
+
+    private MotorSaldos nuevoMotor() {
+        return new MotorSaldos(diario, new SimpleMeterRegistry(), 4, 1000, 1000, 1000, Duration.ofSeconds(5));
+    }
+
+    private static Dinero dinero(String monto) {
+        return Dinero.of(new BigDecimal(monto));
+    }
+
+    @Test
+    void testInicio_conCuentasFraccionadas_debeFallar() {
+        diario.cuentasFraccionadas = 2;
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, this::nuevoMotor);
+        assertTrue(e.getMessage().contains("2 cuentas"));
+    }
+
+    @Test
+    void testMovimientos_debenRegistrarseEnElDiarioAntesDeConfirmar() {
+        assertEquals(dinero("150"), motor.esperar(motor.depositar(CUENTA, dinero("50"))));
+        assertEquals(dinero("120"), motor.esperar(motor.retirar(CUENTA, dinero("30"))));
+
+        assertEquals(2, diario.asientos().size());
+        assertEquals(dinero("-30"), diario.asientos().get(1).getDelta());
+        // El saldo persistido no cambia hasta la consolidación
+        assertEquals(dinero("100"), diario.saldoPersistido(CUENTA));
+
+        motor.consolidar();
+        assertEquals(dinero("120"), diario.saldoPersistido(CUENTA));
+        assertTrue(diario.asientos().isEmpty());
+        assertEquals(dinero("120"), motor.esperar(motor.saldo(CUENTA)));
+    }
+
+    @Test
+    void testMovimientos_rechazados_noDebenGenerarAsientos() {
+        IllegalStateException saldo = assertThrows(IllegalStateException.class,
+            () -> motor.esperar(motor.retirar(CUENTA, dinero("100.01"))));
+        assertTrue(saldo.getMessage().contains("Saldo insuficiente"));
+        assertThrows(IllegalArgumentException.class, () -> motor.esperar(motor.depositar("9999999999", dinero("1"))));
+        assertThrows(IllegalStateException.class, () -> motor.esperar(motor.depositar(CUENTA_INACTIVA, dinero("1"))));
+
+        assertTrue(diario.asientos().isEmpty());
+        assertEquals(dinero("100"), motor.esperar(motor.saldo(CUENTA)));
+    }
+
+    @Test
+    void testReinicio_debeRecuperarElSaldoDesdeElDiario() {
+        motor.esperar(motor.depositar(CUENTA, dinero("25")));
+        motor.cerrar();
+
+        motor = nuevoMotor();
+
+        assertEquals(dinero("125"), motor.esperar(motor.saldo(CUENTA)));
+        assertEquals(dinero("5"), motor.esperar(motor.retirar(CUENTA, dinero("120"))));
+    }
+
+    @Test
+    void testFalloDelDiario_debeRechazarElGrupoYRecargarLaCuenta() {
+        motor.esperar(motor.depositar(CUENTA, dinero("10")));
+        diario.fallar = true;
+
+        assertThrows(IllegalStateException.class, () -> motor.esperar(motor.depositar(CUENTA, dinero("500"))));
+
+        diario.fallar = false;
+        // El depósito no registrado no cuenta para el saldo: la cuenta se recargó desde el diario
+        assertEquals(dinero("110"), motor.esperar(motor.saldo(CUENTA)));
+        assertThrows(IllegalStateException.class, () -> motor.esperar(motor.retirar(CUENTA, dinero("111"))));
+    }
+
+    @Test
+    void testSuspender_debeConsolidarYRechazarMovimientosHastaReanudar() {
+        motor.esperar(motor.depositar(CUENTA, dinero("10")));
+
+        motor.esperar(motor.suspender(CUENTA));
+
+        assertEquals(dinero("110"), diario.saldoPersistido(CUENTA));
+        assertThrows(IllegalStateException.class, () -> motor.esperar(motor.depositar(CUENTA, dinero("1"))));
+        // Cambio directo en productos_financieros mientras está suspendida
+        diario.crearCuenta(CUENTA, "110.00", EstadoCuenta.INACTIVA);
+        motor.esperar(motor.reanudar(CUENTA));
+        assertThrows(IllegalStateException.class, () -> motor.esperar(motor.verificarActiva(CUENTA)));
+    }
+
+    @Test
+    void testConcurrencia_debeAplicarTodosLosMovimientosAgrupandoCommits() throws Exception {
+        int hilos = 8;
+        int movimientosPorHilo = 500;
+        List<CompletableFuture<Void>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            tareas.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < movimientosPorHilo; i++) {
+                    motor.esperar(motor.depositar(CUENTA, dinero("1")));
+                }
+            }));
+        }
+        CompletableFuture.allOf(tareas.toArray(CompletableFuture[]::new)).get();
+
+        assertEquals(dinero("4100"), motor.esperar(motor.saldo(CUENTA)));
+        assertEquals(hilos * movimientosPorHilo, diario.asientos().size());
+        assertTrue(diario.commits.get() <= hilos * movimientosPorHilo);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RuedaTemporalTest {
+
+    @Test
+    void testAvanzar_debeVencerCadaElementoTrasElTtl() {
+        List<String> vencidos = new ArrayList<>();
+        RuedaTemporal<String> rueda = new RuedaTemporal<>(Duration.ofSeconds(3), Duration.ofSeconds(1), vencidos::add);
+        assertEquals(4, rueda.cantidadRanuras());
+
+        rueda.programar("a");
+        rueda.avanzar();
+        rueda.programar("b");
+        rueda.avanzar();
+        rueda.avanzar();
+        assertTrue(vencidos.isEmpty());
+
+        rueda.avanzar(); // 4 ticks desde "a"
+        assertEquals(List.of("a"), vencidos);
+
+        rueda.avanzar(); // 4 ticks desde "b"
+        assertEquals(List.of("a", "b"), vencidos);
+
+        // Una vuelta completa más no vuelve a vencerlos
+        for (int i = 0; i < rueda.cantidadRanuras(); i++) {
+            rueda.avanzar();
+        }
+        assertEquals(2, vencidos.size());
+    }
+
+    @Test
+    void testConstructor_tickMayorQueTtl_debeLanzarIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new RuedaTemporal<String>(Duration.ofSeconds(1), Duration.ofSeconds(2), k -> { }));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.demo.dominio.modelo.CuentaAhorros;
+import com.example.demo.dominio.modelo.ProductoFinanciero;
+import com.example.demo.dominio.modelo.PuntoSaldo;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.port.in.GestionCuentaPort;
+import com.example.demo.dominio.port.out.PuntosControlSaldoPort;
+
+@ExtendWith(MockitoExtension.class)
+class SaldoHistoricoServiceTest {
+
+    private static final String CUENTA = "540000005";
+    private static final ZoneId ZONA = ZoneId.of("America/Bogota");
+    private static final LocalDateTime AHORA = LocalDateTime.of(2026, 3, 10, 12, 0);
+
+    @Mock
+    private PuntosControlSaldoPort puntosControl;
+
+    @Mock
+    private GestionCuentaPort cuentaService;
+
+    private SaldoHistoricoService service;
+
+    @BeforeEach
+    void setUp() {
+        Clock reloj = Clock.fixed(AHORA.atZone(ZONA).toInstant(), ZONA);
+        service = new SaldoHistoricoService(puntosControl, cuentaService, true, reloj);
+    }
+
+    private void cuentaConSaldo(long saldo) {
+        ProductoFinanciero cuenta = new CuentaAhorros(1L, 10L, CUENTA, dinero(saldo),
+            ProductoFinanciero.EstadoCuenta.ACTIVA, AHORA, AHORA, false);
+        when(cuentaService.buscarCuentaPorNumero(CUENTA)).thenReturn(Optional.of(cuenta));
+    }
+
+    private static Dinero dinero(long monto) {
+        return Dinero.of(BigDecimal.valueOf(monto));
+    }
+
+    private static PuntoSaldo punto(int mes, int dia, long saldo) {
+        return new PuntoSaldo(LocalDate.of(2026, mes, dia), dinero(saldo));
+    }
+
+    private static LocalDateTime inicio(int mes, int dia) {
+        return LocalDate.of(2026, mes, dia).atStartOfDay();
+    }
+
+    @Test
+    void testSaldoEn_conCierreAnterior_debeSumarLosMovimientosDesdeEseCierre() {
+        cuentaConSaldo(9999);
+        LocalDateTime instante = LocalDateTime.of(2026, 3, 5, 10, 0);
+        when(puntosControl.anterior(CUENTA, LocalDate.of(2026, 3, 5))).thenReturn(Optional.of(punto(3, 3, 1000)));
+        when(puntosControl.sumaMovimientos(CUENTA, inicio(3, 4), instante)).thenReturn(dinero(50));
+
+        assertEquals(dinero(1050), service.saldoEn(CUENTA, instante));
+    }
+
+    @Test
+    void testSaldoEn_soloConCierrePosterior_debeDescontarLosMovimientosHastaEseCierre() {
+        cuentaConSaldo(9999);
+        LocalDateTime instante = LocalDateTime.of(2026, 3, 5, 10, 0);
+        when(puntosControl.siguiente(CUENTA, LocalDate.of(2026, 3, 5))).thenReturn(Optional.of(punto(3, 7, 800)));
+        when(puntosControl.sumaMovimientos(CUENTA, instante, inicio(3, 8))).thenReturn(dinero(300));
+
+        assertEquals(dinero(500), service.saldoEn(CUENTA, instante));
+    }
+
+    @Test
+    void testSaldoEn_sinCierres_debeDescontarDelSaldoActual() {
+        cuentaConSaldo(2000);
+        LocalDateTime instante = LocalDateTime.of(2026, 3, 9, 8, 0);
+        when(puntosControl.sumaMovimientos(CUENTA, instante, AHORA)).thenReturn(dinero(200));
+
+        assertEquals(dinero(1800), service.saldoEn(CUENTA, instante));
+    }
+
+    @Test
+    void testSerieSaldos_debeArrastrarLosCierresYCalcularLosDiasSinRegistrar() {
+        cuentaConSaldo(9999);
+        // Inicio: cierre del 20/02 sin movimientos hasta el 01/03
+        when(puntosControl.anterior(CUENTA, LocalDate.of(2026, 3, 1))).thenReturn(Optional.of(punto(2, 20, 100)));
+        when(puntosControl.sumaMovimientos(CUENTA, inicio(2, 21), inicio(3, 1))).thenReturn(Dinero.CERO);
+        when(puntosControl.ultimoDiaRegistrado()).thenReturn(Optional.of(LocalDate.of(2026, 3, 8)));
+        when(puntosControl.entre(CUENTA, LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 8)))
+            .thenReturn(List.of(punto(3, 2, 150), punto(3, 5, 120), punto(3, 8, 90)));
+        // Los intervalos que terminan después del último día registrado parten del cierre del 08/03
+        when(puntosControl.anterior(CUENTA, LocalDate.of(2026, 3, 10))).thenReturn(Optional.of(punto(3, 8, 90)));
+        when(puntosControl.sumaMovimientos(CUENTA, inicio(3, 9), inicio(3, 10))).thenReturn(dinero(5));
+        when(puntosControl.anterior(CUENTA, LocalDate.of(2026, 3, 11))).thenReturn(Optional.of(punto(3, 8, 90)));
+        when(puntosControl.sumaMovimientos(CUENTA, inicio(3, 9), inicio(3, 11))).thenReturn(dinero(25));
+
+        // 'hasta' posterior a hoy: la serie termina el 10/03
+        List<PuntoSaldo> serie = service.serieSaldos(CUENTA, LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 20), 3);
+
+        assertEquals(4, serie.size());
+        assertEquals(LocalDate.of(2026, 3, 3), serie.get(0).getDia());
+        assertEquals(dinero(150), serie.get(0).getSaldo());
+        assertEquals(LocalDate.of(2026, 3, 6), serie.get(1).getDia());
+        assertEquals(dinero(120), serie.get(1).getSaldo());
+        assertEquals(LocalDate.of(2026, 3, 9), serie.get(2).getDia());
+        assertEquals(dinero(95), serie.get(2).getSaldo());
+        assertEquals(LocalDate.of(2026, 3, 10), serie.get(3).getDia());
+        assertEquals(dinero(115), serie.get(3).getSaldo());
+    }
+
+    @Test
+    void testSerieSaldos_conDemasiadosPuntosOIntervaloInvalido_debeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class,
+            () -> service.serieSaldos(CUENTA, LocalDate.of(2020, 1, 1), LocalDate.of(2026, 3, 10), 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.serieSaldos(CUENTA, LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 10), 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.serieSaldos(CUENTA, LocalDate.of(2026, 3, 10), LocalDate.of(2026, 3, 1), 1));
+        verifyNoInteractions(puntosControl, cuentaService);
+    }
+
+    @Test
+    void testSaldoEn_cuentaInexistente_debeLanzarExcepcion() {
+        when(cuentaService.buscarCuentaPorNumero(CUENTA)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> service.saldoEn(CUENTA, AHORA));
+    }
+
+    @Test
+    void testDeshabilitado_noDebeConsultarNiRegistrar() {
+        SaldoHistoricoService deshabilitado = new SaldoHistoricoService(puntosControl, cuentaService, false,
+            Clock.fixed(AHORA.atZone(ZONA).toInstant(), ZONA));
+
+        assertThrows(IllegalStateException.class, () -> deshabilitado.saldoEn(CUENTA, AHORA));
+        deshabilitado.registrarSaldosDiarios();
+        verifyNoInteractions(puntosControl, cuentaService);
+    }
+
+    @Test
+    void testRegistrarSaldosDiarios_debeRegistrarHastaHoy() {
+        when(puntosControl.registrarHasta(LocalDate.of(2026, 3, 10))).thenReturn(42);
+
+        service.registrarSaldosDiarios();
+
+        verify(puntosControl).registrarHasta(LocalDate.of(2026, 3, 10));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.aplicacion;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TransaccionMotorServiceTest {
+
+    private static final String ORIGEN = "5400000001";
+    private static final String DESTINO = "5400000002";
+
+    private DiarioSaldosEnMemoria diario;
+    private MotorSaldos motor;
+    private TransaccionService transaccionService;
+    private TransaccionMotorService servicio;
+
+    @BeforeEach
+    void setUp() {
+        diario = new DiarioSaldosEnMemoria();
+        diario.crearCuenta(ORIGEN, "100.00", EstadoCuenta.ACTIVA);
+        diario.crearCuenta(DESTINO, "0.00", EstadoCuenta.ACTIVA);
+        motor = new MotorSaldos(diario, new SimpleMeterRegistry(), 2, 100, 100, 100, Duration.ofSeconds(5));
+        transaccionService = mock(TransaccionService.class);
+        servicio = new TransaccionMotorService(new CuentaMotorService(mock(CuentaService.class), motor), transaccionService, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        diario.liberar.countDown();
+        motor.cerrar();
+    }
+
+    private static Dinero dinero(String monto) {
+        return Dinero.of(new BigDecimal(monto));
+    }
+
+    @Test
+    void testConsignar_debeRegistrarLaTransaccionEnElMismoCommitQueElAsiento() {
+        Transaccion registro = servicio.consignar(DESTINO, dinero("25"));
+
+        assertNotNull(registro.getId());
+        assertEquals(dinero("25"), registro.getSaldoResultante());
+        assertEquals(1, diario.asientos().size());
+        assertSame(registro, diario.asientos().get(0).getRegistro());
+        assertEquals(1, diario.commits.get());
+        verifyNoInteractions(transaccionService);
+    }
+
+    @Test
+    void testRetirar_falloDelDiario_noDebeDejarNiSaldoNiRegistro() {
+        diario.fallar = true;
+
+        assertThrows(IllegalStateException.class, () -> servicio.retirar(ORIGEN, dinero("30")));
+
+        diario.fallar = false;
+        assertTrue(diario.registros().isEmpty());
+        assertEquals(dinero("100"), motor.esperar(motor.saldo(ORIGEN)));
+    }
+
+    @Test
+    void testTransferir_debeRegistrarDebitoYCreditoConElSaldoDeCadaCuenta() {
+        List<Transaccion> registros = servicio.transferir(ORIGEN, DESTINO, dinero("40"));
+
+        assertEquals(TipoTransaccion.TRANSFERENCIA_DEBITO, registros.get(0).getTipo());
+        assertEquals(dinero("60"), registros.get(0).getSaldoResultante());
+        assertEquals(TipoTransaccion.TRANSFERENCIA_CREDITO, registros.get(1).getTipo());
+        assertEquals(dinero("40"), registros.get(1).getSaldoResultante());
+        assertEquals(registros, diario.registros());
+    }
+
+    @Test
+    void testTransferir_creditoRechazado_debeRegistrarLaDevolucionEmparejadaConElDebito() {
+        diario.liberar.countDown();
+        diario.cuentaRetenida = DESTINO;
+        diario.fallarRetenida = true;
+
+        assertThrows(IllegalStateException.class, () -> servicio.transferir(ORIGEN, DESTINO, dinero("40")));
+
+        assertEquals(dinero("100"), motor.esperar(motor.saldo(ORIGEN)));
+        List<Transaccion> registros = diario.registros();
+        assertEquals(2, registros.size());
+        Transaccion debito = registros.get(0);
+        Transaccion devolucion = registros.get(1);
+        assertEquals(TipoTransaccion.TRANSFERENCIA_DEBITO, debito.getTipo());
+        assertEquals(dinero("60"), debito.getSaldoResultante());
+        // Misma clave que el débito que cancela (origen, destino, monto), como un crédito lo sería
+        assertEquals(TipoTransaccion.TRANSFERENCIA_REVERSO, devolucion.getTipo());
+        assertEquals(ORIGEN, devolucion.getNumeroCuentaOrigen());
+        assertEquals(DESTINO, devolucion.getNumeroCuentaDestino());
+        assertEquals(debito.getMonto(), devolucion.getMonto());
+        assertEquals(dinero("100"), devolucion.getSaldoResultante());
+    }
+
+    @Test
+    void testTransferir_creditoRechazado_historialDeCadaCuentaDebeCuadrarConSuSaldo() {
+        diario.liberar.countDown();
+        diario.cuentaRetenida = DESTINO;
+        diario.fallarRetenida = true;
+
+        assertThrows(IllegalStateException.class, () -> servicio.transferir(ORIGEN, DESTINO, dinero("40")));
+        diario.fallarRetenida = false;
+
+        // Ambos registros mueven solo el origen: el destino no tiene movimientos propios
+        assertTrue(diario.registros().stream().allMatch(t -> ORIGEN.equals(t.getCuentaMovimiento())));
+        Dinero netoOrigen = diario.registros().stream()
+            .map(t -> t.getTipo() == TipoTransaccion.TRANSFERENCIA_DEBITO ? t.getMonto().negar() : t.getMonto())
+            .reduce(Dinero.CERO, Dinero::sumar);
+        assertTrue(netoOrigen.esCero());
+        assertEquals(dinero("100"), motor.esperar(motor.saldo(ORIGEN)));
+        assertEquals(dinero("0"), motor.esperar(motor.saldo(DESTINO)));
+    }
+
+    @Test
+    void testConstructor_conLibroContable_debeRechazarLaConfiguracion() {
+        CuentaMotorService cuentaMotorService = new CuentaMotorService(mock(CuentaService.class), motor);
+
+        assertThrows(IllegalStateException.class, () -> new TransaccionMotorService(cuentaMotorService, transaccionService, true));
+    }
+}
@@ -10,17 +10,33 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.demo.dominio.modelo.PaginaHistorial;
+import com.example.demo.dominio.modelo.SaldosTransferencia;
 import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
 import com.example.demo.dominio.port.out.TransaccionRepositoryPort;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -36,6 +52,18 @@ class TransaccionServiceTest {
     @Mock
     private CuentaService cuentaService; // Para las operaciones de saldo
 
+    // Franjas y transacciones reales: el servicio toma la franja y abre la transacción antes de mover saldos
+    @Spy
+    private BloqueoCuentas bloqueoCuentas = new BloqueoCuentas(new SimpleMeterRegistry(), 16, Duration.ofSeconds(1));
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    // Agrupación deshabilitada (valor por defecto): cada consignación es su propia transacción
+    @Spy
+    private AgrupadorConsignaciones agrupadorConsignaciones =
+        new AgrupadorConsignaciones(new SimpleMeterRegistry(), false, Duration.ofMillis(5), 100);
+
     // Clase a probar
     @InjectMocks
     private TransaccionService transaccionService;
@@ -94,6 +122,32 @@ class TransaccionServiceTest {
         verify(transaccionRepository, never()).guardar(any(Transaccion.class));
     }
 
+    @Test
+    void testConsignar_agrupada_debeDepositarElTotalYGuardarUnRegistroPorConsignacion() throws Exception {
+        AgrupadorConsignaciones agrupador = new AgrupadorConsignaciones(new SimpleMeterRegistry(), true, Duration.ofSeconds(5), 3);
+        TransaccionService servicio = new TransaccionService(cuentaService, transaccionRepository, bloqueoCuentas,
+                                                             transactionTemplate, agrupador);
+        when(transaccionRepository.guardarMultiples(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<Thread> hilos = new ArrayList<>();
+        List<Transaccion> resultados = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 1; i <= 3; i++) {
+            Dinero monto = Dinero.of(BigDecimal.valueOf(i));
+            hilos.add(new Thread(() -> resultados.add(servicio.consignar(CUENTA_DESTINO, monto))));
+        }
+        hilos.forEach(Thread::start);
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        // El grupo se llenó (máximo 3): un solo depósito por el total, sin esperar la ventana completa
+        verify(cuentaService, times(1)).depositar(CUENTA_DESTINO, Dinero.of(BigDecimal.valueOf(6)));
+        verify(transaccionRepository, never()).guardar(any(Transaccion.class));
+        assertEquals(3, resultados.size());
+        assertEquals(Dinero.of(BigDecimal.valueOf(6)),
+            resultados.stream().map(Transaccion::getMonto).reduce(Dinero.CERO, Dinero::sumar));
+    }
+
     // --- PRUEBAS DE RETIRO ---
 
     @Test
@@ -111,6 +165,18 @@ class TransaccionServiceTest {
         verify(transaccionRepository, times(1)).guardar(any(Transaccion.class));
     }
 
+    @Test
+    void testRetirar_debeGuardarElSaldoQueDejoElMovimiento() {
+        Dinero saldo = Dinero.of(BigDecimal.valueOf(400));
+        when(cuentaService.retirar(CUENTA_ORIGEN, MONTO)).thenReturn(Optional.of(saldo));
+        ArgumentCaptor<Transaccion> captor = ArgumentCaptor.forClass(Transaccion.class);
+
+        transaccionService.retirar(CUENTA_ORIGEN, MONTO);
+
+        verify(transaccionRepository).guardar(captor.capture());
+        assertEquals(saldo, captor.getValue().getSaldoResultante());
+    }
+
     @Test
     void testRetirar_cuandoFallaCuentaService_noDebeGuardarTransaccion() {
         // Arrange: Simular que el retiro falla (ej. saldo insuficiente)
@@ -129,39 +195,45 @@ class TransaccionServiceTest {
     // --- PRUEBAS DE TRANSFERENCIA ---
     
     @Test
-    void testTransferir_debeLlamarARetirarYDepositarYGuardarTransaccion() {
+    @SuppressWarnings("unchecked")
+    void testTransferir_debeLlamarATransferirYGuardarTransaccion() {
         // Arrange
+        Dinero saldoOrigen = Dinero.of(BigDecimal.valueOf(400));
+        Dinero saldoDestino = Dinero.of(BigDecimal.valueOf(700));
+        when(cuentaService.transferir(CUENTA_ORIGEN, CUENTA_DESTINO, MONTO))
+            .thenReturn(new SaldosTransferencia(saldoOrigen, saldoDestino));
+        ArgumentCaptor<List<Transaccion>> captor = ArgumentCaptor.forClass(List.class);
         
         // Act
         transaccionService.transferir(CUENTA_ORIGEN, CUENTA_DESTINO, MONTO);
 
         // Assert:
         
-        // 1. Verificar el retiro (sin cambios)
-        verify(cuentaService, times(1)).retirar(eq(CUENTA_ORIGEN), any(Dinero.class));
-        
-        // 2. Verificar el depósito (sin cambios)
-        verify(cuentaService, times(1)).depositar(eq(CUENTA_DESTINO), any(Dinero.class));
+        // 1. 🔑 Débito y crédito se aplican en una sola operación atómica del servicio de cuentas
+        verify(cuentaService, times(1)).transferir(CUENTA_ORIGEN, CUENTA_DESTINO, MONTO);
+        verify(cuentaService, never()).retirar(anyString(), any(Dinero.class));
+        verify(cuentaService, never()).depositar(anyString(), any(Dinero.class));
         
-        // 3. 🔑 CLAVE: Verificar la llamada al método correcto: guardarMultiples con cualquier lista
-        verify(transaccionRepository, times(1)).guardarMultiples(anyList()); 
+        // 2. Ambos registros (débito y crédito) se guardan en un solo lote, cada uno con el saldo de su cuenta
+        verify(transaccionRepository, times(1)).guardarMultiples(captor.capture()); 
+        assertEquals(saldoOrigen, captor.getValue().get(0).getSaldoResultante());
+        assertEquals(saldoDestino, captor.getValue().get(1).getSaldoResultante());
     }
 
     @Test
-    void testTransferir_cuandoFallaRetiro_noDebeIntentarDepositoNiGuardar() {
-        // Arrange: Simular que el retiro de la cuenta origen falla (ej. saldo insuficiente)
+    void testTransferir_cuandoFallaTransferencia_noDebeGuardarTransacciones() {
+        // Arrange: Simular que la cuenta origen no tiene saldo suficiente
         doThrow(new IllegalStateException("Saldo insuficiente en origen."))
-            .when(cuentaService).retirar(CUENTA_ORIGEN, MONTO);
+            .when(cuentaService).transferir(CUENTA_ORIGEN, CUENTA_DESTINO, MONTO);
         
         // Act & Assert
         assertThrows(IllegalStateException.class, () -> {
             transaccionService.transferir(CUENTA_ORIGEN, CUENTA_DESTINO, MONTO);
         });
 
-        // Verificar que el depósito NUNCA fue llamado
-        verify(cuentaService, never()).depositar(anyString(), any(Dinero.class));
         // Verificar que la transacción NUNCA fue guardada
         verify(transaccionRepository, never()).guardar(any(Transaccion.class));
+        verify(transaccionRepository, never()).guardarMultiples(anyList());
     }
 
 
@@ -189,4 +261,108 @@ class TransaccionServiceTest {
         assertEquals(2, resultado.size());
         assertEquals(historialEsperado, resultado);
     }
+
+    @Test
+    void testObtenerHistorial_debeOcultarElSaldoDeLaOtraCuentaDeUnaTransferencia() {
+        LocalDateTime ahora = LocalDateTime.now();
+        Transaccion debito = new Transaccion(20L, TipoTransaccion.TRANSFERENCIA_DEBITO, MONTO, ahora, CUENTA_ORIGEN, CUENTA_DESTINO);
+        Transaccion credito = new Transaccion(21L, TipoTransaccion.TRANSFERENCIA_CREDITO, MONTO, ahora, CUENTA_ORIGEN, CUENTA_DESTINO);
+        debito.setSaldoResultante(Dinero.of(BigDecimal.valueOf(400)));
+        credito.setSaldoResultante(Dinero.of(BigDecimal.valueOf(700)));
+        when(transaccionRepository.buscarPorCuenta(CUENTA_ORIGEN)).thenReturn(Arrays.asList(credito, debito));
+
+        List<Transaccion> resultado = transaccionService.obtenerHistorial(CUENTA_ORIGEN);
+
+        // El crédito es el lado de la cuenta destino: su saldo no pertenece a la cuenta consultada
+        assertNull(resultado.get(0).getSaldoResultante());
+        assertEquals(Dinero.of(BigDecimal.valueOf(400)), resultado.get(1).getSaldoResultante());
+    }
+
+    @Test
+    void testObtenerHistorialPaginado_conMasFilasQueElTamano_debeRetornarCursorDeLaUltimaFila() {
+        // Arrange: el servicio pide tamano + 1 filas para detectar si hay otra página
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Transaccion> filas = Arrays.asList(
+            new Transaccion(30L, TipoTransaccion.CONSIGNACION, MONTO, ahora, null, CUENTA_ORIGEN),
+            new Transaccion(20L, TipoTransaccion.RETIRO, MONTO, ahora.minusMinutes(1), CUENTA_ORIGEN, null),
+            new Transaccion(10L, TipoTransaccion.RETIRO, MONTO, ahora.minusMinutes(2), CUENTA_ORIGEN, null)
+        );
+        when(transaccionRepository.buscarPorCuentaPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, null, 3)).thenReturn(filas);
+
+        // Act
+        PaginaHistorial pagina = transaccionService.obtenerHistorialPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, null, 2);
+
+        // Assert
+        assertEquals(2, pagina.getTransacciones().size());
+        assertEquals(new CursorHistorial(ahora.minusMinutes(1), 20L), pagina.getSiguiente().orElseThrow());
+    }
+
+    @Test
+    void testObtenerHistorialPaginado_ultimaPagina_noDebeRetornarCursor() {
+        // Arrange
+        CursorHistorial cursor = new CursorHistorial(LocalDateTime.now(), 20L);
+        Transaccion ultima = new Transaccion(10L, TipoTransaccion.RETIRO, MONTO, LocalDateTime.now(), CUENTA_ORIGEN, null);
+        when(transaccionRepository.buscarPorCuentaPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, cursor, 3)).thenReturn(List.of(ultima));
+
+        // Act
+        PaginaHistorial pagina = transaccionService.obtenerHistorialPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, cursor, 2);
+
+        // Assert
+        assertEquals(List.of(ultima), pagina.getTransacciones());
+        assertTrue(pagina.getSiguiente().isEmpty());
+    }
+
+    @Test
+    void testObtenerHistorialPaginado_tamanoExcesivo_debeLimitarseAlMaximo() {
+        // Arrange
+        when(transaccionRepository.buscarPorCuentaPaginado(anyString(), any(), any(), anyInt())).thenReturn(List.of());
+
+        // Act
+        transaccionService.obtenerHistorialPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, null, 1_000_000);
+
+        // Assert
+        verify(transaccionRepository).buscarPorCuentaPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, null, TransaccionService.TAMANO_MAXIMO_PAGINA + 1);
+    }
+
+    @Test
+    void testObtenerHistorialPaginado_tamanoInvalido_debeLanzarIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () ->
+            transaccionService.obtenerHistorialPaginado(CUENTA_ORIGEN, PeriodoConsulta.COMPLETO, null, 0)
+        );
+        verify(transaccionRepository, never()).buscarPorCuentaPaginado(anyString(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testExportarHistorial_debeDelegarElRecorridoAlRepositorio() {
+        // Arrange
+        List<Transaccion> recibidas = new ArrayList<>();
+        PeriodoConsulta enero = PeriodoConsulta.entre(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+        when(transaccionRepository.recorrerPorCuenta(eq(CUENTA_ORIGEN), eq(enero), any())).thenAnswer(invocation -> {
+            Consumer<Transaccion> consumidor = invocation.getArgument(2);
+            consumidor.accept(new Transaccion(TipoTransaccion.RETIRO, MONTO, CUENTA_ORIGEN));
+            return 1L;
+        });
+
+        // Act
+        long total = transaccionService.exportarHistorial(CUENTA_ORIGEN, enero, recibidas::add);
+
+        // Assert
+        assertEquals(1L, total);
+        assertEquals(1, recibidas.size());
+    }
+
+    @Test
+    void testObtenerHistorial_conPeriodo_debeConsultarSoloEseRango() {
+        // Arrange
+        PeriodoConsulta enero = PeriodoConsulta.entre(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+        Transaccion t1 = mock(Transaccion.class);
+        when(transaccionRepository.buscarPorCuenta(CUENTA_ORIGEN, enero)).thenReturn(List.of(t1));
+
+        // Act
+        List<Transaccion> resultado = transaccionService.obtenerHistorial(CUENTA_ORIGEN, enero);
+
+        // Assert
+        assertEquals(List.of(t1), resultado);
+        verify(transaccionRepository, never()).buscarPorCuenta(CUENTA_ORIGEN);
+    }
 }
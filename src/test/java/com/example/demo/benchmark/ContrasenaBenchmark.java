@@ -0,0 +1,61 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Costo de verificar una contraseña BCrypt según la fuerza (app.security.password.bcrypt-fuerza).
+ * Un núcleo atiende como máximo 1000 / (ms por verificación) logins por segundo.
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.demo.benchmark.ContrasenaBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ContrasenaBenchmark {
+
+    @Param({"8", "10", "12"})
+    private int fuerza;
+
+    private BCryptPasswordEncoder codificador;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        codificador = new BCryptPasswordEncoder(fuerza);
+        hash = codificador.encode("contraseña-de-prueba");
+    }
+
+    @Benchmark
+    public boolean verificar() {
+        return codificador.matches("contraseña-de-prueba", hash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+            .include(ContrasenaBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opciones).run();
+    }
+}
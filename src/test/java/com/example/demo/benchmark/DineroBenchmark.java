@@ -0,0 +1,114 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+/**
+ * Compara el camino caliente de depósito/retiro entre la implementación anterior de Dinero
+ * (BigDecimal + setScale en cada operación) y la actual basada en centavos ({@code long}).
+ *
+ * Ejecución (el perfilador GC reporta gc.alloc.rate.norm = bytes asignados por operación):
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.demo.benchmark.DineroBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DineroBenchmark {
+
+    private Dinero saldo;
+    private Dinero monto;
+
+    private DineroBigDecimal saldoAnterior;
+    private DineroBigDecimal montoAnterior;
+
+    @Setup
+    public void setUp() {
+        saldo = Dinero.of(new BigDecimal("1000000.00"));
+        monto = Dinero.of(new BigDecimal("125.37"));
+        saldoAnterior = DineroBigDecimal.of(new BigDecimal("1000000.00"));
+        montoAnterior = DineroBigDecimal.of(new BigDecimal("125.37"));
+    }
+
+    /** Depósito seguido de retiro con la implementación en centavos. */
+    @Benchmark
+    public Dinero movimientoCentavos() {
+        Dinero trasDeposito = saldo.sumar(monto);
+        Dinero trasRetiro = trasDeposito.restar(monto);
+        if (trasRetiro.esNegativo()) {
+            throw new IllegalStateException("Saldo insuficiente.");
+        }
+        return trasRetiro;
+    }
+
+    /** Mismo movimiento con la implementación anterior (el retiro calculaba restar dos veces). */
+    @Benchmark
+    public DineroBigDecimal movimientoBigDecimal() {
+        DineroBigDecimal trasDeposito = saldoAnterior.sumar(montoAnterior);
+        DineroBigDecimal nuevoSaldo = trasDeposito.restar(montoAnterior);
+        if (nuevoSaldo.getMonto().compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalStateException("Saldo insuficiente.");
+        }
+        return trasDeposito.restar(montoAnterior);
+    }
+
+    /**
+     * Copia de la implementación previa de Dinero, conservada solo como línea base del benchmark.
+     */
+    public static final class DineroBigDecimal {
+
+        private final BigDecimal monto;
+
+        private DineroBigDecimal(BigDecimal monto) {
+            this.monto = monto.setScale(2, RoundingMode.HALF_UP);
+        }
+
+        static DineroBigDecimal of(BigDecimal monto) {
+            return new DineroBigDecimal(monto);
+        }
+
+        DineroBigDecimal sumar(DineroBigDecimal otro) {
+            return new DineroBigDecimal(this.monto.add(otro.monto));
+        }
+
+        DineroBigDecimal restar(DineroBigDecimal otro) {
+            return new DineroBigDecimal(this.monto.subtract(otro.monto));
+        }
+
+        BigDecimal getMonto() {
+            return monto;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+            .include(DineroBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.benchmark;
+
+import java.lang.reflect.Field;
+import java.security.Key;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+import com.example.demo.security.ClaimsVerificados;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.security.ListaRevocacionTokens;
+import com.example.demo.security.RegistroVersionesUsuario;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Costo de autenticar una petición con JWT en TokenAuthenticationFilter:
+ *
+ * - anterior: extractUsername + validateToken = 3 parseos con verificación HMAC, decodificando la clave en cada uno.
+ * - parseoUnico: un parseo con la clave y el parser precalculados.
+ * - verificadoEnCache: JwtUtil.verificar con el token ya verificado (solo SHA-256 del token).
+ * - revocacionNoRevocado: consulta a ListaRevocacionTokens de un token no revocado, con 10.000
+ *   revocados en la misma cubeta (con -prof gc se comprueba que no reserva memoria).
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.demo.benchmark.JwtVerificacionBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificacionBenchmark {
+
+    private String secreto;
+    private String token;
+    private JwtUtil jwtUtil;
+    private JwtParser parser;
+    private UserDetails usuario;
+    private ListaRevocacionTokens revocados;
+    private ClaimsVerificados claims;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Field campo = JwtUtil.class.getDeclaredField("SECRET");
+        campo.setAccessible(true);
+        secreto = (String) campo.get(null);
+
+        CanalInvalidacionLocal canal = new CanalInvalidacionLocal();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(registry, new RegistroVersionesUsuario(canal), 10_000);
+        revocados = new ListaRevocacionTokens(canal, registry, Duration.ofMinutes(1), 65_536);
+        usuario = User.withUsername("admin_app").password("x").roles("ADMIN").build();
+        token = jwtUtil.generateToken(usuario);
+        parser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secreto))).build();
+        claims = jwtUtil.verificar(token);
+        for (int i = 0; i < 10_000; i++) {
+            revocados.revocar(UUID.randomUUID().toString(), claims.getExpiraEn());
+        }
+    }
+
+    @Benchmark
+    public boolean anterior() {
+        String username = parsearComoAntes().getSubject();
+        boolean valido = username.equals(usuario.getUsername())
+                && parsearComoAntes().getSubject().equals(usuario.getUsername())
+                && !parsearComoAntes().getExpiration().before(new java.util.Date());
+        return valido;
+    }
+
+    @Benchmark
+    public Claims parseoUnico() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public ClaimsVerificados verificadoEnCache() {
+        return jwtUtil.verificar(token);
+    }
+
+    @Benchmark
+    public boolean revocacionNoRevocado() {
+        return revocados.revocado(claims.getJti(), claims.getExpiraEn());
+    }
+
+    private Claims parsearComoAntes() {
+        Key clave = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secreto));
+        return Jwts.parserBuilder().setSigningKey(clave).build().parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+            .include(JwtVerificacionBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Filas de transacciones insertadas por segundo en escrituras masivas, reproduciendo en JDBC lo que
+ * envía Hibernate con cada estrategia de id:
+ *
+ * - identidad: IDENTITY, un INSERT ... RETURNING id por fila (Hibernate no puede agruparlos).
+ * - secuenciaLote: SEQUENCE pooled (un nextval por cada 50 filas) + lotes JDBC de 50.
+ * - secuenciaLoteReescrito: lo anterior con reWriteBatchedInserts=true (un INSERT multi-fila por lote).
+ *
+ * Usa tablas temporales en el PostgreSQL de application.properties (se puede cambiar con
+ * -Dbench.url, -Dbench.usuario y -Dbench.clave).
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.demo.benchmark.LoteTransaccionesBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoteTransaccionesBenchmark {
+
+    private static final int FILAS = 500;
+    private static final int LOTE = 50;
+
+    private static final String URL = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/banco_db");
+    private static final String USUARIO = System.getProperty("bench.usuario", "appuser");
+    private static final String CLAVE = System.getProperty("bench.clave", "myappsecret");
+
+    private static final String COLUMNAS =
+            "tipo varchar(255), monto numeric(38,2), fecha timestamp(6), "
+            + "numero_cuenta_origen varchar(255), numero_cuenta_destino varchar(255)";
+    private static final String INSERTAR_VALORES =
+            "(tipo, monto, fecha, numero_cuenta_origen, numero_cuenta_destino) VALUES (?, ?, ?, ?, ?)";
+
+    private Connection conexion;
+    private Connection conexionReescrita;
+    private long siguienteId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conexion = conectar(false);
+        conexionReescrita = conectar(true);
+        try (Statement st = conexion.createStatement()) {
+            st.execute("CREATE TEMP TABLE bench_identidad (id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + COLUMNAS + ")");
+            st.execute("CREATE TEMP SEQUENCE bench_seq INCREMENT BY " + LOTE);
+            st.execute("CREATE TEMP TABLE bench_secuencia (id bigint PRIMARY KEY, " + COLUMNAS + ")");
+        }
+        try (Statement st = conexionReescrita.createStatement()) {
+            st.execute("CREATE TEMP SEQUENCE bench_seq INCREMENT BY " + LOTE);
+            st.execute("CREATE TEMP TABLE bench_secuencia (id bigint PRIMARY KEY, " + COLUMNAS + ")");
+        }
+        conexion.commit();
+        conexionReescrita.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conexion.close();
+        conexionReescrita.close();
+    }
+
+    /** Antes: IDENTITY, un viaje de ida y vuelta por fila para obtener el id generado. */
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public long identidad() throws SQLException {
+        long ultimoId = 0;
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO bench_identidad " + INSERTAR_VALORES, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < FILAS; i++) {
+                asignar(ps, i);
+                ps.executeUpdate();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    rs.next();
+                    ultimoId = rs.getLong(1);
+                }
+            }
+        }
+        conexion.commit();
+        return ultimoId;
+    }
+
+    /** Después: ids de la secuencia (pooled-lo) y lotes JDBC de 50. */
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public int secuenciaLote() throws SQLException {
+        return insertarEnLotes(conexion);
+    }
+
+    /** Después, con el driver reescribiendo cada lote como un INSERT multi-fila. */
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public int secuenciaLoteReescrito() throws SQLException {
+        return insertarEnLotes(conexionReescrita);
+    }
+
+    private int insertarEnLotes(Connection con) throws SQLException {
+        int filas = 0;
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO bench_secuencia (id, tipo, monto, fecha, numero_cuenta_origen, numero_cuenta_destino) "
+                + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < FILAS; i++) {
+                if (i % LOTE == 0) {
+                    siguienteId = siguienteBloque(con);
+                }
+                ps.setLong(1, siguienteId++);
+                asignar(ps, i, 1);
+                ps.addBatch();
+                if ((i + 1) % LOTE == 0) {
+                    filas += ps.executeBatch().length;
+                }
+            }
+            filas += ps.executeBatch().length;
+        }
+        con.commit();
+        return filas;
+    }
+
+    private static long siguienteBloque(Connection con) throws SQLException {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery("SELECT nextval('bench_seq')")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void asignar(PreparedStatement ps, int i) throws SQLException {
+        asignar(ps, i, 0);
+    }
+
+    private static void asignar(PreparedStatement ps, int i, int desplazamiento) throws SQLException {
+        ps.setString(1 + desplazamiento, "TRANSFERENCIA_DEBITO");
+        ps.setBigDecimal(2 + desplazamiento, BigDecimal.valueOf(100 + i, 2));
+        ps.setTimestamp(3 + desplazamiento, Timestamp.valueOf(LocalDateTime.now()));
+        ps.setString(4 + desplazamiento, "5335238695");
+        ps.setString(5 + desplazamiento, "3321053336");
+    }
+
+    private static Connection conectar(boolean reescribirLotes) throws SQLException {
+        Connection con = DriverManager.getConnection(URL + "?reWriteBatchedInserts=" + reescribirLotes, USUARIO, CLAVE);
+        con.setAutoCommit(false);
+        return con;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+            .include(LoteTransaccionesBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import com.example.demo.aplicacion.MotorSaldos;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.infraestructura.adaptadores.DiarioSaldosJdbcAdapter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Depósitos por segundo con 32 hilos concurrentes repartidos sobre {@code cuentas} cuentas:
+ *
+ * - rutaJpa: lo que hace CuentaService.depositar, un UPDATE ... RETURNING condicional y su commit por
+ *   movimiento; los depósitos sobre la misma cuenta esperan el bloqueo de la fila.
+ * - motor: MotorSaldos con el diario JDBC real; cada partición agrupa en un commit los movimientos
+ *   que llegaron mientras registraba el grupo anterior.
+ *
+ * Usa el PostgreSQL de application.properties (-Dbench.url, -Dbench.usuario y -Dbench.clave) con
+ * db/migracion/diario_saldos.sql aplicado. Crea cuentas 5398xxxxxx y las elimina al terminar.
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.demo.benchmark.MotorSaldosBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(32)
+@Fork(1)
+public class MotorSaldosBenchmark {
+
+    private static final String URL = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/banco_db");
+    private static final String USUARIO = System.getProperty("bench.usuario", "appuser");
+    private static final String CLAVE = System.getProperty("bench.clave", "myappsecret");
+
+    private static final String PREFIJO = "5398";
+    private static final Dinero MONTO = Dinero.of(new BigDecimal("1.00"));
+
+    // Misma sentencia que ProductoJPARepository.aplicarDelta
+    private static final String APLICAR_DELTA = "UPDATE productos_financieros "
+            + "SET saldo = saldo + ?, fecha_modificacion = ?, version = version + 1 "
+            + "WHERE numero_cuenta = ? AND estado = 'ACTIVA' AND saldo + ? >= 0 RETURNING saldo";
+
+    /** Pocas cuentas muy activas frente a muchas con poca contención. */
+    @Param({ "16", "1024" })
+    public int cuentas;
+
+    private String[] numeros;
+    private MotorSaldos motor;
+    private DiarioSaldosJdbcAdapter diario;
+
+    @State(Scope.Thread)
+    public static class ConexionHilo {
+
+        private Connection conexion;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            conexion = conectar();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            conexion.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        numeros = new String[cuentas];
+        try (Connection con = conectar();
+             PreparedStatement ps = con.prepareStatement(
+                 "INSERT INTO productos_financieros (id, numero_cuenta, tipo_producto, tipo_cuenta, estado, saldo, "
+                 + "exentagmf, cliente_id, fecha_creacion, fecha_modificacion, version) "
+                 + "VALUES (nextval('productos_financieros_seq'), ?, 'AHORROS', 'AHORROS', 'ACTIVA', 0, false, 1, now(), now(), 0)")) {
+            limpiar(con);
+            for (int i = 0; i < cuentas; i++) {
+                numeros[i] = PREFIJO + String.format("%06d", i);
+                ps.setString(1, numeros[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            con.commit();
+        }
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(URL + "?reWriteBatchedInserts=true");
+        dataSource.setUser(USUARIO);
+        dataSource.setPassword(CLAVE);
+        diario = new DiarioSaldosJdbcAdapter(dataSource);
+        motor = new MotorSaldos(diario, new SimpleMeterRegistry(), 4, 10_000, 1000, 100_000, Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        motor.cerrar();
+        diario.consolidar();
+        try (Connection con = conectar()) {
+            limpiar(con);
+            con.commit();
+        }
+    }
+
+    /** Antes: un UPDATE y un commit por movimiento. */
+    @Benchmark
+    public BigDecimal rutaJpa(ConexionHilo hilo) throws SQLException {
+        Connection con = hilo.conexion;
+        try (PreparedStatement ps = con.prepareStatement(APLICAR_DELTA)) {
+            ps.setBigDecimal(1, MONTO.getMonto());
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setString(3, cuentaAleatoria());
+            ps.setBigDecimal(4, MONTO.getMonto());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                BigDecimal saldo = rs.getBigDecimal(1);
+                con.commit();
+                return saldo;
+            }
+        }
+    }
+
+    /** Después: saldo en memoria de la partición y commit en grupo del diario. */
+    @Benchmark
+    public Dinero motor() {
+        return motor.esperar(motor.depositar(cuentaAleatoria(), MONTO));
+    }
+
+    private String cuentaAleatoria() {
+        return numeros[ThreadLocalRandom.current().nextInt(numeros.length)];
+    }
+
+    private static void limpiar(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute("DELETE FROM diario_saldos WHERE numero_cuenta LIKE '" + PREFIJO + "%'");
+            st.execute("DELETE FROM productos_financieros WHERE numero_cuenta LIKE '" + PREFIJO + "%'");
+        }
+    }
+
+    private static Connection conectar() throws SQLException {
+        Connection con = DriverManager.getConnection(URL, USUARIO, CLAVE);
+        con.setAutoCommit(false);
+        return con;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+            .include(MotorSaldosBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opciones).run();
+    }
+}
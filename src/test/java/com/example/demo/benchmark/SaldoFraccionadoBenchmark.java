@@ -0,0 +1,185 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Movimientos por segundo con 32 hilos sobre una sola cuenta, según en cuántas filas está su saldo:
+ *
+ * - fracciones = 0: la fila de productos_financieros, como ProductoJPARepository.aplicarDelta; todos
+ *   los movimientos esperan el bloqueo de la misma fila.
+ * - fracciones = K: la sentencia de ProductoJPAAdapter para cuentas fraccionadas, sobre una de las K
+ *   filas de saldos_fraccionados elegida al azar.
+ *
+ * Tres de cada cuatro movimientos son depósitos y el resto retiros del mismo monto; el saldo inicial
+ * alcanza para que ningún retiro tenga que tomar de otra fracción.
+ *
+ * Usa el PostgreSQL de application.properties (-Dbench.url, -Dbench.usuario y -Dbench.clave) con
+ * db/migracion/saldos_fraccionados.sql aplicado. Crea la cuenta 5397000000 y la elimina al terminar.
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.demo.benchmark.SaldoFraccionadoBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(32)
+@Fork(1)
+public class SaldoFraccionadoBenchmark {
+
+    private static final String URL = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/banco_db");
+    private static final String USUARIO = System.getProperty("bench.usuario", "appuser");
+    private static final String CLAVE = System.getProperty("bench.clave", "myappsecret");
+
+    private static final String CUENTA = "5397000000";
+    private static final BigDecimal MONTO = new BigDecimal("1.00");
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000.00");
+
+    // Misma sentencia que ProductoJPARepository.aplicarDelta
+    private static final String APLICAR_DELTA = "UPDATE productos_financieros "
+            + "SET saldo = saldo + ?, fecha_modificacion = ?, version = version + 1 "
+            + "WHERE numero_cuenta = ? AND estado = 'ACTIVA' AND saldo + ? >= 0 RETURNING saldo";
+
+    // Misma sentencia que ProductoJPAAdapter.MOVER_FRACCION
+    private static final String MOVER_FRACCION = """
+        UPDATE saldos_fraccionados f SET saldo = f.saldo + ?
+        FROM productos_financieros p
+        WHERE f.numero_cuenta = ? AND f.fraccion = ? AND f.saldo + ? >= 0
+          AND p.numero_cuenta = f.numero_cuenta AND p.estado = 'ACTIVA'
+        RETURNING f.saldo
+        """;
+
+    /** 0 = saldo en una sola fila. */
+    @Param({ "0", "1", "4", "16", "64" })
+    public int fracciones;
+
+    @State(Scope.Thread)
+    public static class ConexionHilo {
+
+        private Connection conexion;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            conexion = conectar();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            conexion.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        try (Connection con = conectar()) {
+            limpiar(con);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO productos_financieros (id, numero_cuenta, tipo_producto, tipo_cuenta, estado, saldo, "
+                    + "exentagmf, cliente_id, fecha_creacion, fecha_modificacion, version, fracciones_saldo) "
+                    + "VALUES (nextval('productos_financieros_seq'), ?, 'AHORROS', 'AHORROS', 'ACTIVA', ?, false, 1, now(), now(), 0, ?)")) {
+                ps.setString(1, CUENTA);
+                ps.setBigDecimal(2, fracciones == 0 ? SALDO_INICIAL : BigDecimal.ZERO);
+                ps.setObject(3, fracciones == 0 ? null : fracciones, Types.INTEGER);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO saldos_fraccionados (numero_cuenta, fraccion, saldo) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < fracciones; i++) {
+                    ps.setString(1, CUENTA);
+                    ps.setInt(2, i);
+                    ps.setBigDecimal(3, SALDO_INICIAL);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection con = conectar()) {
+            limpiar(con);
+            con.commit();
+        }
+    }
+
+    @Benchmark
+    public BigDecimal movimiento(ConexionHilo hilo) throws SQLException {
+        Connection con = hilo.conexion;
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        BigDecimal delta = azar.nextInt(4) == 0 ? MONTO.negate() : MONTO;
+        PreparedStatement ps;
+        if (fracciones == 0) {
+            ps = con.prepareStatement(APLICAR_DELTA);
+            ps.setBigDecimal(1, delta);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setString(3, CUENTA);
+            ps.setBigDecimal(4, delta);
+        } else {
+            ps = con.prepareStatement(MOVER_FRACCION);
+            ps.setBigDecimal(1, delta);
+            ps.setString(2, CUENTA);
+            ps.setInt(3, azar.nextInt(fracciones));
+            ps.setBigDecimal(4, delta);
+        }
+        try (ps; ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            BigDecimal saldo = rs.getBigDecimal(1);
+            con.commit();
+            return saldo;
+        }
+    }
+
+    private static void limpiar(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute("DELETE FROM saldos_fraccionados WHERE numero_cuenta = '" + CUENTA + "'");
+            st.execute("DELETE FROM productos_financieros WHERE numero_cuenta = '" + CUENTA + "'");
+        }
+    }
+
+    private static Connection conectar() throws SQLException {
+        Connection con = DriverManager.getConnection(URL, USUARIO, CLAVE);
+        con.setAutoCommit(false);
+        return con;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+            .include(SaldoFraccionadoBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opciones).run();
+    }
+}
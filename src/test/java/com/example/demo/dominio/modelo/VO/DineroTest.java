@@ -0,0 +1,65 @@
+package com.example.demo.dominio.modelo.VO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class DineroTest {
+
+    // Mayor monto representable: Long.MAX_VALUE centavos
+    private static final Dinero MAXIMO = Dinero.ofCentavos(Long.MAX_VALUE);
+    private static final Dinero MINIMO = Dinero.ofCentavos(Long.MIN_VALUE);
+
+    @Test
+    void testOf_conMasDeDosDecimales_debeRedondearHalfUp() {
+        assertEquals(1235L, Dinero.of(new BigDecimal("12.345")).getCentavos());
+        assertEquals(1234L, Dinero.of(new BigDecimal("12.3449")).getCentavos());
+        assertEquals(1L, Dinero.of(new BigDecimal("0.005")).getCentavos());
+        assertEquals(new BigDecimal("12.35"), Dinero.of(new BigDecimal("12.345")).getMonto());
+        assertEquals(new BigDecimal("7.00"), Dinero.of(new BigDecimal("7")).getMonto());
+    }
+
+    @Test
+    void testOf_valoresNegativos_debenRedondearAlejandoseDeCero() {
+        Dinero negativo = Dinero.of(new BigDecimal("-12.345"));
+
+        assertEquals(-1235L, negativo.getCentavos());
+        assertTrue(negativo.esNegativo());
+        assertEquals(Dinero.of(new BigDecimal("12.35")), negativo.negar());
+        assertEquals("-12.35", negativo.toString());
+        assertEquals(Dinero.of(new BigDecimal("-2.50")), Dinero.of(new BigDecimal("7.50")).restar(Dinero.of(BigDecimal.TEN)));
+    }
+
+    @Test
+    void testOf_fueraDeRangoONulo_debeLanzarExcepcion() {
+        BigDecimal fueraDeRango = BigDecimal.valueOf(Long.MAX_VALUE).movePointLeft(2).add(new BigDecimal("0.01"));
+
+        assertThrows(IllegalArgumentException.class, () -> Dinero.of(fueraDeRango));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.of(fueraDeRango.negate().subtract(BigDecimal.ONE)));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.of((BigDecimal) null));
+        assertEquals(MAXIMO, Dinero.of(BigDecimal.valueOf(Long.MAX_VALUE).movePointLeft(2)));
+    }
+
+    @Test
+    void testAritmetica_conDesbordamiento_debeLanzarExcepcionEnLugarDeDarLaVuelta() {
+        Dinero unCentavo = Dinero.ofCentavos(1L);
+
+        assertThrows(IllegalStateException.class, () -> MAXIMO.sumar(unCentavo));
+        assertThrows(IllegalStateException.class, () -> MINIMO.restar(unCentavo));
+        assertThrows(IllegalStateException.class, () -> MAXIMO.restar(unCentavo.negar()));
+        assertThrows(IllegalStateException.class, () -> MAXIMO.multiplicar(2));
+        assertThrows(IllegalStateException.class, () -> MINIMO.multiplicar(-1));
+        assertThrows(IllegalStateException.class, () -> MINIMO.negar());
+        // En el límite exacto no hay desbordamiento
+        assertEquals(MAXIMO, MAXIMO.restar(unCentavo).sumar(unCentavo));
+    }
+
+    @Test
+    void testMultiplicar_debeEscalarLosCentavos() {
+        assertEquals(Dinero.of(new BigDecimal("37.50")), Dinero.of(new BigDecimal("12.50")).multiplicar(3));
+        assertEquals(Dinero.of(new BigDecimal("-12.50")), Dinero.of(new BigDecimal("12.50")).multiplicar(-1));
+        assertSame(Dinero.CERO, Dinero.of(new BigDecimal("12.50")).multiplicar(0));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.filters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+import com.example.demo.security.ClaimsVerificados;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.security.ListaRevocacionTokens;
+import com.example.demo.security.RegistroVersionesUsuario;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+
+class TokenAuthenticationFilterTest {
+
+    private RegistroVersionesUsuario versiones;
+    private ListaRevocacionTokens revocados;
+    private JwtUtil jwtUtil;
+    private TokenAuthenticationFilter filtro;
+
+    @BeforeEach
+    void setUp() {
+        CanalInvalidacionLocal canal = new CanalInvalidacionLocal();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        versiones = new RegistroVersionesUsuario(canal);
+        revocados = new ListaRevocacionTokens(canal, registry, Duration.ofMinutes(1), 1024);
+        jwtUtil = new JwtUtil(registry, versiones, 100);
+        filtro = new TokenAuthenticationFilter(jwtUtil, versiones, revocados);
+    }
+
+    @AfterEach
+    void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication filtrar(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/productos/5335238695");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain cadena = new MockFilterChain();
+
+        filtro.doFilter(request, new MockHttpServletResponse(), cadena);
+
+        assertNotNull(cadena.getRequest(), "la cadena debe continuar siempre");
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void testTokenValido_debeAutenticarDesdeLosClaims() throws Exception {
+        String token = jwtUtil.generateToken(User.withUsername("admin_app").password("x").roles("ADMIN").build());
+
+        Authentication autenticacion = filtrar(token);
+
+        assertNotNull(autenticacion);
+        assertEquals("admin_app", autenticacion.getName());
+        assertTrue(autenticacion.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .anyMatch("ROLE_ADMIN"::equals));
+    }
+
+    @Test
+    void testTokenRevocado_noDebeAutenticar() throws Exception {
+        String token = jwtUtil.generateToken(User.withUsername("admin_app").password("x").roles("ADMIN").build());
+        versiones.establecer("admin_app", 1L);
+
+        assertNull(filtrar(token));
+    }
+
+    @Test
+    void testTokenConLogout_noDebeAutenticar() throws Exception {
+        String token = jwtUtil.generateToken(User.withUsername("admin_app").password("x").roles("ADMIN").build());
+        String otro = jwtUtil.generateToken(User.withUsername("admin_app").password("x").roles("ADMIN").build());
+        ClaimsVerificados claims = jwtUtil.verificar(token);
+
+        revocados.revocar(claims.getJti(), claims.getExpiraEn());
+
+        assertNull(filtrar(token));
+        SecurityContextHolder.clearContext();
+        // Los demás tokens del usuario siguen siendo válidos
+        assertNotNull(filtrar(otro));
+    }
+
+    @Test
+    void testTokenInvalido_noDebeAutenticar() throws Exception {
+        assertNull(filtrar("no.es.un-jwt"));
+    }
+}
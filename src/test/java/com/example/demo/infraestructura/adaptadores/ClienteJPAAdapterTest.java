@@ -0,0 +1,119 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.demo.dominio.modelo.Cliente;
+import com.example.demo.infraestructura.cache.CacheCercana;
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+import com.example.demo.infraestructura.datos.ClienteJPA;
+import com.example.demo.infraestructura.datos.ClienteJPARepository;
+import com.example.demo.infraestructura.datos.ProductoJPARepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ClienteJPAAdapterTest {
+
+    private static final Long ID = 7L;
+
+    @Mock
+    private ClienteJPARepository jpaRepository;
+
+    @Mock
+    private ProductoJPARepository productoRepository;
+
+    private ClienteJPAAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        CanalInvalidacionLocal canal = new CanalInvalidacionLocal();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        adapter = new ClienteJPAAdapter(jpaRepository, productoRepository,
+                new CacheCercana<>("clientes", 100, Duration.ofMinutes(5), canal, registry),
+                new CacheCercana<>("clientes-identificacion", 100, Duration.ofMinutes(5), canal, registry));
+    }
+
+    private ClienteJPA clienteJPA(String nombres) {
+        return new ClienteJPA(ID, "CC", "1020304050", nombres, "Pérez", "ana@correo.com",
+                LocalDate.of(1990, 1, 1), null, null, false);
+    }
+
+    @Test
+    void testBuscarPorId_segundaConsulta_noDebeIrABaseDeDatos() {
+        when(jpaRepository.findById(ID)).thenReturn(Optional.of(clienteJPA("Ana")));
+
+        Cliente primera = adapter.buscarPorId(ID).orElseThrow();
+        Cliente segunda = adapter.buscarPorId(ID).orElseThrow();
+
+        verify(jpaRepository, times(1)).findById(ID);
+        assertEquals("Ana", segunda.getNombres());
+        // Cada consulta recibe su propia copia: modificar una no altera la caché
+        assertNotSame(primera, segunda);
+        primera.setNombres("Modificado");
+        assertEquals("Ana", adapter.buscarPorId(ID).orElseThrow().getNombres());
+    }
+
+    @Test
+    void testBuscarPorIdentificacion_debeReutilizarLaCachePorId() {
+        when(jpaRepository.findByTipoIdentificacionAndNumeroIdentificacion("CC", "1020304050"))
+            .thenReturn(Optional.of(clienteJPA("Ana")));
+
+        adapter.buscarPorIdentificacion("CC", "1020304050");
+        Optional<Cliente> porIdentificacion = adapter.buscarPorIdentificacion("CC", "1020304050");
+        Optional<Cliente> porId = adapter.buscarPorId(ID);
+
+        verify(jpaRepository, times(1)).findByTipoIdentificacionAndNumeroIdentificacion("CC", "1020304050");
+        verify(jpaRepository, never()).findById(any());
+        assertEquals(ID, porIdentificacion.orElseThrow().getId());
+        assertEquals("Ana", porId.orElseThrow().getNombres());
+    }
+
+    @Test
+    void testGuardar_debeInvalidarAmbasClaves() {
+        when(jpaRepository.findById(ID)).thenReturn(Optional.of(clienteJPA("Ana")), Optional.of(clienteJPA("Ana María")));
+        Cliente cliente = adapter.buscarPorId(ID).orElseThrow();
+        when(jpaRepository.save(any(ClienteJPA.class))).thenReturn(clienteJPA("Ana María"));
+
+        cliente.setNombres("Ana María");
+        adapter.guardar(cliente);
+
+        assertEquals("Ana María", adapter.buscarPorId(ID).orElseThrow().getNombres());
+        verify(jpaRepository, times(2)).findById(ID);
+    }
+
+    @Test
+    void testEliminar_debeInvalidarLaCache() {
+        when(jpaRepository.findById(ID)).thenReturn(Optional.of(clienteJPA("Ana")));
+        adapter.buscarPorId(ID);
+
+        adapter.eliminar(ID);
+        adapter.buscarPorId(ID);
+
+        // 1 consulta inicial + 1 de eliminar + 1 tras la invalidación
+        verify(jpaRepository, times(3)).findById(ID);
+    }
+
+    @Test
+    void testExistePorId_debeUsarLaCacheOLaProyeccion() {
+        when(jpaRepository.existsById(99L)).thenReturn(false);
+        when(jpaRepository.findById(ID)).thenReturn(Optional.of(clienteJPA("Ana")));
+        adapter.buscarPorId(ID);
+
+        assertTrue(adapter.existePorId(ID));
+        assertFalse(adapter.existePorId(99L));
+
+        verify(jpaRepository, never()).existsById(ID);
+    }
+}
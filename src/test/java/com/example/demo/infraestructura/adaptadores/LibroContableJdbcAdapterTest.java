@@ -0,0 +1,142 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.dominio.modelo.AsientoContable;
+import com.example.demo.dominio.modelo.Transaccion;
+import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
+
+/**
+ * Libro contable contra el PostgreSQL de application.properties con db/migracion/libro_contable.sql
+ * aplicado; si no está disponible la prueba se omite. Los asientos registrados se revierten al finalizar.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf("postgresDisponible")
+class LibroContableJdbcAdapterTest {
+
+    private static final String ORIGEN = "7800000001";
+    private static final String DESTINO = "7800000002";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LibroContableJdbcAdapter adapter;
+
+    static boolean postgresDisponible() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", 5432), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(jdbcTemplate.queryForObject("SELECT to_regclass('partidas_contables') IS NOT NULL", Boolean.class),
+                "Falta db/migracion/libro_contable.sql");
+        adapter = new LibroContableJdbcAdapter(jdbcTemplate);
+    }
+
+    private static Dinero dinero(String monto) {
+        return Dinero.of(new BigDecimal(monto));
+    }
+
+    @Test
+    void testTransferencia_debeRegistrarUnAsiento_yCadaCuentaVerSoloSuLado() {
+        Dinero monto = dinero("250.00");
+        List<Transaccion> registradas = adapter.guardarMultiples(List.of(
+            new Transaccion(TipoTransaccion.TRANSFERENCIA_DEBITO, monto, ORIGEN, DESTINO),
+            new Transaccion(TipoTransaccion.TRANSFERENCIA_CREDITO, monto, ORIGEN, DESTINO)));
+
+        assertEquals(2, registradas.size());
+        assertEquals(TipoTransaccion.TRANSFERENCIA_DEBITO, registradas.get(0).getTipo());
+        assertEquals(TipoTransaccion.TRANSFERENCIA_CREDITO, registradas.get(1).getTipo());
+        Long asientos = jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT asiento_id) FROM partidas_contables WHERE id IN (?, ?)", Long.class,
+                registradas.get(0).getId(), registradas.get(1).getId());
+        assertEquals(1L, asientos);
+
+        List<Transaccion> historialOrigen = adapter.buscarPorCuenta(ORIGEN);
+        assertEquals(1, historialOrigen.size());
+        Transaccion debito = historialOrigen.get(0);
+        assertEquals(TipoTransaccion.TRANSFERENCIA_DEBITO, debito.getTipo());
+        assertEquals(monto, debito.getMonto());
+        assertEquals(ORIGEN, debito.getNumeroCuentaOrigen());
+        assertEquals(DESTINO, debito.getNumeroCuentaDestino());
+
+        List<Transaccion> historialDestino = adapter.buscarPorCuenta(DESTINO);
+        assertEquals(1, historialDestino.size());
+        assertEquals(TipoTransaccion.TRANSFERENCIA_CREDITO, historialDestino.get(0).getTipo());
+        assertEquals(ORIGEN, historialDestino.get(0).getNumeroCuentaOrigen());
+    }
+
+    @Test
+    void testConsignacionYRetiro_debenTenerContrapartidaEnCaja_yCuadrarElSaldoContable() {
+        Transaccion nueva = new Transaccion(TipoTransaccion.CONSIGNACION, dinero("100.00"), ORIGEN);
+        nueva.setSaldoResultante(dinero("100.00"));
+        Transaccion consignacion = adapter.guardar(nueva);
+        adapter.guardar(new Transaccion(TipoTransaccion.RETIRO, dinero("30.50"), ORIGEN));
+
+        assertEquals(dinero("69.50"), adapter.saldoContable(ORIGEN));
+        BigDecimal sumaAsiento = jdbcTemplate.queryForObject(
+                "SELECT sum(monto) FROM partidas_contables WHERE asiento_id = "
+                + "(SELECT asiento_id FROM partidas_contables WHERE id = ?)", BigDecimal.class, consignacion.getId());
+        assertEquals(0, sumaAsiento.signum());
+
+        List<Transaccion> historial = adapter.buscarPorCuenta(ORIGEN);
+        assertEquals(2, historial.size());
+        assertTrue(historial.stream().allMatch(t -> !t.getMonto().esNegativo()));
+        // El saldo resultante se guarda en la partida del cliente; el retiro no lo trae y queda pendiente
+        assertEquals(dinero("100.00"), historial.get(1).getSaldoResultante());
+        assertNull(historial.get(0).getSaldoResultante());
+    }
+
+    @Test
+    void testDebitoSinSuCredito_debeRechazarse() {
+        Transaccion debito = new Transaccion(TipoTransaccion.TRANSFERENCIA_DEBITO, dinero("10.00"), ORIGEN, DESTINO);
+
+        assertThrows(IllegalArgumentException.class, () -> adapter.guardar(debito));
+        assertThrows(IllegalArgumentException.class, () -> new AsientoContable(null, AsientoContable.TipoAsiento.TRANSFERENCIA,
+                LocalDateTime.now(), List.of()));
+    }
+
+    @Test
+    void testPaginadoYBuscarPorIds_debenRespetarElOrden() {
+        for (int i = 1; i <= 3; i++) {
+            adapter.guardar(new Transaccion(TipoTransaccion.CONSIGNACION, dinero(i + ".00"), DESTINO));
+        }
+
+        List<Transaccion> primera = adapter.buscarPorCuentaPaginado(DESTINO, PeriodoConsulta.COMPLETO, null, 2);
+        List<Transaccion> segunda = adapter.buscarPorCuentaPaginado(DESTINO, PeriodoConsulta.COMPLETO,
+                CursorHistorial.despuesDe(primera.get(1)), 2);
+
+        assertEquals(2, primera.size());
+        assertEquals(1, segunda.size());
+        assertEquals(dinero("1.00"), segunda.get(0).getMonto());
+
+        List<Long> ids = List.of(segunda.get(0).getId(), primera.get(0).getId(), -1L);
+        List<Transaccion> porIds = adapter.buscarPorIds(ids);
+        assertEquals(List.of(ids.get(0), ids.get(1)), porIds.stream().map(Transaccion::getId).toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.infraestructura.cache.CacheCercana;
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+import com.example.demo.infraestructura.datos.ProductoJPARepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ProductoJPAAdapterTest {
+
+    private static final String NUMERO = "5500000001";
+    private static final Dinero RETIRO = Dinero.of(new BigDecimal("-50.00"));
+
+    @Mock
+    private ProductoJPARepository jpaRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ProductoJPAAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        adapter = new ProductoJPAAdapter(jpaRepository, jdbcTemplate, transactionTemplate,
+                new CacheCercana<>("cuentas", 100, Duration.ofMinutes(5), new CanalInvalidacionLocal(), new SimpleMeterRegistry()),
+                0, 30, false);
+    }
+
+    @Test
+    void testAplicarMovimiento_exitoso_debeDevolverElSaldoSinConsultasAdicionales() {
+        when(jpaRepository.aplicarDelta(eq(NUMERO), eq(RETIRO.getMonto()), any())).thenReturn(Optional.of(new BigDecimal("150.00")));
+
+        assertEquals(Optional.of(Dinero.of(new BigDecimal("150.00"))), adapter.aplicarMovimiento(NUMERO, RETIRO));
+
+        verifyNoInteractions(jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void testAplicarMovimiento_saldoInsuficienteSinFracciones_debeRechazarSinBloquearLaCuenta() {
+        when(jpaRepository.aplicarDelta(eq(NUMERO), eq(RETIRO.getMonto()), any())).thenReturn(Optional.empty());
+        // La cuenta existe y no está fraccionada (fracciones_saldo NULL)
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(NUMERO))).thenReturn(Arrays.asList((Integer) null));
+
+        assertEquals(Optional.empty(), adapter.aplicarMovimiento(NUMERO, RETIRO));
+
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    void testAplicarMovimiento_cuentaInexistente_debeRechazarSinBloquearLaCuenta() {
+        when(jpaRepository.aplicarDelta(eq(NUMERO), eq(RETIRO.getMonto()), any())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(NUMERO))).thenReturn(List.of());
+
+        assertEquals(Optional.empty(), adapter.aplicarMovimiento(NUMERO, RETIRO));
+
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    void testAplicarMovimiento_fraccionadaPorOtroNodo_debeDecidirConLaCuentaBloqueada() {
+        when(jpaRepository.aplicarDelta(eq(NUMERO), eq(RETIRO.getMonto()), any())).thenReturn(Optional.empty());
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(NUMERO))).thenReturn(List.of(4));
+        when(transactionTemplate.execute(any())).thenReturn(Optional.of(Dinero.of(new BigDecimal("10.00"))));
+
+        assertEquals(Optional.of(Dinero.of(new BigDecimal("10.00"))), adapter.aplicarMovimiento(NUMERO, RETIRO));
+
+        verify(transactionTemplate).execute(any());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.infraestructura.adaptadores;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.dominio.modelo.VO.Dinero;
+
+/**
+ * Cierres diarios contra el PostgreSQL de application.properties con db/migracion/saldos_diarios.sql y
+ * db/migracion/diario_saldos.sql aplicados; si no está disponible la prueba se omite. Los días son lejanos
+ * para que el registro solo recorra las filas de la prueba, que se revierten al finalizar.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf("postgresDisponible")
+class PuntosControlSaldoJdbcAdapterTest {
+
+    private static final String CUENTA = "7700000001";
+    private static final LocalDate DIA = LocalDate.of(2090, 1, 2);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static boolean postgresDisponible() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", 5432), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(jdbcTemplate.queryForObject("SELECT to_regclass('saldos_diarios') IS NOT NULL "
+                + "AND to_regclass('diario_saldos') IS NOT NULL", Boolean.class),
+                "Faltan db/migracion/saldos_diarios.sql y db/migracion/diario_saldos.sql");
+        Integer posteriores = jdbcTemplate.queryForObject("SELECT count(*) FROM saldos_diarios WHERE dia >= ?",
+                Integer.class, Date.valueOf(DIA.minusDays(1)));
+        assumeTrue(posteriores == 0, "Hay cierres registrados después de " + DIA.minusDays(1));
+
+        jdbcTemplate.update("INSERT INTO productos_financieros (id, numero_cuenta, tipo_producto, tipo_cuenta, estado, "
+                + "saldo, exentagmf, cliente_id, fecha_creacion, fecha_modificacion, version) VALUES "
+                + "(nextval('productos_financieros_seq'), ?, 'AHORROS', 'AHORROS', 'ACTIVA', 1000, false, 1, now(), now(), 0)",
+                CUENTA);
+        // Último día registrado: el registro empieza en DIA
+        jdbcTemplate.update("INSERT INTO saldos_diarios (numero_cuenta, dia, saldo) VALUES (?, ?, 1000)",
+                CUENTA, Date.valueOf(DIA.minusDays(1)));
+        // Consignación del motor: la fila ya está en transacciones y su delta sigue en el diario
+        jdbcTemplate.update("INSERT INTO transacciones (tipo, monto, fecha, numero_cuenta_destino) VALUES ('CONSIGNACION', 300, ?, ?)",
+                DIA.atTime(10, 0), CUENTA);
+        jdbcTemplate.update("INSERT INTO diario_saldos (numero_cuenta, delta) VALUES (?, 300)", CUENTA);
+    }
+
+    private BigDecimal cierre(LocalDate dia) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM saldos_diarios WHERE numero_cuenta = ? AND dia = ?",
+                BigDecimal.class, CUENTA, Date.valueOf(dia));
+    }
+
+    @Test
+    void testRegistrarHasta_conMotor_debeIncluirLosAsientosSinConsolidar() {
+        PuntosControlSaldoJdbcAdapter adapter = new PuntosControlSaldoJdbcAdapter(jdbcTemplate, false, true);
+
+        assertEquals(1, adapter.registrarHasta(DIA.plusDays(1)));
+
+        assertEquals(0, new BigDecimal("1300").compareTo(cierre(DIA)));
+    }
+
+    @Test
+    void testRegistrarHasta_conMotor_cierreDebeCuadrarConElAnteriorYLosMovimientos() {
+        PuntosControlSaldoJdbcAdapter adapter = new PuntosControlSaldoJdbcAdapter(jdbcTemplate, false, true);
+        adapter.registrarHasta(DIA.plusDays(1));
+
+        // Cierre anterior + movimientos del día = cierre del día
+        Dinero movimientos = adapter.sumaMovimientos(CUENTA, DIA.atStartOfDay(), DIA.plusDays(1).atStartOfDay());
+        assertEquals(Dinero.of(cierre(DIA.minusDays(1))).sumar(movimientos), Dinero.of(cierre(DIA)));
+    }
+}
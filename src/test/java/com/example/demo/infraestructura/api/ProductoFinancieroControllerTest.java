@@ -20,16 +20,21 @@ import com.example.demo.dominio.modelo.ProductoFinanciero;
 import com.example.demo.dominio.modelo.ProductoFinanciero.EstadoCuenta;
 import com.example.demo.dominio.modelo.ProductoFinanciero.TipoCuenta;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.PuntoSaldo;
+import com.example.demo.dominio.port.in.ConsultaSaldoHistoricoPort;
 import com.example.demo.dominio.port.in.GestionCuentaPort;
 import com.example.demo.infraestructura.api.dto.CuentaCreacionDTO;
 import com.example.demo.infraestructura.api.dto.CuentaRespuestaDTO;
 import com.example.demo.infraestructura.api.dto.DepositoDTO;
 import com.example.demo.infraestructura.api.dto.EstadoCuentaDTO;
+import com.example.demo.infraestructura.api.dto.FraccionesSaldoDTO;
 import com.example.demo.infraestructura.mappers.CuentaMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -51,6 +56,9 @@ class ProductoFinancieroControllerTest {
     @MockBean
     private GestionCuentaPort gestionCuentaPort;
 
+    @MockBean
+    private ConsultaSaldoHistoricoPort consultaSaldoHistoricoPort;
+
     @MockBean
     private CuentaMapper mapper;
 
@@ -150,6 +158,63 @@ class ProductoFinancieroControllerTest {
                 .andExpect(jsonPath("$.estado").value("INACTIVA"));
     }
 
+    // -------------------------------------------------------------
+    // Test: PATCH /api/v1/productos/{numeroCuenta}/fracciones
+    // -------------------------------------------------------------
+    @Test
+    void testFraccionarSaldo() throws Exception {
+
+        FraccionesSaldoDTO dto = new FraccionesSaldoDTO();
+        dto.setFracciones(8);
+
+        ProductoFinanciero cuenta = new CuentaAhorros(1L);
+
+        CuentaRespuestaDTO respuesta = new CuentaRespuestaDTO();
+        respuesta.setNumeroCuenta("5300000001");
+        respuesta.setTipoCuenta(TipoCuenta.AHORROS);
+        respuesta.setSaldo(new BigDecimal("1500.00"));
+        respuesta.setEstado(EstadoCuenta.ACTIVA);
+
+        when(gestionCuentaPort.fraccionarSaldo("5300000001", 8)).thenReturn(cuenta);
+        when(mapper.toRespuestaDTO(any())).thenReturn(respuesta);
+
+        mockMvc.perform(patch("/api/v1/productos/5300000001/fracciones")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saldo").value(1500.00));
+    }
+
+    // -------------------------------------------------------------
+    // Test: GET /api/v1/productos/{numeroCuenta}/saldo-historico(/serie)
+    // -------------------------------------------------------------
+    @Test
+    void testConsultarSaldoHistorico() throws Exception {
+
+        when(consultaSaldoHistoricoPort.saldoEn("5300000001", LocalDateTime.of(2026, 3, 5, 10, 0)))
+                .thenReturn(Dinero.of(new BigDecimal("1050.00")));
+
+        mockMvc.perform(get("/api/v1/productos/5300000001/saldo-historico").param("fecha", "2026-03-05T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saldo").value(1050.00));
+    }
+
+    @Test
+    void testConsultarSerieSaldos() throws Exception {
+
+        when(consultaSaldoHistoricoPort.serieSaldos("5300000001", LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 2), 1))
+                .thenReturn(List.of(
+                    new PuntoSaldo(LocalDate.of(2026, 3, 1), Dinero.of(new BigDecimal("100.00"))),
+                    new PuntoSaldo(LocalDate.of(2026, 3, 2), Dinero.of(new BigDecimal("150.00")))));
+
+        mockMvc.perform(get("/api/v1/productos/5300000001/saldo-historico/serie")
+                .param("desde", "2026-03-01")
+                .param("hasta", "2026-03-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].dia").value("2026-03-02"))
+                .andExpect(jsonPath("$[1].saldo").value(150.00));
+    }
+
     // -------------------------------------------------------------
     // Test: DELETE /api/v1/productos/{numeroCuenta}/cancelar
     // -------------------------------------------------------------
@@ -172,7 +237,7 @@ class ProductoFinancieroControllerTest {
         dto.setNumeroCuenta("5300000001");
         dto.setMonto(new BigDecimal("100000"));
 
-        Mockito.doNothing().when(gestionCuentaPort).depositar(any(), any());
+        Mockito.when(gestionCuentaPort.depositar(any(), any())).thenReturn(Optional.empty());
 
         mockMvc.perform(post("/api/v1/productos/depositar")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -7,11 +7,19 @@ import org.junit.jupiter.api.Test;
 
 
 
+import com.example.demo.dominio.modelo.PaginaHistorial;
+import com.example.demo.dominio.modelo.ResultadoMovimiento;
+import com.example.demo.dominio.modelo.SolicitudMovimiento;
 import com.example.demo.dominio.modelo.Transaccion;
 import com.example.demo.dominio.modelo.Transaccion.TipoTransaccion;
+import com.example.demo.dominio.modelo.VO.CursorHistorial;
 import com.example.demo.dominio.modelo.VO.Dinero;
+import com.example.demo.dominio.modelo.VO.PeriodoConsulta;
 import com.example.demo.dominio.port.in.GestionCuentaPort;
+import com.example.demo.dominio.port.in.EjecucionIdempotentePort;
 import com.example.demo.dominio.port.in.GestionTransaccionPort;
+import com.example.demo.dominio.port.in.ProcesamientoLotePort;
+import com.example.demo.infraestructura.api.dto.ResultadoLoteDTO;
 import com.example.demo.infraestructura.api.dto.TransaccionCreacionDTO;
 import com.example.demo.infraestructura.api.dto.TransaccionRespuestaDTO;
 import com.example.demo.infraestructura.mappers.TransaccionMapper;
@@ -25,13 +33,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -52,6 +66,12 @@ class TransaccionControllerTest {
     @MockBean
     private GestionTransaccionPort gestionTransaccionPort;
 
+    @MockBean
+    private EjecucionIdempotentePort ejecucionIdempotentePort;
+
+    @MockBean
+    private ProcesamientoLotePort procesamientoLotePort;
+
     @MockBean
     private TransaccionMapper mapper;
     
@@ -273,4 +293,223 @@ class TransaccionControllerTest {
                 .andExpect(jsonPath("$[0].monto").value(20))
                 .andExpect(jsonPath("$[0].tipo").value("DEBITO")); // Se verifica el tipo también
     }
+
+    @Test
+    void testObtenerHistorialPaginado_debeRetornarPaginaYCursorSiguiente() throws Exception {
+        String numeroCuenta = "530000001";
+        LocalDateTime fecha = LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123456000);
+        CursorHistorial recibido = new CursorHistorial(fecha.plusDays(1), 100L);
+        CursorHistorial siguiente = new CursorHistorial(fecha, 99L);
+
+        Transaccion trans = new Transaccion(TipoTransaccion.RETIRO, Dinero.of(BigDecimal.TEN), numeroCuenta);
+        trans.setId(99L);
+        trans.setFecha(fecha);
+
+        TransaccionRespuestaDTO respuesta = new TransaccionRespuestaDTO();
+        respuesta.setId(99L);
+        respuesta.setNumeroCuentaOrigen(numeroCuenta);
+
+        when(gestionTransaccionPort.obtenerHistorialPaginado(numeroCuenta, PeriodoConsulta.COMPLETO, recibido, 1))
+                .thenReturn(new PaginaHistorial(List.of(trans), siguiente));
+        when(mapper.toRespuestaDTO(trans)).thenReturn(respuesta);
+
+        mockMvc.perform(get("/api/v1/transacciones/historial/" + numeroCuenta + "/paginado")
+                        .param("cursor", recibido.codificar())
+                        .param("tamano", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transacciones[0].id").value(99))
+                .andExpect(jsonPath("$.next").value(siguiente.codificar()));
+    }
+
+    @Test
+    void testObtenerHistorialPaginado_cursorInvalido_debeRetornar400() throws Exception {
+        mockMvc.perform(get("/api/v1/transacciones/historial/530000001/paginado")
+                        .param("cursor", "no-es-un-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ----------------------------------------------------------
+    // TEST: EXPORTACIÓN NDJSON
+    // ----------------------------------------------------------
+    @Test
+    void testExportarHistorial_debeEscribirUnaLineaJsonPorTransaccion() throws Exception {
+        String numeroCuenta = "530000001";
+        Transaccion t1 = new Transaccion(TipoTransaccion.RETIRO, Dinero.of(BigDecimal.ONE), numeroCuenta);
+        Transaccion t2 = new Transaccion(TipoTransaccion.CONSIGNACION, Dinero.of(BigDecimal.TEN), numeroCuenta);
+
+        when(gestionTransaccionPort.exportarHistorial(eq(numeroCuenta), eq(PeriodoConsulta.COMPLETO), any())).thenAnswer(invocation -> {
+            Consumer<Transaccion> consumidor = invocation.getArgument(2);
+            consumidor.accept(t1);
+            consumidor.accept(t2);
+            return 2L;
+        });
+        when(mapper.toRespuestaDTO(t1)).thenReturn(new TransaccionRespuestaDTO(1L, "RETIRO", BigDecimal.ONE, null, numeroCuenta, null));
+        when(mapper.toRespuestaDTO(t2)).thenReturn(new TransaccionRespuestaDTO(2L, "CONSIGNACION", BigDecimal.TEN, null, null, numeroCuenta));
+
+        MvcResult inicio = mockMvc.perform(get("/api/v1/transacciones/historial/" + numeroCuenta + "/exportar"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String cuerpo = mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals(1L, objectMapper.readValue(lineas[0], TransaccionRespuestaDTO.class).getId());
+        assertEquals(2L, objectMapper.readValue(lineas[1], TransaccionRespuestaDTO.class).getId());
+    }
+
+    @Test
+    void testExportarHistorial_conRangoDeFechas_debeRecorrerSoloElPeriodoConHastaInclusive() throws Exception {
+        String numeroCuenta = "530000001";
+        PeriodoConsulta esperado = PeriodoConsulta.entre(
+            LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+
+        when(gestionTransaccionPort.exportarHistorial(eq(numeroCuenta), eq(esperado), any())).thenReturn(0L);
+
+        MvcResult inicio = mockMvc.perform(get("/api/v1/transacciones/historial/" + numeroCuenta + "/exportar")
+                        .param("desde", "2024-01-01")
+                        .param("hasta", "2024-01-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk());
+        verify(gestionTransaccionPort).exportarHistorial(eq(numeroCuenta), eq(esperado), any());
+    }
+
+    @Test
+    void testExportarHistorial_conRangoInvertido_debeRetornar400SinRecorrer() throws Exception {
+        mockMvc.perform(get("/api/v1/transacciones/historial/530000001/exportar")
+                        .param("desde", "2024-02-01")
+                        .param("hasta", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+        verify(gestionTransaccionPort, never()).exportarHistorial(anyString(), any(), any());
+    }
+
+    @Test
+    void testObtenerHistorial_conRangoDeFechas_debeConsultarElPeriodoConHastaInclusive() throws Exception {
+        String numeroCuenta = "530000001";
+        PeriodoConsulta esperado = PeriodoConsulta.entre(
+            LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+
+        when(gestionTransaccionPort.obtenerHistorial(numeroCuenta, esperado)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/transacciones/historial/" + numeroCuenta)
+                        .param("desde", "2024-01-01")
+                        .param("hasta", "2024-01-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void testRealizarTransaccion_conIdempotencyKey_debeDelegarConClavePorUsuario() throws Exception {
+        TransaccionCreacionDTO dto = new TransaccionCreacionDTO();
+        dto.setTipoMovimiento("CONSIGNACION");
+        dto.setCuentaDestino("540000005");
+        dto.setMonto(new BigDecimal("100.00"));
+
+        Transaccion trans = new Transaccion(TipoTransaccion.CONSIGNACION, Dinero.of(BigDecimal.valueOf(100)), "540000005");
+        trans.setId(7L);
+        TransaccionRespuestaDTO respuesta = new TransaccionRespuestaDTO();
+        respuesta.setId(7L);
+
+        when(ejecucionIdempotentePort.ejecutar(eq("cajero1:op-123"), eq("CONSIGNACION|null|540000005|100"), any()))
+            .thenReturn(List.of(trans));
+        when(mapper.toRespuestaDTO(trans)).thenReturn(respuesta);
+
+        mockMvc.perform(post("/api/v1/transacciones")
+                .principal(() -> "cajero1")
+                .header(TransaccionController.HEADER_IDEMPOTENCIA, "op-123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(7));
+
+        // El movimiento lo ejecuta (una sola vez) el puerto de idempotencia
+        verify(gestionTransaccionPort, never()).consignar(any(), any());
+    }
+
+    @Test
+    void testRealizarTransaccion_idempotencyKeyDemasiadoLarga_debeRetornar400() throws Exception {
+        TransaccionCreacionDTO dto = new TransaccionCreacionDTO();
+        dto.setTipoMovimiento("RETIRO");
+        dto.setCuentaOrigen("530000001");
+        dto.setMonto(BigDecimal.TEN);
+
+        mockMvc.perform(post("/api/v1/transacciones")
+                .header(TransaccionController.HEADER_IDEMPOTENCIA, "x".repeat(101))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ----------------------------------------------------------
+    // TEST: LOTE DE MOVIMIENTOS
+    // ----------------------------------------------------------
+    @Test
+    void testProcesarLote_ndjson_debeEscribirUnResultadoPorMovimiento() throws Exception {
+        Transaccion trans = new Transaccion(TipoTransaccion.CONSIGNACION, Dinero.of(BigDecimal.TEN), "540000005");
+        List<SolicitudMovimiento> recibidos = new ArrayList<>();
+        when(procesamientoLotePort.procesar(any(), any())).thenAnswer(invocation -> {
+            Iterator<SolicitudMovimiento> movimientos = invocation.getArgument(0);
+            Consumer<ResultadoMovimiento> consumidor = invocation.getArgument(1);
+            movimientos.forEachRemaining(recibidos::add);
+            consumidor.accept(ResultadoMovimiento.aplicado(0, List.of(trans)));
+            consumidor.accept(ResultadoMovimiento.rechazado(1, "Saldo insuficiente."));
+            return 2L;
+        });
+        when(mapper.toRespuestaDTO(trans)).thenReturn(new TransaccionRespuestaDTO(9L, "CONSIGNACION", BigDecimal.TEN, null, null, "540000005"));
+
+        String ndjson = "{\"tipoMovimiento\":\"CONSIGNACION\",\"cuentaDestino\":\"540000005\",\"monto\":10}\n"
+                      + "{\"tipoMovimiento\":\"RETIRO\",\"cuentaOrigen\":\"530000001\",\"monto\":99}\n";
+        MvcResult inicio = mockMvc.perform(post("/api/v1/transacciones/lote")
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lineas = mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, recibidos.size());
+        assertEquals("530000001", recibidos.get(1).getCuentaOrigen());
+        ResultadoLoteDTO aplicado = objectMapper.readValue(lineas[0], ResultadoLoteDTO.class);
+        assertEquals("APLICADO", aplicado.getEstado());
+        assertEquals(9L, aplicado.getTransacciones().get(0).getId());
+        ResultadoLoteDTO rechazado = objectMapper.readValue(lineas[1], ResultadoLoteDTO.class);
+        assertEquals(1L, rechazado.getIndice());
+        assertEquals("Saldo insuficiente.", rechazado.getError());
+    }
+
+    @Test
+    void testProcesarLote_arregloConElementoInvalido_debeInformarDondeSeDetuvo() throws Exception {
+        when(procesamientoLotePort.procesar(any(), any())).thenAnswer(invocation -> {
+            Iterator<SolicitudMovimiento> movimientos = invocation.getArgument(0);
+            Consumer<ResultadoMovimiento> consumidor = invocation.getArgument(1);
+            movimientos.next();
+            consumidor.accept(ResultadoMovimiento.rechazado(0, "Cuenta 1 no encontrada."));
+            movimientos.next(); // el segundo elemento no es un objeto válido
+            return 1L;
+        });
+
+        MvcResult inicio = mockMvc.perform(post("/api/v1/transacciones/lote")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"tipoMovimiento\":\"RETIRO\",\"cuentaOrigen\":\"1\",\"monto\":5}, {\"monto\": \"abc\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lineas = mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, lineas.length);
+        ResultadoLoteDTO error = objectMapper.readValue(lineas[1], ResultadoLoteDTO.class);
+        assertEquals(1L, error.getIndice());
+        assertEquals("RECHAZADO", error.getEstado());
+    }
 }
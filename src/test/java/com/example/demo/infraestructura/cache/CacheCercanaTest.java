@@ -0,0 +1,92 @@
+package com.example.demo.infraestructura.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CacheCercanaTest {
+
+    private SimpleMeterRegistry registry;
+    private CanalInvalidacionLocal canal;
+    private CacheCercana<String> cache;
+    private AtomicInteger lecturas;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        canal = new CanalInvalidacionLocal();
+        cache = new CacheCercana<>("cuentas", 100, Duration.ofMinutes(5), canal, registry);
+        lecturas = new AtomicInteger();
+    }
+
+    @AfterEach
+    void limpiarSincronizacion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Optional<String> cargar(String clave) {
+        lecturas.incrementAndGet();
+        return Optional.of("saldo-" + lecturas.get());
+    }
+
+    @Test
+    void testObtener_segundaLectura_debeServirseDesdeCache() {
+        assertEquals("saldo-1", cache.obtener("5335238695", this::cargar).orElseThrow());
+        assertEquals("saldo-1", cache.obtener("5335238695", this::cargar).orElseThrow());
+
+        assertEquals(1, lecturas.get());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "cuentas", "result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "cuentas", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testObtener_cuentaInexistente_noDebeGuardarLaAusencia() {
+        assertTrue(cache.obtener("0000000000", k -> Optional.empty()).isEmpty());
+
+        assertEquals(0, cache.tamano());
+    }
+
+    @Test
+    void testInvalidar_debeForzarNuevaLectura() {
+        cache.obtener("5335238695", this::cargar);
+
+        cache.invalidar("5335238695");
+
+        assertEquals("saldo-2", cache.obtener("5335238695", this::cargar).orElseThrow());
+    }
+
+    @Test
+    void testInvalidar_debeLlegarALosDemasNodosPorElCanal() {
+        CacheCercana<String> otroNodo = new CacheCercana<>("cuentas", 100, Duration.ofMinutes(5), canal, new SimpleMeterRegistry());
+        otroNodo.poner("5335238695", "saldo-anterior");
+
+        cache.invalidar("5335238695");
+
+        assertEquals(0, otroNodo.tamano());
+    }
+
+    @Test
+    void testInvalidar_dentroDeTransaccion_debeDescartarRecargasPreviasAlCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidar("5335238695");
+        // Lectura concurrente antes del commit: vuelve a cargar el valor anterior
+        cache.poner("5335238695", "saldo-sin-confirmar");
+
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(0, cache.tamano());
+    }
+}
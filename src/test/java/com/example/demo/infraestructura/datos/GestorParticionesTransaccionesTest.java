@@ -0,0 +1,75 @@
+package com.example.demo.infraestructura.datos;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class GestorParticionesTransaccionesTest {
+
+    // 2026-10-17
+    private static final Clock RELOJ = Clock.fixed(Instant.parse("2026-10-17T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private GestorParticionesTransacciones gestor;
+
+    @BeforeEach
+    void setUp() {
+        gestor = new GestorParticionesTransacciones(jdbcTemplate, 2, 0, RELOJ);
+    }
+
+    @Test
+    void testNombreParticion_debeUsarAnioYMes() {
+        assertEquals("transacciones_p202603", GestorParticionesTransacciones.nombreParticion(YearMonth.of(2026, 3)));
+    }
+
+    @Test
+    void testCrearParticionesFuturas_debeCrearSoloLasQueNoExisten() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), anyString()))
+            .thenAnswer(inv -> "transacciones_p202610".equals(inv.getArgument(2)));
+
+        List<String> creadas = gestor.crearParticionesFuturas();
+
+        assertEquals(List.of("transacciones_p202611", "transacciones_p202612"), creadas);
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transacciones_p202611 PARTITION OF transacciones "
+                + "FOR VALUES FROM ('2026-11-01') TO ('2026-12-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transacciones_p202612 PARTITION OF transacciones "
+                + "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate, never()).execute(contains("transacciones_p202610"));
+    }
+
+    @Test
+    void testDesacoplarParticionesAnteriores_debeRespetarLaRetencionYLaParticionPorDefecto() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), anyString()))
+            .thenReturn(List.of("transacciones_default", "transacciones_p202606", "transacciones_p202607",
+                    "transacciones_p202608", "transacciones_p202610"));
+
+        List<String> desacopladas = gestor.desacoplarParticionesAnteriores(3);
+
+        // Límite: 2026-07; se conservan julio en adelante
+        assertEquals(List.of("transacciones_p202606"), desacopladas);
+        verify(jdbcTemplate).execute("ALTER TABLE transacciones DETACH PARTITION transacciones_p202606");
+        verify(jdbcTemplate, never()).execute(contains("transacciones_default"));
+    }
+
+    @Test
+    void testDesacoplarParticionesAnteriores_conRetencionInvalida_debeLanzarExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> gestor.desacoplarParticionesAnteriores(0));
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.infraestructura.datos;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Relleno contra el PostgreSQL de application.properties con db/migracion/saldo_resultante.sql aplicado;
+ * si no está disponible la prueba se omite. Los bloques se unen a la transacción de la prueba y se revierten.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf("postgresDisponible")
+class RellenoSaldoResultanteTest {
+
+    private static final String CUENTA = "7900000001";
+    private static final String OTRA = "7900000002";
+    private static final LocalDateTime FECHA = LocalDateTime.of(2026, 10, 10, 9, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RellenoSaldoResultante relleno;
+
+    static boolean postgresDisponible() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", 5432), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns "
+                + "WHERE table_name = 'transacciones' AND column_name = 'saldo_resultante'", Integer.class) > 0,
+                "Falta db/migracion/saldo_resultante.sql");
+        // Bloques de dos filas para recorrer la cuenta en varios pasos
+        relleno = new RellenoSaldoResultante(jdbcTemplate, new TransactionTemplate(transactionManager),
+                false, false, 2, 0, Duration.ofMinutes(10));
+    }
+
+    private long insertar(String tipo, String monto, LocalDateTime fecha, String origen, String destino, String saldo) {
+        return jdbcTemplate.queryForObject("INSERT INTO transacciones (tipo, monto, fecha, numero_cuenta_origen, "
+                + "numero_cuenta_destino, saldo_resultante) VALUES (?, ?, ?, ?, ?, ?) RETURNING id", Long.class,
+                tipo, new BigDecimal(monto), fecha, origen, destino, saldo == null ? null : new BigDecimal(saldo));
+    }
+
+    private BigDecimal saldo(long id) {
+        return jdbcTemplate.queryForObject("SELECT saldo_resultante FROM transacciones WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private void rellenar(String numeroCuenta) {
+        while (relleno.completarBloque(numeroCuenta) != RellenoSaldoResultante.CUENTA_COMPLETA) {
+            // siguiente bloque
+        }
+    }
+
+    @Test
+    void testRelleno_debePartirDeLaFilaPosteriorYRecorrerHaciaAtras() {
+        long consignacion = insertar("CONSIGNACION", "100.00", FECHA, null, CUENTA, null);
+        long retiro = insertar("RETIRO", "30.00", FECHA.plusMinutes(1), CUENTA, null, null);
+        long credito = insertar("TRANSFERENCIA_CREDITO", "20.00", FECHA.plusMinutes(2), OTRA, CUENTA, null);
+        // El débito de la otra cuenta no mueve el saldo de CUENTA
+        long debitoAjeno = insertar("TRANSFERENCIA_DEBITO", "20.00", FECHA.plusMinutes(2), OTRA, CUENTA, null);
+        long posterior = insertar("CONSIGNACION", "50.00", FECHA.plusMinutes(3), null, CUENTA, "500.00");
+
+        rellenar(CUENTA);
+
+        assertEquals(new BigDecimal("500.00"), saldo(posterior));
+        assertEquals(new BigDecimal("450.00"), saldo(credito));
+        assertEquals(new BigDecimal("430.00"), saldo(retiro));
+        assertEquals(new BigDecimal("460.00"), saldo(consignacion));
+        assertNull(saldo(debitoAjeno));
+    }
+
+    @Test
+    void testRelleno_transferenciaRevertida_soloDebeMoverElOrigen() {
+        assumeTrue(jdbcTemplate.queryForObject("SELECT count(*) FROM pg_constraint WHERE conrelid = 'transacciones'::regclass "
+                + "AND pg_get_constraintdef(oid) LIKE '%TRANSFERENCIA_REVERSO%'", Integer.class) > 0,
+                "Falta la restricción de tipo de db/migracion/diario_saldos.sql");
+        long debito = insertar("TRANSFERENCIA_DEBITO", "40.00", FECHA, CUENTA, OTRA, null);
+        long devolucion = insertar("TRANSFERENCIA_REVERSO", "40.00", FECHA.plusMinutes(1), CUENTA, OTRA, null);
+        long posterior = insertar("CONSIGNACION", "10.00", FECHA.plusMinutes(2), null, CUENTA, "210.00");
+        long posteriorOtra = insertar("CONSIGNACION", "5.00", FECHA.plusMinutes(2), null, OTRA, "5.00");
+
+        rellenar(CUENTA);
+        rellenar(OTRA);
+
+        assertEquals(new BigDecimal("200.00"), saldo(devolucion));
+        assertEquals(new BigDecimal("160.00"), saldo(debito));
+        assertEquals(new BigDecimal("210.00"), saldo(posterior));
+        assertEquals(new BigDecimal("5.00"), saldo(posteriorOtra));
+    }
+
+    @Test
+    void testRelleno_sinFilaPosterior_debePartirDelSaldoActualDeLaCuenta() {
+        String numeroCuenta = jdbcTemplate.queryForObject(
+                "SELECT numero_cuenta FROM productos_financieros ORDER BY id LIMIT 1", String.class);
+        BigDecimal saldoActual = jdbcTemplate.queryForObject("SELECT p.saldo + COALESCE((SELECT sum(f.saldo) "
+                + "FROM saldos_fraccionados f WHERE f.numero_cuenta = p.numero_cuenta), 0) "
+                + "FROM productos_financieros p WHERE p.numero_cuenta = ?", BigDecimal.class, numeroCuenta);
+        LocalDateTime despues = LocalDateTime.now().plusDays(1);
+        long consignacion = insertar("CONSIGNACION", "10.00", despues, null, numeroCuenta, null);
+        long retiro = insertar("RETIRO", "4.00", despues.plusSeconds(1), numeroCuenta, null, null);
+
+        assertEquals(2, relleno.completarBloque(numeroCuenta));
+
+        assertEquals(0, saldoActual.compareTo(saldo(retiro)));
+        assertEquals(0, saldoActual.add(new BigDecimal("4.00")).compareTo(saldo(consignacion)));
+    }
+}
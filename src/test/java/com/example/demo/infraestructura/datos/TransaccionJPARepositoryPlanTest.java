@@ -0,0 +1,141 @@
+package com.example.demo.infraestructura.datos;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+/**
+ * Verifica con EXPLAIN que el historial por cuenta se resuelve con los índices
+ * (cuenta, fecha DESC, id DESC) combinados por Merge Append, sin Seq Scan sobre transacciones.
+ *
+ * Si la tabla está particionada por mes, verifica además que un periodo acotado descarta las
+ * particiones que no lo contienen.
+ *
+ * Usa el PostgreSQL configurado en application.properties (el plan depende del motor real);
+ * si no está disponible la prueba se omite. Los datos sembrados se revierten al finalizar.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf("postgresDisponible")
+class TransaccionJPARepositoryPlanTest {
+
+    private static final String CUENTA = "7700000042";
+
+    // En una tabla particionada cada partición tiene su propia copia del índice con nombre generado
+    private static final Pattern INDICE_ORIGEN = Pattern.compile("Index (Only )?Scan( Backward)? (using|on) \\S*origen\\S*");
+    private static final Pattern INDICE_DESTINO = Pattern.compile("Index (Only )?Scan( Backward)? (using|on) \\S*destino\\S*");
+    // Las particiones futuras aún vacías se recorren con costo 0; solo interesa un Seq Scan con filas
+    private static final Pattern SEQ_SCAN_CON_FILAS = Pattern.compile("Seq Scan on \\S+ \\S+\\s+\\(cost=(?!0\\.00\\.\\.0\\.00 )");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    static boolean postgresDisponible() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", 5432), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    void sembrarDatos() {
+        // 200 cuentas x 100 movimientos, la mitad como origen y la otra mitad como destino
+        entityManager.createNativeQuery(
+                "INSERT INTO transacciones (tipo, monto, fecha, numero_cuenta_origen, numero_cuenta_destino) "
+                + "SELECT CASE WHEN g % 2 = 0 THEN 'RETIRO' ELSE 'CONSIGNACION' END, 10.00, "
+                + "       TIMESTAMP '2024-01-01' + g * INTERVAL '1 minute', "
+                + "       CASE WHEN g % 2 = 0 THEN '77' || lpad((g % 200)::text, 8, '0') END, "
+                + "       CASE WHEN g % 2 = 1 THEN '77' || lpad((g % 200)::text, 8, '0') END "
+                + "FROM generate_series(1, 20000) g")
+            .executeUpdate();
+        entityManager.createNativeQuery("ANALYZE transacciones").executeUpdate();
+    }
+
+    @Test
+    void historialCompleto_debeUsarAmbosIndicesSinSeqScan() {
+        String plan = explicar(TransaccionJPARepository.HISTORIAL_POR_CUENTA, null, null);
+
+        assertUsaIndices(plan);
+    }
+
+    @Test
+    void primeraPagina_debeUsarAmbosIndicesSinSeqScan() {
+        String plan = explicar(TransaccionJPARepository.PRIMERA_PAGINA, null, 50);
+
+        assertUsaIndices(plan);
+    }
+
+    @Test
+    void paginaSiguiente_debeAplicarElCursorComoCondicionDeIndice() {
+        String plan = explicar(TransaccionJPARepository.PAGINA_DESPUES_DE, LocalDateTime.of(2024, 1, 5, 0, 0), 50);
+
+        assertUsaIndices(plan);
+        assertTrue(plan.contains("Index Cond") && plan.contains("ROW(fecha, id) <"),
+                "El cursor (fecha, id) debe resolverse dentro del índice:\n" + plan);
+    }
+
+    @Test
+    void historialConPeriodo_debeDescartarParticionesFueraDelRango() {
+        assumeTrue(tablaParticionada(), "La tabla transacciones no está particionada");
+
+        String plan = explicar(TransaccionJPARepository.HISTORIAL_POR_CUENTA, null, null,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+
+        assertUsaIndices(plan);
+        assertFalse(plan.contains("transacciones_p"),
+                "Ninguna partición mensual contiene enero de 2024; solo debe leerse la partición por defecto:\n" + plan);
+    }
+
+    private boolean tablaParticionada() {
+        Object total = entityManager.createNativeQuery(
+                "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('transacciones')")
+            .getSingleResult();
+        return ((Number) total).intValue() > 0;
+    }
+
+    private String explicar(String sql, LocalDateTime fecha, Integer limite) {
+        return explicar(sql, fecha, limite, LocalDateTime.of(1, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 0, 0));
+    }
+
+    private String explicar(String sql, LocalDateTime fecha, Integer limite, LocalDateTime desde, LocalDateTime hasta) {
+        Query query = entityManager.createNativeQuery("EXPLAIN " + sql)
+                .setParameter("numeroCuenta", CUENTA)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta);
+        if (fecha != null) {
+            query.setParameter("fecha", fecha).setParameter("id", Long.MAX_VALUE);
+        }
+        if (limite != null) {
+            query.setParameter("limite", limite);
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> filas = query.getResultList();
+        return filas.stream().map(String::valueOf).collect(Collectors.joining("\n"));
+    }
+
+    private static void assertUsaIndices(String plan) {
+        assertTrue(plan.contains("Merge Append"), "Se esperaba Merge Append de las dos ramas:\n" + plan);
+        assertTrue(INDICE_ORIGEN.matcher(plan).find(), "Falta el índice de origen:\n" + plan);
+        assertTrue(INDICE_DESTINO.matcher(plan).find(), "Falta el índice de destino:\n" + plan);
+        assertFalse(SEQ_SCAN_CON_FILAS.matcher(plan).find(), "No debe recorrer la tabla completa:\n" + plan);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtUtilTest {
+
+    private SimpleMeterRegistry registry;
+    private RegistroVersionesUsuario versiones;
+    private JwtUtil jwtUtil;
+    private UserDetails admin;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        versiones = new RegistroVersionesUsuario(new CanalInvalidacionLocal());
+        jwtUtil = new JwtUtil(registry, versiones, 100);
+        admin = User.withUsername("admin_app").password("x").roles("ADMIN").build();
+    }
+
+    private double aciertos() {
+        return registry.get("cache.gets").tags("cache", "jwt-verificados", "result", "hit").functionCounter().count();
+    }
+
+    @Test
+    void testVerificar_tokenValido_debeRetornarUsuarioYExpiracion() {
+        String token = jwtUtil.generateToken(admin);
+
+        ClaimsVerificados claims = jwtUtil.verificar(token);
+
+        assertEquals("admin_app", claims.getUsuario());
+        assertTrue(claims.vigenteEn(Instant.now()));
+        assertTrue(jwtUtil.validateToken(token, admin));
+    }
+
+    @Test
+    void testVerificar_mismoToken_debeServirseDesdeCache() {
+        String token = jwtUtil.generateToken(admin);
+
+        ClaimsVerificados primera = jwtUtil.verificar(token);
+        ClaimsVerificados segunda = jwtUtil.verificar(token);
+
+        assertSame(primera, segunda);
+        assertEquals(1.0, aciertos());
+    }
+
+    @Test
+    void testVerificar_firmaAlterada_debeLanzarExcepcionSinGuardarEnCache() {
+        String token = jwtUtil.generateToken(admin);
+        String alterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtUtil.verificar(alterado));
+        assertThrows(JwtException.class, () -> jwtUtil.verificar(alterado));
+        assertEquals(0.0, aciertos());
+    }
+
+    @Test
+    void testValidateToken_conOtroUsuario_debeRetornarFalse() {
+        String token = jwtUtil.generateToken(admin);
+        UserDetails otro = User.withUsername("otro").password("x").roles("ADMIN").build();
+
+        assertFalse(jwtUtil.validateToken(token, otro));
+    }
+
+    @Test
+    void testGenerateToken_debeIncluirRolesYVersionDelUsuario() {
+        versiones.establecer("admin_app", 1L);
+
+        ClaimsVerificados claims = jwtUtil.verificar(jwtUtil.generateToken(admin));
+
+        assertEquals(List.of("ROLE_ADMIN"), claims.getRoles());
+        assertEquals(1L, claims.getVersionUsuario());
+        assertTrue(versiones.vigente("admin_app", claims.getVersionUsuario()));
+    }
+}
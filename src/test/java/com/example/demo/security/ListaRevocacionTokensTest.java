@@ -0,0 +1,112 @@
+package com.example.demo.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+
+class ListaRevocacionTokensTest {
+
+    private static final Instant INICIO = Instant.parse("2026-10-17T10:00:00Z");
+
+    private RelojAjustable reloj;
+    private CanalInvalidacionLocal canal;
+    private ListaRevocacionTokens lista;
+
+    @BeforeEach
+    void setUp() {
+        reloj = new RelojAjustable(INICIO);
+        canal = new CanalInvalidacionLocal();
+        lista = new ListaRevocacionTokens(canal, Duration.ofMinutes(1), 1024, reloj);
+    }
+
+    @Test
+    void testRevocar_debeDetectarSoloElTokenRevocado() {
+        Instant expira = INICIO.plus(JwtUtil.VIGENCIA);
+        lista.revocar("jti-1", expira);
+
+        assertTrue(lista.revocado("jti-1", expira));
+        assertFalse(lista.revocado("jti-2", expira));
+        assertFalse(lista.revocado(null, expira));
+    }
+
+    @Test
+    void testRevocado_sinFalsosNegativosConMuchosTokens() {
+        Instant expira = INICIO.plusSeconds(90);
+        String[] jtis = new String[2000];
+        for (int i = 0; i < jtis.length; i++) {
+            jtis[i] = UUID.randomUUID().toString();
+            lista.revocar(jtis[i], expira);
+        }
+
+        // Con el filtro saturado el conjunto exacto sigue evitando falsos positivos
+        for (String jti : jtis) {
+            assertTrue(lista.revocado(jti, expira));
+        }
+        assertFalse(lista.revocado(UUID.randomUUID().toString(), expira));
+        assertEquals(jtis.length, lista.tamano());
+    }
+
+    @Test
+    void testPurgar_debeDescartarCubetasConTodosLosTokensExpirados() {
+        Instant pronto = INICIO.plusSeconds(30);
+        Instant tarde = INICIO.plus(JwtUtil.VIGENCIA);
+        lista.revocar("pronto", pronto);
+        lista.revocar("tarde", tarde);
+
+        reloj.ahora = INICIO.plusSeconds(60);
+        lista.purgar();
+
+        assertEquals(1, lista.tamano());
+        assertTrue(lista.revocado("tarde", tarde));
+    }
+
+    @Test
+    void testRevocar_tokenYaExpirado_noDebeRegistrarse() {
+        lista.revocar("viejo", INICIO.minusSeconds(1));
+
+        assertEquals(0, lista.tamano());
+    }
+
+    @Test
+    void testRevocacionDeOtroNodo_debeAplicarseDesdeElCanal() {
+        Instant expira = INICIO.plusSeconds(120);
+
+        canal.publicar(ListaRevocacionTokens.CANAL, "remoto:" + expira.getEpochSecond());
+
+        assertTrue(lista.revocado("remoto", expira));
+    }
+
+    private static final class RelojAjustable extends Clock {
+
+        private Instant ahora;
+
+        RelojAjustable(Instant ahora) {
+            this.ahora = ahora;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
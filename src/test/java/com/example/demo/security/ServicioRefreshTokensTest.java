@@ -0,0 +1,118 @@
+package com.example.demo.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ServicioRefreshTokensTest {
+
+    // Usuarios vigentes, como los devuelve ServicioUsuarios.loadUserByUsername
+    private final Map<String, UserDetails> usuarios = new ConcurrentHashMap<>();
+    private RegistroVersionesUsuario versiones;
+    private JwtUtil jwtUtil;
+    private ServicioRefreshTokens servicio;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        versiones = new RegistroVersionesUsuario(new CanalInvalidacionLocal());
+        jwtUtil = new JwtUtil(registry, versiones, 100);
+        servicio = new ServicioRefreshTokens(new AlmacenRefreshTokensMemoria(registry, 100), jwtUtil, versiones,
+            username -> Optional.ofNullable(usuarios.get(username))
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username)),
+            Duration.ofDays(7));
+    }
+
+    private TokensEmitidos login() {
+        UserDetails usuario = User.withUsername("admin_app").password("x").roles("ADMIN").build();
+        usuarios.put(usuario.getUsername(), usuario);
+        return servicio.emitir(usuario);
+    }
+
+    @Test
+    void testRenovar_debeEmitirAccessTokenConLosRolesDelLogin() {
+        TokensEmitidos inicial = login();
+
+        TokensEmitidos renovados = servicio.renovar(inicial.getRefreshToken());
+
+        ClaimsVerificados claims = jwtUtil.verificar(renovados.getAccessToken());
+        assertEquals("admin_app", claims.getUsuario());
+        assertEquals(List.of("ROLE_ADMIN"), claims.getRoles());
+        assertNotEquals(inicial.getRefreshToken(), renovados.getRefreshToken());
+    }
+
+    @Test
+    void testRenovar_tokenRotado_noDebeAceptarseDeNuevo() {
+        TokensEmitidos inicial = login();
+        servicio.renovar(inicial.getRefreshToken());
+
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar(inicial.getRefreshToken()));
+    }
+
+    @Test
+    void testRenovar_reusoDetectado_debeRevocarTodaLaFamilia() {
+        TokensEmitidos inicial = login();
+        TokensEmitidos siguiente = servicio.renovar(inicial.getRefreshToken());
+        TokensEmitidos otroLogin = login();
+
+        // Un atacante presenta el token ya canjeado: el sucesor legítimo también queda invalidado
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar(inicial.getRefreshToken()));
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar(siguiente.getRefreshToken()));
+        // Las demás familias (otros logins) no se ven afectadas
+        assertNotNull(servicio.renovar(otroLogin.getRefreshToken()));
+    }
+
+    @Test
+    void testRenovar_usuarioRevocado_debeRechazar() {
+        TokensEmitidos inicial = login();
+        versiones.establecer("admin_app", 1L);
+
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar(inicial.getRefreshToken()));
+    }
+
+    @Test
+    void testRenovar_debeUsarLosRolesVigentesDelUsuario() {
+        TokensEmitidos inicial = login();
+        usuarios.put("admin_app", User.withUsername("admin_app").password("x").roles("OPERADOR").build());
+
+        TokensEmitidos renovados = servicio.renovar(inicial.getRefreshToken());
+
+        assertEquals(List.of("ROLE_OPERADOR"), jwtUtil.verificar(renovados.getAccessToken()).getRoles());
+    }
+
+    @Test
+    void testRenovar_usuarioEliminado_debeRechazar() {
+        TokensEmitidos inicial = login();
+        usuarios.remove("admin_app");
+
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar(inicial.getRefreshToken()));
+    }
+
+    @Test
+    void testRenovar_usuarioInactivo_debeRechazar() {
+        TokensEmitidos inicial = login();
+        usuarios.put("admin_app", User.withUsername("admin_app").password("x").roles("ADMIN").disabled(true).build());
+
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar(inicial.getRefreshToken()));
+    }
+
+    @Test
+    void testRenovar_tokenDesconocido_debeRechazar() {
+        assertThrows(BadCredentialsException.class, () -> servicio.renovar("no-existe"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.security;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.demo.config.SecurityConfig;
+
+import com.example.demo.infraestructura.cache.CacheCercana;
+import com.example.demo.infraestructura.cache.CanalInvalidacionLocal;
+import com.example.demo.infraestructura.datos.UsuarioJPA;
+import com.example.demo.infraestructura.datos.UsuarioJPARepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ServicioUsuariosTest {
+
+    @Mock
+    private UsuarioJPARepository repository;
+
+    private PasswordEncoder passwordEncoder;
+    private RegistroVersionesUsuario versiones;
+    private ServicioUsuarios servicio;
+
+    @BeforeEach
+    void setUp() {
+        CanalInvalidacionLocal canal = new CanalInvalidacionLocal();
+        // El mismo codificador de la aplicación, con la fuerza mínima: las pruebas no miden el costo del hash
+        passwordEncoder = new SecurityConfig().passwordEncoder(4);
+        versiones = new RegistroVersionesUsuario(canal);
+        servicio = new ServicioUsuarios(repository,
+            new CacheCercana<>("usuarios", 100, Duration.ofMinutes(5), canal, new SimpleMeterRegistry()),
+            passwordEncoder, versiones);
+    }
+
+    private UsuarioJPA usuario(String hash, boolean activo) {
+        return new UsuarioJPA(1L, "operador1", hash, "OPERADOR", null, activo, 0L, null, null);
+    }
+
+    @Test
+    void testLoadUserByUsername_segundaConsulta_noDebeIrABaseDeDatos() {
+        when(repository.findByUsername("operador1")).thenReturn(Optional.of(usuario("{noop}clave", true)));
+
+        UserDetails primera = servicio.loadUserByUsername("operador1");
+        // Spring Security borra la contraseña del usuario autenticado: no debe afectar a la caché
+        ((CredentialsContainer) primera).eraseCredentials();
+        UserDetails segunda = servicio.loadUserByUsername("operador1");
+
+        verify(repository, times(1)).findByUsername("operador1");
+        assertEquals("{noop}clave", segunda.getPassword());
+        assertTrue(segunda.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_OPERADOR")));
+    }
+
+    @Test
+    void testLoadUserByUsername_inactivoOInexistente_debeLanzarUsernameNotFound() {
+        when(repository.findByUsername("operador1")).thenReturn(Optional.of(usuario("{noop}clave", false)));
+
+        assertThrows(UsernameNotFoundException.class, () -> servicio.loadUserByUsername("operador1"));
+        assertThrows(UsernameNotFoundException.class, () -> servicio.loadUserByUsername("otro"));
+    }
+
+    @Test
+    void testUpdatePassword_debePersistirEInvalidarLaCache() {
+        when(repository.findByUsername("operador1")).thenReturn(Optional.of(usuario("{noop}clave", true)));
+        UserDetails usuario = servicio.loadUserByUsername("operador1");
+        String nuevoHash = passwordEncoder.encode("clave");
+
+        servicio.updatePassword(usuario, nuevoHash);
+        servicio.loadUserByUsername("operador1");
+
+        verify(repository).actualizarPassword("operador1", nuevoHash);
+        verify(repository, times(2)).findByUsername("operador1");
+        assertTrue(passwordEncoder.matches("clave", "{noop}clave"));
+        assertFalse(passwordEncoder.matches("otra", "{noop}clave"));
+        assertTrue(passwordEncoder.upgradeEncoding("{noop}clave"));
+        assertTrue(nuevoHash.startsWith("{bcrypt}$2a$04$"));
+        assertFalse(passwordEncoder.upgradeEncoding(nuevoHash));
+    }
+
+    @Test
+    void testCrear_debeGuardarHashBCrypt() {
+        when(repository.existsByUsername("operador1")).thenReturn(false);
+        when(repository.save(any(UsuarioJPA.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        UserDetails creado = servicio.crear("operador1", "clave-segura", List.of("OPERADOR"), null);
+
+        assertTrue(creado.getPassword().startsWith("{bcrypt}"));
+        assertTrue(passwordEncoder.matches("clave-segura", creado.getPassword()));
+    }
+
+    @Test
+    void testCrear_datosInvalidos_debeLanzarIllegalArgument() {
+        assertThrows(IllegalArgumentException.class,
+            () -> servicio.crear("x", "clave-segura", List.of("SUPERUSUARIO"), null));
+        assertThrows(IllegalArgumentException.class,
+            () -> servicio.crear("x", "clave-segura", List.of("CLIENTE"), null));
+
+        when(repository.existsByUsername("operador1")).thenReturn(true);
+        assertThrows(IllegalArgumentException.class,
+            () -> servicio.crear("operador1", "clave-segura", List.of("OPERADOR"), null));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testRevocarTokens_debeAplicarLaVersionPersistida() {
+        when(repository.incrementarVersionTokens("operador1")).thenReturn(1);
+        when(repository.buscarVersionTokens("operador1")).thenReturn(Optional.of(3L));
+
+        assertEquals(3L, servicio.revocarTokens("operador1"));
+        assertFalse(versiones.vigente("operador1", 2L));
+        assertTrue(versiones.vigente("operador1", 3L));
+    }
+
+    @Test
+    void testRevocarTokens_usuarioInexistente_debeLanzarIllegalArgument() {
+        when(repository.incrementarVersionTokens("nadie")).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> servicio.revocarTokens("nadie"));
+    }
+}